@@ -28,17 +28,21 @@ import com.google.gwt.event.dom.client.KeyPressHandler;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.FlowPanel;
 import com.google.gwt.user.client.ui.HasEnabled;
+import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.Panel;
 import com.google.gwt.user.client.ui.Widget;
 import com.vaadin.client.ApplicationConnection;
 import com.vaadin.client.Focusable;
 import com.vaadin.client.UIDL;
+import com.vaadin.shared.ui.select.AbstractSelectConstants;
 
 public abstract class VOptionGroupBase extends Composite implements Field,
         ClickHandler, ChangeHandler, KeyPressHandler, Focusable, HasEnabled {
 
     public static final String CLASSNAME_OPTION = "v-select-option";
 
+    public static final String CLASSNAME_PAGER = "v-select-pager";
+
     /** For internal use only. May be removed or replaced in the future. */
     public ApplicationConnection client;
 
@@ -91,6 +95,16 @@ public abstract class VOptionGroupBase extends Composite implements Field,
     /** For internal use only. May be removed or replaced in the future. */
     public VNativeButton newItemButton;
 
+    private FlowPanel pager;
+
+    private VNativeButton previousPage;
+
+    private VNativeButton nextPage;
+
+    private Label pageStatus;
+
+    private int optionPage;
+
     public VOptionGroupBase(String classname) {
         container = new FlowPanel();
         initWidget(container);
@@ -162,7 +176,62 @@ public abstract class VOptionGroupBase extends Composite implements Field,
             client.updateVariable(paintableId, "newitem",
                     newItemField.getText(), true);
             newItemField.setText("");
+        } else if (event.getSource() == previousPage) {
+            client.updateVariable(paintableId,
+                    AbstractSelectConstants.VARIABLE_OPTION_PAGE,
+                    optionPage - 1, true);
+        } else if (event.getSource() == nextPage) {
+            client.updateVariable(paintableId,
+                    AbstractSelectConstants.VARIABLE_OPTION_PAGE,
+                    optionPage + 1, true);
+        }
+    }
+
+    /**
+     * Shows controls for moving between the pages of options when the server
+     * paints only a page of the options at a time.
+     * <p>
+     * For internal use only. May be removed or replaced in the future.
+     * 
+     * @param page
+     *            the index of the painted page
+     * @param pageLength
+     *            the number of options on a page, 0 if all options are painted
+     * @param totalOptions
+     *            the total number of options
+     */
+    public void updatePager(int page, int pageLength, int totalOptions) {
+        if (pageLength <= 0 || totalOptions <= pageLength) {
+            if (pager != null) {
+                container.remove(pager);
+                pager = null;
+            }
+            return;
+        }
+        if (pager == null) {
+            pager = new FlowPanel();
+            pager.setStyleName(CLASSNAME_PAGER);
+            previousPage = new VNativeButton();
+            previousPage.setText("<");
+            previousPage.addClickHandler(this);
+            pageStatus = new Label();
+            nextPage = new VNativeButton();
+            nextPage.setText(">");
+            nextPage.addClickHandler(this);
+            pager.add(previousPage);
+            pager.add(pageStatus);
+            pager.add(nextPage);
+        }
+        if (pager.getParent() != container) {
+            // Some widgets clear the container when building the options
+            container.add(pager);
         }
+        optionPage = page;
+        int first = page * pageLength;
+        int last = Math.min(first + pageLength, totalOptions);
+        pageStatus.setText((first + 1) + "-" + last + "/" + totalOptions);
+        previousPage.setEnabled(page > 0);
+        nextPage.setEnabled(last < totalOptions);
     }
 
     @Override
@@ -24,6 +24,7 @@ import com.vaadin.client.ui.AbstractFieldConnector;
 import com.vaadin.client.ui.VNativeButton;
 import com.vaadin.client.ui.VOptionGroupBase;
 import com.vaadin.client.ui.VTextField;
+import com.vaadin.shared.ui.select.AbstractSelectConstants;
 
 public abstract class OptionGroupBaseConnector extends AbstractFieldConnector
         implements Paintable {
@@ -68,6 +69,16 @@ public abstract class OptionGroupBaseConnector extends AbstractFieldConnector
 
         getWidget().buildOptions(ops);
 
+        if (uidl.hasAttribute(AbstractSelectConstants.ATTRIBUTE_OPTION_PAGE_LENGTH)) {
+            getWidget()
+                    .updatePager(
+                            uidl.getIntAttribute(AbstractSelectConstants.ATTRIBUTE_OPTION_PAGE),
+                            uidl.getIntAttribute(AbstractSelectConstants.ATTRIBUTE_OPTION_PAGE_LENGTH),
+                            uidl.getIntAttribute(AbstractSelectConstants.ATTRIBUTE_TOTAL_OPTIONS));
+        } else {
+            getWidget().updatePager(0, 0, 0);
+        }
+
         if (uidl.getBooleanAttribute("allownewitem")) {
             if (getWidget().newItemField == null) {
                 getWidget().newItemButton = new VNativeButton();
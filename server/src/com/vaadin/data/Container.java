@@ -460,6 +460,90 @@ public interface Container extends Serializable {
 
     }
 
+    /**
+     * Interface for {@link Sortable} containers that can compute a new order
+     * of their items without the caller holding the session lock during the
+     * comparisons, e.g. in a background thread, so that the sort can be
+     * cancelled and its progress followed.
+     * <p>
+     * The new order is computed by {@link SortTask#run()} and becomes visible
+     * only when {@link SortTask#apply()} is called while holding the session
+     * lock. The container should not be modified while the task is running;
+     * if it is, {@link SortTask#apply()} sorts the container again the same
+     * way as {@link #sort(Object[], boolean[])}.
+     * 
+     * @since 7.2
+     */
+    public interface CancellableSortable extends Sortable {
+
+        /**
+         * Creates a task for sorting the container items. Must be called while
+         * holding the session lock. The parameters are the same as for
+         * {@link #sort(Object[], boolean[])}.
+         * 
+         * @param propertyId
+         *            Array of container property IDs, whose values are used to
+         *            sort the items in container as primary, secondary, ...
+         *            sorting criterion.
+         * @param ascending
+         *            Array of sorting order flags corresponding to each
+         *            property ID used in sorting.
+         * @return a task computing and applying the new order
+         */
+        public SortTask createSortTask(Object[] propertyId, boolean[] ascending);
+    }
+
+    /**
+     * A sort of the items of a {@link CancellableSortable} container.
+     * 
+     * @since 7.2
+     */
+    public interface SortTask extends Runnable, Serializable {
+
+        /**
+         * Computes the new order of the items. Can be called from any thread.
+         * Returns early if the task is cancelled.
+         */
+        @Override
+        public void run();
+
+        /**
+         * Cancels the task. A cancelled task stops computing the new order as
+         * soon as possible and can not be applied.
+         */
+        public void cancel();
+
+        /**
+         * Checks whether the task has been cancelled.
+         * 
+         * @return true if {@link #cancel()} has been called
+         */
+        public boolean isCancelled();
+
+        /**
+         * Checks whether the new order has been computed.
+         * 
+         * @return true if {@link #run()} has completed without being cancelled
+         */
+        public boolean isDone();
+
+        /**
+         * Returns an estimate of how much of the new order has been computed.
+         * 
+         * @return a number between 0 and 1
+         */
+        public float getProgress();
+
+        /**
+         * Applies the computed order to the container. Must be called while
+         * holding the session lock, after {@link #run()} has completed.
+         * 
+         * @return true if the order was applied, false if the task was
+         *         cancelled or has not been run
+         */
+        public boolean apply();
+    }
+
     /**
      * Interface for Container classes whose {@link Item}s can be accessed by
      * their position in the container.
@@ -964,6 +1048,70 @@ public interface Container extends Serializable {
         public Collection<Filter> getContainerFilters();
     }
 
+    /**
+     * Interface implemented by filterable and indexed containers that can
+     * evaluate an additional filter without adding it to the container. The
+     * methods behave like the corresponding methods of {@link Indexed} would
+     * if the filter was added with
+     * {@link Filterable#addContainerFilter(Filter)}, but they do not change the
+     * visible contents of the container nor send any events. This allows e.g.
+     * a {@link com.vaadin.ui.ComboBox} to query the options matching the text
+     * typed by the user when the container is shared with other components.
+     * 
+     * @since 7.2
+     */
+    public interface FilteredIndexed extends Filterable, Indexed {
+
+        /**
+         * Gets the number of visible items that also pass the given filter.
+         * 
+         * @param filter
+         *            the additional filter, or null for none
+         * @return the number of matching items
+         * @throws UnsupportedFilterException
+         *             if the filter is not supported by the container
+         */
+        public int size(Filter filter) throws UnsupportedFilterException;
+
+        /**
+         * Gets the index of an item among the visible items that also pass
+         * the given filter.
+         * 
+         * @param filter
+         *            the additional filter, or null for none
+         * @param itemId
+         *            the ID of an item
+         * @return the index of the item among the matching items, or -1 if
+         *         the item does not pass the filters
+         * @throws UnsupportedFilterException
+         *             if the filter is not supported by the container
+         */
+        public int indexOfId(Filter filter, Object itemId)
+                throws UnsupportedFilterException;
+
+        /**
+         * Gets a range of the IDs of the visible items that also pass the
+         * given filter. If fewer items than requested match after the start
+         * index, only those are returned.
+         * 
+         * @param filter
+         *            the additional filter, or null for none
+         * @param startIndex
+         *            the index of the first item ID to get among the matching
+         *            items
+         * @param numberOfItems
+         *            the maximum number of item IDs to get
+         * @return the item IDs of the matching items in the range, in
+         *         container order
+         * @throws IndexOutOfBoundsException
+         *             if startIndex or numberOfItems is negative
+         * @throws UnsupportedFilterException
+         *             if the filter is not supported by the container
+         */
+        public List<?> getItemIds(Filter filter, int startIndex,
+                int numberOfItems) throws UnsupportedFilterException;
+    }
+
     /**
      * Interface implemented by viewer classes capable of using a Container as a
      * data source.
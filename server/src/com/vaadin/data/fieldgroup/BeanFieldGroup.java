@@ -21,6 +21,7 @@ import java.util.Map;
 
 import com.vaadin.data.Item;
 import com.vaadin.data.util.BeanItem;
+import com.vaadin.data.util.BeanPropertyCache;
 import com.vaadin.data.validator.BeanValidator;
 import com.vaadin.ui.Field;
 
@@ -88,20 +89,8 @@ public class BeanFieldGroup<T> extends FieldGroup {
             // Find the rest from the sub type
             return getField(field1.getType(), parts[1]);
         } else {
-            try {
-                // Try to find the field directly in the given class
-                java.lang.reflect.Field field1 = cls
-                        .getDeclaredField(propertyId);
-                return field1;
-            } catch (NoSuchFieldException e) {
-                // Try super classes until we reach Object
-                Class<?> superClass = cls.getSuperclass();
-                if (superClass != null && superClass != Object.class) {
-                    return getField(superClass, propertyId);
-                } else {
-                    throw e;
-                }
-            }
+            // Find the field in the given class or its super classes
+            return BeanPropertyCache.getField(cls, propertyId);
         }
     }
 
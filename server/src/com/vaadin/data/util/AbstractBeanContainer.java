@@ -24,7 +24,9 @@ import java.util.List;
 import java.util.Map;
 
 import com.vaadin.data.Container;
+import com.vaadin.data.Container.CancellableSortable;
 import com.vaadin.data.Container.Filterable;
+import com.vaadin.data.Container.FilteredIndexed;
 import com.vaadin.data.Container.PropertySetChangeNotifier;
 import com.vaadin.data.Container.SimpleFilterable;
 import com.vaadin.data.Container.Sortable;
@@ -62,8 +64,8 @@ import com.vaadin.data.util.filter.UnsupportedFilterException;
  */
 public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
         AbstractInMemoryContainer<IDTYPE, String, BeanItem<BEANTYPE>> implements
-        Filterable, SimpleFilterable, Sortable, ValueChangeListener,
-        PropertySetChangeNotifier {
+        Filterable, SimpleFilterable, FilteredIndexed, Sortable,
+        CancellableSortable, ValueChangeListener, PropertySetChangeNotifier {
 
     /**
      * Resolver that maps beans to their (item) identifiers, removing the need
@@ -154,6 +156,12 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
      */
     private LinkedHashMap<String, VaadinPropertyDescriptor<BEANTYPE>> model;
 
+    /**
+     * True if the items of the container share the property model instead of
+     * storing a property for each bean property.
+     */
+    private boolean flyweightItems = false;
+
     /**
      * Constructs a {@code AbstractBeanContainer} for beans of the given type.
      * 
@@ -189,7 +197,58 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
      * @return created {@link BeanItem} or null if bean is null
      */
     protected BeanItem<BEANTYPE> createBeanItem(BEANTYPE bean) {
-        return bean == null ? null : new BeanItem<BEANTYPE>(bean, model);
+        if (bean == null) {
+            return null;
+        } else if (flyweightItems) {
+            return new FlyweightBeanItem<BEANTYPE>(bean, model);
+        } else {
+            return new BeanItem<BEANTYPE>(bean, model);
+        }
+    }
+
+    /**
+     * Sets whether the container uses flyweight items. A flyweight item only
+     * references its bean and the property model shared by the container.
+     * Instead of storing a {@link MethodProperty} for each bean property, it
+     * returns a lightweight view of the property whenever
+     * {@link Item#getItemProperty(Object)} is called. This reduces the memory
+     * used by containers with many beans considerably.
+     * <p>
+     * The views of the same property of an item are equal and share their
+     * listeners and read-only state, but they are not the same instance. The
+     * properties of a flyweight item are determined by the container, so
+     * properties cannot be added to or removed from the item directly, and
+     * the item does not send property set change events when container
+     * properties are added or removed.
+     * <p>
+     * The mode can only be changed while the container is empty.
+     * 
+     * @param flyweightItems
+     *            true to use flyweight items, false to use items storing a
+     *            property for each bean property
+     * @throws IllegalStateException
+     *             if the container is not empty
+     * @since 7.2
+     */
+    public void setFlyweightItems(boolean flyweightItems)
+            throws IllegalStateException {
+        if (!itemIdToItem.isEmpty()) {
+            throw new IllegalStateException(
+                    "The item mode can only be changed while the container is empty");
+        }
+        this.flyweightItems = flyweightItems;
+    }
+
+    /**
+     * Checks whether the container uses flyweight items.
+     * 
+     * @see #setFlyweightItems(boolean)
+     * @return true if the items share the property model of the container,
+     *         false if each item stores its own properties
+     * @since 7.2
+     */
+    public boolean isFlyweightItems() {
+        return flyweightItems;
     }
 
     /**
@@ -821,9 +880,12 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
         }
 
         model.put(propertyId, propertyDescriptor);
-        for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
-            item.addItemProperty(propertyId,
-                    propertyDescriptor.createProperty(item.getBean()));
+        if (!flyweightItems) {
+            // Flyweight items follow the model
+            for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
+                item.addItemProperty(propertyId,
+                        propertyDescriptor.createProperty(item.getBean()));
+            }
         }
 
         // Sends a change event
@@ -917,8 +979,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
     public void addNestedContainerBean(String propertyId,
             boolean nullBeansAllowed) {
         Class<?> propertyType = getType(propertyId);
-        LinkedHashMap<String, VaadinPropertyDescriptor<Object>> pds = BeanItem
-                .getPropertyDescriptors((Class<Object>) propertyType);
+        Map<String, VaadinPropertyDescriptor<Object>> pds = BeanPropertyCache
+                .getVaadinPropertyDescriptors((Class<Object>) propertyType);
         for (String subPropertyId : pds.keySet()) {
             String qualifiedPropertyId = propertyId + "." + subPropertyId;
             NestedPropertyDescriptor<BEANTYPE> pd = new NestedPropertyDescriptor<BEANTYPE>(
@@ -927,8 +989,10 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
             model.put(qualifiedPropertyId, pd);
             model.remove(propertyId);
             for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
-                item.addItemProperty(propertyId,
-                        pd.createProperty(item.getBean()));
+                if (!flyweightItems) {
+                    item.addItemProperty(propertyId,
+                            pd.createProperty(item.getBean()));
+                }
                 item.removeItemProperty(propertyId);
             }
         }
@@ -15,17 +15,26 @@
  */
 package com.vaadin.data.util;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.ItemSetChangeNotifier;
 import com.vaadin.data.Item;
+import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
 
@@ -290,6 +299,84 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         return getVisibleItemIds().indexOf(itemId);
     }
 
+    // Container.FilteredIndexed, declared by the filterable subclasses
+
+    /**
+     * Gets the number of visible items that also pass the given filter,
+     * without changing the filters of the container.
+     * 
+     * @see Container.FilteredIndexed#size(Filter)
+     * @since 7.2
+     */
+    public int size(Filter filter) {
+        if (filter == null) {
+            return size();
+        }
+        int count = 0;
+        for (ITEMIDTYPE itemId : getVisibleItemIds()) {
+            if (passesFilter(filter, itemId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the index of an item among the visible items that also pass the
+     * given filter, without changing the filters of the container.
+     * 
+     * @see Container.FilteredIndexed#indexOfId(Filter, Object)
+     * @since 7.2
+     */
+    public int indexOfId(Filter filter, Object itemId) {
+        if (filter == null) {
+            return indexOfId(itemId);
+        }
+        int index = 0;
+        for (ITEMIDTYPE id : getVisibleItemIds()) {
+            if (passesFilter(filter, id)) {
+                if (id.equals(itemId)) {
+                    return index;
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a range of the IDs of the visible items that also pass the given
+     * filter, without changing the filters of the container.
+     * 
+     * @see Container.FilteredIndexed#getItemIds(Filter, int, int)
+     * @since 7.2
+     */
+    public List<ITEMIDTYPE> getItemIds(Filter filter, int startIndex,
+            int numberOfItems) {
+        if (startIndex < 0 || numberOfItems < 0) {
+            throw new IndexOutOfBoundsException(
+                    "Start index and number of items cannot be negative! startIndex="
+                            + startIndex + " numberOfItems=" + numberOfItems);
+        }
+        List<ITEMIDTYPE> itemIds = new ArrayList<ITEMIDTYPE>();
+        int index = 0;
+        for (Iterator<ITEMIDTYPE> i = getVisibleItemIds().iterator(); i
+                .hasNext() && itemIds.size() < numberOfItems;) {
+            ITEMIDTYPE itemId = i.next();
+            if (filter == null || passesFilter(filter, itemId)) {
+                if (index >= startIndex) {
+                    itemIds.add(itemId);
+                }
+                index++;
+            }
+        }
+        return itemIds;
+    }
+
+    private boolean passesFilter(Filter filter, Object itemId) {
+        return filter.passesFilter(itemId, getUnfilteredItem(itemId));
+    }
+
     // methods that are unsupported by default, override to support
 
     @Override
@@ -651,13 +738,19 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         // Perform the actual sort
         doSort();
 
+        fireSortUpdates();
+    }
+
+    /**
+     * Updates the filtered view and notifies listeners after sorting.
+     */
+    private void fireSortUpdates() {
         // Post sort updates
         if (isFiltered()) {
             filterAll();
         } else {
             fireItemSetChange();
         }
-
     }
 
     /**
@@ -672,6 +765,337 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         Collections.sort(getAllItemIds(), getItemSorter());
     }
 
+    /**
+     * Applies an order of all the item ids computed by a
+     * {@link Container.SortTask}. This is invoked when the
+     * <code>itemSorter</code> has been prepared for the same sort. The default
+     * implementation replaces the contents of {@link #getAllItemIds()}.
+     * 
+     * @param sortedItemIds
+     *            all the item ids of the container in the new order
+     * @since 7.2
+     */
+    protected void doSort(List<ITEMIDTYPE> sortedItemIds) {
+        List<ITEMIDTYPE> allItemIds = getAllItemIds();
+        allItemIds.clear();
+        allItemIds.addAll(sortedItemIds);
+    }
+
+    /**
+     * Creates a task sorting the items of the container in the calling thread
+     * of {@link Container.SortTask#run()}. Can be used to implement
+     * {@link Container.CancellableSortable}.
+     * <p>
+     * The item ids and the values of the sort properties are copied when the
+     * task is created, so this must be called while holding the session lock.
+     * The task sorts the copy with a clone of the item sorter, and the item
+     * sorter of the container is set up for the sort only when the task is
+     * applied. If the item sorter cannot be cloned, the container is sorted
+     * when the task is applied.
+     * 
+     * @see Container.CancellableSortable#createSortTask(Object[], boolean[])
+     * @since 7.2
+     */
+    public Container.SortTask createSortTask(Object[] propertyId,
+            boolean[] ascending) {
+        if (!(this instanceof Sortable)) {
+            throw new UnsupportedOperationException(
+                    "Cannot sort a Container that does not implement Sortable");
+        }
+        return new InMemorySortTask(propertyId, ascending);
+    }
+
+    /**
+     * Returns a copy of the given item sorter that can be set up for a sort
+     * without affecting the original, or null if the sorter cannot be copied.
+     * Sorters other than {@link DefaultItemSorter} are copied with their
+     * public {@code clone()} method if they have one.
+     */
+    private static ItemSorter cloneItemSorter(ItemSorter sorter) {
+        if (sorter instanceof DefaultItemSorter) {
+            return ((DefaultItemSorter) sorter).clone();
+        }
+        Method clone;
+        try {
+            clone = sorter.getClass().getMethod("clone");
+        } catch (NoSuchMethodException e) {
+            // Sorted when the task is applied
+            return null;
+        }
+        try {
+            return (ItemSorter) clone.invoke(sorter);
+        } catch (IllegalAccessException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not clone item sorter " + sorter, e);
+        } catch (InvocationTargetException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not clone item sorter " + sorter, e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Sorts a copy of the item ids and applies the order to the container if
+     * the items have not changed meanwhile.
+     */
+    private class InMemorySortTask implements Container.SortTask,
+            Comparator<Object> {
+        private final Object[] propertyId;
+        private final boolean[] ascending;
+        private final ArrayList<ITEMIDTYPE> itemIds;
+        private final ItemSorter sorter;
+        private final long expectedComparisons;
+
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile long comparisons;
+        private RuntimeException failure;
+
+        private InMemorySortTask(Object[] propertyId, boolean[] ascending) {
+            this.propertyId = propertyId;
+            this.ascending = ascending;
+            itemIds = new ArrayList<ITEMIDTYPE>(getAllItemIds());
+            sorter = cloneItemSorter(getItemSorter());
+            if (sorter != null) {
+                sorter.setSortProperties(new SortSnapshot(
+                        AbstractInMemoryContainer.this, itemIds, propertyId),
+                        propertyId, ascending);
+            }
+            int size = Math.max(2, itemIds.size());
+            expectedComparisons = (long) (size * Math.log(size) / Math.log(2));
+        }
+
+        @Override
+        public int compare(Object o1, Object o2) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            comparisons++;
+            return sorter.compare(o1, o2);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled || done) {
+                return;
+            }
+            if (sorter != null) {
+                try {
+                    Collections.sort(itemIds, this);
+                } catch (CancellationException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // Sort again when applying to report the failure there
+                    failure = e;
+                }
+            }
+            done = true;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public float getProgress() {
+            if (done) {
+                return 1;
+            }
+            return Math.min(0.99f, (float) comparisons / expectedComparisons);
+        }
+
+        @Override
+        public boolean apply() {
+            if (cancelled || !done) {
+                return false;
+            }
+            List<ITEMIDTYPE> allItemIds = getAllItemIds();
+            if (sorter == null || failure != null
+                    || allItemIds.size() != itemIds.size()
+                    || !new HashSet<Object>(allItemIds).containsAll(itemIds)) {
+                // Items changed during the sort
+                sortContainer(propertyId, ascending);
+            } else {
+                getItemSorter().setSortProperties(
+                        (Sortable) AbstractInMemoryContainer.this, propertyId,
+                        ascending);
+                doSort(itemIds);
+                fireSortUpdates();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Copy of the values of the sort properties of the items of a container,
+     * used by the cloned item sorter of a {@link Container.SortTask} instead of
+     * the container. Items not visible in the container are not copied, so
+     * they are ordered the same way as in {@link #sortContainer}. The copy is
+     * read-only.
+     */
+    private static class SortSnapshot implements Container.Sortable {
+        private final LinkedHashMap<Object, Item> items = new LinkedHashMap<Object, Item>();
+        private final List<Object> sortablePropertyIds = new ArrayList<Object>();
+
+        private SortSnapshot(AbstractInMemoryContainer<?, ?, ?> container,
+                List<?> itemIds, Object[] propertyId) {
+            Collection<?> sortable = ((Sortable) container)
+                    .getSortableContainerPropertyIds();
+            for (Object id : propertyId) {
+                if (sortable.contains(id)) {
+                    sortablePropertyIds.add(id);
+                }
+            }
+            for (Object itemId : itemIds) {
+                Item item = container.getItem(itemId);
+                if (item == null) {
+                    continue;
+                }
+                PropertysetItem copy = new PropertysetItem();
+                for (Object id : sortablePropertyIds) {
+                    Property<?> property = item.getItemProperty(id);
+                    copy.addItemProperty(id, new ObjectProperty<Object>(
+                            property == null ? null : property.getValue(),
+                            Object.class, true));
+                }
+                items.put(itemId, copy);
+            }
+        }
+
+        @Override
+        public Item getItem(Object itemId) {
+            return items.get(itemId);
+        }
+
+        @Override
+        public Collection<?> getContainerPropertyIds() {
+            return Collections.unmodifiableList(sortablePropertyIds);
+        }
+
+        @Override
+        public Collection<?> getItemIds() {
+            return Collections.unmodifiableSet(items.keySet());
+        }
+
+        @Override
+        public Property getContainerProperty(Object itemId, Object propertyId) {
+            Item item = items.get(itemId);
+            return item == null ? null : item.getItemProperty(propertyId);
+        }
+
+        @Override
+        public Class<?> getType(Object propertyId) {
+            return sortablePropertyIds.contains(propertyId) ? Object.class
+                    : null;
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+
+        @Override
+        public boolean containsId(Object itemId) {
+            return items.containsKey(itemId);
+        }
+
+        @Override
+        public Collection<?> getSortableContainerPropertyIds() {
+            return Collections.unmodifiableList(sortablePropertyIds);
+        }
+
+        @Override
+        public Object nextItemId(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object prevItemId(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object firstItemId() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object lastItemId() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isFirstId(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isLastId(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Item addItem(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object addItem() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object addItemAfter(Object previousItemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Item addItemAfter(Object previousItemId, Object newItemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeItem(Object itemId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean addContainerProperty(Object propertyId, Class<?> type,
+                Object defaultValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeContainerProperty(Object propertyId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeAllItems() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sort(Object[] propertyId, boolean[] ascending) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final Logger getLogger() {
+        return Logger.getLogger(AbstractInMemoryContainer.class.getName());
+    }
+
     /**
      * Returns the sortable property identifiers for the container. Can be used
      * to implement {@link Sortable#getSortableContainerPropertyIds()}.
@@ -16,17 +16,10 @@
 
 package com.vaadin.data.util;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -62,7 +55,8 @@ public class BeanItem<BT> extends PropertysetItem {
      * 
      */
     public BeanItem(BT bean) {
-        this(bean, getPropertyDescriptors((Class<BT>) bean.getClass()));
+        this(bean, BeanPropertyCache
+                .getVaadinPropertyDescriptors((Class<BT>) bean.getClass()));
     }
 
     /**
@@ -87,6 +81,23 @@ public class BeanItem<BT> extends PropertysetItem {
         }
     }
 
+    /**
+     * Creates a new instance of <code>BeanItem</code> for a subclass that
+     * provides the properties of the bean itself.
+     * 
+     * @param bean
+     *            the Java Bean
+     * @param storeProperties
+     *            false if the subclass overrides all the methods that access
+     *            the properties of the item
+     * @see PropertysetItem#PropertysetItem(boolean)
+     * @since 7.2
+     */
+    BeanItem(BT bean, boolean storeProperties) {
+        super(storeProperties);
+        this.bean = bean;
+    }
+
     /**
      * <p>
      * Creates a new instance of <code>BeanItem</code> and adds all listed
@@ -110,8 +121,8 @@ public class BeanItem<BT> extends PropertysetItem {
         this.bean = bean;
 
         // Create bean information
-        LinkedHashMap<String, VaadinPropertyDescriptor<BT>> pds = getPropertyDescriptors((Class<BT>) bean
-                .getClass());
+        Map<String, VaadinPropertyDescriptor<BT>> pds = BeanPropertyCache
+                .getVaadinPropertyDescriptors((Class<BT>) bean.getClass());
 
         // Add all the bean properties as MethodProperties to this Item
         for (Object id : propertyIds) {
@@ -156,72 +167,19 @@ public class BeanItem<BT> extends PropertysetItem {
      * <code>are</code> methods are not supported.
      * </p>
      * 
+     * <p>
+     * The introspection result is cached per class, so this only copies the
+     * cached descriptors into a new map.
+     * </p>
+     * 
      * @param beanClass
      *            the Java Bean class to get properties for.
      * @return an ordered map from property names to property descriptors
      */
     static <BT> LinkedHashMap<String, VaadinPropertyDescriptor<BT>> getPropertyDescriptors(
             final Class<BT> beanClass) {
-        final LinkedHashMap<String, VaadinPropertyDescriptor<BT>> pdMap = new LinkedHashMap<String, VaadinPropertyDescriptor<BT>>();
-
-        // Try to introspect, if it fails, we just have an empty Item
-        try {
-            List<PropertyDescriptor> propertyDescriptors = getBeanPropertyDescriptor(beanClass);
-
-            // Add all the bean properties as MethodProperties to this Item
-            // later entries on the list overwrite earlier ones
-            for (PropertyDescriptor pd : propertyDescriptors) {
-                final Method getMethod = pd.getReadMethod();
-                if ((getMethod != null)
-                        && getMethod.getDeclaringClass() != Object.class) {
-                    VaadinPropertyDescriptor<BT> vaadinPropertyDescriptor = new MethodPropertyDescriptor<BT>(
-                            pd.getName(), pd.getPropertyType(),
-                            pd.getReadMethod(), pd.getWriteMethod());
-                    pdMap.put(pd.getName(), vaadinPropertyDescriptor);
-                }
-            }
-        } catch (final java.beans.IntrospectionException ignored) {
-        }
-
-        return pdMap;
-    }
-
-    /**
-     * Returns the property descriptors of a class or an interface.
-     * 
-     * For an interface, superinterfaces are also iterated as Introspector does
-     * not take them into account (Oracle Java bug 4275879), but in that case,
-     * both the setter and the getter for a property must be in the same
-     * interface and should not be overridden in subinterfaces for the discovery
-     * to work correctly.
-     * 
-     * For interfaces, the iteration is depth first and the properties of
-     * superinterfaces are returned before those of their subinterfaces.
-     * 
-     * @param beanClass
-     * @return
-     * @throws IntrospectionException
-     */
-    private static List<PropertyDescriptor> getBeanPropertyDescriptor(
-            final Class<?> beanClass) throws IntrospectionException {
-        // Oracle bug 4275879: Introspector does not consider superinterfaces of
-        // an interface
-        if (beanClass.isInterface()) {
-            List<PropertyDescriptor> propertyDescriptors = new ArrayList<PropertyDescriptor>();
-
-            for (Class<?> cls : beanClass.getInterfaces()) {
-                propertyDescriptors.addAll(getBeanPropertyDescriptor(cls));
-            }
-
-            BeanInfo info = Introspector.getBeanInfo(beanClass);
-            propertyDescriptors.addAll(Arrays.asList(info
-                    .getPropertyDescriptors()));
-
-            return propertyDescriptors;
-        } else {
-            BeanInfo info = Introspector.getBeanInfo(beanClass);
-            return Arrays.asList(info.getPropertyDescriptors());
-        }
+        return new LinkedHashMap<String, VaadinPropertyDescriptor<BT>>(
+                BeanPropertyCache.getVaadinPropertyDescriptors(beanClass));
     }
 
     /**
@@ -242,7 +200,8 @@ public class BeanItem<BT> extends PropertysetItem {
         if (0 == subPropertyIds.length) {
             // Enumerate all sub-properties
             Class<?> propertyType = getItemProperty(propertyId).getType();
-            Map<String, ?> pds = getPropertyDescriptors(propertyType);
+            Map<String, ?> pds = BeanPropertyCache
+                    .getVaadinPropertyDescriptors(propertyType);
             subPropertySet.addAll(pds.keySet());
         }
 
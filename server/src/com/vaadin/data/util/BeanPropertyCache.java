@@ -0,0 +1,317 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.util.ReflectTools;
+
+/**
+ * A cache of the introspected properties, accessor methods and fields of bean
+ * classes, shared by {@link BeanItem}, the bean containers,
+ * {@link NestedMethodProperty} and the bean field group. Used internally by
+ * Vaadin and should not be used by application developers. Subject to change
+ * at any time.
+ * <p>
+ * The metadata of classes loaded by the class loader of Vaadin or its parents
+ * is kept as long as Vaadin is loaded. The metadata of other classes, e.g. the
+ * classes of an application when Vaadin is loaded by a shared class loader, is
+ * only weakly referenced, so the cache does not prevent unloading the class
+ * loader of an undeployed application. Such metadata may be collected at any
+ * garbage collection and is then rebuilt from the bean infos cached by
+ * {@link Introspector}. The bean infos stay in the Introspector cache until
+ * the servlet container flushes it when undeploying the application.
+ * 
+ * @since 7.2
+ */
+public class BeanPropertyCache implements Serializable {
+
+    private static class BeanMetadata implements Serializable {
+        private List<PropertyDescriptor> propertyDescriptors;
+        private Map<String, VaadinPropertyDescriptor<?>> vaadinPropertyDescriptors;
+        private final Map<String, Method> getters = new HashMap<String, Method>();
+        private final Map<String, Method> setters = new HashMap<String, Method>();
+        private final Map<String, Field> fields = new HashMap<String, Field>();
+    }
+
+    /*
+     * The metadata of classes that cannot be unloaded before this class. Only
+     * the metadata of each class is locked while introspecting it.
+     */
+    private static final ConcurrentHashMap<Class<?>, BeanMetadata> metadata = new ConcurrentHashMap<Class<?>, BeanMetadata>();
+
+    /*
+     * The metadata of other classes. The values reach their key classes, so
+     * they must not be strongly referenced.
+     */
+    private static final Map<Class<?>, WeakReference<BeanMetadata>> weakMetadata = new WeakHashMap<Class<?>, WeakReference<BeanMetadata>>();
+
+    private BeanPropertyCache() {
+        // Only static helpers
+    }
+
+    private static BeanMetadata getMetadata(Class<?> beanClass) {
+        BeanMetadata beanMetadata = metadata.get(beanClass);
+        if (beanMetadata != null) {
+            return beanMetadata;
+        }
+        if (ReflectTools.isLoadedByVaadinClassLoader(beanClass)) {
+            beanMetadata = new BeanMetadata();
+            BeanMetadata previous = metadata.putIfAbsent(beanClass,
+                    beanMetadata);
+            return previous != null ? previous : beanMetadata;
+        }
+        synchronized (weakMetadata) {
+            WeakReference<BeanMetadata> reference = weakMetadata
+                    .get(beanClass);
+            beanMetadata = reference == null ? null : reference.get();
+            if (beanMetadata == null) {
+                beanMetadata = new BeanMetadata();
+                weakMetadata.put(beanClass, new WeakReference<BeanMetadata>(
+                        beanMetadata));
+            }
+            return beanMetadata;
+        }
+    }
+
+    /**
+     * Returns the property descriptors of a class or an interface.
+     * <p>
+     * For an interface, superinterfaces are also iterated as Introspector does
+     * not take them into account (Oracle Java bug 4275879), but in that case,
+     * both the setter and the getter for a property must be in the same
+     * interface and should not be overridden in subinterfaces for the discovery
+     * to work correctly.
+     * <p>
+     * For interfaces, the iteration is depth first and the properties of
+     * superinterfaces are returned before those of their subinterfaces.
+     * 
+     * @param beanClass
+     *            the bean class or interface
+     * @return an unmodifiable list of property descriptors
+     * @throws IntrospectionException
+     *             if the class cannot be introspected
+     */
+    public static List<PropertyDescriptor> getPropertyDescriptors(
+            Class<?> beanClass) throws IntrospectionException {
+        BeanMetadata beanMetadata = getMetadata(beanClass);
+        synchronized (beanMetadata) {
+            if (beanMetadata.propertyDescriptors == null) {
+                beanMetadata.propertyDescriptors = Collections
+                        .unmodifiableList(introspect(beanClass));
+            }
+            return beanMetadata.propertyDescriptors;
+        }
+    }
+
+    private static List<PropertyDescriptor> introspect(Class<?> beanClass)
+            throws IntrospectionException {
+        // Oracle bug 4275879: Introspector does not consider superinterfaces of
+        // an interface
+        if (beanClass.isInterface()) {
+            List<PropertyDescriptor> propertyDescriptors = new ArrayList<PropertyDescriptor>();
+
+            for (Class<?> cls : beanClass.getInterfaces()) {
+                propertyDescriptors.addAll(getPropertyDescriptors(cls));
+            }
+
+            BeanInfo info = getBeanInfo(beanClass);
+            propertyDescriptors.addAll(Arrays.asList(info
+                    .getPropertyDescriptors()));
+
+            return propertyDescriptors;
+        } else {
+            BeanInfo info = getBeanInfo(beanClass);
+            return Arrays.asList(info.getPropertyDescriptors());
+        }
+    }
+
+    private static BeanInfo getBeanInfo(Class<?> beanClass)
+            throws IntrospectionException {
+        // Not flushed from the Introspector caches even for classes that are
+        // only weakly cached here, so that recreating collected metadata does
+        // not introspect the class again. Servlet containers flush those
+        // caches when undeploying an application.
+        return Introspector.getBeanInfo(beanClass);
+    }
+
+    /**
+     * Returns descriptors for creating {@link MethodProperty} instances for the
+     * readable properties of a bean class. Properties whose getter is declared
+     * in {@link Object} are excluded. If the class cannot be introspected, the
+     * map is empty.
+     * 
+     * @param beanClass
+     *            the bean class or interface
+     * @return an unmodifiable, ordered map from property names to property
+     *         descriptors
+     */
+    @SuppressWarnings("unchecked")
+    static <BT> Map<String, VaadinPropertyDescriptor<BT>> getVaadinPropertyDescriptors(
+            Class<BT> beanClass) {
+        BeanMetadata beanMetadata = getMetadata(beanClass);
+        synchronized (beanMetadata) {
+            if (beanMetadata.vaadinPropertyDescriptors == null) {
+                LinkedHashMap<String, VaadinPropertyDescriptor<?>> pdMap = new LinkedHashMap<String, VaadinPropertyDescriptor<?>>();
+                // Try to introspect, if it fails, there are no properties
+                try {
+                    // later entries on the list overwrite earlier ones
+                    for (PropertyDescriptor pd : getPropertyDescriptors(beanClass)) {
+                        final Method getMethod = pd.getReadMethod();
+                        if ((getMethod != null)
+                                && getMethod.getDeclaringClass() != Object.class) {
+                            pdMap.put(pd.getName(),
+                                    new MethodPropertyDescriptor<BT>(pd
+                                            .getName(), pd.getPropertyType(),
+                                            ReflectTools.setAccessible(pd
+                                                    .getReadMethod()),
+                                            ReflectTools.setAccessible(pd
+                                                    .getWriteMethod())));
+                        }
+                    }
+                } catch (final IntrospectionException ignored) {
+                }
+                beanMetadata.vaadinPropertyDescriptors = Collections
+                        .unmodifiableMap(pdMap);
+            }
+            return (Map<String, VaadinPropertyDescriptor<BT>>) (Map<?, ?>) beanMetadata.vaadinPropertyDescriptors;
+        }
+    }
+
+    /**
+     * Finds the getter method of a property (getXyz(), isXyz() or areXyz()).
+     * 
+     * @param beanClass
+     *            the class in which to look for the getter method
+     * @param propertyName
+     *            the name of the property
+     * @return the public getter method
+     * @throws NoSuchMethodException
+     *             if no getter is found
+     */
+    public static Method getGetter(Class<?> beanClass, String propertyName)
+            throws NoSuchMethodException {
+        propertyName = propertyName.substring(0, 1).toUpperCase()
+                + propertyName.substring(1);
+        BeanMetadata beanMetadata = getMetadata(beanClass);
+        synchronized (beanMetadata) {
+            Method getMethod = beanMetadata.getters.get(propertyName);
+            if (getMethod == null) {
+                try {
+                    getMethod = beanClass.getMethod("get" + propertyName);
+                } catch (final NoSuchMethodException ignored) {
+                    try {
+                        getMethod = beanClass.getMethod("is" + propertyName);
+                    } catch (final NoSuchMethodException ignoredAsWell) {
+                        getMethod = beanClass.getMethod("are" + propertyName);
+                    }
+                }
+                beanMetadata.getters.put(propertyName,
+                        ReflectTools.setAccessible(getMethod));
+            }
+            return getMethod;
+        }
+    }
+
+    /**
+     * Finds the setter method of a property (setXyz()) taking a value of the
+     * given type.
+     * 
+     * @param beanClass
+     *            the class in which to look for the setter method
+     * @param propertyName
+     *            the name of the property
+     * @param type
+     *            the type of the setter parameter
+     * @return the public setter method, or null if there is none
+     */
+    public static Method getSetter(Class<?> beanClass, String propertyName,
+            Class<?> type) {
+        propertyName = propertyName.substring(0, 1).toUpperCase()
+                + propertyName.substring(1);
+        String key = propertyName + ":" + type.getName();
+        BeanMetadata beanMetadata = getMetadata(beanClass);
+        synchronized (beanMetadata) {
+            if (beanMetadata.setters.containsKey(key)) {
+                return beanMetadata.setters.get(key);
+            }
+            Method setMethod = null;
+            try {
+                setMethod = beanClass.getMethod("set" + propertyName, type);
+            } catch (final NoSuchMethodException skipped) {
+            }
+            beanMetadata.setters.put(key,
+                    ReflectTools.setAccessible(setMethod));
+            return setMethod;
+        }
+    }
+
+    /**
+     * Finds a field declared in a class or in one of its superclasses other
+     * than {@link Object}.
+     * 
+     * @param beanClass
+     *            the class in which to look for the field
+     * @param fieldName
+     *            the name of the field
+     * @return the field
+     * @throws NoSuchFieldException
+     *             if the field is not found
+     */
+    public static Field getField(Class<?> beanClass, String fieldName)
+            throws NoSuchFieldException {
+        BeanMetadata beanMetadata = getMetadata(beanClass);
+        synchronized (beanMetadata) {
+            Field field = beanMetadata.fields.get(fieldName);
+            if (field == null) {
+                field = findField(beanClass, fieldName);
+                beanMetadata.fields.put(fieldName, field);
+            }
+            return field;
+        }
+    }
+
+    private static Field findField(Class<?> cls, String fieldName)
+            throws NoSuchFieldException {
+        try {
+            return cls.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            // Try super classes until we reach Object
+            Class<?> superClass = cls.getSuperclass();
+            if (superClass != null && superClass != Object.class) {
+                return findField(superClass, fieldName);
+            } else {
+                throw e;
+            }
+        }
+    }
+}
@@ -186,6 +186,22 @@ public class DefaultItemSorter implements ItemSorter {
 
     }
 
+    /**
+     * Creates a copy of this sorter that can be set up for a different sort
+     * without affecting this one. The property value comparator is shared.
+     * 
+     * @since 7.2
+     */
+    @Override
+    public DefaultItemSorter clone() {
+        try {
+            return (DefaultItemSorter) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // Item sorters are Cloneable
+            throw new AssertionError(e);
+        }
+    }
+
     /**
      * Provides a default comparator used for comparing {@link Property} values.
      * The <code>DefaultPropertyValueComparator</code> assumes all objects it
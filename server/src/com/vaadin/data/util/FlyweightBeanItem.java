@@ -0,0 +1,376 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.vaadin.data.Property;
+
+/**
+ * A {@link BeanItem} that shares the property model of its container instead
+ * of storing a property instance for each bean property. Properties are
+ * returned as lightweight views created on demand. The listeners and the
+ * read-only state of the properties are stored in the item only when used, so
+ * the views of the same property are interchangeable.
+ * <p>
+ * The properties of the item follow the property model of the container and
+ * cannot be added or removed using the item.
+ * 
+ * @param <BT>
+ *            bean type
+ * 
+ * @see AbstractBeanContainer#setFlyweightItems(boolean)
+ * @since 7.2
+ */
+class FlyweightBeanItem<BT> extends BeanItem<BT> {
+
+    /**
+     * The listeners and the read-only state of a property, created when first
+     * needed.
+     */
+    private static class PropertyState implements Serializable {
+        private boolean readOnly;
+        private LinkedList<Property.ValueChangeListener> valueChangeListeners;
+        private LinkedList<Property.ReadOnlyStatusChangeListener> readOnlyStatusChangeListeners;
+    }
+
+    private static class ViewValueChangeEvent extends EventObject implements
+            Property.ValueChangeEvent {
+
+        private ViewValueChangeEvent(Property<?> source) {
+            super(source);
+        }
+
+        @Override
+        public Property<?> getProperty() {
+            return (Property<?>) getSource();
+        }
+    }
+
+    private static class ViewReadOnlyStatusChangeEvent extends EventObject
+            implements Property.ReadOnlyStatusChangeEvent {
+
+        private ViewReadOnlyStatusChangeEvent(Property<?> source) {
+            super(source);
+        }
+
+        @Override
+        public Property<?> getProperty() {
+            return (Property<?>) getSource();
+        }
+    }
+
+    /**
+     * A view of a bean property. The value is accessed through a property
+     * created by the descriptor when first needed. Views of the same property
+     * of the same item are equal.
+     */
+    private class PropertyView implements Property<Object>,
+            Property.ValueChangeNotifier,
+            Property.ReadOnlyStatusChangeNotifier {
+
+        private final Object propertyId;
+        private final VaadinPropertyDescriptor<BT> descriptor;
+        private Property<Object> property;
+
+        private PropertyView(Object propertyId,
+                VaadinPropertyDescriptor<BT> descriptor) {
+            this.propertyId = propertyId;
+            this.descriptor = descriptor;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Property<Object> getProperty() {
+            if (property == null) {
+                property = (Property<Object>) descriptor
+                        .createProperty(getBean());
+            }
+            return property;
+        }
+
+        @Override
+        public Object getValue() {
+            return getProperty().getValue();
+        }
+
+        @Override
+        public void setValue(Object newValue) throws ReadOnlyException {
+            if (isReadOnly()) {
+                throw new ReadOnlyException();
+            }
+            getProperty().setValue(newValue);
+            PropertyState state = getState(propertyId, false);
+            if (state != null && state.valueChangeListeners != null) {
+                final Object[] l = state.valueChangeListeners.toArray();
+                final Property.ValueChangeEvent event = new ViewValueChangeEvent(
+                        this);
+                for (int i = 0; i < l.length; i++) {
+                    ((Property.ValueChangeListener) l[i]).valueChange(event);
+                }
+            }
+        }
+
+        @Override
+        public Class<? extends Object> getType() {
+            return getProperty().getType();
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            PropertyState state = getState(propertyId, false);
+            return state != null && state.readOnly
+                    || getProperty().isReadOnly();
+        }
+
+        @Override
+        public void setReadOnly(boolean newStatus) {
+            boolean oldStatus = isReadOnly();
+            PropertyState state = getState(propertyId, newStatus);
+            if (state == null) {
+                // Not read-only if there is no state
+                return;
+            }
+            state.readOnly = newStatus;
+            releaseStateIfUnused(propertyId, state);
+            if (oldStatus != isReadOnly()) {
+                if (state.readOnlyStatusChangeListeners != null) {
+                    final Object[] l = state.readOnlyStatusChangeListeners
+                            .toArray();
+                    final Property.ReadOnlyStatusChangeEvent event = new ViewReadOnlyStatusChangeEvent(
+                            this);
+                    for (int i = 0; i < l.length; i++) {
+                        ((Property.ReadOnlyStatusChangeListener) l[i])
+                                .readOnlyStatusChange(event);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void addValueChangeListener(
+                Property.ValueChangeListener listener) {
+            PropertyState state = getState(propertyId, true);
+            if (state.valueChangeListeners == null) {
+                state.valueChangeListeners = new LinkedList<Property.ValueChangeListener>();
+            }
+            state.valueChangeListeners.add(listener);
+        }
+
+        @Override
+        @Deprecated
+        public void addListener(Property.ValueChangeListener listener) {
+            addValueChangeListener(listener);
+        }
+
+        @Override
+        public void removeValueChangeListener(
+                Property.ValueChangeListener listener) {
+            PropertyState state = getState(propertyId, false);
+            if (state != null && state.valueChangeListeners != null) {
+                state.valueChangeListeners.remove(listener);
+                if (state.valueChangeListeners.isEmpty()) {
+                    state.valueChangeListeners = null;
+                }
+                releaseStateIfUnused(propertyId, state);
+            }
+        }
+
+        @Override
+        @Deprecated
+        public void removeListener(Property.ValueChangeListener listener) {
+            removeValueChangeListener(listener);
+        }
+
+        @Override
+        public void addReadOnlyStatusChangeListener(
+                Property.ReadOnlyStatusChangeListener listener) {
+            PropertyState state = getState(propertyId, true);
+            if (state.readOnlyStatusChangeListeners == null) {
+                state.readOnlyStatusChangeListeners = new LinkedList<Property.ReadOnlyStatusChangeListener>();
+            }
+            state.readOnlyStatusChangeListeners.add(listener);
+        }
+
+        @Override
+        @Deprecated
+        public void addListener(Property.ReadOnlyStatusChangeListener listener) {
+            addReadOnlyStatusChangeListener(listener);
+        }
+
+        @Override
+        public void removeReadOnlyStatusChangeListener(
+                Property.ReadOnlyStatusChangeListener listener) {
+            PropertyState state = getState(propertyId, false);
+            if (state != null && state.readOnlyStatusChangeListeners != null) {
+                state.readOnlyStatusChangeListeners.remove(listener);
+                if (state.readOnlyStatusChangeListeners.isEmpty()) {
+                    state.readOnlyStatusChangeListeners = null;
+                }
+                releaseStateIfUnused(propertyId, state);
+            }
+        }
+
+        @Override
+        @Deprecated
+        public void removeListener(
+                Property.ReadOnlyStatusChangeListener listener) {
+            removeReadOnlyStatusChangeListener(listener);
+        }
+
+        private FlyweightBeanItem<BT> getItem() {
+            return FlyweightBeanItem.this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FlyweightBeanItem<?>.PropertyView)) {
+                return false;
+            }
+            FlyweightBeanItem<?>.PropertyView other = (FlyweightBeanItem<?>.PropertyView) obj;
+            return other.getItem() == getItem()
+                    && other.propertyId.equals(propertyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(getItem()) * 31
+                    + propertyId.hashCode();
+        }
+    }
+
+    /**
+     * The property model of the container, shared by all its items.
+     */
+    private final Map<String, VaadinPropertyDescriptor<BT>> model;
+
+    /**
+     * The state of the properties having listeners or an explicit read-only
+     * state, null if there are none.
+     */
+    private Map<Object, PropertyState> states;
+
+    /**
+     * Creates an item for a bean using the given property model.
+     * 
+     * @param bean
+     *            the bean
+     * @param model
+     *            the property model of the container, changes to the model
+     *            are reflected by the item
+     */
+    FlyweightBeanItem(BT bean, Map<String, VaadinPropertyDescriptor<BT>> model) {
+        super(bean, false);
+        this.model = model;
+    }
+
+    private PropertyState getState(Object propertyId, boolean create) {
+        PropertyState state = states == null ? null : states.get(propertyId);
+        if (state == null && create) {
+            if (states == null) {
+                states = new HashMap<Object, PropertyState>(4);
+            }
+            state = new PropertyState();
+            states.put(propertyId, state);
+        }
+        return state;
+    }
+
+    /**
+     * Removes the state of a property if it no longer has listeners and is
+     * not explicitly read-only.
+     */
+    private void releaseStateIfUnused(Object propertyId, PropertyState state) {
+        if (state.readOnly || state.valueChangeListeners != null
+                || state.readOnlyStatusChangeListeners != null) {
+            return;
+        }
+        states.remove(propertyId);
+        if (states.isEmpty()) {
+            states = null;
+        }
+    }
+
+    @Override
+    public Property<?> getItemProperty(Object id) {
+        VaadinPropertyDescriptor<BT> descriptor = model.get(id);
+        if (descriptor == null) {
+            return null;
+        }
+        return new PropertyView(id, descriptor);
+    }
+
+    @Override
+    public Collection<?> getItemPropertyIds() {
+        return Collections.unmodifiableCollection(model.keySet());
+    }
+
+    /**
+     * Properties cannot be added to the item, they are determined by the
+     * container.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    // The signature is inherited from Item
+    public boolean addItemProperty(Object id, Property property)
+            throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(
+                "The properties of the item are determined by the container");
+    }
+
+    /**
+     * Releases the listeners and state of a property removed from the
+     * container. Properties of the container cannot be removed using the item.
+     * 
+     * @param id
+     *            the id of the property removed from the container
+     * @return true if the item had state for the property
+     * @throws UnsupportedOperationException
+     *             if the property is still in the container
+     */
+    @Override
+    public boolean removeItemProperty(Object id)
+            throws UnsupportedOperationException {
+        if (model.containsKey(id)) {
+            throw new UnsupportedOperationException(
+                    "The properties of the item are determined by the container");
+        }
+        return states != null && states.remove(id) != null;
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+}
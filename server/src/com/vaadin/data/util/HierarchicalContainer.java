@@ -16,12 +16,15 @@
 
 package com.vaadin.data.util;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -662,6 +665,43 @@ public class HierarchicalContainer extends IndexedContainer implements
         }
     }
 
+    /**
+     * Sorts the roots and the children of each item in the same order as the
+     * sorted item ids.
+     * 
+     * @see com.vaadin.data.util.AbstractInMemoryContainer#doSort(List)
+     */
+    @Override
+    protected void doSort(List<Object> sortedItemIds) {
+        super.doSort(sortedItemIds);
+
+        Comparator<Object> order = new IndexComparator(sortedItemIds);
+        Collections.sort(roots, order);
+        for (LinkedList<Object> childList : children.values()) {
+            Collections.sort(childList, order);
+        }
+    }
+
+    /**
+     * Compares item ids by their index in a list.
+     */
+    private static class IndexComparator implements Comparator<Object>,
+            Serializable {
+        private final HashMap<Object, Integer> indexes = new HashMap<Object, Integer>();
+
+        private IndexComparator(List<Object> itemIds) {
+            int index = 0;
+            for (Object itemId : itemIds) {
+                indexes.put(itemId, index++);
+            }
+        }
+
+        @Override
+        public int compare(Object o1, Object o2) {
+            return indexes.get(o1).compareTo(indexes.get(o2));
+        }
+    }
+
     /**
      * Used to control how filtering works. @see
      * {@link #setIncludeParentsWhenFiltering(boolean)} for more information.
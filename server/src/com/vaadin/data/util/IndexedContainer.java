@@ -62,8 +62,9 @@ import com.vaadin.data.util.filter.UnsupportedFilterException;
 public class IndexedContainer extends
         AbstractInMemoryContainer<Object, Object, Item> implements
         Container.PropertySetChangeNotifier, Property.ValueChangeNotifier,
-        Container.Sortable, Cloneable, Container.Filterable,
-        Container.SimpleFilterable {
+        Container.Sortable, Container.CancellableSortable, Cloneable,
+        Container.Filterable, Container.SimpleFilterable,
+        Container.FilteredIndexed {
 
     /* Internal structure */
 
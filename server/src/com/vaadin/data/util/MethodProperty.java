@@ -68,6 +68,17 @@ public class MethodProperty<T> extends AbstractProperty<T> {
      */
     private transient Object[] setArgs, getArgs;
 
+    /**
+     * Argument list shared by all getters without arguments. Never modified.
+     */
+    static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * Argument list shared by all setters taking only the new value. Never
+     * modified, the setter is invoked with a copy containing the value.
+     */
+    private static final Object[] VALUE_ARG = new Object[] { null };
+
     /**
      * The getter and setter methods.
      */
@@ -200,12 +211,8 @@ public class MethodProperty<T> extends AbstractProperty<T> {
         Class<?> returnType = getMethod.getReturnType();
 
         // Finds the set method
-        setMethod = null;
-        try {
-            setMethod = beanClass.getMethod("set" + beanPropertyName,
-                    new Class[] { returnType });
-        } catch (final java.lang.NoSuchMethodException skipped) {
-        }
+        setMethod = BeanPropertyCache.getSetter(beanClass, beanPropertyName,
+                returnType);
 
         // Gets the return type from get method
         if (returnType.isPrimitive()) {
@@ -219,7 +226,7 @@ public class MethodProperty<T> extends AbstractProperty<T> {
             type = (Class<T>) returnType;
         }
 
-        setArguments(new Object[] {}, new Object[] { null }, 0);
+        setArguments(NO_ARGS, VALUE_ARG, 0);
         this.instance = instance;
     }
 
@@ -249,8 +256,8 @@ public class MethodProperty<T> extends AbstractProperty<T> {
      */
     public MethodProperty(Class<? extends T> type, Object instance,
             String getMethodName, String setMethodName) {
-        this(type, instance, getMethodName, setMethodName, new Object[] {},
-                new Object[] { null }, 0);
+        this(type, instance, getMethodName, setMethodName, NO_ARGS,
+                VALUE_ARG, 0);
     }
 
     /**
@@ -278,8 +285,7 @@ public class MethodProperty<T> extends AbstractProperty<T> {
      */
     public MethodProperty(Class<? extends T> type, Object instance,
             Method getMethod, Method setMethod) {
-        this(type, instance, getMethod, setMethod, new Object[] {},
-                new Object[] { null }, 0);
+        this(type, instance, getMethod, setMethod, NO_ARGS, VALUE_ARG, 0);
     }
 
     /**
@@ -526,23 +532,7 @@ public class MethodProperty<T> extends AbstractProperty<T> {
      */
     static Method initGetterMethod(String propertyName, final Class<?> beanClass)
             throws NoSuchMethodException {
-        propertyName = propertyName.substring(0, 1).toUpperCase()
-                + propertyName.substring(1);
-
-        Method getMethod = null;
-        try {
-            getMethod = beanClass.getMethod("get" + propertyName,
-                    new Class[] {});
-        } catch (final java.lang.NoSuchMethodException ignored) {
-            try {
-                getMethod = beanClass.getMethod("is" + propertyName,
-                        new Class[] {});
-            } catch (final java.lang.NoSuchMethodException ignoredAsWell) {
-                getMethod = beanClass.getMethod("are" + propertyName,
-                        new Class[] {});
-            }
-        }
-        return getMethod;
+        return BeanPropertyCache.getGetter(beanClass, propertyName);
     }
 
     static Class<?> convertPrimitiveType(Class<?> type) {
@@ -627,13 +617,22 @@ public class MethodProperty<T> extends AbstractProperty<T> {
      */
     public void setArguments(Object[] getArgs, Object[] setArgs,
             int setArgumentIndex) {
-        this.getArgs = new Object[getArgs.length];
-        for (int i = 0; i < getArgs.length; i++) {
-            this.getArgs[i] = getArgs[i];
+        // The shared argument lists are never modified, others are copied
+        if (getArgs.length == 0) {
+            this.getArgs = NO_ARGS;
+        } else {
+            this.getArgs = new Object[getArgs.length];
+            for (int i = 0; i < getArgs.length; i++) {
+                this.getArgs[i] = getArgs[i];
+            }
         }
-        this.setArgs = new Object[setArgs.length];
-        for (int i = 0; i < setArgs.length; i++) {
-            this.setArgs[i] = setArgs[i];
+        if (setArgs == VALUE_ARG) {
+            this.setArgs = VALUE_ARG;
+        } else {
+            this.setArgs = new Object[setArgs.length];
+            for (int i = 0; i < setArgs.length; i++) {
+                this.setArgs[i] = setArgs[i];
+            }
         }
         this.setArgumentIndex = setArgumentIndex;
     }
@@ -21,6 +21,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.data.Property;
+import com.vaadin.util.ReflectTools;
 import com.vaadin.util.SerializerHelper;
 
 /**
@@ -104,7 +105,8 @@ public class MethodPropertyDescriptor<BT> implements
             Class<?> writeMethodClass = SerializerHelper.readClass(in);
             Class<?>[] paramTypes = SerializerHelper.readClassArray(in);
             if (name != null) {
-                writeMethod = writeMethodClass.getMethod(name, paramTypes);
+                writeMethod = ReflectTools.setAccessible(writeMethodClass
+                        .getMethod(name, paramTypes));
             } else {
                 writeMethod = null;
             }
@@ -113,7 +115,8 @@ public class MethodPropertyDescriptor<BT> implements
             Class<?> readMethodClass = SerializerHelper.readClass(in);
             paramTypes = SerializerHelper.readClassArray(in);
             if (name != null) {
-                readMethod = readMethodClass.getMethod(name, paramTypes);
+                readMethod = ReflectTools.setAccessible(readMethodClass
+                        .getMethod(name, paramTypes));
             } else {
                 readMethod = null;
             }
@@ -124,6 +124,26 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
         initialize(instance.getClass(), propertyName);
     }
 
+    /**
+     * Creates a nested method property for a bean, reusing the getter and
+     * setter methods resolved by another nested method property for the same
+     * bean class and property name.
+     * 
+     * @param instance
+     *            top-level bean to which the property applies
+     * @param prototype
+     *            a property for the same bean class and property name
+     * @since 7.2
+     */
+    NestedMethodProperty(Object instance, NestedMethodProperty<T> prototype) {
+        this.instance = instance;
+        propertyName = prototype.propertyName;
+        getMethods = prototype.getMethods;
+        setMethod = prototype.setMethod;
+        nullBeansAllowed = prototype.nullBeansAllowed;
+        type = prototype.type;
+    }
+
     /**
      * For internal use to deduce property type etc. without a bean instance.
      * Calling {@link #setValue(Object)} or {@link #getValue()} on properties
@@ -209,20 +229,8 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
         Class<?> type = lastGetMethod.getReturnType();
 
         // Finds the set method
-        Method setMethod = null;
-        try {
-            // Assure that the first letter is upper cased (it is a common
-            // mistake to write firstName, not FirstName).
-            if (Character.isLowerCase(lastSimplePropertyName.charAt(0))) {
-                final char[] buf = lastSimplePropertyName.toCharArray();
-                buf[0] = Character.toUpperCase(buf[0]);
-                lastSimplePropertyName = new String(buf);
-            }
-
-            setMethod = lastClass.getMethod("set" + lastSimplePropertyName,
-                    new Class[] { type });
-        } catch (final NoSuchMethodException skipped) {
-        }
+        Method setMethod = BeanPropertyCache.getSetter(lastClass,
+                lastSimplePropertyName, type);
 
         this.type = (Class<? extends T>) MethodProperty
                 .convertPrimitiveType(type);
@@ -252,7 +260,7 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
         try {
             Object object = instance;
             for (Method m : getMethods) {
-                object = m.invoke(object);
+                object = m.invoke(object, MethodProperty.NO_ARGS);
                 if (object == null && nullBeansAllowed) {
                     return null;
                 }
@@ -294,7 +302,8 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
         try {
             Object object = instance;
             for (int i = 0; i < getMethods.size() - 1; i++) {
-                object = getMethods.get(i).invoke(object);
+                object = getMethods.get(i).invoke(object,
+                        MethodProperty.NO_ARGS);
             }
             setMethod.invoke(object, new Object[] { value });
         } catch (final InvocationTargetException e) {
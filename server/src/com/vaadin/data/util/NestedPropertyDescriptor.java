@@ -33,9 +33,16 @@ public class NestedPropertyDescriptor<BT> implements
         VaadinPropertyDescriptor<BT> {
 
     private final String name;
+    private final Class<BT> beanType;
     private final Class<?> propertyType;
     private final boolean nullBeansAllowed;
 
+    /**
+     * A property with the accessor methods resolved for the bean type, reused
+     * when creating properties for beans.
+     */
+    private transient NestedMethodProperty<Object> prototype;
+
     /**
      * Creates a property descriptor that can create MethodProperty instances to
      * access the underlying bean property.
@@ -68,10 +75,11 @@ public class NestedPropertyDescriptor<BT> implements
     public NestedPropertyDescriptor(String name, Class<BT> beanType,
             boolean nullBeansAllowed) throws IllegalArgumentException {
         this.name = name;
-        NestedMethodProperty<?> property = new NestedMethodProperty<Object>(
-                beanType, name, nullBeansAllowed);
-        this.propertyType = property.getType();
+        this.beanType = beanType;
         this.nullBeansAllowed = nullBeansAllowed;
+        prototype = new NestedMethodProperty<Object>(beanType, name,
+                nullBeansAllowed);
+        this.propertyType = prototype.getType();
     }
 
     @Override
@@ -86,7 +94,16 @@ public class NestedPropertyDescriptor<BT> implements
 
     @Override
     public Property<?> createProperty(BT bean) {
-        return new NestedMethodProperty<Object>(bean, name, nullBeansAllowed);
+        if (bean.getClass() != beanType) {
+            // Subclasses may override the accessors
+            return new NestedMethodProperty<Object>(bean, name,
+                    nullBeansAllowed);
+        }
+        if (prototype == null) {
+            prototype = new NestedMethodProperty<Object>(beanType, name,
+                    nullBeansAllowed);
+        }
+        return new NestedMethodProperty<Object>(bean, prototype);
     }
 
 }
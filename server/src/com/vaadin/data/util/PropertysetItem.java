@@ -44,18 +44,43 @@ public class PropertysetItem implements Item, Item.PropertySetChangeNotifier,
     /**
      * Mapping from property id to property.
      */
-    private HashMap<Object, Property<?>> map = new HashMap<Object, Property<?>>();
+    private HashMap<Object, Property<?>> map;
 
     /**
      * List of all property ids to maintain the order.
      */
-    private LinkedList<Object> list = new LinkedList<Object>();
+    private LinkedList<Object> list;
 
     /**
      * List of property set modification listeners.
      */
     private LinkedList<Item.PropertySetChangeListener> propertySetChangeListeners = null;
 
+    /**
+     * Creates an item without properties.
+     */
+    public PropertysetItem() {
+        this(true);
+    }
+
+    /**
+     * Creates an item that optionally does not store any properties itself.
+     * An item not storing properties must be a subclass overriding all the
+     * methods that access the properties of the item, including
+     * {@link #clone()}, {@link #equals(Object)} and {@link #hashCode()}.
+     * 
+     * @param storeProperties
+     *            true to store the properties in this class, false if a
+     *            subclass stores them
+     * @since 7.2
+     */
+    PropertysetItem(boolean storeProperties) {
+        if (storeProperties) {
+            map = new HashMap<Object, Property<?>>();
+            list = new LinkedList<Object>();
+        }
+    }
+
     /* Item methods */
 
     /**
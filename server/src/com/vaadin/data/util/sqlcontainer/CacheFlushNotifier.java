@@ -18,8 +18,10 @@ package com.vaadin.data.util.sqlcontainer;
 import java.io.Serializable;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
@@ -28,14 +30,20 @@ import com.vaadin.data.util.sqlcontainer.query.TableQuery;
 /**
  * CacheFlushNotifier is a simple static notification mechanism to inform other
  * SQLContainers that the contents of their caches may have become stale.
+ * <p>
+ * The containers are registered by the table name or query string of their
+ * delegate, so a notification only visits the containers using the same data.
+ * The notified containers are not refreshed immediately, as they typically
+ * belong to other sessions, but marked stale and refreshed the next time they
+ * are accessed.
  */
 class CacheFlushNotifier implements Serializable {
     /*
-     * SQLContainer instance reference list and dead reference queue. Used for
-     * the cache flush notification feature.
+     * SQLContainer instance references by the table or query they use, and the
+     * dead reference queue. Used for the cache flush notification feature.
      */
-    private static List<WeakReference<SQLContainer>> allInstances = new ArrayList<WeakReference<SQLContainer>>();
-    private static ReferenceQueue<SQLContainer> deadInstances = new ReferenceQueue<SQLContainer>();
+    private static final ConcurrentMap<String, Set<InstanceReference>> instancesByQuery = new ConcurrentHashMap<String, Set<InstanceReference>>();
+    private static final ReferenceQueue<SQLContainer> deadInstances = new ReferenceQueue<SQLContainer>();
 
     /**
      * Adds the given SQLContainer to the cache flush notification receiver list
@@ -45,9 +53,24 @@ class CacheFlushNotifier implements Serializable {
      */
     public static void addInstance(SQLContainer c) {
         removeDeadReferences();
-        if (c != null) {
-            allInstances.add(new WeakReference<SQLContainer>(c, deadInstances));
+        if (c == null) {
+            return;
         }
+        String key = getNotificationKey(c.getQueryDelegate());
+        if (key == null) {
+            return;
+        }
+        Set<InstanceReference> instances = instancesByQuery.get(key);
+        if (instances == null) {
+            instances = Collections
+                    .newSetFromMap(new ConcurrentHashMap<InstanceReference, Boolean>());
+            Set<InstanceReference> existing = instancesByQuery.putIfAbsent(
+                    key, instances);
+            if (existing != null) {
+                instances = existing;
+            }
+        }
+        instances.add(new InstanceReference(c, key));
     }
 
     /**
@@ -57,48 +80,91 @@ class CacheFlushNotifier implements Serializable {
         java.lang.ref.Reference<? extends SQLContainer> dead = deadInstances
                 .poll();
         while (dead != null) {
-            allInstances.remove(dead);
+            InstanceReference reference = (InstanceReference) dead;
+            Set<InstanceReference> instances = instancesByQuery
+                    .get(reference.key);
+            if (instances != null) {
+                instances.remove(reference);
+            }
             dead = deadInstances.poll();
         }
     }
 
     /**
-     * Iterates through the instances and notifies containers which are
-     * connected to the same table or are using the same query string.
+     * Invalidates the entries of the table or query of the given container in
+     * the shared query cache used by the container, if any.
+     * 
+     * @param c
+     *            SQLContainer that issued the cache flush notification
+     */
+    public static void invalidateSharedCache(SQLContainer c) {
+        SharedQueryCache sharedQueryCache = c.getSharedQueryCache();
+        if (sharedQueryCache != null) {
+            sharedQueryCache.invalidate(c.getQueryDelegate());
+        }
+    }
+
+    /**
+     * Marks the containers which are connected to the same table or are using
+     * the same query string as the given container stale. The containers are
+     * refreshed when they are next accessed.
      * 
      * @param c
      *            SQLContainer that issued the cache flush notification
      */
     public static void notifyOfCacheFlush(SQLContainer c) {
+        invalidateSharedCache(c);
         removeDeadReferences();
-        for (WeakReference<SQLContainer> wr : allInstances) {
-            if (wr.get() != null) {
-                SQLContainer wrc = wr.get();
-                if (wrc == null) {
-                    continue;
-                }
-                /*
-                 * If the reference points to the container sending the
-                 * notification, do nothing.
-                 */
-                if (wrc.equals(c)) {
-                    continue;
-                }
-                /* Compare QueryDelegate types and tableName/queryString */
-                QueryDelegate wrQd = wrc.getQueryDelegate();
-                QueryDelegate qd = c.getQueryDelegate();
-                if (wrQd instanceof TableQuery
-                        && qd instanceof TableQuery
-                        && ((TableQuery) wrQd).getTableName().equals(
-                                ((TableQuery) qd).getTableName())) {
-                    wrc.refresh();
-                } else if (wrQd instanceof FreeformQuery
-                        && qd instanceof FreeformQuery
-                        && ((FreeformQuery) wrQd).getQueryString().equals(
-                                ((FreeformQuery) qd).getQueryString())) {
-                    wrc.refresh();
-                }
+        String key = getNotificationKey(c.getQueryDelegate());
+        if (key == null) {
+            return;
+        }
+        Set<InstanceReference> instances = instancesByQuery.get(key);
+        if (instances == null) {
+            return;
+        }
+        for (InstanceReference reference : instances) {
+            SQLContainer wrc = reference.get();
+            /*
+             * If the reference points to the container sending the
+             * notification, do nothing.
+             */
+            if (wrc != null && wrc != c) {
+                wrc.markCacheFlushed();
             }
         }
     }
+
+    /**
+     * Returns the key by which containers using the given delegate are
+     * notified: the table name of a TableQuery or the query string of a
+     * FreeformQuery.
+     * 
+     * @param delegate
+     *            the query delegate of a container
+     * @return the notification key, or null if containers using the delegate
+     *         are never notified
+     */
+    private static String getNotificationKey(QueryDelegate delegate) {
+        if (delegate instanceof TableQuery) {
+            return "table:" + ((TableQuery) delegate).getTableName();
+        } else if (delegate instanceof FreeformQuery) {
+            return "query:" + ((FreeformQuery) delegate).getQueryString();
+        }
+        return null;
+    }
+
+    /**
+     * Weak reference to a registered container, remembering the key it is
+     * registered by.
+     */
+    private static class InstanceReference extends WeakReference<SQLContainer>
+            implements Serializable {
+        private final String key;
+
+        private InstanceReference(SQLContainer container, String key) {
+            super(container, deadInstances);
+            this.key = key;
+        }
+    }
 }
@@ -16,9 +16,11 @@
 package com.vaadin.data.util.sqlcontainer;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,9 +28,13 @@ import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,15 +45,21 @@ import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.Compare.Equal;
 import com.vaadin.data.util.filter.Like;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.sqlcontainer.query.BatchQueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQueryDelegate;
 import com.vaadin.data.util.sqlcontainer.query.OrderBy;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
 import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeListener;
 import com.vaadin.data.util.sqlcontainer.query.TableQuery;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.OracleGenerator;
+import com.vaadin.server.CacheEvictable;
+import com.vaadin.server.VaadinSession;
 
 public class SQLContainer implements Container, Container.Filterable,
-        Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier {
+        Container.Indexed, Container.FilteredIndexed, Container.Sortable,
+        Container.ItemSetChangeNotifier, CacheEvictable {
 
     /** Query delegate */
     private QueryDelegate delegate;
@@ -108,6 +120,29 @@ public class SQLContainer implements Container, Container.Filterable,
     /** Cache flush notification system enabled. Disabled by default. */
     private boolean notificationsEnabled;
 
+    /** Set by a cache flush notification, refresh on next access */
+    private volatile boolean cacheFlushed;
+
+    /**
+     * True if the caches have been dropped after a cache flush notification
+     * but the listeners have not been notified yet
+     */
+    private boolean flushedContentsChangePending;
+
+    /** Application scoped count and page cache, not used by default. */
+    private transient SharedQueryCache sharedQueryCache;
+
+    /** Executor for read-ahead page fetches, prefetching disabled if null */
+    private transient Executor prefetchExecutor;
+
+    /** Prefetched pages by offset, also guards the prefetch state below */
+    private final Map<Integer, SharedQueryCache.CachedPage> prefetchedPages = new HashMap<Integer, SharedQueryCache.CachedPage>();
+    private transient List<PagePrefetch> pendingPrefetches;
+    private int prefetchGeneration;
+
+    /** Held by a page prefetch while it is using the delegate */
+    private final ReentrantLock prefetchLock = new ReentrantLock();
+
     /**
      * Prevent instantiation without a QueryDelegate.
      */
@@ -166,6 +201,7 @@ public class SQLContainer implements Container, Container.Filterable,
 
         if (autoCommit) {
             /* Add and commit instantly */
+            awaitPrefetch();
             try {
                 if (delegate instanceof TableQuery) {
                     itemId = ((TableQuery) delegate)
@@ -176,9 +212,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     delegate.commit();
                 }
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 getLogger().log(Level.FINER, "Row added to DB...");
                 return itemId;
             } catch (SQLException e) {
@@ -210,6 +244,7 @@ public class SQLContainer implements Container, Container.Filterable,
         if (itemId == null) {
             return false;
         }
+        refreshIfCacheFlushed();
 
         if (cachedItems.containsKey(itemId)) {
             return true;
@@ -230,6 +265,7 @@ public class SQLContainer implements Container, Container.Filterable,
         }
 
         if (itemId instanceof RowId && !(itemId instanceof TemporaryRowId)) {
+            awaitPrefetch();
             try {
                 return delegate.containsRowWithKey(((RowId) itemId).getId());
             } catch (Exception e) {
@@ -275,6 +311,7 @@ public class SQLContainer implements Container, Container.Filterable,
 
     @Override
     public Item getItem(Object itemId) {
+        refreshIfCacheFlushed();
         if (!cachedItems.containsKey(itemId)) {
             int index = indexOfId(itemId);
             if (index >= size) {
@@ -323,9 +360,11 @@ public class SQLContainer implements Container, Container.Filterable,
 
     @Override
     public Collection<?> getItemIds() {
+        refreshIfCacheFlushed();
         updateCount();
         ArrayList<RowId> ids = new ArrayList<RowId>();
         ResultSet rs = null;
+        awaitPrefetch();
         try {
             // Load ALL rows :(
             delegate.beginTransaction();
@@ -348,8 +387,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     ids.add(id);
                 }
             }
-            rs.getStatement().close();
-            rs.close();
+            releaseResultSet(rs);
             delegate.commit();
         } catch (SQLException e) {
             getLogger().log(Level.WARNING,
@@ -360,8 +398,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.SEVERE, "Failed to roll back state", e1);
             }
             try {
-                rs.getStatement().close();
-                rs.close();
+                releaseResultSet(rs);
             } catch (SQLException e1) {
                 getLogger().log(Level.WARNING, "Closing session failed", e1);
             }
@@ -395,6 +432,7 @@ public class SQLContainer implements Container, Container.Filterable,
 
     @Override
     public int size() {
+        refreshIfCacheFlushed();
         updateCount();
         return size + sizeOfAddedItems() - removedItems.size();
     }
@@ -425,14 +463,13 @@ public class SQLContainer implements Container, Container.Filterable,
             if (i == null) {
                 return false;
             }
+            awaitPrefetch();
             try {
                 delegate.beginTransaction();
                 boolean success = delegate.removeRow((RowItem) i);
                 delegate.commit();
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 if (success) {
                     getLogger().log(Level.FINER, "Row removed from DB...");
                 }
@@ -478,6 +515,7 @@ public class SQLContainer implements Container, Container.Filterable,
     public boolean removeAllItems() throws UnsupportedOperationException {
         if (autoCommit) {
             /* Remove and commit instantly. */
+            awaitPrefetch();
             try {
                 delegate.beginTransaction();
                 boolean success = true;
@@ -490,9 +528,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     delegate.commit();
                     getLogger().log(Level.FINER, "All rows removed from DB...");
                     refresh();
-                    if (notificationsEnabled) {
-                        CacheFlushNotifier.notifyOfCacheFlush(this);
-                    }
+                    notifyOfCacheFlush();
                 } else {
                     delegate.rollback();
                 }
@@ -682,10 +718,12 @@ public class SQLContainer implements Container, Container.Filterable,
             throw new IndexOutOfBoundsException("Index is negative! index="
                     + index);
         }
+        refreshIfCacheFlushed();
         // make sure the size field is valid
         updateCount();
         if (index < size) {
             if (itemIndexes.keySet().contains(index)) {
+                prefetchAdjacentPages(index);
                 return itemIndexes.get(index);
             }
             updateOffsetAndCache(index);
@@ -706,6 +744,261 @@ public class SQLContainer implements Container, Container.Filterable,
                 startIndex, numberOfIds, this);
     }
 
+    /******************************************************/
+    /** Methods from interface Container.FilteredIndexed **/
+    /******************************************************/
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The filter is evaluated by the database together with the filters of
+     * this container, so it must be supported by the query delegate. Rows
+     * removed from the container but not committed are not counted, and added
+     * items that have not been committed are counted if they pass the filter.
+     * The counts are stored in the shared query cache if one is in use.
+     */
+    @Override
+    public int size(Filter filter) {
+        if (filter == null) {
+            return size();
+        }
+        int count;
+        try {
+            count = fetchFilteredCount(filter);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count filtered rows.", e);
+        }
+        return count - countRemovedItemsPassing(filter)
+                + getAddedItemsPassing(filter).size();
+    }
+
+    @Override
+    public int indexOfId(Filter filter, Object itemId) {
+        if (filter == null) {
+            return indexOfId(itemId);
+        }
+        Item item = getItem(itemId);
+        if (item == null || !filter.passesFilter(itemId, item)) {
+            return -1;
+        }
+        List<RowItem> added = getAddedItemsPassing(filter);
+        for (int ix = 0; ix < added.size(); ix++) {
+            if (added.get(ix).getId().equals(itemId)) {
+                return size(filter) - added.size() + ix;
+            }
+        }
+        int length = pageLength * CACHE_RATIO;
+        try {
+            int index = 0;
+            for (int offset = 0;; offset += length) {
+                List<RowId> rowIds = fetchFilteredRowIds(filter, offset,
+                        length);
+                for (RowId id : rowIds) {
+                    if (id.equals(itemId)) {
+                        return index;
+                    }
+                    if (!removedItems.containsKey(id)) {
+                        index++;
+                    }
+                }
+                if (rowIds.size() < length) {
+                    return -1;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch filtered rows.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The indexes are the same as those of {@link #size(Filter)} and
+     * {@link #indexOfId(Filter, Object)}: rows removed from the container but
+     * not committed are skipped, and the added items follow the rows in the
+     * database.
+     */
+    @Override
+    public List<Object> getItemIds(Filter filter, int startIndex,
+            int numberOfItems) {
+        if (startIndex < 0 || numberOfItems < 0) {
+            throw new IndexOutOfBoundsException(
+                    "Start index and number of items cannot be negative! startIndex="
+                            + startIndex + " numberOfItems=" + numberOfItems);
+        }
+        List<Object> itemIds = new ArrayList<Object>();
+        if (numberOfItems == 0) {
+            return itemIds;
+        }
+        try {
+            int removed = countRemovedItemsPassing(filter);
+            itemIds.addAll(fetchRemainingRowIds(filter, startIndex,
+                    numberOfItems, removed));
+            List<RowItem> added = getAddedItemsPassing(filter);
+            if (itemIds.size() < numberOfItems && !added.isEmpty()) {
+                // The added items follow the rows in the database
+                int rows = filter == null ? size() - sizeOfAddedItems()
+                        : fetchFilteredCount(filter) - removed;
+                for (int ix = Math.max(0, startIndex - rows); ix < added
+                        .size() && itemIds.size() < numberOfItems; ix++) {
+                    itemIds.add(added.get(ix).getId());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch filtered rows.", e);
+        }
+        return itemIds;
+    }
+
+    /**
+     * Returns the filters of this container together with the given filter.
+     */
+    private List<Filter> getFiltersWith(Filter filter) {
+        List<Filter> queryFilters = new ArrayList<Filter>(filters);
+        if (filter != null) {
+            queryFilters.add(filter);
+        }
+        return queryFilters;
+    }
+
+    /**
+     * Sets the filters of the delegate for a query with an additional filter.
+     * The filters of the container must be restored with
+     * {@link #restoreDelegateFilters()} after the query.
+     */
+    private void setDelegateFilters(List<Filter> queryFilters) {
+        awaitPrefetch();
+        try {
+            delegate.setFilters(queryFilters);
+        } catch (UnsupportedOperationException e) {
+            getLogger().log(Level.FINE,
+                    "The query delegate doesn't support filtering", e);
+        }
+    }
+
+    private void restoreDelegateFilters() {
+        try {
+            delegate.setFilters(filters);
+        } catch (UnsupportedOperationException e) {
+            /* The query delegate doesn't support filtering. */
+        }
+    }
+
+    /**
+     * Fetches the number of database rows passing the filters of this
+     * container and the given filter.
+     */
+    private int fetchFilteredCount(Filter filter) throws SQLException {
+        List<Filter> queryFilters = getFiltersWith(filter);
+        setDelegateFilters(queryFilters);
+        try {
+            return fetchCount(getSharedCacheKey(queryFilters, -1, -1));
+        } finally {
+            restoreDelegateFilters();
+        }
+    }
+
+    /**
+     * Fetches the ids of a range of database rows passing the filters of this
+     * container and the given filter. The offset is a database row index, so
+     * rows removed from the container are included.
+     */
+    private List<RowId> fetchFilteredRowIds(Filter filter, int offset,
+            int length) throws SQLException {
+        List<Filter> queryFilters = getFiltersWith(filter);
+        setDelegateFilters(queryFilters);
+        SharedQueryCache.CachedPage page;
+        try {
+            try {
+                delegate.setOrderBy(sorters);
+            } catch (UnsupportedOperationException e) {
+                getLogger().log(Level.FINE,
+                        "The query delegate doesn't support sorting", e);
+            }
+            page = fetchPage(offset, length, sharedQueryCache,
+                    getSharedCacheKey(queryFilters, offset, length));
+        } finally {
+            restoreDelegateFilters();
+        }
+        List<RowId> rowIds = page.rowIds;
+        if (!delegate.implementationRespectsPagingLimits()) {
+            // All rows were fetched
+            rowIds = rowIds.subList(Math.min(offset, rowIds.size()),
+                    Math.min(offset + length, rowIds.size()));
+        }
+        return rowIds;
+    }
+
+    /**
+     * Fetches the ids of a range of database rows passing the filters of this
+     * container and the given filter, skipping the rows removed from the
+     * container. The offset is an index among the remaining rows.
+     * <p>
+     * If removed rows pass the filters, the number of them before the offset
+     * is not known, so the rows are read from the start until the range is
+     * full. Uncommitted removals are expected to be rare and short-lived.
+     * 
+     * @param removed
+     *            the number of removed rows passing the filters
+     */
+    private List<RowId> fetchRemainingRowIds(Filter filter, int offset,
+            int length, int removed) throws SQLException {
+        if (removed == 0) {
+            return fetchFilteredRowIds(filter, offset, length);
+        }
+        List<RowId> result = new ArrayList<RowId>(length);
+        int chunk = Math.max(length, pageLength * CACHE_RATIO);
+        int index = 0;
+        for (int dbOffset = 0;; dbOffset += chunk) {
+            List<RowId> rowIds = fetchFilteredRowIds(filter, dbOffset, chunk);
+            for (RowId id : rowIds) {
+                if (removedItems.containsKey(id)) {
+                    continue;
+                }
+                if (index++ >= offset) {
+                    result.add(id);
+                    if (result.size() == length) {
+                        return result;
+                    }
+                }
+            }
+            if (rowIds.size() < chunk) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows removed from the container but not committed
+     * that pass the filters of this container and the given filter, evaluated
+     * in memory.
+     */
+    private int countRemovedItemsPassing(Filter filter) {
+        int count = 0;
+        for (Map.Entry<RowId, RowItem> entry : removedItems.entrySet()) {
+            RowItem item = entry.getValue();
+            if (item != null && itemPassesFilters(item)
+                    && (filter == null || filter.passesFilter(entry.getKey(),
+                            item))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<RowItem> getAddedItemsPassing(Filter filter) {
+        List<RowItem> added = getFilteredAddedItems();
+        if (filter != null) {
+            for (Iterator<RowItem> i = added.iterator(); i.hasNext();) {
+                RowItem item = i.next();
+                if (!filter.passesFilter(item.getId(), item)) {
+                    i.remove();
+                }
+            }
+        }
+        return added;
+    }
+
     /**********************************************/
     /** Methods from interface Container.Ordered **/
     /**********************************************/
@@ -890,10 +1183,33 @@ public class SQLContainer implements Container, Container.Filterable,
         if (setSizeDirty) {
             sizeDirty = true;
         }
+        clearCachedItems();
+        flushedContentsChangePending = false;
+        fireContentsChange();
+    }
+
+    private void clearCachedItems() {
         currentOffset = 0;
         cachedItems.clear();
         itemIndexes.clear();
-        fireContentsChange();
+        discardPrefetchedPages();
+    }
+
+    /**
+     * Discards the cached items and prefetched pages without notifying the
+     * listeners, unless the container has uncommitted changes. The items are
+     * fetched again from the database when needed.
+     * 
+     * @since 7.2
+     */
+    @Override
+    public void evictCaches() {
+        if (isModified()) {
+            return;
+        }
+        cachedItems.clear();
+        itemIndexes.clear();
+        discardPrefetchedPages();
     }
 
     /**
@@ -991,45 +1307,45 @@ public class SQLContainer implements Container, Container.Filterable,
      * @throws SQLException
      */
     public void commit() throws UnsupportedOperationException, SQLException {
+        awaitPrefetch();
         try {
             getLogger().log(Level.FINER,
                     "Commiting changes through delegate...");
             delegate.beginTransaction();
-            /* Perform buffered deletions */
-            for (RowItem item : removedItems.values()) {
-                if (!delegate.removeRow(item)) {
-                    throw new SQLException("Removal failed for row with ID: "
-                            + item.getId());
+            if (delegate instanceof BatchQueryDelegate) {
+                commitInBatches((BatchQueryDelegate) delegate);
+            } else {
+                /* Perform buffered deletions */
+                for (RowItem item : removedItems.values()) {
+                    if (!delegate.removeRow(item)) {
+                        throw new SQLException(
+                                "Removal failed for row with ID: "
+                                        + item.getId());
+                    }
                 }
-            }
-            /* Perform buffered modifications */
-            for (RowItem item : modifiedItems) {
-                if (delegate.storeRow(item) > 0) {
-                    /*
-                     * Also reset the modified state in the item in case it is
-                     * reused e.g. in a form.
-                     */
-                    item.commit();
-                } else {
-                    delegate.rollback();
-                    refresh();
-                    throw new ConcurrentModificationException(
-                            "Item with the ID '" + item.getId()
-                                    + "' has been externally modified.");
+                /* Perform buffered modifications */
+                for (RowItem item : modifiedItems) {
+                    if (delegate.storeRow(item) > 0) {
+                        /*
+                         * Also reset the modified state in the item in case
+                         * it is reused e.g. in a form.
+                         */
+                        item.commit();
+                    } else {
+                        failModifiedItemCommit(item);
+                    }
+                }
+                /* Perform buffered additions */
+                for (RowItem item : addedItems) {
+                    delegate.storeRow(item);
                 }
-            }
-            /* Perform buffered additions */
-            for (RowItem item : addedItems) {
-                delegate.storeRow(item);
             }
             delegate.commit();
             removedItems.clear();
             addedItems.clear();
             modifiedItems.clear();
             refresh();
-            if (notificationsEnabled) {
-                CacheFlushNotifier.notifyOfCacheFlush(this);
-            }
+            notifyOfCacheFlush();
         } catch (SQLException e) {
             delegate.rollback();
             throw e;
@@ -1039,6 +1355,56 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Passes the buffered deletions, modifications and additions to a delegate
+     * supporting batch updates, each kind in one call.
+     * 
+     * @param batchDelegate
+     *            the delegate of this container
+     * @throws SQLException
+     */
+    private void commitInBatches(BatchQueryDelegate batchDelegate)
+            throws SQLException {
+        /* Perform buffered deletions */
+        if (!removedItems.isEmpty()) {
+            List<RowItem> items = new ArrayList<RowItem>(removedItems.values());
+            boolean[] removed = batchDelegate.removeRows(items);
+            for (int i = 0; i < removed.length; i++) {
+                if (!removed[i]) {
+                    throw new SQLException("Removal failed for row with ID: "
+                            + items.get(i).getId());
+                }
+            }
+        }
+        /* Perform buffered modifications */
+        if (!modifiedItems.isEmpty()) {
+            int[] stored = batchDelegate.storeRows(modifiedItems);
+            for (int i = 0; i < stored.length; i++) {
+                if (stored[i] <= 0) {
+                    failModifiedItemCommit(modifiedItems.get(i));
+                }
+            }
+            /*
+             * Also reset the modified state in the items in case they are
+             * reused e.g. in a form.
+             */
+            for (RowItem item : modifiedItems) {
+                item.commit();
+            }
+        }
+        /* Perform buffered additions */
+        if (!addedItems.isEmpty()) {
+            batchDelegate.storeRows(addedItems);
+        }
+    }
+
+    private void failModifiedItemCommit(RowItem item) throws SQLException {
+        delegate.rollback();
+        refresh();
+        throw new ConcurrentModificationException("Item with the ID '"
+                + item.getId() + "' has been externally modified.");
+    }
+
     /**
      * Rolls back all the changes, additions and removals made to the items of
      * this container.
@@ -1064,6 +1430,7 @@ public class SQLContainer implements Container, Container.Filterable,
      */
     void itemChangeNotification(RowItem changedItem) {
         if (autoCommit) {
+            awaitPrefetch();
             try {
                 delegate.beginTransaction();
                 if (delegate.storeRow(changedItem) == 0) {
@@ -1074,9 +1441,7 @@ public class SQLContainer implements Container, Container.Filterable,
                                     + "' has been externally modified.");
                 }
                 delegate.commit();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 getLogger().log(Level.FINER, "Row updated to DB...");
             } catch (SQLException e) {
                 getLogger().log(Level.WARNING,
@@ -1106,15 +1471,15 @@ public class SQLContainer implements Container, Container.Filterable,
      *            Index of the item that was requested, but not found in cache
      */
     private void updateOffsetAndCache(int index) {
-        if (itemIndexes.containsKey(index)) {
-            return;
-        }
-        currentOffset = (index / (pageLength * CACHE_RATIO))
-                * (pageLength * CACHE_RATIO);
-        if (currentOffset < 0) {
-            currentOffset = 0;
+        if (!itemIndexes.containsKey(index)) {
+            currentOffset = (index / (pageLength * CACHE_RATIO))
+                    * (pageLength * CACHE_RATIO);
+            if (currentOffset < 0) {
+                currentOffset = 0;
+            }
+            getPage();
         }
-        getPage();
+        prefetchAdjacentPages(index);
     }
 
     /**
@@ -1126,6 +1491,7 @@ public class SQLContainer implements Container, Container.Filterable,
                         + sizeValidMilliSeconds) {
             return;
         }
+        awaitPrefetch();
         try {
             try {
                 delegate.setFilters(filters);
@@ -1139,13 +1505,19 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.FINE,
                         "The query delegate doesn't support sorting", e);
             }
-            int newSize = delegate.getCount();
+            int newSize = fetchCount();
             sizeUpdated = new Date();
             sizeDirty = false;
             if (newSize != size) {
                 size = newSize;
-                // Size is up to date so don't set it back to dirty in refresh()
-                refresh(false);
+                if (flushedContentsChangePending) {
+                    // The listeners are notified of the flush later
+                    clearCachedItems();
+                } else {
+                    // Size is up to date so don't set it back to dirty in
+                    // refresh()
+                    refresh(false);
+                }
             }
             getLogger().log(Level.FINER,
                     "Updated row count. New count is: {0}", size);
@@ -1154,6 +1526,66 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Fetches the row count from the shared query cache or the delegate.
+     * 
+     * @return the row count
+     * @throws SQLException
+     */
+    private int fetchCount() throws SQLException {
+        return fetchCount(getSharedCacheKey(-1, -1));
+    }
+
+    /**
+     * Fetches the row count for the current state of the delegate from the
+     * shared query cache or the delegate.
+     * 
+     * @param key
+     *            the shared query cache key of the count, or null if the count
+     *            is not cached
+     * @return the row count
+     * @throws SQLException
+     */
+    private int fetchCount(SharedQueryCache.CacheKey key) throws SQLException {
+        if (key == null) {
+            return delegate.getCount();
+        }
+        Integer count = (Integer) sharedQueryCache.get(key);
+        if (count == null) {
+            long generation = sharedQueryCache.getGeneration(key.getIdentity());
+            count = delegate.getCount();
+            sharedQueryCache.put(key, count, generation);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the shared query cache key for the current filters and sorters
+     * of this container.
+     * 
+     * @param offset
+     *            the offset of the cached page, -1 for a row count
+     * @param length
+     *            the length of the cached page, -1 for a row count
+     * @return the cache key, or null if the shared query cache is not in use
+     */
+    private SharedQueryCache.CacheKey getSharedCacheKey(int offset, int length) {
+        return getSharedCacheKey(filters, offset, length);
+    }
+
+    private SharedQueryCache.CacheKey getSharedCacheKey(
+            List<Filter> queryFilters, int offset, int length) {
+        if (sharedQueryCache == null) {
+            return null;
+        }
+        String identity = sharedQueryCache.getQueryIdentity(delegate);
+        if (identity == null) {
+            return null;
+        }
+        return new SharedQueryCache.CacheKey(identity, queryFilters, sorters,
+                offset, length);
+    }
+
     /**
      * Fetches property id's (column names and their types) from the data
      * source.
@@ -1161,6 +1593,7 @@ public class SQLContainer implements Container, Container.Filterable,
      * @throws SQLException
      */
     private void getPropertyIds() throws SQLException {
+        awaitPrefetch();
         propertyIds.clear();
         propertyTypes.clear();
         delegate.setFilters(null);
@@ -1223,8 +1656,7 @@ public class SQLContainer implements Container, Container.Filterable,
                         .contains(rsmd.getColumnLabel(i)));
                 propertyTypes.put(colName, type);
             }
-            rs.getStatement().close();
-            rs.close();
+            releaseResultSet(rs);
             delegate.commit();
             getLogger().log(Level.FINER, "Property IDs fetched.");
         } catch (SQLException e) {
@@ -1237,10 +1669,7 @@ public class SQLContainer implements Container, Container.Filterable,
             }
             try {
                 if (rs != null) {
-                    if (rs.getStatement() != null) {
-                        rs.getStatement().close();
-                    }
-                    rs.close();
+                    releaseResultSet(rs);
                 }
             } catch (SQLException e1) {
                 getLogger().log(Level.WARNING, "Failed to close session", e1);
@@ -1256,104 +1685,82 @@ public class SQLContainer implements Container, Container.Filterable,
      */
     private void getPage() {
         updateCount();
-        ResultSet rs = null;
-        ResultSetMetaData rsmd = null;
         cachedItems.clear();
         itemIndexes.clear();
         try {
-            try {
-                delegate.setOrderBy(sorters);
-            } catch (UnsupportedOperationException e) {
-                /* The query delegate doesn't support sorting. */
-                /* No need to do anything. */
-                getLogger().log(Level.FINE,
-                        "The query delegate doesn't support sorting", e);
-            }
-            delegate.beginTransaction();
             int fetchedRows = pageLength * CACHE_RATIO;
-            rs = delegate.getResults(currentOffset, fetchedRows);
-            rsmd = rs.getMetaData();
-            List<String> pKeys = delegate.getPrimaryKeyColumns();
-            // }
+            SharedQueryCache.CachedPage page = takePrefetchedPage(currentOffset);
+            if (page == null) {
+                awaitPrefetch();
+                try {
+                    delegate.setOrderBy(sorters);
+                } catch (UnsupportedOperationException e) {
+                    /* The query delegate doesn't support sorting. */
+                    /* No need to do anything. */
+                    getLogger().log(Level.FINE,
+                            "The query delegate doesn't support sorting", e);
+                }
+                page = fetchPage(currentOffset, fetchedRows, sharedQueryCache,
+                        getSharedCacheKey(currentOffset, fetchedRows));
+            }
             /* Create new items and column properties */
-            ColumnProperty cp = null;
             int rowCount = currentOffset;
             if (!delegate.implementationRespectsPagingLimits()) {
                 rowCount = currentOffset = 0;
                 setPageLengthInternal(size);
             }
-            while (rs.next()) {
-                List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
-                /* Generate row itemId based on primary key(s) */
-                Object[] itemId = new Object[pKeys.size()];
-                for (int i = 0; i < pKeys.size(); i++) {
-                    itemId[i] = rs.getObject(pKeys.get(i));
-                }
-                RowId id = null;
-                if (pKeys.isEmpty()) {
-                    id = new ReadOnlyRowId(rs.getRow());
-                } else {
-                    id = new RowId(itemId);
-                }
-                List<String> propertiesToAdd = new ArrayList<String>(
-                        propertyIds);
+            for (int row = 0; row < page.rowIds.size(); row++) {
+                RowId id = page.rowIds.get(row);
                 if (!removedItems.containsKey(id)) {
-                    for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                        if (!isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
-                            continue;
-                        }
-                        String colName = rsmd.getColumnLabel(i);
-                        Object value = rs.getObject(i);
-                        Class<?> type = value != null ? value.getClass()
-                                : Object.class;
-                        if (value == null) {
-                            for (String propName : propertyTypes.keySet()) {
-                                if (propName.equals(rsmd.getColumnLabel(i))) {
-                                    type = propertyTypes.get(propName);
-                                    break;
-                                }
-                            }
-                        }
-                        /*
-                         * In case there are more than one column with the same
-                         * name, add only the first one. This can easily happen
-                         * if you join many tables where each table has an ID
-                         * column.
-                         */
-                        if (propertiesToAdd.contains(colName)) {
-
-                            cp = new ColumnProperty(colName,
-                                    propertyReadOnly.get(colName),
-                                    propertyPersistable.get(colName),
-                                    propertyNullable.get(colName),
-                                    propertyPrimaryKey.get(colName), value,
-                                    type);
-                            itemProperties.add(cp);
-                            propertiesToAdd.remove(colName);
-                        }
-                    }
-                    /* Cache item */
-                    itemIndexes.put(rowCount, id);
-
-                    // if an item with the id is contained in the modified
-                    // cache, then use this record and add it to the cached
-                    // items. Otherwise create a new item
-                    int modifiedIndex = indexInModifiedCache(id);
-                    if (modifiedIndex != -1) {
-                        cachedItems.put(id, modifiedItems.get(modifiedIndex));
-                    } else {
-                        cachedItems.put(id, new RowItem(this, id,
-                                itemProperties));
-                    }
-
+                    addPageRowToCache(id, page.columnLabels,
+                            page.rowValues.get(row), rowCount);
                     rowCount++;
                 }
             }
-            rs.getStatement().close();
-            rs.close();
-            delegate.commit();
             getLogger().log(Level.FINER, "Fetched {0} rows starting from {1}",
                     new Object[] { fetchedRows, currentOffset });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch page.", e);
+        }
+    }
+
+    /**
+     * Fetches the rows of a page from the shared query cache or, if not
+     * cached, from the delegate. Only uses the given cache and key and not the
+     * current state of this container, so that pages can also be fetched by a
+     * background prefetch.
+     * 
+     * @param offset
+     *            the index of the first row to fetch
+     * @param length
+     *            the number of rows to fetch
+     * @param cache
+     *            the shared query cache to use, or null
+     * @param key
+     *            the shared query cache key of the page, or null if the page
+     *            is not cached
+     * @return the rows of the page
+     * @throws SQLException
+     */
+    private SharedQueryCache.CachedPage fetchPage(int offset, int length,
+            SharedQueryCache cache, SharedQueryCache.CacheKey key)
+            throws SQLException {
+        SharedQueryCache.CachedPage page = null;
+        long generation = 0;
+        if (key != null) {
+            page = (SharedQueryCache.CachedPage) cache.get(key);
+            if (page != null) {
+                return page;
+            }
+            generation = cache.getGeneration(key.getIdentity());
+        }
+        ResultSet rs = null;
+        try {
+            delegate.beginTransaction();
+            rs = delegate.getResults(offset, length);
+            page = readPage(rs);
+            releaseResultSet(rs);
+            delegate.commit();
         } catch (SQLException e) {
             getLogger().log(Level.WARNING,
                     "Failed to fetch rows, rolling back", e);
@@ -1364,15 +1771,112 @@ public class SQLContainer implements Container, Container.Filterable,
             }
             try {
                 if (rs != null) {
-                    if (rs.getStatement() != null) {
-                        rs.getStatement().close();
-                        rs.close();
-                    }
+                    releaseResultSet(rs);
                 }
             } catch (SQLException e1) {
                 getLogger().log(Level.WARNING, "Failed to close session", e1);
             }
-            throw new RuntimeException("Failed to fetch page.", e);
+            throw e;
+        }
+        if (key != null) {
+            cache.put(key, page, generation);
+        }
+        return page;
+    }
+
+    /**
+     * Reads the row ids and column values of all rows of the given result set.
+     * 
+     * @param rs
+     *            the result set of a page query
+     * @return the rows of the page
+     * @throws SQLException
+     */
+    private SharedQueryCache.CachedPage readPage(ResultSet rs)
+            throws SQLException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        List<String> pKeys = delegate.getPrimaryKeyColumns();
+        List<Integer> columns = new ArrayList<Integer>();
+        List<String> columnLabels = new ArrayList<String>();
+        for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+            if (isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
+                columns.add(i);
+                columnLabels.add(rsmd.getColumnLabel(i));
+            }
+        }
+        SharedQueryCache.CachedPage page = new SharedQueryCache.CachedPage(
+                columnLabels.toArray(new String[columnLabels.size()]));
+        while (rs.next()) {
+            /* Generate row itemId based on primary key(s) */
+            RowId id = null;
+            if (pKeys.isEmpty()) {
+                id = new ReadOnlyRowId(rs.getRow());
+            } else {
+                Object[] itemId = new Object[pKeys.size()];
+                for (int i = 0; i < pKeys.size(); i++) {
+                    itemId[i] = rs.getObject(pKeys.get(i));
+                }
+                id = new RowId(itemId);
+            }
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(columns.get(i));
+            }
+            page.addRow(id, values);
+        }
+        return page;
+    }
+
+    /**
+     * Creates the item for a row of a fetched page and adds it to the item
+     * cache.
+     * 
+     * @param id
+     *            the id of the row
+     * @param columnLabels
+     *            the column labels of the page
+     * @param values
+     *            the column values of the row
+     * @param index
+     *            the index of the row in the container
+     */
+    private void addPageRowToCache(RowId id, String[] columnLabels,
+            Object[] values, int index) {
+        List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
+        List<String> propertiesToAdd = new ArrayList<String>(propertyIds);
+        for (int i = 0; i < columnLabels.length; i++) {
+            String colName = columnLabels[i];
+            Object value = values[i];
+            Class<?> type = value != null ? value.getClass() : Object.class;
+            if (value == null && propertyTypes.containsKey(colName)) {
+                type = propertyTypes.get(colName);
+            }
+            /*
+             * In case there are more than one column with the same name, add
+             * only the first one. This can easily happen if you join many
+             * tables where each table has an ID column.
+             */
+            if (propertiesToAdd.contains(colName)) {
+                ColumnProperty cp = new ColumnProperty(colName,
+                        propertyReadOnly.get(colName),
+                        propertyPersistable.get(colName),
+                        propertyNullable.get(colName),
+                        propertyPrimaryKey.get(colName), value, type);
+                itemProperties.add(cp);
+                propertiesToAdd.remove(colName);
+            }
+        }
+        /* Cache item */
+        itemIndexes.put(index, id);
+
+        // if an item with the id is contained in the modified
+        // cache, then use this record and add it to the cached
+        // items. Otherwise create a new item
+        int modifiedIndex = indexInModifiedCache(id);
+        if (modifiedIndex != -1) {
+            cachedItems.put(id, modifiedItems.get(modifiedIndex));
+        } else {
+            cachedItems.put(id, new RowItem(this, id, itemProperties));
         }
     }
 
@@ -1447,6 +1951,7 @@ public class SQLContainer implements Container, Container.Filterable,
      * @return current querydelegate
      */
     protected QueryDelegate getQueryDelegate() {
+        awaitPrefetch();
         return delegate;
     }
 
@@ -1672,7 +2177,12 @@ public class SQLContainer implements Container, Container.Filterable,
 
     /**
      * Calling this will enable this SQLContainer to send and receive cache
-     * flush notifications for its lifetime.
+     * flush notifications for its lifetime. When another container using the
+     * same table or query commits changes, the cached items of this container
+     * are dropped the next time it is accessed. The listeners of this
+     * container are notified when the session of that access is next accessed
+     * with {@link VaadinSession#access(Runnable)}, e.g. when the current
+     * request ends, or when {@link #refresh()} is called.
      */
     public void enableCacheFlushNotifications() {
         if (!notificationsEnabled) {
@@ -1681,6 +2191,311 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Sets an application scoped cache to use for row counts and result pages
+     * of this container. The same cache can be used by the containers of all
+     * sessions to avoid repeating identical queries against the database. The
+     * cache is used only with {@link TableQuery} delegates and
+     * {@link FreeformQuery} delegates that do not have a
+     * {@link FreeformQueryDelegate}. When this container commits changes, the
+     * cached entries of its table or query are invalidated.
+     * <p>
+     * The cache is not serialized with the container and needs to be set again
+     * after deserialization.
+     * 
+     * @param sharedQueryCache
+     *            the cache to use, or null to always query the database
+     * @since 7.2
+     */
+    public void setSharedQueryCache(SharedQueryCache sharedQueryCache) {
+        this.sharedQueryCache = sharedQueryCache;
+    }
+
+    /**
+     * Returns the application scoped cache used for row counts and result
+     * pages of this container.
+     * 
+     * @return the shared query cache, or null if none is used
+     * @since 7.2
+     */
+    public SharedQueryCache getSharedQueryCache() {
+        return sharedQueryCache;
+    }
+
+    /**
+     * Sets an executor for fetching pages ahead of time. When an item close to
+     * either end of the currently cached rows is accessed, the rows following
+     * or preceding them are fetched in the background using the executor.
+     * Scrolling through the container sequentially, e.g. in a Table, can then
+     * be served without waiting for the database when moving to the next rows.
+     * <p>
+     * Prefetching is disabled by default. The executor only runs the database
+     * queries, the fetched rows are added to the container when they are
+     * accessed. Any other database access of the container waits for a
+     * running prefetch to finish and cancels prefetches that have not yet
+     * started. Prefetched rows are discarded when the container is refreshed,
+     * e.g. after filtering, sorting or committing changes.
+     * <p>
+     * The executor is not serialized with the container and needs to be set
+     * again after deserialization.
+     * 
+     * @param prefetchExecutor
+     *            the executor to use for fetching pages in the background, or
+     *            null to disable prefetching
+     * @since 7.2
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+        if (prefetchExecutor == null) {
+            awaitPrefetch();
+            discardPrefetchedPages();
+        }
+    }
+
+    /**
+     * Returns the executor used for fetching pages ahead of time.
+     * 
+     * @return the prefetch executor, or null if prefetching is disabled
+     * @since 7.2
+     */
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Schedules fetching the pages before and after the cached rows if the
+     * item with the given index is within one page from the beginning or the
+     * end of the cached rows.
+     * 
+     * @param index
+     *            the index of the accessed item
+     */
+    private void prefetchAdjacentPages(int index) {
+        if (prefetchExecutor == null
+                || !delegate.implementationRespectsPagingLimits()) {
+            return;
+        }
+        int fetchedRows = pageLength * CACHE_RATIO;
+        int position = index - currentOffset;
+        if (position >= fetchedRows - pageLength
+                && currentOffset + fetchedRows < size) {
+            schedulePrefetch(currentOffset + fetchedRows, fetchedRows);
+        }
+        if (position < pageLength && currentOffset > 0) {
+            schedulePrefetch(currentOffset - fetchedRows, fetchedRows);
+        }
+    }
+
+    private void schedulePrefetch(int offset, int length) {
+        PagePrefetch prefetch;
+        synchronized (prefetchedPages) {
+            if (prefetchedPages.containsKey(offset)) {
+                return;
+            }
+            if (pendingPrefetches == null) {
+                pendingPrefetches = new ArrayList<PagePrefetch>();
+            }
+            for (PagePrefetch pending : pendingPrefetches) {
+                if (pending.offset == offset) {
+                    return;
+                }
+            }
+            prefetch = new PagePrefetch(offset, length, sharedQueryCache,
+                    getSharedCacheKey(offset, length), prefetchGeneration);
+            pendingPrefetches.add(prefetch);
+        }
+        try {
+            prefetchExecutor.execute(prefetch);
+        } catch (RejectedExecutionException e) {
+            getLogger().log(Level.FINE, "Page prefetch was rejected", e);
+            synchronized (prefetchedPages) {
+                pendingPrefetches.remove(prefetch);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the prefetched page starting at the given offset.
+     * Prefetched pages not adjacent to the new offset are discarded.
+     * 
+     * @param offset
+     *            the offset of the page
+     * @return the prefetched page, or null if the page has not been prefetched
+     */
+    private SharedQueryCache.CachedPage takePrefetchedPage(int offset) {
+        int fetchedRows = pageLength * CACHE_RATIO;
+        synchronized (prefetchedPages) {
+            SharedQueryCache.CachedPage page = prefetchedPages.remove(offset);
+            Iterator<Integer> offsets = prefetchedPages.keySet().iterator();
+            while (offsets.hasNext()) {
+                int prefetchedOffset = offsets.next();
+                if (prefetchedOffset != offset - fetchedRows
+                        && prefetchedOffset != offset + fetchedRows) {
+                    offsets.remove();
+                }
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Cancels the page prefetches that have not yet started and waits for a
+     * running prefetch to finish. Must be called before using the delegate.
+     */
+    private void awaitPrefetch() {
+        if (cancelPendingPrefetches()) {
+            prefetchLock.lock();
+            prefetchLock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the page prefetches that have not yet started.
+     * 
+     * @return true if a prefetch is running
+     */
+    private boolean cancelPendingPrefetches() {
+        synchronized (prefetchedPages) {
+            if (pendingPrefetches == null) {
+                return false;
+            }
+            boolean running = false;
+            Iterator<PagePrefetch> pending = pendingPrefetches.iterator();
+            while (pending.hasNext()) {
+                PagePrefetch prefetch = pending.next();
+                if (prefetch.started) {
+                    running = true;
+                } else {
+                    prefetch.cancelled = true;
+                    pending.remove();
+                }
+            }
+            return running;
+        }
+    }
+
+    /**
+     * Discards all prefetched pages, including the results of prefetches that
+     * are still running.
+     */
+    private void discardPrefetchedPages() {
+        synchronized (prefetchedPages) {
+            prefetchGeneration++;
+            prefetchedPages.clear();
+        }
+        cancelPendingPrefetches();
+    }
+
+    /**
+     * Fetches a page in the background and stores it to the prefetched pages
+     * unless the container has been refreshed in the meantime.
+     */
+    private class PagePrefetch implements Runnable, Serializable {
+        private final int offset;
+        private final int length;
+        private final SharedQueryCache cache;
+        private final SharedQueryCache.CacheKey key;
+        private final int generation;
+        /* Guarded by prefetchedPages */
+        private boolean started;
+        private boolean cancelled;
+
+        private PagePrefetch(int offset, int length, SharedQueryCache cache,
+                SharedQueryCache.CacheKey key, int generation) {
+            this.offset = offset;
+            this.length = length;
+            this.cache = cache;
+            this.key = key;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            prefetchLock.lock();
+            try {
+                synchronized (prefetchedPages) {
+                    if (cancelled) {
+                        return;
+                    }
+                    started = true;
+                }
+                SharedQueryCache.CachedPage page = fetchPage(offset, length,
+                        cache, key);
+                synchronized (prefetchedPages) {
+                    if (generation == prefetchGeneration) {
+                        prefetchedPages.put(offset, page);
+                    }
+                }
+                getLogger().log(Level.FINER,
+                        "Prefetched {0} rows starting from {1}",
+                        new Object[] { length, offset });
+            } catch (SQLException e) {
+                getLogger().log(Level.WARNING, "Failed to prefetch rows", e);
+            } catch (RuntimeException e) {
+                getLogger().log(Level.WARNING, "Failed to prefetch rows", e);
+            } finally {
+                synchronized (prefetchedPages) {
+                    pendingPrefetches.remove(this);
+                }
+                prefetchLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Marks the contents of this container stale after the data of its table
+     * or query has been changed by another container. Called by
+     * {@link CacheFlushNotifier}, typically from another session, so the
+     * container is refreshed only when it is next accessed.
+     */
+    void markCacheFlushed() {
+        cacheFlushed = true;
+    }
+
+    /**
+     * Drops the cached items if the container has been marked stale. Called
+     * from getters, which may be used e.g. while a Table is building its page
+     * buffer, so the listeners are not notified here. The contents change
+     * event is instead fired when the current session is next accessed, or by
+     * {@link #refresh()} if it is called before that.
+     */
+    private void refreshIfCacheFlushed() {
+        if (cacheFlushed) {
+            cacheFlushed = false;
+            sizeDirty = true;
+            clearCachedItems();
+            flushedContentsChangePending = true;
+            VaadinSession session = VaadinSession.getCurrent();
+            if (session != null) {
+                session.access(new Runnable() {
+                    @Override
+                    public void run() {
+                        fireFlushedContentsChange();
+                    }
+                });
+            }
+        }
+    }
+
+    private void fireFlushedContentsChange() {
+        if (flushedContentsChangePending) {
+            flushedContentsChangePending = false;
+            fireContentsChange();
+        }
+    }
+
+    /**
+     * Notifies the shared query cache and, if enabled, the other containers
+     * that the data of this container has changed.
+     */
+    private void notifyOfCacheFlush() {
+        if (notificationsEnabled) {
+            CacheFlushNotifier.notifyOfCacheFlush(this);
+        } else {
+            CacheFlushNotifier.invalidateSharedCache(this);
+        }
+    }
+
     /******************************************/
     /** Referencing mechanism implementation **/
     /******************************************/
@@ -1824,6 +2639,29 @@ public class SQLContainer implements Container, Container.Filterable,
         out.defaultWriteObject();
     }
 
+    /**
+     * Closes a result set fetched from the delegate together with its
+     * statement. For TableQuery and FreeformQuery delegates a cached prepared
+     * statement is returned to the statement cache instead of being closed.
+     * 
+     * @param rs
+     *            the result set to close
+     * @throws SQLException
+     */
+    private void releaseResultSet(ResultSet rs) throws SQLException {
+        if (delegate instanceof TableQuery) {
+            ((TableQuery) delegate).releaseResultSet(rs);
+        } else if (delegate instanceof FreeformQuery) {
+            ((FreeformQuery) delegate).releaseResultSet(rs);
+        } else {
+            Statement statement = rs.getStatement();
+            if (statement != null) {
+                statement.close();
+            }
+            rs.close();
+        }
+    }
+
     private void readObject(java.io.ObjectInputStream in) throws IOException,
             ClassNotFoundException {
         in.defaultReadObject();
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.OrderBy;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+/**
+ * SharedQueryCache is an application scoped cache of row counts and result
+ * pages that can be shared by any number of SQLContainers, e.g. all the
+ * containers of all sessions that read the same lookup tables. Entries are
+ * keyed by the connection pool, the table (or free form query string), the
+ * filters and the ordering of the container.
+ * <p>
+ * The cache holds at most a given number of entries, evicting the oldest ones
+ * first, and each entry expires after a given time. When a
+ * container using the cache commits changes, all the entries of its table or
+ * query are invalidated through {@link CacheFlushNotifier}. Changes made to the
+ * database by other means are only seen when the entries expire.
+ * <p>
+ * Only containers with a {@link TableQuery} or {@link FreeformQuery} delegate
+ * use the cache. A free form query with a {@link FreeformQueryDelegate} is
+ * never cached, as the delegate may generate different SQL for each user. The
+ * cached column values are shared between containers and must not be modified
+ * in place.
+ * 
+ * @see SQLContainer#setSharedQueryCache(SharedQueryCache)
+ * @since 7.2
+ */
+public class SharedQueryCache implements Serializable {
+
+    /** Default maximum number of cached counts and pages */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** Default time in milliseconds after which an entry expires */
+    public static final long DEFAULT_TIME_TO_LIVE = 10000;
+
+    private final int maxEntries;
+    private final long timeToLive;
+
+    private final CacheMap<CacheKey, CacheEntry> entries = new CacheMap<CacheKey, CacheEntry>();
+
+    /*
+     * Invalidation counter for each query identity. Values fetched before an
+     * invalidation are not stored to the cache.
+     */
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+
+    /*
+     * Identifiers of the connection pools of the cached queries. Not
+     * serialized, as the deserialized pools are different instances.
+     */
+    private transient Map<JDBCConnectionPool, String> poolIdentities;
+    private long poolCount;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a shared query cache with the default size and time to live.
+     */
+    public SharedQueryCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Creates a shared query cache.
+     * 
+     * @param maxEntries
+     *            the maximum number of cached counts and pages, must be
+     *            positive
+     * @param timeToLive
+     *            the time in milliseconds after which an entry expires, must
+     *            be positive
+     */
+    public SharedQueryCache(int maxEntries, long timeToLive) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of entries must be positive");
+        }
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException(
+                    "The time to live must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        entries.setCacheLimit(maxEntries);
+    }
+
+    /**
+     * Removes all cached entries of the table or query used by the given query
+     * delegate.
+     * 
+     * @param delegate
+     *            the query delegate whose entries to remove
+     */
+    public void invalidate(QueryDelegate delegate) {
+        String identity = getQueryIdentity(delegate);
+        if (identity != null) {
+            invalidate(identity);
+        }
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        for (Map.Entry<String, Long> generation : generations.entrySet()) {
+            generation.setValue(generation.getValue() + 1);
+        }
+    }
+
+    /**
+     * Returns the number of currently cached counts and pages, including
+     * expired entries that have not been evicted yet.
+     * 
+     * @return the number of cache entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of cached counts and pages.
+     * 
+     * @return the maximum number of cache entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the time after which a cache entry expires.
+     * 
+     * @return the time to live in milliseconds
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the number of counts and pages served from the cache.
+     * 
+     * @return the cache hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of counts and pages that were not found in the cache.
+     * 
+     * @return the cache miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    synchronized void invalidate(String identity) {
+        Iterator<CacheKey> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().identity.equals(identity)) {
+                keys.remove();
+            }
+        }
+        generations.put(identity, getGeneration(identity) + 1);
+    }
+
+    synchronized long getGeneration(String identity) {
+        Long generation = generations.get(identity);
+        return generation == null ? 0 : generation;
+    }
+
+    synchronized Object get(CacheKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null
+                && System.currentTimeMillis() - entry.created > timeToLive) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    synchronized void put(CacheKey key, Object value, long generation) {
+        if (getGeneration(key.identity) == generation) {
+            entries.put(key, new CacheEntry(value));
+        }
+    }
+
+    /**
+     * Returns a string identifying the connection pool and the table or query
+     * of the given delegate.
+     * 
+     * @param delegate
+     *            the query delegate
+     * @return the identity of the queried data, or null if the results of the
+     *         delegate are not cacheable
+     */
+    String getQueryIdentity(QueryDelegate delegate) {
+        if (delegate instanceof TableQuery) {
+            TableQuery tq = (TableQuery) delegate;
+            return getPoolIdentity(tq.getConnectionPool()) + "table:"
+                    + tq.getCatalogName() + "." + tq.getSchemaName() + "."
+                    + tq.getTableName();
+        } else if (delegate instanceof FreeformQuery) {
+            FreeformQuery fq = (FreeformQuery) delegate;
+            if (fq.getDelegate() != null) {
+                /*
+                 * The SQL actually executed is generated by the delegate and
+                 * may depend on e.g. the current user.
+                 */
+                return null;
+            }
+            return getPoolIdentity(fq.getConnectionPool()) + "query:"
+                    + fq.getQueryString();
+        }
+        return null;
+    }
+
+    /**
+     * Returns an identifier unique to the given connection pool within this
+     * cache. The same table name may refer to different tables in the
+     * databases of different pools.
+     */
+    private synchronized String getPoolIdentity(JDBCConnectionPool pool) {
+        if (poolIdentities == null) {
+            poolIdentities = new WeakHashMap<JDBCConnectionPool, String>();
+        }
+        String identity = poolIdentities.get(pool);
+        if (identity == null) {
+            identity = "pool" + (++poolCount) + ":";
+            poolIdentities.put(pool, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * Key of a cached count or page. Counts use an offset and length of -1.
+     */
+    static class CacheKey implements Serializable {
+        private final String identity;
+        private final List<Filter> filters;
+        private final String orderBy;
+        private final int offset;
+        private final int length;
+
+        CacheKey(String identity, List<Filter> filters, List<OrderBy> orderBys,
+                int offset, int length) {
+            this.identity = identity;
+            this.filters = new ArrayList<Filter>(filters);
+            StringBuilder sb = new StringBuilder();
+            for (OrderBy orderBy : orderBys) {
+                sb.append(orderBy.getColumn())
+                        .append(orderBy.isAscending() ? " ASC," : " DESC,");
+            }
+            this.orderBy = sb.toString();
+            this.offset = offset;
+            this.length = length;
+        }
+
+        String getIdentity() {
+            return identity;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return offset == other.offset && length == other.length
+                    && identity.equals(other.identity)
+                    && orderBy.equals(other.orderBy)
+                    && filters.equals(other.filters);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = identity.hashCode();
+            result = 31 * result + filters.hashCode();
+            result = 31 * result + orderBy.hashCode();
+            result = 31 * result + offset;
+            return 31 * result + length;
+        }
+    }
+
+    /**
+     * The rows of a cached result page: the row ids and the values of the
+     * columns in the order of the column labels.
+     */
+    static class CachedPage implements Serializable {
+        final String[] columnLabels;
+        final List<RowId> rowIds = new ArrayList<RowId>();
+        final List<Object[]> rowValues = new ArrayList<Object[]>();
+
+        CachedPage(String[] columnLabels) {
+            this.columnLabels = columnLabels;
+        }
+
+        void addRow(RowId id, Object[] values) {
+            rowIds.add(id);
+            rowValues.add(values);
+        }
+    }
+
+    private static class CacheEntry implements Serializable {
+        private final Object value;
+        private final long created = System.currentTimeMillis();
+
+        private CacheEntry(Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A least recently used cache of {@link PreparedStatement}s for a single JDBC
+ * connection, keyed by the SQL string (and requested generated key columns).
+ * <p>
+ * Statements handed out by {@link #prepareStatement(String)} are owned by the
+ * cache and must be given back with {@link #releaseStatement(Statement)}
+ * instead of being closed. A statement requested while an identical one is
+ * still in use, or evicted while in use, is closed when it is released.
+ * <p>
+ * The cache is not meant to be shared between threads; like its connection it
+ * is used by one holder at a time. Hit and miss counters may however be read
+ * at any time.
+ * 
+ * @since 7.2
+ */
+@SuppressWarnings("serial")
+public class PreparedStatementCache implements Serializable {
+
+    private final transient Connection connection;
+    private final int maxSize;
+
+    private final transient LinkedHashMap<StatementKey, CachedStatement> statements;
+    private final transient Map<Statement, CachedStatement> statementsByIdentity = new IdentityHashMap<Statement, CachedStatement>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new statement cache for the given connection.
+     * 
+     * @param connection
+     *            the connection to prepare statements with, not null
+     * @param maxSize
+     *            the maximum number of statements to keep open, must be
+     *            positive
+     */
+    public PreparedStatementCache(Connection connection, int maxSize) {
+        if (connection == null) {
+            throw new IllegalArgumentException("Connection may not be null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Statement cache size must be positive");
+        }
+        this.connection = connection;
+        this.maxSize = maxSize;
+        statements = new LinkedHashMap<StatementKey, CachedStatement>(16,
+                0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() > PreparedStatementCache.this.maxSize) {
+                    evict(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one if
+     * available.
+     * 
+     * @param sql
+     *            the SQL string, typically from a StatementHelper
+     * @return a prepared statement owned by this cache
+     * @throws SQLException
+     *             if preparing the statement fails
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepareStatement(sql, null);
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL that returns the given
+     * auto-generated key columns, reusing a cached one if available.
+     * 
+     * @param sql
+     *            the SQL string, typically from a StatementHelper
+     * @param columnNames
+     *            the names of the generated key columns to return, or null
+     *            for a plain statement
+     * @return a prepared statement owned by this cache
+     * @throws SQLException
+     *             if preparing the statement fails
+     */
+    public synchronized PreparedStatement prepareStatement(String sql,
+            String[] columnNames) throws SQLException {
+        StatementKey key = new StatementKey(sql, columnNames);
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (isClosed(cached.statement)) {
+                // Closed behind our back, prepare a new one below
+                statements.remove(key);
+                statementsByIdentity.remove(cached.statement);
+                cached = null;
+            } else if (!cached.inUse) {
+                hits++;
+                cached.inUse = true;
+                return cached.statement;
+            }
+        }
+        misses++;
+        PreparedStatement statement = columnNames == null ? connection
+                .prepareStatement(sql) : connection.prepareStatement(sql,
+                columnNames);
+        CachedStatement newEntry = new CachedStatement(key, statement);
+        newEntry.inUse = true;
+        if (cached == null) {
+            statements.put(key, newEntry);
+        } else {
+            // An identical statement is in use, this one is not kept
+            newEntry.evicted = true;
+        }
+        statementsByIdentity.put(statement, newEntry);
+        return statement;
+    }
+
+    /**
+     * Gives a statement back to the cache. Statements owned by the cache are
+     * kept open with their parameters cleared; other statements are closed.
+     * 
+     * @param statement
+     *            the statement to release, null is ignored
+     * @throws SQLException
+     *             if closing the statement fails
+     */
+    public synchronized void releaseStatement(Statement statement)
+            throws SQLException {
+        if (statement == null) {
+            return;
+        }
+        CachedStatement cached = statementsByIdentity.get(statement);
+        if (cached == null || cached.evicted) {
+            statementsByIdentity.remove(statement);
+            statement.close();
+            return;
+        }
+        cached.inUse = false;
+        try {
+            cached.statement.clearParameters();
+        } catch (SQLException e) {
+            statements.remove(cached.key);
+            statementsByIdentity.remove(statement);
+            statement.close();
+        }
+    }
+
+    /**
+     * Checks whether the given statement is currently owned by this cache.
+     * 
+     * @param statement
+     *            the statement to check
+     * @return true if the statement was handed out by this cache
+     */
+    public synchronized boolean isCached(Statement statement) {
+        return statementsByIdentity.containsKey(statement);
+    }
+
+    /**
+     * Closes all statements kept by this cache and empties it. Statements
+     * currently in use are closed when released.
+     */
+    public synchronized void clear() {
+        List<CachedStatement> all = new ArrayList<CachedStatement>(
+                statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            evict(cached);
+        }
+    }
+
+    /**
+     * Returns the number of statements currently kept by this cache.
+     * 
+     * @return the number of cached statements
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Returns the maximum number of statements kept by this cache.
+     * 
+     * @return the maximum cache size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of statement requests served from the cache.
+     * 
+     * @return the cache hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of statement requests that had to prepare a new
+     * statement.
+     * 
+     * @return the cache miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of cache hits to all statement requests.
+     * 
+     * @return the hit rate between 0 and 1, or 0 if no requests have been made
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private void evict(CachedStatement cached) {
+        if (cached.inUse) {
+            cached.evicted = true;
+            return;
+        }
+        statementsByIdentity.remove(cached.statement);
+        try {
+            cached.statement.close();
+        } catch (SQLException e) {
+            getLogger().log(Level.FINE, "Could not close cached statement", e);
+        }
+    }
+
+    private static boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        } catch (AbstractMethodError e) {
+            // Pre JDBC 4 driver, assume the statement is still usable
+            return false;
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(PreparedStatementCache.class.getName());
+    }
+
+    private static class CachedStatement implements Serializable {
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(StatementKey key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+    }
+
+    private static class StatementKey implements Serializable {
+        private final String sql;
+        private final String[] columnNames;
+
+        private StatementKey(String sql, String[] columnNames) {
+            this.sql = sql;
+            this.columnNames = columnNames;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) obj;
+            return sql.equals(other.sql)
+                    && Arrays.equals(columnNames, other.columnNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + Arrays.hashCode(columnNames);
+        }
+    }
+}
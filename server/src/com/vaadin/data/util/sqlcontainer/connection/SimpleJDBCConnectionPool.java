@@ -20,7 +20,9 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -41,6 +43,9 @@ public class SimpleJDBCConnectionPool implements JDBCConnectionPool {
 
     private transient Set<Connection> availableConnections;
     private transient Set<Connection> reservedConnections;
+    private transient Map<Connection, PreparedStatementCache> statementCaches;
+
+    private int statementCacheSize = 0;
 
     private boolean initialized;
 
@@ -131,12 +136,123 @@ public class SimpleJDBCConnectionPool implements JDBCConnectionPool {
                 /* Nothing needs to be done */
             }
             reservedConnections.remove(conn);
+            removeStatementCache(conn);
             return;
         }
         reservedConnections.remove(conn);
         availableConnections.add(conn);
     }
 
+    /**
+     * Sets the maximum number of prepared statements kept open per connection
+     * for reuse. Statement caching is disabled by default (size 0). Changing
+     * the size closes all currently cached statements.
+     * 
+     * @param statementCacheSize
+     *            the maximum number of cached statements per connection, 0 to
+     *            disable statement caching
+     * @since 7.2
+     */
+    public synchronized void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Statement cache size may not be negative");
+        }
+        this.statementCacheSize = statementCacheSize;
+        clearStatementCaches();
+    }
+
+    /**
+     * Returns the maximum number of prepared statements kept open per
+     * connection.
+     * 
+     * @return the statement cache size, 0 if statement caching is disabled
+     * @since 7.2
+     */
+    public synchronized int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Returns the prepared statement cache of a connection reserved from this
+     * pool.
+     * 
+     * @param conn
+     *            a connection reserved from this pool
+     * @return the statement cache of the connection, or null if statement
+     *         caching is disabled or the connection is not reserved from this
+     *         pool
+     * @since 7.2
+     */
+    public synchronized PreparedStatementCache getStatementCache(
+            Connection conn) {
+        if (statementCacheSize == 0 || !initialized
+                || !reservedConnections.contains(conn)) {
+            return null;
+        }
+        if (statementCaches == null) {
+            statementCaches = new HashMap<Connection, PreparedStatementCache>();
+        }
+        PreparedStatementCache cache = statementCaches.get(conn);
+        if (cache == null) {
+            cache = new PreparedStatementCache(conn, statementCacheSize);
+            statementCaches.put(conn, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the total number of statement requests served from the
+     * statement caches of the connections in this pool.
+     * 
+     * @return the statement cache hit count
+     * @since 7.2
+     */
+    public synchronized long getStatementCacheHitCount() {
+        long hits = 0;
+        if (statementCaches != null) {
+            for (PreparedStatementCache cache : statementCaches.values()) {
+                hits += cache.getHitCount();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the total number of statement requests that had to prepare a new
+     * statement in the statement caches of the connections in this pool.
+     * 
+     * @return the statement cache miss count
+     * @since 7.2
+     */
+    public synchronized long getStatementCacheMissCount() {
+        long misses = 0;
+        if (statementCaches != null) {
+            for (PreparedStatementCache cache : statementCaches.values()) {
+                misses += cache.getMissCount();
+            }
+        }
+        return misses;
+    }
+
+    private void removeStatementCache(Connection conn) {
+        if (statementCaches != null) {
+            PreparedStatementCache cache = statementCaches.remove(conn);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private void clearStatementCaches() {
+        if (statementCaches != null) {
+            for (PreparedStatementCache cache : statementCaches.values()) {
+                cache.clear();
+            }
+            statementCaches = null;
+        }
+    }
+
     private Connection createConnection() throws SQLException {
         Connection c = DriverManager.getConnection(connectionUri, userName,
                 password);
@@ -155,6 +271,7 @@ public class SimpleJDBCConnectionPool implements JDBCConnectionPool {
 
     @Override
     public void destroy() {
+        clearStatementCaches();
         for (Connection c : availableConnections) {
             try {
                 c.close();
@@ -23,6 +23,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.PreparedStatementCache;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
 
 /**
  * Common base class for database query classes that handle connections and
@@ -43,6 +45,16 @@ abstract class AbstractTransactionalQuery implements Serializable {
         this.connectionPool = connectionPool;
     }
 
+    /**
+     * Returns the connection pool used by this query.
+     * 
+     * @return the connection pool
+     * @since 7.2
+     */
+    public JDBCConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     /**
      * Reserves a connection with auto-commit off if no transaction is in
      * progress.
@@ -111,7 +123,9 @@ abstract class AbstractTransactionalQuery implements Serializable {
      * parameters does not prevent closing the rest.
      * 
      * If the statement is a {@link PreparedStatement}, its parameters are
-     * cleared prior to closing the statement.
+     * cleared prior to closing the statement. Statements obtained from the
+     * statement cache of the connection pool are returned to the cache instead
+     * of being closed.
      * 
      * Although JDBC specification does state that closing a statement closes
      * its result set and closing a connection closes statements and result
@@ -138,14 +152,7 @@ abstract class AbstractTransactionalQuery implements Serializable {
                 }
             } finally {
                 if (null != statement) {
-                    if (statement instanceof PreparedStatement) {
-                        try {
-                            ((PreparedStatement) statement).clearParameters();
-                        } catch (Exception e) {
-                            // will be closed below anyway
-                        }
-                    }
-                    statement.close();
+                    closeStatement(statement);
                 }
             }
         } finally {
@@ -153,6 +160,86 @@ abstract class AbstractTransactionalQuery implements Serializable {
         }
     }
 
+    /**
+     * Closes a result set returned by this query and its statement. A
+     * statement obtained from the statement cache of the connection pool is
+     * returned to the cache instead of being closed. The connection itself is
+     * not released.
+     * 
+     * @param rs
+     *            the result set to close, not null
+     * @throws SQLException
+     *             if closing the result set or the statement fails
+     * @since 7.2
+     */
+    public void releaseResultSet(ResultSet rs) throws SQLException {
+        Statement statement = rs.getStatement();
+        try {
+            if (statement != null) {
+                closeStatement(statement);
+            }
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * Prepares a statement on the given connection, using the statement cache
+     * of the connection pool if one is available. Statements prepared with
+     * this method must be closed through
+     * {@link #releaseConnection(Connection, Statement, ResultSet)} or
+     * {@link #releaseResultSet(ResultSet)}.
+     * 
+     * @param conn
+     *            the connection to prepare the statement on
+     * @param sql
+     *            the SQL string of the statement
+     * @param columnNames
+     *            the names of the auto-generated key columns to return, or
+     *            null
+     * @return a prepared statement
+     * @throws SQLException
+     *             if preparing the statement fails
+     * @since 7.2
+     */
+    protected PreparedStatement prepareStatement(Connection conn, String sql,
+            String[] columnNames) throws SQLException {
+        PreparedStatementCache cache = getStatementCache(conn);
+        if (cache != null) {
+            return cache.prepareStatement(sql, columnNames);
+        }
+        if (columnNames == null) {
+            return conn.prepareStatement(sql);
+        }
+        return conn.prepareStatement(sql, columnNames);
+    }
+
+    private void closeStatement(Statement statement) throws SQLException {
+        if (statement instanceof PreparedStatement) {
+            PreparedStatementCache cache = getStatementCache(statement
+                    .getConnection());
+            if (cache != null && cache.isCached(statement)) {
+                cache.releaseStatement(statement);
+                return;
+            }
+            try {
+                ((PreparedStatement) statement).clearParameters();
+            } catch (Exception e) {
+                // will be closed below anyway
+            }
+        }
+        statement.close();
+    }
+
+    private PreparedStatementCache getStatementCache(Connection conn) {
+        if (conn != null
+                && connectionPool instanceof SimpleJDBCConnectionPool) {
+            return ((SimpleJDBCConnectionPool) connectionPool)
+                    .getStatementCache(conn);
+        }
+        return null;
+    }
+
     /**
      * Returns the currently active connection, reserves and returns a new
      * connection if no active connection.
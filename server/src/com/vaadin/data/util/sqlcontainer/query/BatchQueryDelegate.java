@@ -0,0 +1,69 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer.query;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.vaadin.data.util.sqlcontainer.RowItem;
+
+/**
+ * BatchQueryDelegate is an extension to QueryDelegate for delegates that can
+ * store and remove several rows at once, e.g. using JDBC batch updates. When
+ * the delegate of a SQLContainer implements this interface, all buffered
+ * changes are passed to the delegate in bulk on commit instead of one row at a
+ * time.
+ * 
+ * The methods have the same semantics as their single row counterparts in
+ * {@link QueryDelegate}, and are called inside a transaction started with
+ * {@link QueryDelegate#beginTransaction()}.
+ * 
+ * @since 7.2
+ */
+public interface BatchQueryDelegate extends QueryDelegate {
+    /**
+     * Stores the given rows in the database in the given order. New rows are
+     * inserted and existing rows updated as in
+     * {@link QueryDelegate#storeRow(RowItem)}.
+     * 
+     * @param rows
+     *            the rows to store
+     * @return the number of affected database rows for each given row, in the
+     *         same order as the rows
+     * @throws UnsupportedOperationException
+     *             if the implementation is read only.
+     * @throws SQLException
+     *             if the database access fails.
+     */
+    public int[] storeRows(List<RowItem> rows)
+            throws UnsupportedOperationException, SQLException;
+
+    /**
+     * Removes the given rows from the database as in
+     * {@link QueryDelegate#removeRow(RowItem)}.
+     * 
+     * @param rows
+     *            the rows to remove
+     * @return for each given row, in the same order as the rows, true if the
+     *         row was removed
+     * @throws UnsupportedOperationException
+     *             if the implementation is read only.
+     * @throws SQLException
+     *             if the database access fails.
+     */
+    public boolean[] removeRows(List<RowItem> rows)
+            throws UnsupportedOperationException, SQLException;
+}
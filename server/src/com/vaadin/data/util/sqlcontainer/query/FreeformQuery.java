@@ -152,7 +152,7 @@ public class FreeformQuery extends AbstractTransactionalQuery implements
                 ResultSet rs = null;
                 Connection c = getConnection();
                 try {
-                    pstmt = c.prepareStatement(sh.getQueryString());
+                    pstmt = prepareStatement(c, sh.getQueryString(), null);
                     sh.setParameterValuesToStatement(pstmt);
                     rs = pstmt.executeQuery();
                     rs.next();
@@ -210,8 +210,8 @@ public class FreeformQuery extends AbstractTransactionalQuery implements
                 try {
                     StatementHelper sh = ((FreeformStatementDelegate) delegate)
                             .getQueryStatement(offset, pagelength);
-                    PreparedStatement pstmt = getConnection().prepareStatement(
-                            sh.getQueryString());
+                    PreparedStatement pstmt = prepareStatement(
+                            getConnection(), sh.getQueryString(), null);
                     sh.setParameterValuesToStatement(pstmt);
                     return pstmt.executeQuery();
                 } catch (UnsupportedOperationException e) {
@@ -417,7 +417,7 @@ public class FreeformQuery extends AbstractTransactionalQuery implements
                     ResultSet rs = null;
                     Connection c = getConnection();
                     try {
-                        pstmt = c.prepareStatement(sh.getQueryString());
+                        pstmt = prepareStatement(c, sh.getQueryString(), null);
                         sh.setParameterValuesToStatement(pstmt);
                         rs = pstmt.executeQuery();
                         contains = rs.next();
@@ -22,6 +22,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventObject;
@@ -48,7 +50,7 @@ import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
 
 @SuppressWarnings("serial")
 public class TableQuery extends AbstractTransactionalQuery implements
-        QueryDelegate, QueryDelegate.RowIdChangeNotifier {
+        BatchQueryDelegate, QueryDelegate.RowIdChangeNotifier {
 
     /**
      * Table name (without catalog or schema information).
@@ -76,6 +78,18 @@ public class TableQuery extends AbstractTransactionalQuery implements
     /** SQLGenerator instance to use for generating queries */
     private SQLGenerator sqlGenerator;
 
+    /** True if the JDBC driver supports batch updates */
+    private boolean batchUpdatesSupported;
+
+    /** True if the JDBC driver supports savepoints */
+    private boolean savepointsSupported;
+
+    /**
+     * False once the driver has not reported the update counts of a batch,
+     * after which version checked statements are executed one at a time
+     */
+    private boolean batchUpdateCountsReported = true;
+
     /** Row ID change listeners */
     private LinkedList<RowIdChangeListener> rowIdChangeListeners;
     /** Row ID change events, stored until commit() is called */
@@ -295,6 +309,97 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Consecutive updates, and inserts of rows whose primary key values are
+     * all given, with the same generated SQL are executed as JDBC batches.
+     * Inserts relying on database generated keys are executed one at a time
+     * to be able to read back the generated keys for each row. The rows are
+     * stored in the given order.
+     * 
+     * @since 7.2
+     */
+    @Override
+    public int[] storeRows(List<RowItem> rows)
+            throws UnsupportedOperationException, SQLException {
+        int[] results = new int[rows.size()];
+        List<StatementHelper> batch = new ArrayList<StatementHelper>();
+        List<Integer> batchIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < rows.size(); i++) {
+            RowItem row = rows.get(i);
+            setVersionColumnFlagInProperty(row);
+            if (row.getId() instanceof TemporaryRowId) {
+                StatementHelper sh = sqlGenerator.generateInsertQuery(
+                        getFullTableName(), row);
+                if (getPrimaryKeyValues(row) == null) {
+                    // Store the preceding rows first to keep the order
+                    storeBatch(rows, batch, batchIndexes, results);
+                    results[i] = executeUpdateReturnKeys(sh, row);
+                    checkStoreResult(row, results[i]);
+                    continue;
+                }
+                batch.add(sh);
+            } else {
+                batch.add(sqlGenerator.generateUpdateQuery(getFullTableName(),
+                        row));
+            }
+            batchIndexes.add(i);
+        }
+        storeBatch(rows, batch, batchIndexes, results);
+        return results;
+    }
+
+    /**
+     * Executes the collected insert and update statements and clears them.
+     */
+    private void storeBatch(List<RowItem> rows, List<StatementHelper> batch,
+            List<Integer> batchIndexes, int[] results) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int[] batchResults = executeBatch(batch);
+        for (int i = 0; i < batchResults.length; i++) {
+            int rowIndex = batchIndexes.get(i);
+            RowItem row = rows.get(rowIndex);
+            results[rowIndex] = batchResults[i];
+            checkStoreResult(row, batchResults[i]);
+            if (row.getId() instanceof TemporaryRowId && batchResults[i] != 0) {
+                bufferedEvents.add(new RowIdChangeEvent(row.getId(),
+                        new RowId(getPrimaryKeyValues(row))));
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private void checkStoreResult(RowItem row, int result) {
+        if (versionColumn != null && result == 0) {
+            throw new OptimisticLockException(
+                    "Someone else changed the row that was being updated.",
+                    row.getId());
+        }
+    }
+
+    /**
+     * Returns the values of the primary key columns of the given row.
+     * 
+     * @param row
+     *            the row item
+     * @return the primary key values, or null if any of them is null
+     */
+    private Object[] getPrimaryKeyValues(RowItem row) {
+        Object[] values = new Object[primaryKeyColumns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.getItemProperty(primaryKeyColumns.get(i))
+                    .getValue();
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return values;
+    }
+
     private void setVersionColumnFlagInProperty(RowItem row) {
         ColumnProperty versionProperty = (ColumnProperty) row
                 .getItemProperty(versionColumn);
@@ -327,7 +432,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
         ResultSet generatedKeys = null;
         connection = getConnection();
         try {
-            pstmt = connection.prepareStatement(sh.getQueryString(),
+            pstmt = prepareStatement(connection, sh.getQueryString(),
                     primaryKeyColumns.toArray(new String[0]));
             sh.setParameterValuesToStatement(pstmt);
             getLogger().log(Level.FINE, "DB -> {0}", sh.getQueryString());
@@ -523,7 +628,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
         Connection connection = getConnection();
         PreparedStatement pstmt = null;
         try {
-            pstmt = connection.prepareStatement(sh.getQueryString());
+            pstmt = prepareStatement(connection, sh.getQueryString(), null);
             sh.setParameterValuesToStatement(pstmt);
             getLogger().log(Level.FINE, "DB -> {0}", sh.getQueryString());
             return pstmt.executeQuery();
@@ -533,6 +638,19 @@ public class TableQuery extends AbstractTransactionalQuery implements
         }
     }
 
+    /**
+     * Releases a savepoint set for a batch so that savepoints do not pile up in
+     * long transactions. Drivers that do not support releasing savepoints free
+     * them when the transaction ends.
+     */
+    private void releaseSavepoint(Connection connection, Savepoint savepoint) {
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            getLogger().log(Level.FINE, "Could not release a savepoint", e);
+        }
+    }
+
     /**
      * Executes the given update query string using either the active connection
      * if a transaction is already open, or a new connection from this query's
@@ -549,7 +667,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
         Connection connection = null;
         try {
             connection = getConnection();
-            pstmt = connection.prepareStatement(sh.getQueryString());
+            pstmt = prepareStatement(connection, sh.getQueryString(), null);
             sh.setParameterValuesToStatement(pstmt);
             getLogger().log(Level.FINE, "DB -> {0}", sh.getQueryString());
             int retval = pstmt.executeUpdate();
@@ -559,6 +677,133 @@ public class TableQuery extends AbstractTransactionalQuery implements
         }
     }
 
+    /**
+     * Executes the given update statements in order using either the active
+     * connection if a transaction is already open, or a new connection from
+     * this query's connection pool. Consecutive statements with the same query
+     * string are executed as one JDBC batch. The statements are executed one
+     * at a time if the driver does not support batch updates, or if a version
+     * column is used and the actual update counts of a batch are not
+     * available.
+     * 
+     * @param statements
+     *            the update statements to execute
+     * @return the number of affected rows for each statement, in the same
+     *         order as the statements
+     * @throws SQLException
+     */
+    private int[] executeBatch(List<StatementHelper> statements)
+            throws SQLException {
+        int[] results = new int[statements.size()];
+        Connection connection = getConnection();
+        try {
+            int start = 0;
+            while (start < statements.size()) {
+                String query = statements.get(start).getQueryString();
+                int end = start + 1;
+                while (end < statements.size()
+                        && query.equals(statements.get(end).getQueryString())) {
+                    end++;
+                }
+                if (!canExecuteBatch()
+                        || !executeBatch(connection, statements, start, end,
+                                results)) {
+                    for (int i = start; i < end; i++) {
+                        results[i] = executeUpdate(statements.get(i));
+                    }
+                }
+                start = end;
+            }
+        } finally {
+            releaseConnection(connection, null, null);
+        }
+        return results;
+    }
+
+    private boolean canExecuteBatch() {
+        if (!batchUpdatesSupported) {
+            return false;
+        }
+        if (versionColumn == null) {
+            return true;
+        }
+        /*
+         * The version checks need the update count of each statement. If the
+         * driver does not report them, the batch is rolled back to a savepoint
+         * and executed again one statement at a time.
+         */
+        return batchUpdateCountsReported && savepointsSupported
+                && isInTransaction();
+    }
+
+    /**
+     * Executes the statements from start (inclusive) to end (exclusive), which
+     * all have the same query string, as one JDBC batch.
+     * 
+     * @return true if the batch was executed, false if the version column is
+     *         used and the update counts were not reported, in which case the
+     *         batch has been rolled back
+     * @throws SQLException
+     */
+    private boolean executeBatch(Connection connection,
+            List<StatementHelper> statements, int start, int end,
+            int[] results) throws SQLException {
+        String query = statements.get(start).getQueryString();
+        Savepoint savepoint = null;
+        if (versionColumn != null) {
+            try {
+                savepoint = connection.setSavepoint();
+            } catch (SQLException e) {
+                getLogger().log(Level.FINE,
+                        "Could not set a savepoint, not using batches", e);
+                savepointsSupported = false;
+                return false;
+            }
+        }
+        PreparedStatement pstmt = prepareStatement(connection, query, null);
+        try {
+            for (int i = start; i < end; i++) {
+                statements.get(i).setParameterValuesToStatement(pstmt);
+                pstmt.addBatch();
+            }
+            getLogger().log(Level.FINE, "DB -> {0} x {1}",
+                    new Object[] { query, end - start });
+            int[] counts = pstmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                int count = counts[i];
+                if (count == Statement.SUCCESS_NO_INFO
+                        || count == Statement.EXECUTE_FAILED) {
+                    if (savepoint != null) {
+                        connection.rollback(savepoint);
+                        batchUpdateCountsReported = false;
+                        return false;
+                    }
+                    if (count == Statement.SUCCESS_NO_INFO) {
+                        /*
+                         * Executed, but the driver does not know how many rows
+                         * were affected.
+                         */
+                        count = 1;
+                    }
+                }
+                results[start + i] = count;
+            }
+            return true;
+        } finally {
+            if (savepoint != null) {
+                // Also when the batch failed, so that the savepoint is not
+                // left on the connection until the transaction ends
+                releaseSavepoint(connection, savepoint);
+            }
+            try {
+                pstmt.clearBatch();
+            } catch (SQLException e) {
+                // the statement is released below anyway
+            }
+            releaseConnection(null, pstmt, null);
+        }
+    }
+
     /**
      * Executes the given update query string using either the active connection
      * if a transaction is already open, or a new connection from this query's
@@ -581,7 +826,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
         Connection connection = null;
         try {
             connection = getConnection();
-            pstmt = connection.prepareStatement(sh.getQueryString(),
+            pstmt = prepareStatement(connection, sh.getQueryString(),
                     primaryKeyColumns.toArray(new String[0]));
             sh.setParameterValuesToStatement(pstmt);
             getLogger().log(Level.FINE, "DB -> {0}", sh.getQueryString());
@@ -608,6 +853,8 @@ public class TableQuery extends AbstractTransactionalQuery implements
             connection = getConnection();
             DatabaseMetaData dbmd = connection.getMetaData();
             if (dbmd != null) {
+                batchUpdatesSupported = dbmd.supportsBatchUpdates();
+                savepointsSupported = dbmd.supportsSavepoints();
                 tables = dbmd.getTables(catalogName, schemaName, tableName,
                         null);
                 if (!tables.next()) {
@@ -740,6 +987,36 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Consecutive delete statements with the same generated SQL are executed
+     * as JDBC batches.
+     * 
+     * @since 7.2
+     */
+    @Override
+    public boolean[] removeRows(List<RowItem> rows)
+            throws UnsupportedOperationException, SQLException {
+        List<StatementHelper> statements = new ArrayList<StatementHelper>(
+                rows.size());
+        for (RowItem row : rows) {
+            statements.add(sqlGenerator.generateDeleteQuery(
+                    getFullTableName(), primaryKeyColumns, versionColumn, row));
+        }
+        int[] counts = executeBatch(statements);
+        boolean[] results = new boolean[rows.size()];
+        for (int i = 0; i < counts.length; i++) {
+            results[i] = counts[i] == 1;
+            if (!results[i] && versionColumn != null) {
+                throw new OptimisticLockException(
+                        "Someone else changed the row that was being deleted.",
+                        rows.get(i).getId());
+            }
+        }
+        return results;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -20,9 +20,11 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EventObject;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <code>EventRouter</code> class implementing the inheritable event listening
@@ -40,6 +42,13 @@ public class EventRouter implements MethodEventSource {
      */
     private LinkedHashSet<ListenerMethod> listenerList = null;
 
+    /**
+     * The listeners receiving each event class fired so far, in the order
+     * they were registered. Discarded when listeners are added or removed, so
+     * the arrays are never modified.
+     */
+    private transient Map<Class<?>, ListenerMethod[]> listenersByEventClass = null;
+
     /*
      * Registers a new listener with the specified activation method to listen
      * events generated by this component. Don't add a JavaDoc comment here, we
@@ -51,6 +60,7 @@ public class EventRouter implements MethodEventSource {
             listenerList = new LinkedHashSet<ListenerMethod>();
         }
         listenerList.add(new ListenerMethod(eventType, object, method));
+        listenersByEventClass = null;
     }
 
     /*
@@ -64,6 +74,7 @@ public class EventRouter implements MethodEventSource {
             listenerList = new LinkedHashSet<ListenerMethod>();
         }
         listenerList.add(new ListenerMethod(eventType, object, methodName));
+        listenersByEventClass = null;
     }
 
     /*
@@ -79,6 +90,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -98,6 +110,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -132,6 +145,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -144,6 +158,7 @@ public class EventRouter implements MethodEventSource {
      */
     public void removeAllListeners() {
         listenerList = null;
+        listenersByEventClass = null;
     }
 
     /**
@@ -157,14 +172,15 @@ public class EventRouter implements MethodEventSource {
         // It is not necessary to send any events if there are no listeners
         if (listenerList != null) {
 
-            // Make a copy of the listener list to allow listeners to be added
-            // inside listener methods. Fixes #3605.
+            // The listeners are fired from an array that is replaced rather
+            // than modified, to allow listeners to be added inside listener
+            // methods. Fixes #3605.
 
-            // Send the event to all listeners. The listeners themselves
-            // will filter out unwanted events.
-            final Object[] listeners = listenerList.toArray();
+            // Send the event to the listeners of the event type or one of
+            // its supertypes.
+            final ListenerMethod[] listeners = getListenerMethods(event.getClass());
             for (int i = 0; i < listeners.length; i++) {
-                ((ListenerMethod) listeners[i]).receiveEvent(event);
+                listeners[i].receiveEvent(event);
             }
 
         }
@@ -208,4 +224,31 @@ public class EventRouter implements MethodEventSource {
         }
         return listeners;
     }
+
+    /**
+     * Returns the listeners that receive events of the given class, in the
+     * order they were registered. The result is cached until listeners are
+     * added or removed.
+     * 
+     * @param eventClass
+     *            the class of the fired event
+     * @return the listeners for the event class, not to be modified
+     */
+    private ListenerMethod[] getListenerMethods(Class<?> eventClass) {
+        if (listenersByEventClass == null) {
+            listenersByEventClass = new HashMap<Class<?>, ListenerMethod[]>(4);
+        }
+        ListenerMethod[] listeners = listenersByEventClass.get(eventClass);
+        if (listeners == null) {
+            List<ListenerMethod> matching = new ArrayList<ListenerMethod>();
+            for (ListenerMethod lm : listenerList) {
+                if (lm.receivesEventsOfType(eventClass)) {
+                    matching.add(lm);
+                }
+            }
+            listeners = matching.toArray(new ListenerMethod[matching.size()]);
+            listenersByEventClass.put(eventClass, listeners);
+        }
+        return listeners;
+    }
 }
@@ -26,6 +26,8 @@ import java.util.EventObject;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vaadin.util.ReflectTools;
+
 /**
  * <p>
  * One registered event listener. This class contains the listener object
@@ -109,7 +111,8 @@ public class ListenerMethod implements EventListener, Serializable {
             Class<?>[] paramTypes = (Class<?>[]) in.readObject();
             // We can not use getMethod directly as we want to support anonymous
             // inner classes
-            method = findHighestMethod(target.getClass(), name, paramTypes);
+            method = ReflectTools.setAccessible(findHighestMethod(
+                    target.getClass(), name, paramTypes));
         } catch (SecurityException e) {
             getLogger().log(Level.SEVERE, "Internal deserialization error", e);
         }
@@ -204,7 +207,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         this.arguments = arguments;
         this.eventArgumentIndex = eventArgumentIndex;
     }
@@ -275,7 +278,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         this.arguments = arguments;
         this.eventArgumentIndex = eventArgumentIndex;
     }
@@ -319,7 +322,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         this.arguments = arguments;
         eventArgumentIndex = -1;
     }
@@ -371,7 +374,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         this.arguments = arguments;
         eventArgumentIndex = -1;
     }
@@ -412,7 +415,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         eventArgumentIndex = -1;
 
         final Class<?>[] params = method.getParameterTypes();
@@ -472,7 +475,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.setAccessible(method);
         eventArgumentIndex = -1;
 
         final Class<?>[] params = method.getParameterTypes();
@@ -501,7 +504,7 @@ public class ListenerMethod implements EventListener, Serializable {
      */
     public void receiveEvent(EventObject event) {
         // Only send events supported by the method
-        if (eventType.isAssignableFrom(event.getClass())) {
+        if (receivesEventsOfType(event.getClass())) {
             try {
                 if (eventArgumentIndex >= 0) {
                     if (eventArgumentIndex == 0 && arguments.length == 1) {
@@ -655,6 +658,20 @@ public class ListenerMethod implements EventListener, Serializable {
         return eventType.isAssignableFrom(this.eventType);
     }
 
+    /**
+     * Checks whether events of the given class are sent to this listener
+     * method, i.e. whether the class is the event type of this listener method
+     * or a subclass of it.
+     * 
+     * @since 7.2
+     * @param eventClass
+     *            the class of an event
+     * @return true if events of the class are received, false otherwise
+     */
+    boolean receivesEventsOfType(Class<?> eventClass) {
+        return eventType.isAssignableFrom(eventClass);
+    }
+
     /**
      * Returns the target object which contains the trigger method.
      * 
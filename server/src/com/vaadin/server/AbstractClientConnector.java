@@ -80,6 +80,20 @@ public abstract class AbstractClientConnector implements ClientConnector,
      */
     private ArrayList<ClientMethodInvocation> pendingInvocations = new ArrayList<ClientMethodInvocation>();
 
+    /**
+     * The indices in {@link #pendingInvocations} of the last pending
+     * invocations of {@link com.vaadin.shared.annotations.LastOnly} methods,
+     * or null if none have been queued. Replaced invocations are set to null
+     * in the queue and removed when the invocations are retrieved.
+     */
+    private transient HashMap<Method, Integer> lastOnlyInvocationIndices = null;
+
+    /**
+     * The number of replaced invocations set to null in
+     * {@link #pendingInvocations}.
+     */
+    private int replacedInvocations = 0;
+
     private String connectorId;
 
     private ArrayList<Extension> extensions = new ArrayList<Extension>();
@@ -356,7 +370,7 @@ public abstract class AbstractClientConnector implements ClientConnector,
         private String rpcInterfaceName;
 
         public RpcInvocationHandler(Class<?> rpcInterface) {
-            rpcInterfaceName = rpcInterface.getName().replaceAll("\\$", ".");
+            rpcInterfaceName = rpcInterface.getName().replace('$', '.');
         }
 
         @Override
@@ -387,9 +401,22 @@ public abstract class AbstractClientConnector implements ClientConnector,
      */
     protected void addMethodInvocationToQueue(String interfaceName,
             Method method, Object[] parameters) {
+        ClientMethodInvocation invocation = new ClientMethodInvocation(this,
+                interfaceName, method, parameters);
+        if (invocation.isLastOnly()) {
+            // Only the last value is of interest, drop the earlier call
+            if (lastOnlyInvocationIndices == null) {
+                lastOnlyInvocationIndices = new HashMap<Method, Integer>();
+            }
+            Integer previous = lastOnlyInvocationIndices.put(method,
+                    Integer.valueOf(pendingInvocations.size()));
+            if (previous != null) {
+                pendingInvocations.set(previous.intValue(), null);
+                replacedInvocations++;
+            }
+        }
         // add to queue
-        pendingInvocations.add(new ClientMethodInvocation(this, interfaceName,
-                method, parameters));
+        pendingInvocations.add(invocation);
         // TODO no need to do full repaint if only RPC calls
         requestRepaint();
     }
@@ -406,6 +433,13 @@ public abstract class AbstractClientConnector implements ClientConnector,
         } else {
             List<ClientMethodInvocation> result = pendingInvocations;
             pendingInvocations = new ArrayList<ClientMethodInvocation>();
+            if (lastOnlyInvocationIndices != null) {
+                lastOnlyInvocationIndices.clear();
+            }
+            if (replacedInvocations > 0) {
+                replacedInvocations = 0;
+                result.removeAll(Collections.singleton(null));
+            }
             return Collections.unmodifiableList(result);
         }
     }
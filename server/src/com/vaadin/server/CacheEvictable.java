@@ -0,0 +1,35 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Implemented by components and containers keeping cached data that can be
+ * recreated when it is needed again. The caches of the components of inactive
+ * UIs and of their container data sources are evicted by a
+ * {@link SessionReaper}.
+ * 
+ * @since 7.2
+ */
+public interface CacheEvictable extends Serializable {
+
+    /**
+     * Discards cached data that is recreated when it is needed again. Called
+     * while holding the session lock.
+     */
+    public void evictCaches();
+}
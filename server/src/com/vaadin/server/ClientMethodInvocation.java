@@ -17,8 +17,16 @@
 package com.vaadin.server;
 
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.shared.annotations.LastOnly;
+import com.vaadin.util.ReflectTools;
 
 /**
  * Internal class for keeping track of pending server to client method
@@ -28,11 +36,41 @@ import java.lang.reflect.Type;
  */
 public class ClientMethodInvocation implements Serializable,
         Comparable<ClientMethodInvocation> {
+
+    /**
+     * The information about an RPC method needed for each invocation of the
+     * method, resolved once per method.
+     */
+    private static class RpcMethodInfo implements Serializable {
+        private final Type[] parameterTypes;
+        private final boolean lastOnly;
+
+        private RpcMethodInfo(Method method) {
+            parameterTypes = method.getGenericParameterTypes();
+            lastOnly = method.isAnnotationPresent(LastOnly.class);
+        }
+    }
+
+    /*
+     * The information about the methods of classes that cannot be unloaded
+     * before this class.
+     */
+    private static final Map<Method, RpcMethodInfo> methodInfoCache = new ConcurrentHashMap<Method, RpcMethodInfo>(
+            128, 0.75f, 1);
+
+    /*
+     * The information about the methods of other classes by declaring class.
+     * The values reach their key classes, so they must not be strongly
+     * referenced.
+     */
+    private static final Map<Class<?>, WeakReference<Map<Method, RpcMethodInfo>>> weakMethodInfoCache = new WeakHashMap<Class<?>, WeakReference<Map<Method, RpcMethodInfo>>>();
+
     private final ClientConnector connector;
     private final String interfaceName;
     private final String methodName;
     private final Object[] parameters;
     private Type[] parameterTypes;
+    private final boolean lastOnly;
 
     // used for sorting calls between different connectors in the same UI
     private final long sequenceNumber;
@@ -44,15 +82,61 @@ public class ClientMethodInvocation implements Serializable,
         this.connector = connector;
         this.interfaceName = interfaceName;
         methodName = method.getName();
-        parameterTypes = method.getGenericParameterTypes();
+        RpcMethodInfo methodInfo = getMethodInfo(method);
+        // Shared by all invocations of the method
+        parameterTypes = methodInfo.parameterTypes;
+        lastOnly = methodInfo.lastOnly;
         this.parameters = (null != parameters) ? parameters : new Object[0];
         sequenceNumber = ++counter;
     }
 
+    private static RpcMethodInfo getMethodInfo(Method method) {
+        RpcMethodInfo methodInfo = methodInfoCache.get(method);
+        if (methodInfo != null) {
+            return methodInfo;
+        }
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (ReflectTools.isLoadedByVaadinClassLoader(declaringClass)) {
+            methodInfo = new RpcMethodInfo(method);
+            methodInfoCache.put(method, methodInfo);
+            return methodInfo;
+        }
+        synchronized (weakMethodInfoCache) {
+            WeakReference<Map<Method, RpcMethodInfo>> reference = weakMethodInfoCache
+                    .get(declaringClass);
+            Map<Method, RpcMethodInfo> methodInfos = reference == null ? null
+                    : reference.get();
+            if (methodInfos == null) {
+                methodInfos = new HashMap<Method, RpcMethodInfo>();
+                weakMethodInfoCache.put(declaringClass,
+                        new WeakReference<Map<Method, RpcMethodInfo>>(
+                                methodInfos));
+            }
+            methodInfo = methodInfos.get(method);
+            if (methodInfo == null) {
+                methodInfo = new RpcMethodInfo(method);
+                methodInfos.put(method, methodInfo);
+            }
+            return methodInfo;
+        }
+    }
+
     public Type[] getParameterTypes() {
         return parameterTypes;
     }
 
+    /**
+     * Checks whether the invoked method is marked with {@link LastOnly}, in
+     * which case this invocation replaces any pending invocations of the same
+     * method for the same connector.
+     * 
+     * @since 7.2
+     * @return true if only the last invocation of the method should be sent
+     */
+    public boolean isLastOnly() {
+        return lastOnly;
+    }
+
     public ClientConnector getConnector() {
         return connector;
     }
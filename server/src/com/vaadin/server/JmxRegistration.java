@@ -0,0 +1,103 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The registration of an MBean of a service to the platform MBean server, as
+ * {@code com.vaadin:type=<type>,service=<service name>}. Used internally by
+ * the JMX interfaces of the framework.
+ * 
+ * @since 7.2
+ */
+class JmxRegistration implements Serializable {
+
+    private final String description;
+
+    private transient ObjectName objectName;
+
+    /**
+     * @param description
+     *            the description of the MBean used in log messages
+     */
+    JmxRegistration(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Registers an MBean for a service. An MBean with the same name left
+     * behind by an earlier instance of the service that was not destroyed is
+     * replaced. Failures are logged.
+     *
+     * @param mbean
+     *            the MBean to register
+     * @param type
+     *            the type part of the object name
+     * @param service
+     *            the service whose name is used in the object name
+     * @return true if the MBean was registered
+     */
+    synchronized boolean register(Object mbean, String type,
+            VaadinService service) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.vaadin:type=" + type
+                    + ",service=" + ObjectName.quote(service.getServiceName()));
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(mbean, name);
+            }
+            objectName = name;
+            return true;
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not register the " + description + " MBean", e);
+            return false;
+        }
+    }
+
+    /**
+     * Unregisters the MBean if it is registered. Failures are logged.
+     */
+    synchronized void unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                        objectName);
+            } catch (JMException e) {
+                getLogger().log(Level.WARNING,
+                        "Could not unregister the " + description + " MBean",
+                        e);
+            }
+            objectName = null;
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(JmxRegistration.class.getName());
+    }
+}
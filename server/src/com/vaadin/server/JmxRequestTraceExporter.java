@@ -0,0 +1,110 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import com.vaadin.server.RequestTrace.Phase;
+
+/**
+ * Aggregates the traces of requests and exposes the averages through JMX.
+ * 
+ * @since 7.2
+ */
+public class JmxRequestTraceExporter implements RequestTraceExporter,
+        JmxRequestTraceExporterMBean, ServiceDestroyListener {
+
+    private long requestCount;
+    private long totalNanos;
+    private long maxNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private final JmxRegistration registration = new JmxRegistration(
+            "request trace");
+
+    /**
+     * Registers this exporter to the platform MBean server. The exporter is
+     * unregistered when the service is destroyed.
+     * 
+     * @param service
+     *            the service whose requests are exported
+     */
+    public void register(VaadinService service) {
+        if (registration.register(this, "RequestTraces", service)) {
+            service.addServiceDestroyListener(this);
+        }
+    }
+
+    @Override
+    public synchronized void export(RequestTrace trace) {
+        requestCount++;
+        totalNanos += trace.getTotalNanos();
+        maxNanos = Math.max(maxNanos, trace.getTotalNanos());
+        for (Phase phase : Phase.values()) {
+            phaseNanos[phase.ordinal()] += trace.getNanos(phase);
+        }
+    }
+
+    @Override
+    public void serviceDestroy(ServiceDestroyEvent event) {
+        registration.unregister();
+    }
+
+    @Override
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    @Override
+    public synchronized double getAverageMillis() {
+        return average(totalNanos);
+    }
+
+    @Override
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1000000.0;
+    }
+
+    @Override
+    public synchronized String[] getPhaseAverages() {
+        Phase[] phases = Phase.values();
+        String[] averages = new String[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            averages[i] = phases[i] + ": " + average(phaseNanos[i]) + " ms";
+        }
+        return averages;
+    }
+
+    @Override
+    public synchronized double getAverageMillis(String phase) {
+        return average(phaseNanos[Phase.valueOf(phase).ordinal()]);
+    }
+
+    private double average(long nanos) {
+        if (requestCount == 0) {
+            return 0;
+        }
+        return nanos / 1000000.0 / requestCount;
+    }
+
+    @Override
+    public synchronized void reset() {
+        requestCount = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = 0;
+        }
+    }
+}
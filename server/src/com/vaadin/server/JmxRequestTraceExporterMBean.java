@@ -0,0 +1,70 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * The JMX management interface of {@link JmxRequestTraceExporter}. The values
+ * are aggregated over the traces exported since the last reset.
+ * 
+ * @since 7.2
+ */
+public interface JmxRequestTraceExporterMBean extends Serializable {
+
+    /**
+     * Returns the number of traced requests.
+     * 
+     * @return the number of requests
+     */
+    public long getRequestCount();
+
+    /**
+     * Returns the average duration of the traced requests.
+     * 
+     * @return the average duration in milliseconds
+     */
+    public double getAverageMillis();
+
+    /**
+     * Returns the longest duration of the traced requests.
+     * 
+     * @return the maximum duration in milliseconds
+     */
+    public double getMaxMillis();
+
+    /**
+     * Returns the average time spent in each phase of the traced requests.
+     * 
+     * @return descriptions of the phases with their average duration in
+     *         milliseconds
+     */
+    public String[] getPhaseAverages();
+
+    /**
+     * Returns the average time spent in a phase of the traced requests.
+     * 
+     * @param phase
+     *            the name of a {@link RequestTrace.Phase}
+     * @return the average duration in milliseconds
+     */
+    public double getAverageMillis(String phase);
+
+    /**
+     * Discards the aggregated values.
+     */
+    public void reset();
+}
@@ -50,6 +50,7 @@ import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.communication.UidlValue;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.util.ReflectTools;
 
 /**
  * Decoder for converting RPC parameters and other values from JSON in transfer
@@ -113,29 +114,34 @@ public class JsonCodec implements Serializable {
     }
 
     private static class MethodProperty implements BeanProperty {
-        private final PropertyDescriptor pd;
+        private final Method readMethod;
+        private final Method writeMethod;
+        private final String name;
+        private final Type type;
 
         public MethodProperty(PropertyDescriptor pd) {
-            this.pd = pd;
+            // PropertyDescriptor resolves its methods on every call
+            readMethod = ReflectTools.setAccessible(pd.getReadMethod());
+            writeMethod = ReflectTools.setAccessible(pd.getWriteMethod());
+            String fieldName = writeMethod.getName().substring(3);
+            name = Character.toLowerCase(fieldName.charAt(0))
+                    + fieldName.substring(1);
+            type = readMethod.getGenericReturnType();
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            Method readMethod = pd.getReadMethod();
             return readMethod.invoke(bean);
         }
 
         @Override
         public void setValue(Object bean, Object value) throws Exception {
-            pd.getWriteMethod().invoke(bean, value);
+            writeMethod.invoke(bean, value);
         }
 
         @Override
         public String getName() {
-            String fieldName = pd.getWriteMethod().getName().substring(3);
-            fieldName = Character.toLowerCase(fieldName.charAt(0))
-                    + fieldName.substring(1);
-            return fieldName;
+            return name;
         }
 
         public static Collection<MethodProperty> find(Class<?> type)
@@ -155,7 +161,7 @@ public class JsonCodec implements Serializable {
 
         @Override
         public Type getType() {
-            return pd.getReadMethod().getGenericReturnType();
+            return type;
         }
 
     }
@@ -250,6 +256,162 @@ public class JsonCodec implements Serializable {
         }
     }
 
+    /**
+     * Decodes JSON values of a fixed target type. A decoder is resolved once for
+     * a type using {@link JsonCodec#getValueDecoder(Type)}, after which values
+     * can be decoded without looking up how the type is transported.
+     * 
+     * @since 7.2
+     */
+    public static interface ValueDecoder extends Serializable {
+        /**
+         * Decodes a JSON value.
+         * 
+         * @param encodedJsonValue
+         *            the JSON value to decode
+         * @param connectorTracker
+         *            the connector tracker used to look up connectors
+         * @return the decoded value
+         * @throws JSONException
+         *             if the value cannot be decoded
+         */
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) throws JSONException;
+    }
+
+    private static class StringDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            }
+            return String.valueOf(encodedJsonValue);
+        }
+    }
+
+    private static class BooleanDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            } else if (encodedJsonValue instanceof Boolean) {
+                return encodedJsonValue;
+            }
+            return Boolean.valueOf(String.valueOf(encodedJsonValue));
+        }
+    }
+
+    private static class IntegerDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            } else if (encodedJsonValue instanceof Integer) {
+                return encodedJsonValue;
+            }
+            return Integer.valueOf(String.valueOf(encodedJsonValue));
+        }
+    }
+
+    private static class LongDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            } else if (encodedJsonValue instanceof Long) {
+                return encodedJsonValue;
+            }
+            return Long.valueOf(String.valueOf(encodedJsonValue));
+        }
+    }
+
+    private static class DoubleDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            } else if (encodedJsonValue instanceof Double) {
+                return encodedJsonValue;
+            }
+            return Double.valueOf(String.valueOf(encodedJsonValue));
+        }
+    }
+
+    private static class ConnectorDecoder implements ValueDecoder {
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) {
+            if (encodedJsonValue == JSONObject.NULL) {
+                return null;
+            }
+            return connectorTracker.getConnector(String
+                    .valueOf(encodedJsonValue));
+        }
+    }
+
+    /**
+     * Decoder for the types without a specialized decoder, using
+     * {@link JsonCodec#decodeInternalOrCustomType(Type, Object, ConnectorTracker)}
+     * .
+     */
+    private static class TypeDecoder implements ValueDecoder {
+        private final Type targetType;
+
+        private TypeDecoder(Type targetType) {
+            this.targetType = targetType;
+        }
+
+        @Override
+        public Object decode(Object encodedJsonValue,
+                ConnectorTracker connectorTracker) throws JSONException {
+            return decodeInternalOrCustomType(targetType, encodedJsonValue,
+                    connectorTracker);
+        }
+    }
+
+    private static final Map<String, ValueDecoder> transportTypeDecoders = new HashMap<String, ValueDecoder>();
+    static {
+        transportTypeDecoders
+                .put(JsonConstants.VTYPE_STRING, new StringDecoder());
+        transportTypeDecoders.put(JsonConstants.VTYPE_BOOLEAN,
+                new BooleanDecoder());
+        transportTypeDecoders.put(JsonConstants.VTYPE_INTEGER,
+                new IntegerDecoder());
+        transportTypeDecoders.put(JsonConstants.VTYPE_LONG, new LongDecoder());
+        transportTypeDecoders.put(JsonConstants.VTYPE_DOUBLE,
+                new DoubleDecoder());
+        transportTypeDecoders.put(JsonConstants.VTYPE_CONNECTOR,
+                new ConnectorDecoder());
+    }
+
+    /**
+     * Returns a decoder for values of the given type. The decoder produces the
+     * same values as
+     * {@link #decodeInternalOrCustomType(Type, Object, ConnectorTracker)}, but
+     * the most common types are decoded without looking up how they are
+     * transported for every value.
+     * 
+     * @since 7.2
+     * @param targetType
+     *            the type of the decoded values
+     * @return a decoder for the type, not null
+     */
+    public static ValueDecoder getValueDecoder(Type targetType) {
+        if (isInternalType(targetType)) {
+            ValueDecoder decoder = transportTypeDecoders
+                    .get(getInternalTransportType(targetType));
+            if (decoder != null) {
+                return decoder;
+            }
+        }
+        return new TypeDecoder(targetType);
+    }
+
     public static Object decodeCustomType(Type targetType, Object value,
             ConnectorTracker connectorTracker) throws JSONException {
         if (isInternalType(targetType)) {
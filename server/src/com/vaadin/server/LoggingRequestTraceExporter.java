@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs the traces of requests that took longer than a threshold.
+ * 
+ * @since 7.2
+ */
+public class LoggingRequestTraceExporter implements RequestTraceExporter {
+
+    private final long thresholdNanos;
+
+    private final Level level;
+
+    /**
+     * Creates an exporter logging all traces at level {@link Level#FINE}.
+     */
+    public LoggingRequestTraceExporter() {
+        this(0, Level.FINE);
+    }
+
+    /**
+     * Creates an exporter logging the traces of requests that took at least
+     * the given time.
+     * 
+     * @param thresholdMillis
+     *            the minimum duration of a logged request in milliseconds
+     * @param level
+     *            the level to log the traces at
+     */
+    public LoggingRequestTraceExporter(long thresholdMillis, Level level) {
+        thresholdNanos = thresholdMillis * 1000000;
+        this.level = level;
+    }
+
+    @Override
+    public void export(RequestTrace trace) {
+        if (trace.getTotalNanos() >= thresholdNanos
+                && getLogger().isLoggable(level)) {
+            getLogger().log(level, trace.toString());
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(LoggingRequestTraceExporter.class.getName());
+    }
+}
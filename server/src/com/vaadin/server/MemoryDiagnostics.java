@@ -0,0 +1,722 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpSession;
+
+import org.json.JSONObject;
+
+import com.vaadin.data.Container;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UI;
+
+/**
+ * Estimates how much heap the sessions, UIs and components of an application
+ * use. The estimates are computed by walking the object graphs reachable from
+ * the UIs and the sessions and summing up the approximate sizes of the
+ * objects, assuming a 64-bit JVM with compressed references. The objects are
+ * attributed to the connector or the container through which they are first
+ * found, see {@link MemoryEstimate}.
+ * <p>
+ * {@link #estimate(UI)} and {@link #estimate(VaadinSession)} compute an
+ * estimate immediately. An instance installed using
+ * {@link #install(VaadinService)} tracks the sessions of a service and keeps
+ * the most recent estimate of each UI and session. Invoking {@link #sample()}
+ * updates the estimates that are oldest, at most {@link #getUIsPerSample()}
+ * UIs at a time, so sampling can be done periodically in production, e.g.
+ * through the JMX interface {@link MemoryDiagnosticsMBean}. Sessions that are
+ * locked by other threads are skipped and estimated by a later sample.
+ * <p>
+ * The estimates are approximate: objects shared between UIs are included in
+ * the estimate of each UI, objects only reachable through static fields are
+ * not included and the actual object layout depends on the JVM.
+ * 
+ * @since 7.2
+ */
+public class MemoryDiagnostics implements MemoryDiagnosticsMBean,
+        SessionInitListener, SessionDestroyListener, ServiceDestroyListener {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * Approximate size of the internal structures of a map for each entry,
+     * used when the fields of a map cannot be accessed.
+     */
+    private static final int MAP_ENTRY = 40;
+
+    /**
+     * Approximate size of the internal structures of a collection for each
+     * element, used when the fields of a collection cannot be accessed.
+     */
+    private static final int COLLECTION_ELEMENT = 16;
+
+    private static final int LARGEST_LISTED = 10;
+
+    /**
+     * The shallow size of the instances of a class and its reference fields.
+     */
+    private static class ClassLayout implements Serializable {
+        private long size;
+        private final List<Field> referenceFields = new ArrayList<Field>();
+        // False if some reference fields could not be made accessible
+        private boolean complete = true;
+    }
+
+    /**
+     * The latest estimates of a session and its UIs.
+     */
+    private static class SessionEstimates implements Serializable {
+        private MemoryEstimate sessionData;
+        private final Map<Integer, MemoryEstimate> uis = new HashMap<Integer, MemoryEstimate>();
+        // The sample in which all UIs were last estimated, 0 if never
+        private long sampled;
+
+        private MemoryEstimate combine() {
+            List<MemoryEstimate> estimates = new ArrayList<MemoryEstimate>(
+                    uis.values());
+            if (sessionData != null) {
+                estimates.add(sessionData);
+            }
+            return MemoryEstimate.combine(estimates);
+        }
+    }
+
+    private static class SampleOrderComparator implements
+            Comparator<Entry<VaadinSession, SessionEstimates>>, Serializable {
+        @Override
+        public int compare(Entry<VaadinSession, SessionEstimates> o1,
+                Entry<VaadinSession, SessionEstimates> o2) {
+            long sampled1 = o1.getValue().sampled;
+            long sampled2 = o2.getValue().sampled;
+            return sampled1 < sampled2 ? -1 : sampled1 == sampled2 ? 0 : 1;
+        }
+    }
+
+    private static class TimestampComparator implements Comparator<UI>,
+            Serializable {
+        private final Map<Integer, MemoryEstimate> estimates;
+
+        private TimestampComparator(Map<Integer, MemoryEstimate> estimates) {
+            this.estimates = estimates;
+        }
+
+        @Override
+        public int compare(UI o1, UI o2) {
+            long timestamp1 = getTimestamp(o1);
+            long timestamp2 = getTimestamp(o2);
+            return timestamp1 < timestamp2 ? -1
+                    : timestamp1 == timestamp2 ? 0 : 1;
+        }
+
+        private long getTimestamp(UI ui) {
+            MemoryEstimate estimate = estimates.get(Integer.valueOf(ui
+                    .getUIId()));
+            return estimate == null ? Long.MIN_VALUE : estimate.getTimestamp();
+        }
+    }
+
+    private static class SizeComparator implements
+            Comparator<Entry<VaadinSession, MemoryEstimate>>, Serializable {
+        @Override
+        public int compare(Entry<VaadinSession, MemoryEstimate> o1,
+                Entry<VaadinSession, MemoryEstimate> o2) {
+            long size1 = o1.getValue().getSize();
+            long size2 = o2.getValue().getSize();
+            return size1 < size2 ? 1 : size1 == size2 ? 0 : -1;
+        }
+    }
+
+    /**
+     * Walks the object graph of a UI or of the session data outside the UIs,
+     * summing up the sizes of the objects by category.
+     */
+    private static class ObjectGraphWalker {
+        private final Map<Class<?>, ClassLayout> layouts;
+        private final UI ui;
+        private Object root;
+        private final Map<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+        private final Map<String, long[]> categories = new HashMap<String, long[]>();
+        private final List<Object> pendingObjects = new ArrayList<Object>();
+        private final List<String> pendingCategories = new ArrayList<String>();
+
+        /**
+         * @param layouts
+         *            the cache of class layouts to use
+         * @param ui
+         *            the UI to walk, or null to walk the session data that is
+         *            not part of any UI
+         */
+        private ObjectGraphWalker(Map<Class<?>, ClassLayout> layouts, UI ui) {
+            this.layouts = layouts;
+            this.ui = ui;
+        }
+
+        private MemoryEstimate walk(Object root, String category) {
+            this.root = root;
+            push(root, category);
+            while (!pendingObjects.isEmpty()) {
+                int last = pendingObjects.size() - 1;
+                Object object = pendingObjects.remove(last);
+                visit(object, pendingCategories.remove(last));
+            }
+            return new MemoryEstimate(categories, System.currentTimeMillis());
+        }
+
+        private void push(Object object, String category) {
+            if (object == null || visited.containsKey(object)) {
+                return;
+            }
+            visited.put(object, Boolean.TRUE);
+            if (!isExcluded(object)) {
+                pendingObjects.add(object);
+                pendingCategories.add(category);
+            }
+        }
+
+        private boolean isExcluded(Object object) {
+            // Shared by the application or owned by the JVM
+            if (object instanceof Class || object instanceof ClassLoader
+                    || object instanceof Thread || object instanceof Member
+                    || object instanceof Enum || object instanceof Logger
+                    || object instanceof VaadinService) {
+                return true;
+            }
+            if (object instanceof WrappedSession
+                    || object instanceof HttpSession) {
+                // Reaches the session manager and thus all other sessions
+                return true;
+            }
+            if (ui != null) {
+                // Estimated separately
+                return object instanceof VaadinSession
+                        || object instanceof GlobalResourceHandler
+                        || object instanceof ClientConnector
+                        && ((ClientConnector) object).getUI() != null
+                        && ((ClientConnector) object).getUI() != ui;
+            } else {
+                return object instanceof VaadinSession && object != root
+                        || object instanceof ClientConnector
+                        && ((ClientConnector) object).getUI() != null;
+            }
+        }
+
+        private void visit(Object object, String category) {
+            category = getCategory(object, category);
+            Class<?> type = object.getClass();
+            long size;
+            if (type.isArray()) {
+                Class<?> componentType = type.getComponentType();
+                int length = Array.getLength(object);
+                size = align(ARRAY_HEADER + (long) length
+                        * getSize(componentType));
+                if (!componentType.isPrimitive()) {
+                    for (Object element : (Object[]) object) {
+                        push(element, category);
+                    }
+                }
+            } else if (object instanceof String) {
+                // Not walked as the fields of strings depend on the JVM
+                size = getLayout(type).size
+                        + align(ARRAY_HEADER + 2L * ((String) object).length());
+            } else {
+                ClassLayout layout = getLayout(type);
+                size = layout.size;
+                for (Field field : layout.referenceFields) {
+                    try {
+                        push(field.get(object), category);
+                    } catch (IllegalAccessException e) {
+                        // Made accessible when the layout was created
+                    }
+                }
+                if (!layout.complete) {
+                    size += visitContents(object, category);
+                }
+            }
+
+            long[] values = categories.get(category);
+            if (values == null) {
+                values = new long[2];
+                categories.put(category, values);
+            }
+            values[0] += size;
+            values[1]++;
+        }
+
+        /**
+         * Visits the contents of a map or a collection whose fields cannot be
+         * accessed, returning an estimate of the size of its internal
+         * structures.
+         */
+        private long visitContents(Object object, String category) {
+            if (object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                for (Entry<?, ?> entry : map.entrySet()) {
+                    push(entry.getKey(), category);
+                    push(entry.getValue(), category);
+                }
+                return (long) map.size() * MAP_ENTRY;
+            } else if (object instanceof Collection) {
+                Collection<?> collection = (Collection<?>) object;
+                for (Object element : collection) {
+                    push(element, category);
+                }
+                return (long) collection.size() * COLLECTION_ELEMENT;
+            } else {
+                return 0;
+            }
+        }
+
+        private static String getCategory(Object object,
+                String parentCategory) {
+            if (object instanceof ClientConnector
+                    || object instanceof Container) {
+                return object.getClass().getName();
+            } else if (object instanceof GlobalResourceHandler) {
+                return MemoryEstimate.GLOBAL_RESOURCES;
+            } else if (object instanceof ConnectorTracker) {
+                return ConnectorTracker.class.getName();
+            } else if (object instanceof JSONObject
+                    && ConnectorTracker.class.getName().equals(parentCategory)) {
+                return MemoryEstimate.DIFF_STATES;
+            } else {
+                return parentCategory;
+            }
+        }
+
+        private ClassLayout getLayout(Class<?> type) {
+            ClassLayout layout = layouts.get(type);
+            if (layout == null) {
+                layout = createLayout(type);
+                layouts.put(type, layout);
+            }
+            return layout;
+        }
+
+        private static ClassLayout createLayout(Class<?> type) {
+            ClassLayout layout = new ClassLayout();
+            long size = OBJECT_HEADER;
+            for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+                Field[] fields;
+                try {
+                    fields = cls.getDeclaredFields();
+                } catch (RuntimeException e) {
+                    // Denied by a security manager
+                    layout.complete = false;
+                    continue;
+                }
+                for (Field field : fields) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    size += getSize(field.getType());
+                    // The referents of references are not retained by them
+                    if (!field.getType().isPrimitive()
+                            && cls != Reference.class) {
+                        try {
+                            field.setAccessible(true);
+                            layout.referenceFields.add(field);
+                        } catch (RuntimeException e) {
+                            // Denied by a security manager or by the module
+                            // system
+                            layout.complete = false;
+                        }
+                    }
+                }
+            }
+            layout.size = align(size);
+            return layout;
+        }
+
+        private static int getSize(Class<?> type) {
+            if (type == long.class || type == double.class) {
+                return 8;
+            } else if (type == int.class || type == float.class) {
+                return 4;
+            } else if (type == short.class || type == char.class) {
+                return 2;
+            } else if (type == byte.class || type == boolean.class) {
+                return 1;
+            } else {
+                return REFERENCE;
+            }
+        }
+
+        private static long align(long size) {
+            return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        }
+    }
+
+    private transient Map<VaadinSession, SessionEstimates> sessions = new WeakHashMap<VaadinSession, SessionEstimates>();
+
+    private int uisPerSample = 10;
+
+    private long sampleCount = 0;
+
+    private final JmxRegistration registration = new JmxRegistration(
+            "memory diagnostics");
+
+    /**
+     * Creates a new instance not tracking any sessions.
+     * 
+     * @see #install(VaadinService)
+     * @see #addSession(VaadinSession)
+     */
+    public MemoryDiagnostics() {
+    }
+
+    /**
+     * Creates an instance tracking the sessions created by a service from now
+     * on and registers it to the platform MBean server. The instance is
+     * unregistered when the service is destroyed.
+     * <p>
+     * Typically called from
+     * {@link VaadinServlet#servletInitialized()}.
+     * 
+     * @param service
+     *            the service whose sessions to track
+     * @return the created instance
+     */
+    public static MemoryDiagnostics install(VaadinService service) {
+        MemoryDiagnostics diagnostics = new MemoryDiagnostics();
+        service.addSessionInitListener(diagnostics);
+        service.addSessionDestroyListener(diagnostics);
+        service.addServiceDestroyListener(diagnostics);
+        diagnostics.registration.register(diagnostics,
+                MemoryDiagnostics.class.getSimpleName(), service);
+        return diagnostics;
+    }
+
+    /**
+     * Estimates the heap usage of a UI. The session of the UI, the other UIs
+     * of the session and the resources of the global resource handler of the
+     * session are not included. The session lock should be held when calling
+     * this method.
+     * 
+     * @param ui
+     *            the UI to estimate
+     * @return the estimate
+     */
+    public static MemoryEstimate estimate(UI ui) {
+        return new ObjectGraphWalker(new HashMap<Class<?>, ClassLayout>(), ui)
+                .walk(ui, null);
+    }
+
+    /**
+     * Estimates the heap usage of a session and all its UIs. The session lock
+     * should be held when calling this method.
+     * 
+     * @param session
+     *            the session to estimate
+     * @return the estimate
+     */
+    public static MemoryEstimate estimate(VaadinSession session) {
+        Map<Class<?>, ClassLayout> layouts = new HashMap<Class<?>, ClassLayout>();
+        List<MemoryEstimate> estimates = new ArrayList<MemoryEstimate>();
+        estimates.add(new ObjectGraphWalker(layouts, null).walk(session,
+                MemoryEstimate.SESSION));
+        for (UI ui : session.getUIs()) {
+            estimates.add(new ObjectGraphWalker(layouts, ui).walk(ui, null));
+        }
+        return MemoryEstimate.combine(estimates);
+    }
+
+    /**
+     * Starts tracking a session created before this instance was installed.
+     * 
+     * @param session
+     *            the session to track
+     */
+    public synchronized void addSession(VaadinSession session) {
+        if (!sessions.containsKey(session)) {
+            sessions.put(session, new SessionEstimates());
+        }
+    }
+
+    /**
+     * Stops tracking a session and discards its estimates.
+     * 
+     * @param session
+     *            the session to stop tracking
+     */
+    public synchronized void removeSession(VaadinSession session) {
+        sessions.remove(session);
+    }
+
+    @Override
+    public void sessionInit(SessionInitEvent event) {
+        addSession(event.getSession());
+    }
+
+    @Override
+    public void sessionDestroy(SessionDestroyEvent event) {
+        removeSession(event.getSession());
+    }
+
+    @Override
+    public synchronized void serviceDestroy(ServiceDestroyEvent event) {
+        sessions.clear();
+        registration.unregister();
+    }
+
+    @Override
+    public void sample() {
+        // The object graphs are walked without holding the lock of this
+        // instance, so tracking sessions is not blocked by sampling
+        List<Entry<VaadinSession, SessionEstimates>> entries;
+        long sample;
+        int budget;
+        synchronized (this) {
+            entries = new ArrayList<Entry<VaadinSession, SessionEstimates>>(
+                    sessions.entrySet());
+            // Sessions whose UIs were all estimated least recently first
+            Collections.sort(entries, new SampleOrderComparator());
+            sample = ++sampleCount;
+            budget = uisPerSample;
+        }
+
+        // Not kept between samples so classes can be unloaded
+        Map<Class<?>, ClassLayout> layouts = new HashMap<Class<?>, ClassLayout>();
+        for (Entry<VaadinSession, SessionEstimates> entry : entries) {
+            if (budget <= 0) {
+                break;
+            }
+            VaadinSession session = entry.getKey();
+            if (session == null) {
+                // Garbage collected after the entries were copied
+                continue;
+            }
+            Lock lock = session.getLockInstance();
+            if (lock == null || !lock.tryLock()) {
+                // Not yet initialized or in use, try again later
+                continue;
+            }
+            try {
+                budget = sample(session, entry.getValue(), layouts, sample,
+                        budget);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int sample(VaadinSession session, SessionEstimates estimates,
+            Map<Class<?>, ClassLayout> layouts, long sample, int budget) {
+        Map<Integer, MemoryEstimate> previous;
+        synchronized (this) {
+            previous = new HashMap<Integer, MemoryEstimate>(estimates.uis);
+        }
+
+        MemoryEstimate sessionData = new ObjectGraphWalker(layouts, null)
+                .walk(session, MemoryEstimate.SESSION);
+
+        List<UI> oldestFirst = new ArrayList<UI>(session.getUIs());
+        Collections.sort(oldestFirst, new TimestampComparator(previous));
+        Map<Integer, MemoryEstimate> uiEstimates = new HashMap<Integer, MemoryEstimate>();
+        for (UI ui : oldestFirst) {
+            if (uiEstimates.size() == budget) {
+                break;
+            }
+            uiEstimates.put(Integer.valueOf(ui.getUIId()),
+                    new ObjectGraphWalker(layouts, ui).walk(ui, null));
+        }
+        int estimated = uiEstimates.size();
+
+        synchronized (this) {
+            if (sessions.get(session) == estimates) {
+                for (Iterator<Integer> i = estimates.uis.keySet().iterator(); i
+                        .hasNext();) {
+                    if (session.getUIById(i.next().intValue()) == null) {
+                        i.remove();
+                    }
+                }
+                estimates.sessionData = sessionData;
+                estimates.uis.putAll(uiEstimates);
+                if (estimated == oldestFirst.size()) {
+                    estimates.sampled = sample;
+                }
+            }
+            // Else removed while sampling, discard the estimates
+        }
+        // The session data counts as one UI
+        return budget - Math.max(estimated, 1);
+    }
+
+    /**
+     * Returns the most recent estimate of a tracked session and its UIs.
+     * 
+     * @param session
+     *            the session
+     * @return the estimate, or null if the session is not tracked or has not
+     *         been estimated yet
+     */
+    public synchronized MemoryEstimate getEstimate(VaadinSession session) {
+        SessionEstimates estimates = sessions.get(session);
+        if (estimates == null || estimates.sessionData == null) {
+            return null;
+        }
+        return estimates.combine();
+    }
+
+    /**
+     * Returns the most recent estimate of a UI in a tracked session.
+     * 
+     * @param ui
+     *            the UI
+     * @return the estimate, or null if the session of the UI is not tracked
+     *         or the UI has not been estimated yet
+     */
+    public synchronized MemoryEstimate getEstimate(UI ui) {
+        SessionEstimates estimates = sessions.get(ui.getSession());
+        if (estimates == null) {
+            return null;
+        }
+        return estimates.uis.get(Integer.valueOf(ui.getUIId()));
+    }
+
+    /**
+     * Returns the combination of the most recent estimates of all tracked
+     * sessions.
+     * 
+     * @return the estimate
+     */
+    public synchronized MemoryEstimate getTotalEstimate() {
+        List<MemoryEstimate> estimates = new ArrayList<MemoryEstimate>();
+        for (SessionEstimates sessionEstimates : sessions.values()) {
+            if (sessionEstimates.sessionData != null) {
+                estimates.add(sessionEstimates.sessionData);
+            }
+            estimates.addAll(sessionEstimates.uis.values());
+        }
+        return MemoryEstimate.combine(estimates);
+    }
+
+    @Override
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public synchronized int getUICount() {
+        int count = 0;
+        for (SessionEstimates estimates : sessions.values()) {
+            count += estimates.uis.size();
+        }
+        return count;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return getTotalEstimate().getSize();
+    }
+
+    @Override
+    public String[] getLargestCategories() {
+        List<String> largest = new ArrayList<String>();
+        for (Entry<String, Long> entry : getTotalEstimate().getCategorySizes()
+                .entrySet()) {
+            if (largest.size() == LARGEST_LISTED) {
+                break;
+            }
+            largest.add(entry.getKey() + ": " + entry.getValue() + " bytes");
+        }
+        return largest.toArray(new String[largest.size()]);
+    }
+
+    @Override
+    public synchronized String[] getLargestSessions() {
+        Map<VaadinSession, MemoryEstimate> estimates = new HashMap<VaadinSession, MemoryEstimate>();
+        for (Entry<VaadinSession, SessionEstimates> entry : sessions
+                .entrySet()) {
+            if (entry.getValue().sessionData != null) {
+                estimates.put(entry.getKey(), entry.getValue().combine());
+            }
+        }
+        List<Entry<VaadinSession, MemoryEstimate>> entries = new ArrayList<Entry<VaadinSession, MemoryEstimate>>(
+                estimates.entrySet());
+        Collections.sort(entries, new SizeComparator());
+
+        List<String> largest = new ArrayList<String>();
+        for (Entry<VaadinSession, MemoryEstimate> entry : entries) {
+            if (largest.size() == LARGEST_LISTED) {
+                break;
+            }
+            largest.add(getSessionId(entry.getKey()) + ": "
+                    + entry.getValue().getSize() + " bytes, "
+                    + sessions.get(entry.getKey()).uis.size() + " UIs");
+        }
+        return largest.toArray(new String[largest.size()]);
+    }
+
+    private static String getSessionId(VaadinSession session) {
+        WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession != null) {
+            try {
+                return wrappedSession.getId();
+            } catch (IllegalStateException e) {
+                // Invalidated
+            }
+        }
+        return session.toString();
+    }
+
+    @Override
+    public synchronized int getUIsPerSample() {
+        return uisPerSample;
+    }
+
+    @Override
+    public synchronized void setUIsPerSample(int uisPerSample) {
+        if (uisPerSample < 1) {
+            throw new IllegalArgumentException(
+                    "At least one UI must be estimated per sample");
+        }
+        this.uisPerSample = uisPerSample;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        sessions = new WeakHashMap<VaadinSession, SessionEstimates>();
+    }
+}
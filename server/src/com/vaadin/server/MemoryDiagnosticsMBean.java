@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * The JMX management interface of {@link MemoryDiagnostics}. The values are
+ * based on the most recent estimates, which are updated incrementally by
+ * invoking {@link #sample()}.
+ * 
+ * @since 7.2
+ */
+public interface MemoryDiagnosticsMBean extends Serializable {
+
+    /**
+     * Returns the number of tracked sessions.
+     * 
+     * @return the number of sessions
+     */
+    public int getSessionCount();
+
+    /**
+     * Returns the number of UIs that have been estimated in the tracked
+     * sessions.
+     * 
+     * @return the number of UIs
+     */
+    public int getUICount();
+
+    /**
+     * Returns the estimated total heap usage of the tracked sessions.
+     * 
+     * @return the size in bytes
+     */
+    public long getEstimatedSize();
+
+    /**
+     * Returns the categories using most memory in all tracked sessions, with
+     * their sizes.
+     * 
+     * @return descriptions of the largest categories, largest first
+     */
+    public String[] getLargestCategories();
+
+    /**
+     * Returns the sessions using most memory, with their sizes.
+     * 
+     * @return descriptions of the largest sessions, largest first
+     */
+    public String[] getLargestSessions();
+
+    /**
+     * Returns the maximum number of UIs estimated by one invocation of
+     * {@link #sample()}.
+     * 
+     * @return the maximum number of UIs per sample
+     */
+    public int getUIsPerSample();
+
+    /**
+     * Sets the maximum number of UIs estimated by one invocation of
+     * {@link #sample()}.
+     * 
+     * @param uisPerSample
+     *            the maximum number of UIs per sample, at least 1
+     */
+    public void setUIsPerSample(int uisPerSample);
+
+    /**
+     * Updates the estimates of the UIs that were estimated least recently.
+     */
+    public void sample();
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The estimated heap usage of a UI, a session or a set of sessions, broken
+ * down by category, as computed by {@link MemoryDiagnostics}.
+ * <p>
+ * The objects reachable from a UI are attributed to the connector or the
+ * container through which they are first found. The categories are named
+ * after the class of the connector or the container, e.g.
+ * <code>com.vaadin.ui.Table</code> or
+ * <code>com.vaadin.data.util.BeanItemContainer</code>, or are one of the
+ * category constants of this class.
+ * 
+ * @since 7.2
+ */
+public class MemoryEstimate implements Serializable {
+
+    /**
+     * The category of the diff states kept by the connector tracker of a UI
+     * for sending only the changed parts of the shared states.
+     */
+    public static final String DIFF_STATES = "ConnectorTracker diff states";
+
+    /**
+     * The category of the resources registered to the global resource handler
+     * of a session.
+     */
+    public static final String GLOBAL_RESOURCES = "GlobalResourceHandler resources";
+
+    /**
+     * The category of the objects reachable from a session but not from any
+     * of its UIs, e.g. the session attributes.
+     */
+    public static final String SESSION = "VaadinSession";
+
+    private static class SizeComparator implements
+            Comparator<Entry<String, long[]>>, Serializable {
+        @Override
+        public int compare(Entry<String, long[]> o1, Entry<String, long[]> o2) {
+            long size1 = o1.getValue()[0];
+            long size2 = o2.getValue()[0];
+            return size1 < size2 ? 1 : size1 == size2 ? 0 : -1;
+        }
+    }
+
+    private final long size;
+    private final long objectCount;
+    private final long timestamp;
+    private final Map<String, Long> categorySizes = new LinkedHashMap<String, Long>();
+    private final Map<String, Long> categoryObjectCounts = new LinkedHashMap<String, Long>();
+
+    /**
+     * Creates an estimate from the sizes and object counts of categories.
+     * 
+     * @param categories
+     *            map from categories to pairs of size in bytes and number of
+     *            objects
+     * @param timestamp
+     *            the time of the estimate as returned by
+     *            {@link System#currentTimeMillis()}
+     */
+    MemoryEstimate(Map<String, long[]> categories, long timestamp) {
+        this.timestamp = timestamp;
+
+        List<Entry<String, long[]>> entries = new ArrayList<Entry<String, long[]>>(
+                categories.entrySet());
+        Collections.sort(entries, new SizeComparator());
+        long size = 0;
+        long objectCount = 0;
+        for (Entry<String, long[]> entry : entries) {
+            categorySizes.put(entry.getKey(),
+                    Long.valueOf(entry.getValue()[0]));
+            categoryObjectCounts.put(entry.getKey(),
+                    Long.valueOf(entry.getValue()[1]));
+            size += entry.getValue()[0];
+            objectCount += entry.getValue()[1];
+        }
+        this.size = size;
+        this.objectCount = objectCount;
+    }
+
+    /**
+     * Combines estimates into one. The timestamp of the combined estimate is
+     * that of the oldest estimate.
+     * 
+     * @param estimates
+     *            the estimates to combine
+     * @return the combined estimate
+     */
+    static MemoryEstimate combine(Collection<MemoryEstimate> estimates) {
+        Map<String, long[]> categories = new HashMap<String, long[]>();
+        long timestamp = Long.MAX_VALUE;
+        for (MemoryEstimate estimate : estimates) {
+            for (Entry<String, Long> entry : estimate.categorySizes.entrySet()) {
+                long[] values = categories.get(entry.getKey());
+                if (values == null) {
+                    values = new long[2];
+                    categories.put(entry.getKey(), values);
+                }
+                values[0] += entry.getValue().longValue();
+                values[1] += estimate.categoryObjectCounts.get(entry.getKey())
+                        .longValue();
+            }
+            timestamp = Math.min(timestamp, estimate.timestamp);
+        }
+        if (estimates.isEmpty()) {
+            timestamp = System.currentTimeMillis();
+        }
+        return new MemoryEstimate(categories, timestamp);
+    }
+
+    /**
+     * Returns the estimated number of bytes used.
+     * 
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of objects included in the estimate.
+     * 
+     * @return the number of objects
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Returns the time when the estimate was computed. For a combined estimate,
+     * this is the time of the oldest estimate included.
+     * 
+     * @return the time in milliseconds, as returned by
+     *         {@link System#currentTimeMillis()}
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the estimated number of bytes used by each category.
+     * 
+     * @return an unmodifiable map from categories to sizes in bytes, in
+     *         descending order of size
+     */
+    public Map<String, Long> getCategorySizes() {
+        return Collections.unmodifiableMap(categorySizes);
+    }
+
+    /**
+     * Returns the number of objects attributed to each category.
+     * 
+     * @return an unmodifiable map from categories to the number of objects, in
+     *         descending order of size
+     */
+    public Map<String, Long> getCategoryObjectCounts() {
+        return Collections.unmodifiableMap(categoryObjectCounts);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Total: ").append(size).append(" bytes, ")
+                .append(objectCount).append(" objects");
+        int listed = 0;
+        for (Entry<String, Long> entry : categorySizes.entrySet()) {
+            if (listed++ == 20) {
+                break;
+            }
+            sb.append("\n").append(entry.getKey()).append(": ")
+                    .append(entry.getValue()).append(" bytes, ")
+                    .append(categoryObjectCounts.get(entry.getKey()))
+                    .append(" objects");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * The time spent in the phases of handling a UIDL or push request, recorded
+ * when request tracing is enabled using
+ * {@link VaadinService#setRequestTracer(RequestTracer)}.
+ * <p>
+ * The trace of the request being handled is available using
+ * {@link #getCurrent()}. Code that handles a phase records the time spent
+ * using {@link #addTime(Phase, long)}.
+ * 
+ * @since 7.2
+ */
+public class RequestTrace implements Serializable {
+
+    /**
+     * The phases of handling a request that are timed separately.
+     */
+    public enum Phase {
+        /**
+         * Waiting for the session lock.
+         */
+        LOCK_WAIT,
+        /**
+         * Parsing the message from the client and decoding the parameters of
+         * the RPC invocations.
+         */
+        RPC_DECODING,
+        /**
+         * Executing the RPC invocations and legacy variable changes, including
+         * the listeners they trigger.
+         */
+        RPC_INVOCATION,
+        /**
+         * Calling {@link ClientConnector#beforeClientResponse(boolean)} for
+         * the dirty connectors.
+         */
+        BEFORE_CLIENT_RESPONSE,
+        /**
+         * Painting legacy components.
+         */
+        LEGACY_PAINT,
+        /**
+         * Encoding the shared states of the dirty connectors.
+         */
+        STATE_ENCODING,
+        /**
+         * Writing the rest of the response, e.g. the connector hierarchy, the
+         * client RPC invocations and the metadata.
+         */
+        JSON_WRITING;
+    }
+
+    private final String requestType;
+    private final long startTime;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long totalNanos = -1;
+    private int uiId = -1;
+
+    /**
+     * Creates a trace for a request starting now.
+     * 
+     * @param requestType
+     *            the type of the request, e.g. "UIDL" or "push"
+     */
+    public RequestTrace(String requestType) {
+        this.requestType = requestType;
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the trace of the request being handled by the current thread.
+     * 
+     * @return the trace, or null if the request is not traced
+     */
+    public static RequestTrace getCurrent() {
+        return CurrentInstance.get(RequestTrace.class);
+    }
+
+    /**
+     * Adds the time spent in a phase since the given time.
+     * 
+     * @param phase
+     *            the phase
+     * @param startNanos
+     *            the start time of the phase as returned by
+     *            {@link System#nanoTime()}
+     */
+    public void addTime(Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Marks the request as handled.
+     * 
+     * @param uiId
+     *            the id of the UI the request was for, or -1 if unknown
+     */
+    void end(int uiId) {
+        totalNanos = System.nanoTime() - startNanos;
+        this.uiId = uiId;
+    }
+
+    /**
+     * Returns the type of the request.
+     * 
+     * @return the type of the request, e.g. "UIDL" or "push"
+     */
+    public String getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * Returns the time when handling the request started.
+     * 
+     * @return the time in milliseconds, as returned by
+     *         {@link System#currentTimeMillis()}
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the id of the UI the request was for.
+     * 
+     * @return the UI id, or -1 if unknown or the request has not been handled
+     *         yet
+     */
+    public int getUIId() {
+        return uiId;
+    }
+
+    /**
+     * Returns the time spent in a phase.
+     * 
+     * @param phase
+     *            the phase
+     * @return the time in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the total time spent handling the request, including the time
+     * not spent in any of the phases.
+     * 
+     * @return the time in nanoseconds, or -1 if the request has not been
+     *         handled yet
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(requestType).append(" request for UI ").append(uiId)
+                .append(": ").append(toMillis(totalNanos)).append(" ms");
+        for (Phase phase : Phase.values()) {
+            sb.append(", ").append(phase).append(' ')
+                    .append(toMillis(phaseNanos[phase.ordinal()]))
+                    .append(" ms");
+        }
+        return sb.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.valueOf(nanos / 100000 / 10.0);
+    }
+}
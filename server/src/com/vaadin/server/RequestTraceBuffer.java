@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the traces of the most recent requests in memory, e.g. for showing
+ * them in a diagnostics view.
+ * 
+ * @since 7.2
+ */
+public class RequestTraceBuffer implements RequestTraceExporter {
+
+    private final RequestTrace[] traces;
+
+    // The index of the next trace to write
+    private int next = 0;
+
+    private boolean full = false;
+
+    /**
+     * Creates a buffer keeping the given number of traces.
+     * 
+     * @param capacity
+     *            the maximum number of traces to keep
+     */
+    public RequestTraceBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The capacity must be at least 1");
+        }
+        traces = new RequestTrace[capacity];
+    }
+
+    @Override
+    public synchronized void export(RequestTrace trace) {
+        traces[next] = trace;
+        next = (next + 1) % traces.length;
+        if (next == 0) {
+            full = true;
+        }
+    }
+
+    /**
+     * Returns the kept traces.
+     * 
+     * @return the traces, oldest first
+     */
+    public synchronized List<RequestTrace> getTraces() {
+        List<RequestTrace> list = new ArrayList<RequestTrace>(traces.length);
+        if (full) {
+            for (int i = next; i < traces.length; i++) {
+                list.add(traces[i]);
+            }
+        }
+        for (int i = 0; i < next; i++) {
+            list.add(traces[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Discards all kept traces.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = null;
+        }
+        next = 0;
+        full = false;
+    }
+}
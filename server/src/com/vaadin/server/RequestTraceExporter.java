@@ -0,0 +1,36 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Receives the traces of the requests handled while tracing is enabled.
+ * 
+ * @see RequestTracer#addExporter(RequestTraceExporter)
+ * @since 7.2
+ */
+public interface RequestTraceExporter extends Serializable {
+
+    /**
+     * Called after a traced request has been handled. The method is called
+     * by the thread that handled the request, so it should return quickly.
+     * 
+     * @param trace
+     *            the trace of the handled request
+     */
+    public void export(RequestTrace trace);
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Records the time spent in the phases of handling UIDL and push requests and
+ * passes the recorded {@link RequestTrace traces} to exporters. Tracing is
+ * enabled by setting a tracer using
+ * {@link VaadinService#setRequestTracer(RequestTracer)}.
+ * <p>
+ * To limit the overhead, only every n:th request can be traced using
+ * {@link #setSampleInterval(int)}. Requests that are not traced only cost a
+ * lookup of the current trace in each phase.
+ * 
+ * @since 7.2
+ */
+public class RequestTracer implements Serializable {
+
+    private static final String TRACE_ATTRIBUTE = RequestTrace.class.getName();
+
+    private final List<RequestTraceExporter> exporters = new CopyOnWriteArrayList<RequestTraceExporter>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private volatile int sampleInterval = 1;
+
+    /**
+     * Adds an exporter receiving the traces of the handled requests.
+     * 
+     * @param exporter
+     *            the exporter to add
+     */
+    public void addExporter(RequestTraceExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    /**
+     * Removes an exporter.
+     * 
+     * @param exporter
+     *            the exporter to remove
+     */
+    public void removeExporter(RequestTraceExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Sets how often requests are traced. The default is 1, i.e. every request
+     * is traced.
+     * 
+     * @param sampleInterval
+     *            trace every n:th request, at least 1
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException(
+                    "Sample interval must be at least 1");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Returns how often requests are traced.
+     * 
+     * @return the interval between traced requests
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Returns the type of a request if it should be traced. By default, UIDL
+     * and push requests are traced.
+     * 
+     * @param request
+     *            the request
+     * @return the type of the request, or null if the request should not be
+     *         traced
+     */
+    @SuppressWarnings("deprecation")
+    protected String getTracedRequestType(VaadinRequest request) {
+        if (ServletPortletHelper.isUIDLRequest(request)) {
+            return "UIDL";
+        } else if (ServletPortletHelper.isPushRequest(request)) {
+            return "push";
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Called by the service when handling a request starts. Starts a trace if
+     * the request should be traced.
+     * 
+     * @param request
+     *            the request
+     */
+    void requestStart(VaadinRequest request) {
+        String requestType = getTracedRequestType(request);
+        if (requestType == null
+                || requestCount.getAndIncrement() % sampleInterval != 0) {
+            return;
+        }
+        RequestTrace trace = new RequestTrace(requestType);
+        // The current instance is only weakly referenced
+        request.setAttribute(TRACE_ATTRIBUTE, trace);
+        CurrentInstance.set(RequestTrace.class, trace);
+    }
+
+    /**
+     * Called by the service when a request has been handled. Ends the trace
+     * of the request, if any, and passes it to the exporters.
+     * 
+     * @param request
+     *            the request
+     */
+    void requestEnd(VaadinRequest request) {
+        RequestTrace trace = (RequestTrace) request
+                .getAttribute(TRACE_ATTRIBUTE);
+        if (trace == null) {
+            return;
+        }
+        request.removeAttribute(TRACE_ATTRIBUTE);
+        CurrentInstance.set(RequestTrace.class, null);
+
+        UI ui = UI.getCurrent();
+        trace.end(ui == null ? -1 : ui.getUIId());
+        for (RequestTraceExporter exporter : exporters) {
+            try {
+                exporter.export(trace);
+            } catch (RuntimeException e) {
+                getLogger().log(Level.WARNING,
+                        "Exporting a request trace failed", e);
+            }
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(RequestTracer.class.getName());
+    }
+}
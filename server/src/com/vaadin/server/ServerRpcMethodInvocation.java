@@ -15,19 +15,53 @@
  */
 package com.vaadin.server;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import com.vaadin.server.JsonCodec.ValueDecoder;
 import com.vaadin.shared.communication.MethodInvocation;
 import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.util.ReflectTools;
 
 public class ServerRpcMethodInvocation extends MethodInvocation {
 
-    private static final Map<String, Method> invocationMethodCache = new ConcurrentHashMap<String, Method>(
+    /**
+     * A method of an RPC interface together with the decoders for its
+     * parameters, resolved once per interface.
+     */
+    private static class RpcMethod implements Serializable {
+        private final Method method;
+        private final ValueDecoder[] parameterDecoders;
+
+        private RpcMethod(Method method) {
+            this.method = ReflectTools.setAccessible(method);
+            Type[] parameterTypes = method.getGenericParameterTypes();
+            parameterDecoders = new ValueDecoder[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterDecoders[i] = JsonCodec
+                        .getValueDecoder(parameterTypes[i]);
+            }
+        }
+    }
+
+    /**
+     * The methods of each RPC interface by method name. Overloaded methods are
+     * distinguished only by the number of parameters.
+     */
+    private static final Map<Class<?>, Map<String, RpcMethod[]>> invocationMethodCache = new ConcurrentHashMap<Class<?>, Map<String, RpcMethod[]>>(
             128, 0.75f, 1);
 
-    private final Method method;
+    private final RpcMethod rpcMethod;
 
     private final Class<? extends ServerRpc> interfaceClass;
 
@@ -39,7 +73,7 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
         assert ServerRpc.class.isAssignableFrom(interfaceClass);
         this.interfaceClass = interfaceClass;
 
-        method = findInvocationMethod(interfaceClass, methodName,
+        rpcMethod = findInvocationMethod(interfaceClass, methodName,
                 parameterCount);
     }
 
@@ -48,65 +82,96 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
     }
 
     public Method getMethod() {
-        return method;
+        return rpcMethod.method;
+    }
+
+    /**
+     * Decodes the parameters of the invocation from JSON and sets them as the
+     * parameters of the invocation. The parameters are decoded according to
+     * the declared parameter types of the method, using decoders resolved when
+     * the RPC interface was first used.
+     * 
+     * @since 7.2
+     * @param parametersJson
+     *            the JSON encoded parameters, as many as the method has
+     *            parameters
+     * @param connectorTracker
+     *            the connector tracker used to look up connectors
+     * @throws JSONException
+     *             if a parameter cannot be decoded
+     */
+    public void decodeParameters(JSONArray parametersJson,
+            ConnectorTracker connectorTracker) throws JSONException {
+        ValueDecoder[] decoders = rpcMethod.parameterDecoders;
+        Object[] parameters = new Object[decoders.length];
+        for (int i = 0; i < decoders.length; i++) {
+            parameters[i] = decoders[i].decode(parametersJson.get(i),
+                    connectorTracker);
+        }
+        setParameters(parameters);
     }
 
     /**
      * Tries to find the method from the cache or alternatively by invoking
-     * {@link #doFindInvocationMethod(Class, String, int)} and updating the
-     * cache.
+     * {@link #doFindInvocationMethods(Class)} and updating the cache.
      * 
      * @param targetType
      * @param methodName
      * @param parameterCount
      * @return
      */
-    private Method findInvocationMethod(Class<?> targetType, String methodName,
-            int parameterCount) {
+    private RpcMethod findInvocationMethod(Class<?> targetType,
+            String methodName, int parameterCount) {
         // TODO currently only using method name and number of parameters as the
         // signature
-        String signature = targetType.getName() + "." + methodName + "("
-                + parameterCount;
-        Method invocationMethod = invocationMethodCache.get(signature);
-
-        if (invocationMethod == null) {
-            invocationMethod = doFindInvocationMethod(targetType, methodName,
-                    parameterCount);
-
-            if (invocationMethod != null) {
-                invocationMethodCache.put(signature, invocationMethod);
-            }
+        Map<String, RpcMethod[]> methods = invocationMethodCache
+                .get(targetType);
+        if (methods == null) {
+            methods = doFindInvocationMethods(targetType);
+            invocationMethodCache.put(targetType, methods);
         }
 
-        if (invocationMethod == null) {
-            throw new IllegalStateException("Can't find method " + methodName
-                    + " with " + parameterCount + " parameters in "
-                    + targetType.getName());
+        RpcMethod[] candidates = methods.get(methodName);
+        if (candidates != null) {
+            for (RpcMethod candidate : candidates) {
+                if (candidate.parameterDecoders.length == parameterCount) {
+                    return candidate;
+                }
+            }
         }
 
-        return invocationMethod;
+        throw new IllegalStateException("Can't find method " + methodName
+                + " with " + parameterCount + " parameters in "
+                + targetType.getName());
     }
 
     /**
-     * Tries to find the method from the class by looping through available
-     * methods.
+     * Resolves all the methods of the class by looping through available
+     * methods. If there are several methods with the same name and number of
+     * parameters, the first one is used.
      * 
      * @param targetType
-     * @param methodName
-     * @param parameterCount
      * @return
      */
-    private Method doFindInvocationMethod(Class<?> targetType,
-            String methodName, int parameterCount) {
-        Method[] methods = targetType.getMethods();
-        for (Method method : methods) {
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            if (method.getName().equals(methodName)
-                    && parameterTypes.length == parameterCount) {
-                return method;
+    private static Map<String, RpcMethod[]> doFindInvocationMethods(
+            Class<?> targetType) {
+        Map<String, List<RpcMethod>> methodLists = new HashMap<String, List<RpcMethod>>();
+        for (Method method : targetType.getMethods()) {
+            List<RpcMethod> list = methodLists.get(method.getName());
+            if (list == null) {
+                list = new ArrayList<RpcMethod>(1);
+                methodLists.put(method.getName(), list);
             }
+            list.add(new RpcMethod(method));
+        }
+
+        Map<String, RpcMethod[]> methods = new HashMap<String, RpcMethod[]>();
+        for (Map.Entry<String, List<RpcMethod>> entry : methodLists
+                .entrySet()) {
+            methods.put(entry.getKey(),
+                    entry.getValue().toArray(new RpcMethod[0]));
         }
-        return null;
+        return methods;
     }
 
 }
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.Container;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.HasComponents;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Cleans up the sessions of a service in the background. Inactive UIs and
+ * sessions are otherwise only closed at the end of a request to the same
+ * session, so abandoned sessions keep their UIs until the session expires.
+ * <p>
+ * Each scan closes the UIs whose heartbeat timeout has expired and the
+ * sessions that have been idle longer than allowed, in the same way as done
+ * at the end of a request. The scan also evicts the caches of the components
+ * and containers implementing {@link CacheEvictable} in sessions that have not
+ * received a UIDL request for {@link #getEvictionIdleTime()} seconds. The
+ * evicted data is recreated when the user returns.
+ * <p>
+ * When the used heap exceeds {@link #getHeapPressureThreshold()}, the
+ * sessions are scanned every {@link #getPressureScanInterval()} seconds
+ * instead of every {@link #getScanInterval()} seconds and the caches of
+ * sessions idle for {@link #getPressureEvictionIdleTime()} seconds are
+ * evicted.
+ * <p>
+ * Sessions that are locked by other threads are skipped; they are cleaned up
+ * at the end of the request holding the lock.
+ * 
+ * @since 7.2
+ */
+public class SessionReaper implements SessionInitListener,
+        SessionDestroyListener, ServiceDestroyListener {
+
+    /**
+     * Runs a scan and schedules the next one.
+     */
+    private static class ScanTask implements Runnable, Serializable {
+        private final SessionReaper reaper;
+
+        private ScanTask(SessionReaper reaper) {
+            this.reaper = reaper;
+        }
+
+        @Override
+        public void run() {
+            reaper.scanAndReschedule();
+        }
+    }
+
+    /**
+     * Creates the daemon thread running the scans.
+     */
+    private static class ReaperThreadFactory implements ThreadFactory,
+            Serializable {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                    SessionReaper.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private final VaadinService service;
+
+    /*
+     * The tracked sessions with the last request timestamp at the time their
+     * caches were evicted, or null if not evicted since the last request
+     */
+    private transient Map<VaadinSession, Long> sessions = new WeakHashMap<VaadinSession, Long>();
+
+    private transient ScheduledExecutorService executor;
+
+    private int scanInterval = 60;
+    private int pressureScanInterval = 10;
+    private int evictionIdleTime = 600;
+    private int pressureEvictionIdleTime = 60;
+    private double heapPressureThreshold = 0.8;
+
+    private long scanCount = 0;
+    private long closedUICount = 0;
+    private long closedSessionCount = 0;
+    private long evictedUICount = 0;
+
+    /**
+     * Creates a reaper for the sessions of the given service. The reaper does
+     * not track any sessions or run scans until it is installed or
+     * {@link #addSession(VaadinSession)} and {@link #start()} are called.
+     * 
+     * @see #install(VaadinService)
+     * @param service
+     *            the service whose sessions are scanned
+     */
+    public SessionReaper(VaadinService service) {
+        this.service = service;
+    }
+
+    /**
+     * Creates a reaper tracking the sessions created by a service from now on
+     * and starts scanning them periodically. The scans are stopped when the
+     * service is destroyed.
+     * <p>
+     * Typically called from {@link VaadinServlet#servletInitialized()}.
+     * 
+     * @param service
+     *            the service whose sessions to scan
+     * @return the created reaper
+     */
+    public static SessionReaper install(VaadinService service) {
+        SessionReaper reaper = new SessionReaper(service);
+        service.addSessionInitListener(reaper);
+        service.addSessionDestroyListener(reaper);
+        service.addServiceDestroyListener(reaper);
+        reaper.start();
+        return reaper;
+    }
+
+    /**
+     * Starts scanning the tracked sessions in a background thread. Does
+     * nothing if the scans have already been started.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors
+                    .newSingleThreadScheduledExecutor(new ReaperThreadFactory());
+            executor.schedule(new ScanTask(this), scanInterval,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the background scans. Does nothing if the scans are not running.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Checks whether the background scans are running.
+     * 
+     * @return true if the scans have been started and not stopped
+     */
+    public synchronized boolean isStarted() {
+        return executor != null;
+    }
+
+    /**
+     * Starts tracking a session created before this reaper was installed.
+     * 
+     * @param session
+     *            the session to track
+     */
+    public synchronized void addSession(VaadinSession session) {
+        if (!sessions.containsKey(session)) {
+            sessions.put(session, null);
+        }
+    }
+
+    /**
+     * Stops tracking a session.
+     * 
+     * @param session
+     *            the session to stop tracking
+     */
+    public synchronized void removeSession(VaadinSession session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Returns the number of tracked sessions.
+     * 
+     * @return the number of sessions
+     */
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void sessionInit(SessionInitEvent event) {
+        addSession(event.getSession());
+    }
+
+    @Override
+    public void sessionDestroy(SessionDestroyEvent event) {
+        removeSession(event.getSession());
+    }
+
+    @Override
+    public synchronized void serviceDestroy(ServiceDestroyEvent event) {
+        stop();
+        sessions.clear();
+    }
+
+    private void scanAndReschedule() {
+        boolean heapPressure = isUnderHeapPressure();
+        try {
+            scan(heapPressure);
+        } finally {
+            synchronized (this) {
+                if (executor != null) {
+                    executor.schedule(new ScanTask(this),
+                            heapPressure ? pressureScanInterval : scanInterval,
+                            TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the tracked sessions immediately. Called periodically by the
+     * background thread once started.
+     */
+    public void scan() {
+        scan(isUnderHeapPressure());
+    }
+
+    private void scan(boolean heapPressure) {
+        List<Entry<VaadinSession, Long>> entries;
+        synchronized (this) {
+            scanCount++;
+            entries = new ArrayList<Entry<VaadinSession, Long>>(
+                    sessions.entrySet());
+        }
+        if (heapPressure) {
+            getLogger().log(Level.FINE,
+                    "Scanning {0} sessions under heap pressure",
+                    entries.size());
+        }
+
+        int idleTime = heapPressure ? pressureEvictionIdleTime
+                : evictionIdleTime;
+        for (Entry<VaadinSession, Long> entry : entries) {
+            VaadinSession session = entry.getKey();
+            Lock lock = session.getLockInstance();
+            if (session.getSession() == null || lock == null
+                    || !lock.tryLock()) {
+                // Not yet initialized or in use, try again later
+                continue;
+            }
+            Map<Class<?>, CurrentInstance> old = CurrentInstance
+                    .setCurrent(session);
+            try {
+                reap(session, entry.getValue(), idleTime);
+            } catch (RuntimeException e) {
+                // The other sessions are still scanned
+                getLogger().log(Level.WARNING,
+                        "Scanning session " + session + " failed", e);
+            } finally {
+                // Runs the tasks and pushes the changes made while locked
+                session.unlock();
+                CurrentInstance.restoreInstances(old);
+            }
+        }
+    }
+
+    private void reap(VaadinSession session, Long evictedTimestamp,
+            int idleTime) {
+        boolean closing = session.isClosing();
+        int uiCount = session.getUIs().size();
+        service.cleanupSession(session);
+        int closedUIs = uiCount - session.getUIs().size();
+
+        long lastRequest = session.getLastRequestTimestamp();
+        boolean evict = !session.isClosing() && idleTime >= 0
+                && System.currentTimeMillis() - lastRequest >= idleTime * 1000L;
+        if (evict && evictedTimestamp != null
+                && evictedTimestamp.longValue() == lastRequest) {
+            // Already evicted and no requests since
+            evict = false;
+        }
+        if (evict) {
+            for (UI ui : session.getUIs()) {
+                evictCaches(ui);
+            }
+        }
+
+        synchronized (this) {
+            closedUICount += closedUIs;
+            if (session.isClosing() && !closing) {
+                closedSessionCount++;
+            }
+            if (evict) {
+                evictedUICount += session.getUIs().size();
+                if (sessions.containsKey(session)) {
+                    sessions.put(session, Long.valueOf(lastRequest));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the caches of the components of a UI and their container data
+     * sources. The session lock must be held when calling this method.
+     * 
+     * @param ui
+     *            the UI whose caches to evict
+     */
+    public static void evictCaches(UI ui) {
+        Map<Class<?>, CurrentInstance> old = CurrentInstance.setCurrent(ui);
+        try {
+            evictCaches(ui, Collections
+                    .newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+        } finally {
+            CurrentInstance.restoreInstances(old);
+        }
+    }
+
+    private static void evictCaches(Component component, Set<Object> evicted) {
+        evictCaches((Object) component, evicted);
+        if (component instanceof Container.Viewer) {
+            Container container = ((Container.Viewer) component)
+                    .getContainerDataSource();
+            evictCaches(container, evicted);
+        }
+        // Iterated after evicting as the children may change
+        if (component instanceof HasComponents) {
+            for (Component child : (HasComponents) component) {
+                evictCaches(child, evicted);
+            }
+        }
+    }
+
+    private static void evictCaches(Object object, Set<Object> evicted) {
+        if (object instanceof CacheEvictable && evicted.add(object)) {
+            ((CacheEvictable) object).evictCaches();
+        }
+    }
+
+    /**
+     * Checks whether the heap is under pressure. By default, the heap is
+     * under pressure if the used heap, including objects not yet garbage
+     * collected, exceeds the {@link #getHeapPressureThreshold() threshold}.
+     * 
+     * @return true if the sessions should be scanned more aggressively
+     */
+    protected boolean isUnderHeapPressure() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage();
+        long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        return heap.getUsed() >= max * getHeapPressureThreshold();
+    }
+
+    /**
+     * Sets how often the sessions are scanned. The new interval is used
+     * after the next scan.
+     * 
+     * @param scanInterval
+     *            the interval in seconds, must be positive
+     */
+    public synchronized void setScanInterval(int scanInterval) {
+        if (scanInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The scan interval must be positive");
+        }
+        this.scanInterval = scanInterval;
+    }
+
+    /**
+     * Returns how often the sessions are scanned. The default is 60 seconds.
+     * 
+     * @return the interval in seconds
+     */
+    public synchronized int getScanInterval() {
+        return scanInterval;
+    }
+
+    /**
+     * Sets how often the sessions are scanned when the heap is under
+     * pressure.
+     * 
+     * @param pressureScanInterval
+     *            the interval in seconds, must be positive
+     */
+    public synchronized void setPressureScanInterval(int pressureScanInterval) {
+        if (pressureScanInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The scan interval must be positive");
+        }
+        this.pressureScanInterval = pressureScanInterval;
+    }
+
+    /**
+     * Returns how often the sessions are scanned when the heap is under
+     * pressure. The default is 10 seconds.
+     * 
+     * @return the interval in seconds
+     */
+    public synchronized int getPressureScanInterval() {
+        return pressureScanInterval;
+    }
+
+    /**
+     * Sets how long a session must be without UIDL requests before the caches
+     * of its UIs are evicted.
+     * 
+     * @param evictionIdleTime
+     *            the idle time in seconds, or a negative number to not evict
+     *            caches
+     */
+    public synchronized void setEvictionIdleTime(int evictionIdleTime) {
+        this.evictionIdleTime = evictionIdleTime;
+    }
+
+    /**
+     * Returns how long a session must be without UIDL requests before the
+     * caches of its UIs are evicted. The default is 600 seconds.
+     * 
+     * @return the idle time in seconds, or a negative number if caches are
+     *         not evicted
+     */
+    public synchronized int getEvictionIdleTime() {
+        return evictionIdleTime;
+    }
+
+    /**
+     * Sets how long a session must be without UIDL requests before the caches
+     * of its UIs are evicted when the heap is under pressure.
+     * 
+     * @param pressureEvictionIdleTime
+     *            the idle time in seconds, or a negative number to not evict
+     *            caches
+     */
+    public synchronized void setPressureEvictionIdleTime(
+            int pressureEvictionIdleTime) {
+        this.pressureEvictionIdleTime = pressureEvictionIdleTime;
+    }
+
+    /**
+     * Returns how long a session must be without UIDL requests before the
+     * caches of its UIs are evicted when the heap is under pressure. The
+     * default is 60 seconds.
+     * 
+     * @return the idle time in seconds, or a negative number if caches are
+     *         not evicted
+     */
+    public synchronized int getPressureEvictionIdleTime() {
+        return pressureEvictionIdleTime;
+    }
+
+    /**
+     * Sets the fraction of the maximum heap that must be in use for the heap
+     * to be under pressure.
+     * 
+     * @param heapPressureThreshold
+     *            the fraction of the maximum heap, between 0 and 1
+     */
+    public synchronized void setHeapPressureThreshold(
+            double heapPressureThreshold) {
+        if (heapPressureThreshold < 0 || heapPressureThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "The threshold must be between 0 and 1");
+        }
+        this.heapPressureThreshold = heapPressureThreshold;
+    }
+
+    /**
+     * Returns the fraction of the maximum heap that must be in use for the
+     * heap to be under pressure. The default is 0.8.
+     * 
+     * @return the fraction of the maximum heap
+     */
+    public synchronized double getHeapPressureThreshold() {
+        return heapPressureThreshold;
+    }
+
+    /**
+     * Returns the number of scans run.
+     * 
+     * @return the number of scans
+     */
+    public synchronized long getScanCount() {
+        return scanCount;
+    }
+
+    /**
+     * Returns the number of UIs closed and removed by the scans.
+     * 
+     * @return the number of closed UIs
+     */
+    public synchronized long getClosedUICount() {
+        return closedUICount;
+    }
+
+    /**
+     * Returns the number of sessions closed by the scans.
+     * 
+     * @return the number of closed sessions
+     */
+    public synchronized long getClosedSessionCount() {
+        return closedSessionCount;
+    }
+
+    /**
+     * Returns the number of UIs whose caches have been evicted by the scans.
+     * 
+     * @return the number of UIs
+     */
+    public synchronized long getEvictedUICount() {
+        return evictedUICount;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        sessions = new WeakHashMap<VaadinSession, Long>();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(SessionReaper.class.getName());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The serialized size of a {@link VaadinSession}, its UIs and the objects of
+ * each class in the session, as measured by
+ * {@link SessionSerializer#measure(VaadinSession)}. The sizes are in bytes,
+ * before any compression.
+ * 
+ * @since 7.2
+ */
+public class SessionSerializationStatistics implements Serializable {
+
+    private static class SizeComparator implements
+            Comparator<Entry<Class<?>, long[]>>, Serializable {
+        @Override
+        public int compare(Entry<Class<?>, long[]> o1,
+                Entry<Class<?>, long[]> o2) {
+            long size1 = o1.getValue()[0];
+            long size2 = o2.getValue()[0];
+            return size1 < size2 ? 1 : size1 == size2 ? 0 : -1;
+        }
+    }
+
+    private final long sessionSize;
+    private final Map<Integer, Long> uiSizes;
+    private final Map<Class<?>, Long> classSizes = new LinkedHashMap<Class<?>, Long>();
+    private final Map<Class<?>, Long> instanceCounts = new LinkedHashMap<Class<?>, Long>();
+
+    SessionSerializationStatistics(long sessionSize,
+            Map<Integer, Long> uiSizes, Map<Class<?>, long[]> classSizes) {
+        this.sessionSize = sessionSize;
+        this.uiSizes = Collections.unmodifiableMap(uiSizes);
+
+        List<Entry<Class<?>, long[]>> entries = new ArrayList<Entry<Class<?>, long[]>>(
+                classSizes.entrySet());
+        Collections.sort(entries, new SizeComparator());
+        for (Entry<Class<?>, long[]> entry : entries) {
+            this.classSizes.put(entry.getKey(),
+                    Long.valueOf(entry.getValue()[0]));
+            instanceCounts.put(entry.getKey(),
+                    Long.valueOf(entry.getValue()[1]));
+        }
+    }
+
+    /**
+     * Returns the serialized size of the whole session.
+     * 
+     * @return the size in bytes
+     */
+    public long getSessionSize() {
+        return sessionSize;
+    }
+
+    /**
+     * Returns the serialized sizes of the UIs of the session. The size of a UI
+     * includes the objects reachable from the UI, except for the session and
+     * the other UIs. Objects shared between UIs are included in the size of
+     * each of them.
+     * 
+     * @return an unmodifiable map from UI ids to sizes in bytes
+     */
+    public Map<Integer, Long> getUISizes() {
+        return uiSizes;
+    }
+
+    /**
+     * Returns the number of bytes written for the objects of each class,
+     * including the field values of the objects but not the objects they
+     * refer to. The size includes the description of the class when it is
+     * written for the first time. The sizes are approximate as data is written
+     * in blocks.
+     * 
+     * @return an unmodifiable map from classes to sizes in bytes, in
+     *         descending order of size
+     */
+    public Map<Class<?>, Long> getClassSizes() {
+        return Collections.unmodifiableMap(classSizes);
+    }
+
+    /**
+     * Returns the number of serialized objects of each class.
+     * 
+     * @return an unmodifiable map from classes to the number of instances, in
+     *         descending order of size
+     */
+    public Map<Class<?>, Long> getInstanceCounts() {
+        return Collections.unmodifiableMap(instanceCounts);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Session: ").append(sessionSize).append(" bytes");
+        for (Entry<Integer, Long> entry : uiSizes.entrySet()) {
+            sb.append("\nUI ").append(entry.getKey()).append(": ")
+                    .append(entry.getValue()).append(" bytes");
+        }
+        int listed = 0;
+        for (Entry<Class<?>, Long> entry : classSizes.entrySet()) {
+            if (listed++ == 20) {
+                break;
+            }
+            sb.append("\n").append(entry.getKey().getName()).append(": ")
+                    .append(entry.getValue()).append(" bytes, ")
+                    .append(instanceCounts.get(entry.getKey()))
+                    .append(" objects");
+        }
+        return sb.toString();
+    }
+}
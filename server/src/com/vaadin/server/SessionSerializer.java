@@ -0,0 +1,557 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Serializes {@link VaadinSession}s to and from byte streams, e.g. for
+ * replicating sessions to other nodes of a cluster or persisting them outside
+ * the session persistence of the servlet container.
+ * <p>
+ * The session is written using Java serialization, with two optional
+ * differences to the format used by {@link ObjectOutputStream}:
+ * <ul>
+ * <li>Compression of the serialized data, enabled by default.</li>
+ * <li>Compact class descriptors, disabled by default: classes are identified
+ * only by name and serial version UID instead of describing all their
+ * serializable fields. The descriptors are looked up from the classes when
+ * reading, so the classes must be the same when reading and writing, as they
+ * are when all nodes of a cluster run the same deployment. Data written with
+ * compact class descriptors cannot be read after the serializable fields of a
+ * class have changed, e.g. during a rolling upgrade.</li>
+ * </ul>
+ * Fields that only cache data that can be recomputed are transient in the
+ * framework classes, so they are not serialized in either format.
+ * <p>
+ * The format can be changed by overriding
+ * {@link #createObjectOutputStream(OutputStream)} and
+ * {@link #createObjectInputStream(InputStream, ClassLoader)}. The time spent
+ * and the size of each serialized session are reported to
+ * {@link #sessionWritten(VaadinSession, long, long, long)}, and
+ * {@link #measure(VaadinSession)} reports what the serialized data consists
+ * of.
+ * <p>
+ * The session should not be accessed by other threads while it is being
+ * written, e.g. by holding the session lock.
+ * 
+ * @since 7.2
+ */
+public class SessionSerializer implements Serializable {
+
+    private static final int MAGIC = 0x56534552;
+
+    private static final int FLAG_COMPRESSED = 1;
+
+    private static final int FLAG_COMPACT_CLASS_DESCRIPTORS = 2;
+
+    private static final int FAT_DESCRIPTOR = 0;
+
+    private static final int THIN_DESCRIPTOR = 1;
+
+    private boolean compressed = true;
+
+    private int compressionLevel = Deflater.BEST_SPEED;
+
+    private boolean compactClassDescriptors = false;
+
+    /**
+     * Output stream counting the written bytes.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Output stream discarding all data.
+     */
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    /**
+     * Writes compact class descriptors by name, unless the descriptors cannot
+     * be looked up by name when reading.
+     */
+    private static class SessionObjectOutputStream extends ObjectOutputStream {
+        private final boolean compactClassDescriptors;
+
+        private SessionObjectOutputStream(OutputStream out,
+                boolean compactClassDescriptors) throws IOException {
+            super(out);
+            this.compactClassDescriptors = compactClassDescriptors;
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+                throws IOException {
+            Class<?> type = desc.forClass();
+            if (!compactClassDescriptors) {
+                super.writeClassDescriptor(desc);
+            } else if (type == null || type.isPrimitive() || type.isArray()
+                    || type.isInterface() || desc.getSerialVersionUID() == 0) {
+                write(FAT_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+            } else {
+                write(THIN_DESCRIPTOR);
+                writeUTF(desc.getName());
+                writeLong(desc.getSerialVersionUID());
+            }
+        }
+    }
+
+    /**
+     * Resolves classes using the given class loader and reads the class
+     * descriptors written by {@link SessionObjectOutputStream}.
+     */
+    private static class SessionObjectInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+        private final boolean compactClassDescriptors;
+
+        private SessionObjectInputStream(InputStream in,
+                ClassLoader classLoader, boolean compactClassDescriptors)
+                throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+            this.compactClassDescriptors = compactClassDescriptors;
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException,
+                ClassNotFoundException {
+            if (!compactClassDescriptors) {
+                return super.readClassDescriptor();
+            }
+            int type = read();
+            if (type == FAT_DESCRIPTOR) {
+                return super.readClassDescriptor();
+            } else if (type != THIN_DESCRIPTOR) {
+                throw new StreamCorruptedException(
+                        "Unexpected class descriptor type " + type);
+            }
+            String name = readUTF();
+            long serialVersionUID = readLong();
+            ObjectStreamClass desc = ObjectStreamClass.lookupAny(resolveClass(
+                    name));
+            if (desc.getSerialVersionUID() != serialVersionUID) {
+                throw new InvalidClassException(name,
+                        "serialVersionUID of the serialized class "
+                                + serialVersionUID
+                                + " does not match the local class "
+                                + desc.getSerialVersionUID());
+            }
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            try {
+                return resolveClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                // Primitive types
+                return super.resolveClass(desc);
+            }
+        }
+
+        private Class<?> resolveClass(String name)
+                throws ClassNotFoundException {
+            return Class.forName(name, false, classLoader);
+        }
+    }
+
+    /**
+     * Records the number of bytes written for the objects of each class. The
+     * bytes written between starting to write an object and starting to write
+     * the next one are assigned to the class of the former object. Objects
+     * found in the replacement map are replaced with the mapped value.
+     */
+    private static class MeasuringObjectOutputStream extends
+            SessionObjectOutputStream {
+        private final CountingOutputStream counter;
+        private final Map<Object, Object> replacements;
+        private final Map<Class<?>, long[]> classSizes = new HashMap<Class<?>, long[]>();
+        private long[] currentSize;
+        private long currentStart;
+
+        private MeasuringObjectOutputStream(CountingOutputStream counter,
+                boolean compactClassDescriptors,
+                Map<Object, Object> replacements) throws IOException {
+            super(counter, compactClassDescriptors);
+            this.counter = counter;
+            this.replacements = replacements;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (replacements.containsKey(obj)) {
+                return replacements.get(obj);
+            }
+            // Flush buffered block data to count it for the previous object
+            flush();
+            account();
+            currentSize = classSizes.get(obj.getClass());
+            if (currentSize == null) {
+                currentSize = new long[2];
+                classSizes.put(obj.getClass(), currentSize);
+            }
+            currentSize[1]++;
+            return obj;
+        }
+
+        private void account() {
+            if (currentSize != null) {
+                currentSize[0] += counter.count - currentStart;
+            }
+            currentStart = counter.count;
+        }
+
+        private long finish() throws IOException {
+            flush();
+            account();
+            return counter.count;
+        }
+    }
+
+    /**
+     * Creates a new session serializer using compression and the class
+     * descriptors of standard Java serialization.
+     */
+    public SessionSerializer() {
+    }
+
+    /**
+     * Sets whether the serialized data is compressed.
+     * 
+     * @param compressed
+     *            true to compress the data, false to write it uncompressed
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Checks whether the serialized data is compressed.
+     * 
+     * @return true if the data is compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Sets the level of compression used if the data is compressed. The
+     * default is {@link Deflater#BEST_SPEED}.
+     * 
+     * @param compressionLevel
+     *            the compression level, from 0 to 9
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION
+                || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level "
+                    + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns the level of compression used if the data is compressed.
+     * 
+     * @return the compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets whether classes are identified only by name and serial version UID
+     * in the serialized data. Compact class descriptors can only be used if
+     * the classes are the same when the data is read. The default is false.
+     * 
+     * @param compactClassDescriptors
+     *            true to use compact class descriptors, false to use the
+     *            descriptors of standard Java serialization
+     */
+    public void setCompactClassDescriptors(boolean compactClassDescriptors) {
+        this.compactClassDescriptors = compactClassDescriptors;
+    }
+
+    /**
+     * Checks whether classes are identified only by name and serial version
+     * UID in the serialized data.
+     * 
+     * @return true if compact class descriptors are used
+     */
+    public boolean isCompactClassDescriptors() {
+        return compactClassDescriptors;
+    }
+
+    /**
+     * Writes a session to a stream. The stream is not closed.
+     * 
+     * @param session
+     *            the session to write
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if writing fails or the session contains objects that are
+     *             not serializable
+     */
+    public void writeSession(VaadinSession session, OutputStream out)
+            throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream written = new CountingOutputStream(out);
+        DataOutputStream header = new DataOutputStream(written);
+        header.writeInt(MAGIC);
+        header.writeByte((compressed ? FLAG_COMPRESSED : 0)
+                | (compactClassDescriptors ? FLAG_COMPACT_CLASS_DESCRIPTORS
+                        : 0));
+        header.flush();
+
+        Deflater deflater = null;
+        DeflaterOutputStream deflaterOut = null;
+        OutputStream dataOut = written;
+        if (compressed) {
+            deflater = new Deflater(compressionLevel);
+            deflaterOut = new DeflaterOutputStream(written, deflater, 8192);
+            // Deflating the small blocks written by ObjectOutputStream is slow
+            dataOut = new BufferedOutputStream(deflaterOut, 65536);
+        }
+        try {
+            CountingOutputStream data = new CountingOutputStream(dataOut);
+            ObjectOutputStream objectOut = createObjectOutputStream(data);
+            objectOut.writeObject(session);
+            objectOut.flush();
+            dataOut.flush();
+            if (deflaterOut != null) {
+                deflaterOut.finish();
+            }
+            out.flush();
+            sessionWritten(session, data.count, written.count,
+                    System.nanoTime() - start);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads a session written by {@link #writeSession(VaadinSession,
+     * OutputStream)}. The format is read from the stream, so the settings of
+     * this serializer need not match those used for writing.
+     * <p>
+     * The transient parts of the session are restored by the framework when
+     * the session is used in a request.
+     * 
+     * @param in
+     *            the stream to read from
+     * @param classLoader
+     *            the class loader used for loading the classes of the session,
+     *            typically the class loader of the web application
+     * @return the session
+     * @throws IOException
+     *             if reading fails or the data is not a serialized session
+     * @throws ClassNotFoundException
+     *             if a class of the session is not found
+     */
+    public VaadinSession readSession(InputStream in, ClassLoader classLoader)
+            throws IOException, ClassNotFoundException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a serialized session");
+        }
+        int flags = header.readUnsignedByte();
+
+        Inflater inflater = null;
+        InputStream dataIn = in;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            inflater = new Inflater();
+            dataIn = new InflaterInputStream(in, inflater, 8192);
+        }
+        try {
+            ObjectInputStream objectIn;
+            if ((flags & FLAG_COMPACT_CLASS_DESCRIPTORS) != 0) {
+                objectIn = new SessionObjectInputStream(dataIn, classLoader,
+                        true);
+            } else {
+                objectIn = createObjectInputStream(dataIn, classLoader);
+            }
+            return (VaadinSession) objectIn.readObject();
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Creates the object output stream used for writing sessions. Override to
+     * change the serialization format of the session data. If the format is
+     * changed, {@link #createObjectInputStream(InputStream, ClassLoader)}
+     * should be overridden as well and compact class descriptors should not be
+     * used.
+     * 
+     * @param out
+     *            the stream to write the serialized data to
+     * @return the object output stream
+     * @throws IOException
+     *             if the stream cannot be created
+     */
+    protected ObjectOutputStream createObjectOutputStream(OutputStream out)
+            throws IOException {
+        return new SessionObjectOutputStream(out, compactClassDescriptors);
+    }
+
+    /**
+     * Creates the object input stream used for reading sessions written
+     * without compact class descriptors.
+     * 
+     * @param in
+     *            the stream to read the serialized data from
+     * @param classLoader
+     *            the class loader to use for loading classes
+     * @return the object input stream
+     * @throws IOException
+     *             if the stream cannot be created
+     */
+    protected ObjectInputStream createObjectInputStream(InputStream in,
+            ClassLoader classLoader) throws IOException {
+        return new SessionObjectInputStream(in, classLoader, false);
+    }
+
+    /**
+     * Called after a session has been written. Override e.g. to collect
+     * metrics about the size of the sessions and the time spent serializing
+     * them. By default, the values are logged at level {@link Level#FINE}.
+     * 
+     * @param session
+     *            the written session
+     * @param serializedSize
+     *            the size of the serialized session data in bytes, before
+     *            compression
+     * @param writtenSize
+     *            the number of bytes written to the stream
+     * @param nanos
+     *            the time spent writing the session, in nanoseconds
+     */
+    protected void sessionWritten(VaadinSession session, long serializedSize,
+            long writtenSize, long nanos) {
+        if (getLogger().isLoggable(Level.FINE)) {
+            getLogger().log(
+                    Level.FINE,
+                    "Wrote session in {0} ms, {1} bytes serialized, {2} bytes written",
+                    new Object[] { nanos / 1000000, serializedSize,
+                            writtenSize });
+        }
+    }
+
+    /**
+     * Measures the serialized size of a session, each of its UIs and the
+     * objects of each class in the session, using the format of this
+     * serializer without compression.
+     * <p>
+     * The size of a UI does not include the session or the other UIs, even if
+     * the UI refers to them.
+     * 
+     * @param session
+     *            the session to measure
+     * @return the statistics of the serialized session
+     * @throws IOException
+     *             if the session contains objects that are not serializable
+     */
+    public SessionSerializationStatistics measure(VaadinSession session)
+            throws IOException {
+        Map<Object, Object> replacements = new IdentityHashMap<Object, Object>();
+        MeasuringObjectOutputStream sessionOut = new MeasuringObjectOutputStream(
+                new CountingOutputStream(new NullOutputStream()),
+                compactClassDescriptors, replacements);
+        sessionOut.writeObject(session);
+        long sessionSize = sessionOut.finish();
+
+        Map<Integer, Long> uiSizes = new HashMap<Integer, Long>();
+        for (UI ui : session.getUIs()) {
+            // Leave out what the UI shares with the session and other UIs
+            replacements.clear();
+            replacements.put(session, null);
+            for (UI otherUI : session.getUIs()) {
+                if (otherUI != ui) {
+                    replacements.put(otherUI, null);
+                }
+            }
+            MeasuringObjectOutputStream uiOut = new MeasuringObjectOutputStream(
+                    new CountingOutputStream(new NullOutputStream()),
+                    compactClassDescriptors, replacements);
+            uiOut.writeObject(ui);
+            uiSizes.put(Integer.valueOf(ui.getUIId()),
+                    Long.valueOf(uiOut.finish()));
+        }
+
+        return new SessionSerializationStatistics(sessionSize, uiSizes,
+                sessionOut.classSizes);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(SessionSerializer.class.getName());
+    }
+}
@@ -17,6 +17,8 @@ package com.vaadin.server;
 
 import java.io.IOException;
 
+import com.vaadin.server.RequestTrace.Phase;
+
 /**
  * RequestHandler which takes care of locking and unlocking of the VaadinSession
  * automatically. The session is locked before
@@ -36,7 +38,12 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        RequestTrace trace = RequestTrace.getCurrent();
+        long start = System.nanoTime();
         session.lock();
+        if (trace != null) {
+            trace.addTime(Phase.LOCK_WAIT, start);
+        }
         try {
             return synchronizedHandleRequest(session, request, response);
         } finally {
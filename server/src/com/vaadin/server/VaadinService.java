@@ -128,6 +128,8 @@ public abstract class VaadinService implements Serializable {
 
     private Iterable<RequestHandler> requestHandlers;
 
+    private RequestTracer requestTracer;
+
     /**
      * Keeps track of whether a warning about missing push support has already
      * been logged. This is used to avoid spamming the log with the same message
@@ -1289,6 +1291,10 @@ public abstract class VaadinService implements Serializable {
         }
         setCurrentInstances(request, response);
         request.setAttribute(REQUEST_START_TIME_ATTRIBUTE, System.nanoTime());
+        RequestTracer tracer = requestTracer;
+        if (tracer != null) {
+            tracer.requestStart(request);
+        }
     }
 
     /**
@@ -1324,6 +1330,10 @@ public abstract class VaadinService implements Serializable {
                 }
             });
         }
+        RequestTracer tracer = requestTracer;
+        if (tracer != null) {
+            tracer.requestEnd(request);
+        }
         CurrentInstance.clearAll();
     }
 
@@ -1789,4 +1799,27 @@ public abstract class VaadinService implements Serializable {
         eventRouter.fireEvent(new ServiceDestroyEvent(this));
     }
 
+    /**
+     * Sets the tracer recording the time spent in the phases of handling UIDL
+     * and push requests. Tracing is disabled by default.
+     * 
+     * @since 7.2
+     * @param requestTracer
+     *            the request tracer to use, or null to disable tracing
+     */
+    public void setRequestTracer(RequestTracer requestTracer) {
+        this.requestTracer = requestTracer;
+    }
+
+    /**
+     * Returns the tracer recording the time spent in the phases of handling
+     * UIDL and push requests.
+     * 
+     * @since 7.2
+     * @return the request tracer, or null if tracing is disabled
+     */
+    public RequestTracer getRequestTracer() {
+        return requestTracer;
+    }
+
 }
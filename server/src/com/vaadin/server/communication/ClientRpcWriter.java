@@ -22,6 +22,7 @@ import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.json.JSONArray;
@@ -115,27 +116,12 @@ public class ClientRpcWriter implements Serializable {
             List<ClientMethodInvocation> paintablePendingRpc = connector
                     .retrievePendingRpcCalls();
             if (null != paintablePendingRpc && !paintablePendingRpc.isEmpty()) {
-                List<ClientMethodInvocation> oldPendingRpc = pendingInvocations;
-                int totalCalls = pendingInvocations.size()
-                        + paintablePendingRpc.size();
-                pendingInvocations = new ArrayList<ClientMethodInvocation>(
-                        totalCalls);
-
-                // merge two ordered comparable lists
-                for (int destIndex = 0, oldIndex = 0, paintableIndex = 0; destIndex < totalCalls; destIndex++) {
-                    if (paintableIndex >= paintablePendingRpc.size()
-                            || (oldIndex < oldPendingRpc.size() && ((Comparable<ClientMethodInvocation>) oldPendingRpc
-                                    .get(oldIndex))
-                                    .compareTo(paintablePendingRpc
-                                            .get(paintableIndex)) <= 0)) {
-                        pendingInvocations.add(oldPendingRpc.get(oldIndex++));
-                    } else {
-                        pendingInvocations.add(paintablePendingRpc
-                                .get(paintableIndex++));
-                    }
-                }
+                pendingInvocations.addAll(paintablePendingRpc);
             }
         }
+        // Order the calls of all connectors by when they were made. Sorting
+        // once is cheaper than merging the list of each connector separately.
+        Collections.sort(pendingInvocations);
         return pendingInvocations;
     }
 }
@@ -32,6 +32,8 @@ import org.atmosphere.cpr.AtmosphereResourceEventListenerAdapter;
 import org.json.JSONException;
 
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.RequestTrace;
+import com.vaadin.server.RequestTrace.Phase;
 import com.vaadin.server.ServiceException;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredException;
@@ -262,7 +264,12 @@ public class PushHandler extends AtmosphereResourceEventListenerAdapter
                 return;
             }
 
+            RequestTrace trace = RequestTrace.getCurrent();
+            long start = System.nanoTime();
             session.lock();
+            if (trace != null) {
+                trace.addTime(Phase.LOCK_WAIT, start);
+            }
             try {
                 VaadinSession.setCurrent(session);
                 // Sets UI.currentInstance
@@ -19,7 +19,6 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -36,6 +35,8 @@ import com.vaadin.server.ClientConnector;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.RequestTrace;
+import com.vaadin.server.RequestTrace.Phase;
 import com.vaadin.server.ServerRpcManager;
 import com.vaadin.server.ServerRpcManager.RpcInvocationException;
 import com.vaadin.server.ServerRpcMethodInvocation;
@@ -150,6 +151,8 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException, JSONException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
+        RequestTrace trace = RequestTrace.getCurrent();
+        long start = System.nanoTime();
         String changeMessage = getMessage(reader);
 
         if (changeMessage == null || changeMessage.equals("")) {
@@ -158,6 +161,9 @@ public class ServerRpcHandler implements Serializable {
         }
 
         RpcRequest rpcRequest = new RpcRequest(changeMessage);
+        if (trace != null) {
+            trace.addTime(Phase.RPC_DECODING, start);
+        }
 
         // Security: double cookie submission pattern unless disabled by
         // property
@@ -201,9 +207,15 @@ public class ServerRpcHandler implements Serializable {
         try {
             Set<Connector> enabledConnectors = new HashSet<Connector>();
 
+            RequestTrace trace = RequestTrace.getCurrent();
+            long start = System.nanoTime();
             List<MethodInvocation> invocations = parseInvocations(
                     uI.getConnectorTracker(), invocationsData,
                     lastSyncIdSeenByClient);
+            if (trace != null) {
+                trace.addTime(Phase.RPC_DECODING, start);
+                start = System.nanoTime();
+            }
             for (MethodInvocation invocation : invocations) {
                 final ClientConnector connector = manager.getConnector(uI,
                         invocation.getConnectorId());
@@ -307,6 +319,9 @@ public class ServerRpcHandler implements Serializable {
                     }
                 }
             }
+            if (trace != null) {
+                trace.addTime(Phase.RPC_INVOCATION, start);
+            }
         } catch (JSONException e) {
             getLogger().warning(
                     "Unable to parse RPC call from the client: "
@@ -457,17 +472,7 @@ public class ServerRpcHandler implements Serializable {
         ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
                 connectorId, rpcInterface, methodName, parametersJson.length());
 
-        Object[] parameters = new Object[parametersJson.length()];
-        Type[] declaredRpcMethodParameterTypes = invocation.getMethod()
-                .getGenericParameterTypes();
-
-        for (int j = 0; j < parametersJson.length(); ++j) {
-            Object parameterValue = parametersJson.get(j);
-            Type parameterType = declaredRpcMethodParameterTypes[j];
-            parameters[j] = JsonCodec.decodeInternalOrCustomType(parameterType,
-                    parameterValue, connectorTracker);
-        }
-        invocation.setParameters(parameters);
+        invocation.decodeParameters(parametersJson, connectorTracker);
         return invocation;
     }
 
@@ -36,6 +36,8 @@ import com.vaadin.server.ClientConnector;
 import com.vaadin.server.JsonPaintTarget;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.ClientCache;
+import com.vaadin.server.RequestTrace;
+import com.vaadin.server.RequestTrace.Phase;
 import com.vaadin.server.SystemMessages;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.ApplicationConstants;
@@ -91,11 +93,16 @@ public class UidlWriter implements Serializable {
                 Level.FINE,
                 "Found " + dirtyVisibleConnectors.size()
                         + " dirty connectors to paint");
+        RequestTrace trace = RequestTrace.getCurrent();
+        long start = System.nanoTime();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             boolean initialized = uiConnectorTracker
                     .isClientSideInitialized(connector);
             connector.beforeClientResponse(!initialized);
         }
+        if (trace != null) {
+            trace.addTime(Phase.BEFORE_CLIENT_RESPONSE, start);
+        }
 
         uiConnectorTracker.setWritingResponse(true);
         try {
@@ -104,6 +111,7 @@ public class UidlWriter implements Serializable {
 
             writer.write("\"changes\" : ");
 
+            start = System.nanoTime();
             JsonPaintTarget paintTarget = new JsonPaintTarget(manager, writer,
                     !repaintAll);
 
@@ -111,6 +119,9 @@ public class UidlWriter implements Serializable {
 
             paintTarget.close();
             writer.write(", "); // close changes
+            if (trace != null) {
+                trace.addTime(Phase.LEGACY_PAINT, start);
+            }
 
             // send shared state to client
 
@@ -123,9 +134,14 @@ public class UidlWriter implements Serializable {
             // client after component creation but before legacy UIDL
             // processing.
 
+            start = System.nanoTime();
             writer.write("\"state\":");
             new SharedStateWriter().write(ui, writer);
             writer.write(", "); // close states
+            if (trace != null) {
+                trace.addTime(Phase.STATE_ENCODING, start);
+            }
+            start = System.nanoTime();
 
             // TODO This should be optimized. The type only needs to be
             // sent once for each connector id + on refresh. Use the same cache
@@ -296,6 +312,9 @@ public class UidlWriter implements Serializable {
             assert (uiConnectorTracker.getDirtyConnectors().isEmpty()) : "Connectors have been marked as dirty during the end of the paint phase. This is most certainly not intended.";
 
             writePerformanceData(ui, writer);
+            if (trace != null) {
+                trace.addTime(Phase.JSON_WRITING, start);
+            }
         } finally {
             uiConnectorTracker.setWritingResponse(false);
             uiConnectorTracker.cleanConnectorMap();
@@ -15,6 +15,8 @@
  */
 package com.vaadin.ui;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,6 +30,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Item;
@@ -47,6 +50,7 @@ import com.vaadin.server.PaintTarget;
 import com.vaadin.server.Resource;
 import com.vaadin.shared.ui.combobox.FilteringMode;
 import com.vaadin.shared.ui.dd.VerticalDropLocation;
+import com.vaadin.shared.ui.select.AbstractSelectConstants;
 
 /**
  * <p>
@@ -268,6 +272,16 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
     // Caption (Item / Property) change listeners
     CaptionChangeListener captionChangeListener;
 
+    /**
+     * The number of options painted at a time, 0 to paint all options.
+     */
+    private int optionPageLength = 0;
+
+    /**
+     * The page of options painted when paging options.
+     */
+    private int optionPage = 0;
+
     /* Constructors */
 
     /**
@@ -347,6 +361,18 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             }
         }
 
+        List<Object> paintedIds = null;
+        if (optionPageLength > 0) {
+            paintedIds = getPaintedOptionIds();
+            target.addAttribute(
+                    AbstractSelectConstants.ATTRIBUTE_OPTION_PAGE_LENGTH,
+                    optionPageLength);
+            target.addAttribute(AbstractSelectConstants.ATTRIBUTE_OPTION_PAGE,
+                    optionPage);
+            target.addAttribute(
+                    AbstractSelectConstants.ATTRIBUTE_TOTAL_OPTIONS, size());
+        }
+
         // Constructs selected keys array
         String[] selectedKeys;
         if (isMultiSelect()) {
@@ -357,8 +383,8 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
         }
 
         // ==
-        // first remove all previous item/property listeners
-        getCaptionChangeListener().clear();
+        // keep track of the painted items to remove listeners of the others
+        getCaptionChangeListener().paintStarted();
         // Paints the options and create array of selected id keys
 
         target.startTag("options");
@@ -377,7 +403,8 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             target.endTag("so");
         }
 
-        final Iterator<?> i = getItemIds().iterator();
+        final Iterator<?> i = (paintedIds != null ? paintedIds : getItemIds())
+                .iterator();
         // Paints the available selection options from data source
         while (i.hasNext()) {
             // Gets the option attribute values
@@ -399,6 +426,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             target.endTag("so");
         }
         target.endTag("options");
+        getCaptionChangeListener().paintFinished();
         // ==
 
         // Paint variables
@@ -436,6 +464,13 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
     @Override
     public void changeVariables(Object source, Map<String, Object> variables) {
 
+        // Option page change
+        if (variables.containsKey(AbstractSelectConstants.VARIABLE_OPTION_PAGE)) {
+            setOptionPage(((Integer) variables
+                    .get(AbstractSelectConstants.VARIABLE_OPTION_PAGE))
+                    .intValue());
+        }
+
         // New option entered (and it is allowed)
         if (isNewItemsAllowed()) {
             final String newitem = (String) variables.get("newitem");
@@ -591,13 +626,153 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
 
     /**
      * Gets the visible item ids. In Select, this returns list of all item ids,
-     * but can be overriden in subclasses if they paint only part of the items
-     * to the terminal or null if no items is visible.
+     * or the painted options when paging options, but can be overriden in
+     * subclasses if they paint only part of the items to the terminal or null
+     * if no items is visible.
      */
     public Collection<?> getVisibleItemIds() {
+        if (optionPageLength > 0) {
+            return getPaintedOptionIds();
+        }
         return getItemIds();
     }
 
+    /**
+     * Sets the number of options painted at a time. When the container has
+     * more items, only the items on the current page and the selected items
+     * are sent to the client, and the user can move between the pages. Using
+     * a page length avoids sending all the options to the client on every
+     * repaint when the container is large.
+     * <p>
+     * Only components painting their options using
+     * {@link #paintContent(PaintTarget)} of this class support paging the
+     * options.
+     * 
+     * @param optionPageLength
+     *            the number of options on a page, or 0 to paint all options
+     *            (the default)
+     * @since 7.2
+     */
+    protected void setOptionPageLength(int optionPageLength) {
+        if (optionPageLength < 0) {
+            throw new IllegalArgumentException(
+                    "The option page length must not be negative");
+        }
+        if (this.optionPageLength != optionPageLength) {
+            this.optionPageLength = optionPageLength;
+            optionPage = 0;
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Returns the number of options painted at a time.
+     * 
+     * @return the number of options on a page, or 0 if all options are
+     *         painted
+     * @since 7.2
+     */
+    protected int getOptionPageLength() {
+        return optionPageLength;
+    }
+
+    /**
+     * Sets the page of options painted when paging options. A page after the
+     * last one shows the last page.
+     * 
+     * @param optionPage
+     *            the index of the page, starting from 0
+     * @since 7.2
+     */
+    protected void setOptionPage(int optionPage) {
+        optionPage = Math.max(0, optionPage);
+        if (this.optionPage != optionPage) {
+            this.optionPage = optionPage;
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Returns the page of options painted when paging options.
+     * 
+     * @return the index of the page, starting from 0
+     * @since 7.2
+     */
+    protected int getOptionPage() {
+        return optionPage;
+    }
+
+    /**
+     * Returns the ids of the options painted when paging options: the items
+     * on the current page and the selected items, in container order. The
+     * last page is used if the current page is past it.
+     */
+    private List<Object> getPaintedOptionIds() {
+        Container container = getContainerDataSource();
+        int size = container.size();
+        int first = Math.min(optionPage, getLastOptionPage(size))
+                * optionPageLength;
+
+        Set<Object> selected = new HashSet<Object>();
+        Object value = getValue();
+        if (isMultiSelect()) {
+            selected.addAll((Collection<?>) value);
+        } else if (value != null) {
+            selected.add(value);
+        }
+
+        List<Object> pageIds = new ArrayList<Object>(optionPageLength);
+        // Selected items outside the page, by index
+        TreeMap<Integer, Object> otherSelected = new TreeMap<Integer, Object>();
+        if (container instanceof Container.Indexed) {
+            Container.Indexed indexed = (Container.Indexed) container;
+            if (size > 0) {
+                pageIds.addAll(indexed.getItemIds(first, optionPageLength));
+            }
+            selected.removeAll(pageIds);
+            for (Object itemId : selected) {
+                int index = indexed.indexOfId(itemId);
+                if (index >= 0) {
+                    otherSelected.put(index, itemId);
+                }
+            }
+        } else {
+            int index = 0;
+            int end = first + optionPageLength;
+            for (Iterator<?> i = container.getItemIds().iterator(); i
+                    .hasNext()
+                    && (index < end || !selected.isEmpty()); index++) {
+                Object itemId = i.next();
+                if (index >= first && index < end) {
+                    pageIds.add(itemId);
+                    selected.remove(itemId);
+                } else if (selected.remove(itemId)) {
+                    otherSelected.put(index, itemId);
+                }
+            }
+        }
+
+        List<Object> paintedIds = new ArrayList<Object>(
+                otherSelected.headMap(first).values());
+        paintedIds.addAll(pageIds);
+        paintedIds.addAll(otherSelected.tailMap(first).values());
+        return paintedIds;
+    }
+
+    private int getLastOptionPage(int size) {
+        return size == 0 ? 0 : (size - 1) / optionPageLength;
+    }
+
+    @Override
+    public void beforeClientResponse(boolean initial) {
+        super.beforeClientResponse(initial);
+        if (optionPageLength > 0) {
+            // Moves to the last page if items have been removed
+            optionPage = Math.min(optionPage,
+                    getLastOptionPage(getContainerDataSource().size()));
+        }
+    }
+
     /* Property methods */
 
     /**
@@ -1131,6 +1306,12 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
      * Gets the caption of an item. The caption is generated as specified by the
      * item caption mode. See <code>setItemCaptionMode()</code> for more
      * details.
+     * <p>
+     * The captions of the painted items are cached when the select gets
+     * notified about the changes affecting them, i.e. when the caption
+     * properties of the items are {@link Property.ValueChangeNotifier}s. Use
+     * {@link #refreshItemCaptions()} if the captions change without
+     * notifications.
      * 
      * @param itemId
      *            the id of the item to be queried.
@@ -1143,7 +1324,10 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             return null;
         }
 
-        String caption = null;
+        String caption = getCaptionChangeListener().getCachedCaption(itemId);
+        if (caption != null) {
+            return caption;
+        }
 
         switch (getItemCaptionMode()) {
 
@@ -1191,7 +1375,24 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
         }
 
         // All items must have some captions
-        return caption != null ? caption : "";
+        if (caption == null) {
+            caption = "";
+        }
+        getCaptionChangeListener().cacheCaption(itemId, caption);
+        return caption;
+    }
+
+    /**
+     * Discards the cached item captions and repaints the select. Needed only
+     * when the captions of the items change without the caption properties
+     * notifying about the change, e.g. when the beans of a bean container are
+     * modified directly.
+     * 
+     * @since 7.2
+     */
+    public void refreshItemCaptions() {
+        getCaptionChangeListener().clearCaptions();
+        markAsDirty();
     }
 
     /**
@@ -1275,6 +1476,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
     public void setItemCaptionMode(ItemCaptionMode mode) {
         if (mode != null) {
             itemCaptionMode = mode;
+            getCaptionChangeListener().clear();
             markAsDirty();
         }
     }
@@ -1335,6 +1537,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
      * 
      */
     public void setItemCaptionPropertyId(Object propertyId) {
+        getCaptionChangeListener().clear();
         if (propertyId != null) {
             itemCaptionPropertyId = propertyId;
             setItemCaptionMode(ITEM_CAPTION_MODE_PROPERTY);
@@ -1396,6 +1599,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             throw new IllegalArgumentException(
                     "Property type must be assignable to Resource");
         }
+        getCaptionChangeListener().clear();
         markAsDirty();
     }
 
@@ -1507,6 +1711,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
     @Override
     public void containerPropertySetChange(
             Container.PropertySetChangeEvent event) {
+        getCaptionChangeListener().clear();
         firePropertySetChange();
     }
 
@@ -1642,6 +1847,10 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
         // Clears the item id mapping table
         itemIdMapper.removeAll();
 
+        // Items may have been replaced by new ones with the same ids, so the
+        // listeners are added again for the new items when painted
+        getCaptionChangeListener().clear();
+
         // Notify all listeners
         fireItemSetChange();
     }
@@ -1847,6 +2056,13 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
      * "lazyloading" components should take care to add and remove listeners as
      * appropriate. Call addNotifierForItem() for each painted item (and
      * remember to clear).
+     * <p>
+     * Listeners added for an item are kept until cleared, so painting the same
+     * item again does not add them again. When all the painted items are added
+     * between {@link #paintStarted()} and {@link #paintFinished()}, the
+     * listeners of the items no longer painted are removed. The listener also
+     * caches the captions of the items it gets notified about; see
+     * {@link AbstractSelect#getItemCaption(Object)}.
      * 
      * NOTE: singleton, use getCaptionChangeListener().
      * 
@@ -1855,20 +2071,52 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
             Item.PropertySetChangeListener, Property.ValueChangeListener {
 
         // TODO clean this up - type is either Item.PropertySetChangeNotifier or
-        // Property.ValueChangeNotifier
-        HashSet<Object> captionChangeNotifiers = new HashSet<Object>();
+        // Property.ValueChangeNotifier. Maps each notifier to the ids of the
+        // items whose caption or icon it affects, as a property or item may
+        // be shared by several items.
+        HashMap<Object, Set<Object>> captionChangeNotifiers = new HashMap<Object, Set<Object>>();
+
+        // The notifiers of each item listened to
+        private final HashMap<Object, List<Object>> itemNotifiers = new HashMap<Object, List<Object>>();
+
+        // The items whose caption changes are all notified about
+        private final HashSet<Object> cacheableItems = new HashSet<Object>();
+
+        // Not serialized as the captions can be computed again
+        private transient HashMap<Object, String> captions = new HashMap<Object, String>();
+
+        // The items added since paintStarted(), null if not painting
+        private HashSet<Object> paintedItems;
+
+        private void readObject(ObjectInputStream in) throws IOException,
+                ClassNotFoundException {
+            in.defaultReadObject();
+            captions = new HashMap<Object, String>();
+        }
 
         public void addNotifierForItem(Object itemId) {
+            if (paintedItems != null) {
+                paintedItems.add(itemId);
+            }
+            if (itemNotifiers.containsKey(itemId)) {
+                return;
+            }
+            List<Object> notifiers = new ArrayList<Object>();
+            boolean cacheable = false;
             switch (getItemCaptionMode()) {
             case ITEM:
                 final Item i = getItem(itemId);
                 if (i == null) {
                     return;
                 }
+                cacheable = true;
                 if (i instanceof Item.PropertySetChangeNotifier) {
-                    ((Item.PropertySetChangeNotifier) i)
-                            .addPropertySetChangeListener(getCaptionChangeListener());
-                    captionChangeNotifiers.add(i);
+                    if (addNotifier(i, itemId, notifiers)) {
+                        ((Item.PropertySetChangeNotifier) i)
+                                .addPropertySetChangeListener(getCaptionChangeListener());
+                    }
+                } else {
+                    cacheable = false;
                 }
                 Collection<?> pids = i.getItemPropertyIds();
                 if (pids != null) {
@@ -1876,9 +2124,12 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
                         Property<?> p = i.getItemProperty(it.next());
                         if (p != null
                                 && p instanceof Property.ValueChangeNotifier) {
-                            ((Property.ValueChangeNotifier) p)
-                                    .addValueChangeListener(getCaptionChangeListener());
-                            captionChangeNotifiers.add(p);
+                            if (addNotifier(p, itemId, notifiers)) {
+                                ((Property.ValueChangeNotifier) p)
+                                        .addValueChangeListener(getCaptionChangeListener());
+                            }
+                        } else if (p != null) {
+                            cacheable = false;
                         }
                     }
 
@@ -1888,9 +2139,11 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
                 final Property<?> p = getContainerProperty(itemId,
                         getItemCaptionPropertyId());
                 if (p != null && p instanceof Property.ValueChangeNotifier) {
-                    ((Property.ValueChangeNotifier) p)
-                            .addValueChangeListener(getCaptionChangeListener());
-                    captionChangeNotifiers.add(p);
+                    if (addNotifier(p, itemId, notifiers)) {
+                        ((Property.ValueChangeNotifier) p)
+                                .addValueChangeListener(getCaptionChangeListener());
+                    }
+                    cacheable = true;
                 }
                 break;
 
@@ -1899,41 +2152,196 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
                 final Property p = getContainerProperty(itemId,
                         getItemIconPropertyId());
                 if (p != null && p instanceof Property.ValueChangeNotifier) {
-                    ((Property.ValueChangeNotifier) p)
-                            .addValueChangeListener(getCaptionChangeListener());
-                    captionChangeNotifiers.add(p);
+                    if (addNotifier(p, itemId, notifiers)) {
+                        ((Property.ValueChangeNotifier) p)
+                                .addValueChangeListener(getCaptionChangeListener());
+                    }
                 }
             }
+            itemNotifiers.put(itemId, notifiers);
+            if (cacheable) {
+                cacheableItems.add(itemId);
+            }
         }
 
-        public void clear() {
-            for (Iterator<Object> it = captionChangeNotifiers.iterator(); it
-                    .hasNext();) {
-                Object notifier = it.next();
-                if (notifier instanceof Item.PropertySetChangeNotifier) {
-                    ((Item.PropertySetChangeNotifier) notifier)
-                            .removePropertySetChangeListener(getCaptionChangeListener());
-                } else {
-                    ((Property.ValueChangeNotifier) notifier)
-                            .removeValueChangeListener(getCaptionChangeListener());
+        /**
+         * Maps a notifier to an item.
+         * 
+         * @return true if the notifier was not mapped to any item before, in
+         *         which case the caller must start listening to it
+         */
+        private boolean addNotifier(Object notifier, Object itemId,
+                List<Object> notifiers) {
+            Set<Object> itemIds = captionChangeNotifiers.get(notifier);
+            boolean added = itemIds == null;
+            if (added) {
+                itemIds = new HashSet<Object>();
+                captionChangeNotifiers.put(notifier, itemIds);
+            }
+            if (itemIds.add(itemId)) {
+                notifiers.add(notifier);
+            }
+            return added;
+        }
+
+        /**
+         * Starts keeping track of the items added using
+         * {@link #addNotifierForItem(Object)}.
+         * 
+         * @since 7.2
+         */
+        public void paintStarted() {
+            paintedItems = new HashSet<Object>();
+        }
+
+        /**
+         * Removes the listeners of the items not added since
+         * {@link #paintStarted()} was called.
+         * 
+         * @since 7.2
+         */
+        public void paintFinished() {
+            if (paintedItems == null) {
+                return;
+            }
+            if (paintedItems.size() < itemNotifiers.size()) {
+                for (Object itemId : new ArrayList<Object>(
+                        itemNotifiers.keySet())) {
+                    if (!paintedItems.contains(itemId)) {
+                        removeNotifiersForItem(itemId);
+                    }
+                }
+            }
+            paintedItems = null;
+        }
+
+        /**
+         * Removes the listeners added for an item.
+         * 
+         * @param itemId
+         *            the id of the item
+         * @since 7.2
+         */
+        public void removeNotifiersForItem(Object itemId) {
+            List<Object> notifiers = itemNotifiers.remove(itemId);
+            if (notifiers != null) {
+                for (Object notifier : notifiers) {
+                    Set<Object> itemIds = captionChangeNotifiers.get(notifier);
+                    if (itemIds == null) {
+                        continue;
+                    }
+                    itemIds.remove(itemId);
+                    if (itemIds.isEmpty()) {
+                        // Not used by the other painted items
+                        captionChangeNotifiers.remove(notifier);
+                        removeNotifier(notifier);
+                    }
                 }
             }
+            cacheableItems.remove(itemId);
+            captions.remove(itemId);
+        }
+
+        public void clear() {
+            for (Iterator<Object> it = captionChangeNotifiers.keySet()
+                    .iterator(); it.hasNext();) {
+                removeNotifier(it.next());
+            }
             captionChangeNotifiers.clear();
+            itemNotifiers.clear();
+            cacheableItems.clear();
+            captions.clear();
+            paintedItems = null;
+        }
+
+        private void removeNotifier(Object notifier) {
+            if (notifier instanceof Item.PropertySetChangeNotifier) {
+                ((Item.PropertySetChangeNotifier) notifier)
+                        .removePropertySetChangeListener(getCaptionChangeListener());
+            } else {
+                ((Property.ValueChangeNotifier) notifier)
+                        .removeValueChangeListener(getCaptionChangeListener());
+            }
+        }
+
+        /**
+         * Returns the cached caption of an item.
+         * 
+         * @param itemId
+         *            the id of the item
+         * @return the cached caption, or null if not cached
+         */
+        String getCachedCaption(Object itemId) {
+            return captions.get(itemId);
+        }
+
+        /**
+         * Caches the caption of an item if the listener gets notified about
+         * all changes to it.
+         * 
+         * @param itemId
+         *            the id of the item
+         * @param caption
+         *            the caption of the item
+         */
+        void cacheCaption(Object itemId, String caption) {
+            if (cacheableItems.contains(itemId)) {
+                captions.put(itemId, caption);
+            }
+        }
+
+        /**
+         * Discards all cached captions.
+         */
+        void clearCaptions() {
+            captions.clear();
         }
 
         @Override
         public void valueChange(com.vaadin.data.Property.ValueChangeEvent event) {
-            markAsDirty();
+            Set<Object> itemIds = captionChangeNotifiers.get(event
+                    .getProperty());
+            if (itemIds == null) {
+                captions.clear();
+                itemCaptionChanged(null);
+                return;
+            }
+            for (Object itemId : new ArrayList<Object>(itemIds)) {
+                captions.remove(itemId);
+                itemCaptionChanged(itemId);
+            }
         }
 
         @Override
         public void itemPropertySetChange(
                 com.vaadin.data.Item.PropertySetChangeEvent event) {
-            markAsDirty();
+            Set<Object> itemIds = captionChangeNotifiers.get(event.getItem());
+            if (itemIds == null) {
+                captions.clear();
+                itemCaptionChanged(null);
+                return;
+            }
+            for (Object itemId : new ArrayList<Object>(itemIds)) {
+                // Listen to the new set of properties when painted next time
+                removeNotifiersForItem(itemId);
+                itemCaptionChanged(itemId);
+            }
         }
 
     }
 
+    /**
+     * Called by the caption change listener when the caption or icon of a
+     * painted item may have changed. The default implementation repaints the
+     * whole component.
+     * 
+     * @param itemId
+     *            the id of the changed item, or null if not known
+     */
+    void itemCaptionChanged(Object itemId) {
+        markAsDirty();
+    }
+
     /**
      * Criterion which accepts a drop only if the drop target is (one of) the
      * given Item identifier(s). Criterion can be used only on a drop targets
@@ -16,20 +16,27 @@
 
 package com.vaadin.ui;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.AbstractInMemoryContainer;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.event.FieldEvents;
 import com.vaadin.event.FieldEvents.BlurEvent;
 import com.vaadin.event.FieldEvents.BlurListener;
 import com.vaadin.event.FieldEvents.FocusEvent;
 import com.vaadin.event.FieldEvents.FocusListener;
+import com.vaadin.server.CacheEvictable;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
 import com.vaadin.server.Resource;
@@ -47,7 +54,18 @@ import com.vaadin.shared.ui.combobox.FilteringMode;
 @SuppressWarnings("serial")
 public class ComboBox extends AbstractSelect implements
         AbstractSelect.Filtering, FieldEvents.BlurNotifier,
-        FieldEvents.FocusNotifier {
+        FieldEvents.FocusNotifier, CacheEvictable {
+
+    /**
+     * Number of recent filter strings whose results are cached.
+     */
+    private static final int FILTER_RESULT_CACHE_SIZE = 10;
+
+    /**
+     * Maximum number of matching options whose ids are cached for narrowing
+     * down the options when the user types more characters.
+     */
+    private static final int MAX_CACHED_FILTER_RESULT = 10000;
 
     private String inputPrompt = null;
 
@@ -76,6 +94,16 @@ public class ComboBox extends AbstractSelect implements
      */
     private List<Object> filteredOptions;
 
+    /**
+     * Results of recent filter strings evaluated by a
+     * {@link Container.FilteredIndexed} container, most recently used last.
+     * Only kept while the user is typing a longer filter string or paging
+     * through the options, as a change of an item caption that has not been
+     * painted is not noticed. Not serialized as the results can be evaluated
+     * again.
+     */
+    private transient FilterResultCache filterResults = new FilterResultCache();
+
     /**
      * Flag to indicate that request repaint is called by filter request only
      */
@@ -158,8 +186,8 @@ public class ComboBox extends AbstractSelect implements
                 target.addAttribute(ComboBoxConstants.ATTR_NO_TEXT_INPUT, true);
             }
 
-            // clear caption change listeners
-            getCaptionChangeListener().clear();
+            // track the items painted for caption change listeners
+            getCaptionChangeListener().paintStarted();
 
             // The tab ordering number
             if (getTabIndex() != 0) {
@@ -269,6 +297,7 @@ public class ComboBox extends AbstractSelect implements
                 target.endTag("so");
             }
             target.endTag("options");
+            getCaptionChangeListener().paintFinished();
 
             target.addAttribute("totalitems", size()
                     + (needNullSelectOption ? 1 : 0));
@@ -357,10 +386,16 @@ public class ComboBox extends AbstractSelect implements
             return null;
         }
 
-        Filterable filterable = (Filterable) container;
-
         Filter filter = buildFilter(filterstring, filteringMode);
 
+        if (container instanceof Container.FilteredIndexed) {
+            return getOptionsWithFilteredIndexed(
+                    (Container.FilteredIndexed) container, filter,
+                    needNullSelectOption);
+        }
+
+        Filterable filterable = (Filterable) container;
+
         // adding and removing filters leads to extraneous item set
         // change events from the underlying container, but the ComboBox does
         // not process or propagate them based on the flag filteringContainer
@@ -408,6 +443,203 @@ public class ComboBox extends AbstractSelect implements
         }
     }
 
+    /**
+     * Returns the filtered options for the current page by querying a
+     * {@link Container.FilteredIndexed} container, without adding the filter
+     * to the container. The results of recent filter strings are cached. When
+     * the container is in-memory, the options of a longer filter string are
+     * found by narrowing down the cached options of a shorter one.
+     * 
+     * As a side effect, {@link #filteredSize} is set to the total number of
+     * items passing the filter.
+     * 
+     * @param container
+     *            the container to query
+     * @param filter
+     *            the filter for the current filter string, or null if none
+     * @param needNullSelectOption
+     * @return filtered list of options (may be empty)
+     */
+    private List<?> getOptionsWithFilteredIndexed(
+            Container.FilteredIndexed container, Filter filter,
+            boolean needNullSelectOption) {
+        FilterResult result = null;
+        if (filter == null) {
+            // Not filtering, cached results may be outdated the next time
+            filterResults.clear();
+        } else {
+            result = getFilterResult(container, filter);
+        }
+
+        int indexToEnsureInView = -1;
+
+        // if not an option request (item list when user changes page), go
+        // to page with the selected item after filtering if accepted by
+        // filter
+        Object selection = getValue();
+        if (isScrollToSelectedItem() && !optionRequest && selection != null) {
+            // ensure proper page
+            if (result == null) {
+                indexToEnsureInView = container.indexOfId(selection);
+            } else if (result.itemIds != null) {
+                indexToEnsureInView = result.itemIds.indexOf(selection);
+            } else {
+                indexToEnsureInView = container.indexOfId(filter, selection);
+            }
+        }
+
+        filteredSize = result == null ? container.size() : result.size;
+        currentPage = adjustCurrentPage(currentPage, needNullSelectOption,
+                indexToEnsureInView, filteredSize);
+        int first = getFirstItemIndexOnCurrentPage(needNullSelectOption,
+                filteredSize);
+        int last = getLastItemIndexOnCurrentPage(needNullSelectOption,
+                filteredSize, first);
+
+        int lastItemToFetch = Math.min(last, filteredSize - 1);
+        int nrOfItemsToFetch = (lastItemToFetch + 1) - first;
+        if (nrOfItemsToFetch <= 0) {
+            return new ArrayList<Object>();
+        }
+
+        if (result == null) {
+            return container.getItemIds(first, nrOfItemsToFetch);
+        } else if (result.itemIds != null) {
+            return new ArrayList<Object>(result.itemIds.subList(first, first
+                    + nrOfItemsToFetch));
+        } else {
+            return container.getItemIds(filter, first, nrOfItemsToFetch);
+        }
+    }
+
+    /**
+     * Returns the cached result of the given filter, evaluating it if needed.
+     */
+    private FilterResult getFilterResult(Container.FilteredIndexed container,
+            Filter filter) {
+        FilterResult result = filterResults.get(filter);
+        if (result != null) {
+            return result;
+        }
+        // Narrowing down needs the items, which are cheap to get only from
+        // in-memory containers. Other containers evaluate the filter
+        // themselves, e.g. in the database.
+        boolean inMemory = container instanceof AbstractInMemoryContainer;
+        List<?> itemIds = inMemory ? narrowCachedResult(container, filter)
+                : null;
+        if (itemIds != null) {
+            result = new FilterResult(itemIds.size(), itemIds);
+        } else {
+            int size = container.size(filter);
+            if (inMemory && size <= MAX_CACHED_FILTER_RESULT) {
+                itemIds = container.getItemIds(filter, 0, size);
+            }
+            result = new FilterResult(size, itemIds);
+        }
+        filterResults.put(filter, result);
+        return result;
+    }
+
+    /**
+     * Finds the options passing the given filter among the cached options of
+     * a less restrictive filter, i.e. a filter for the beginning of the
+     * current filter string.
+     * 
+     * @return the options passing the filter, or null if there is no suitable
+     *         cached result
+     */
+    private List<?> narrowCachedResult(Container container, Filter filter) {
+        if (!(filter instanceof SimpleStringFilter)) {
+            return null;
+        }
+        SimpleStringFilter narrower = (SimpleStringFilter) filter;
+        List<?> candidates = null;
+        for (Map.Entry<Filter, FilterResult> entry : filterResults.entrySet()) {
+            List<?> itemIds = entry.getValue().itemIds;
+            if (itemIds != null
+                    && (candidates == null || itemIds.size() < candidates
+                            .size())
+                    && isNarrowedBy(entry.getKey(), narrower)) {
+                candidates = itemIds;
+            }
+        }
+        if (candidates == null) {
+            return null;
+        }
+        List<Object> itemIds = new ArrayList<Object>();
+        for (Object itemId : candidates) {
+            Item item = container.getItem(itemId);
+            if (item != null && filter.passesFilter(itemId, item)) {
+                itemIds.add(itemId);
+            }
+        }
+        return itemIds;
+    }
+
+    /**
+     * Checks whether every item passing the narrower filter also passes the
+     * given filter.
+     */
+    private static boolean isNarrowedBy(Filter filter,
+            SimpleStringFilter narrower) {
+        if (!(filter instanceof SimpleStringFilter)) {
+            return false;
+        }
+        SimpleStringFilter wider = (SimpleStringFilter) filter;
+        return wider.isIgnoreCase() == narrower.isIgnoreCase()
+                && wider.isOnlyMatchPrefix() == narrower.isOnlyMatchPrefix()
+                && wider.getPropertyId().equals(narrower.getPropertyId())
+                && narrower.getFilterString().startsWith(
+                        wider.getFilterString());
+    }
+
+    /**
+     * The number of options passing a filter and, if cached, their ids.
+     */
+    private static class FilterResult implements Serializable {
+        private final int size;
+        private final List<?> itemIds;
+
+        private FilterResult(int size, List<?> itemIds) {
+            this.size = size;
+            this.itemIds = itemIds;
+        }
+    }
+
+    /**
+     * Discards the cached results of the recent filters. The options are
+     * filtered again when needed.
+     * 
+     * @since 7.2
+     */
+    @Override
+    public void evictCaches() {
+        filterResults.clear();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        filterResults = new FilterResultCache();
+    }
+
+    /**
+     * Least recently used cache of filter results.
+     */
+    private static class FilterResultCache extends
+            LinkedHashMap<Filter, FilterResult> {
+
+        private FilterResultCache() {
+            super(FILTER_RESULT_CACHE_SIZE, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Filter, FilterResult> eldest) {
+            return size() > FILTER_RESULT_CACHE_SIZE;
+        }
+    }
+
     /**
      * Constructs a filter instance to use when using a Filterable container in
      * the <code>ITEM_CAPTION_MODE_PROPERTY</code> mode.
@@ -441,9 +673,25 @@ public class ComboBox extends AbstractSelect implements
         return filter;
     }
 
+    @Override
+    public void setContainerDataSource(Container newDataSource) {
+        // Called by the super constructor before the cache is initialized
+        if (filterResults != null) {
+            filterResults.clear();
+        }
+        super.setContainerDataSource(newDataSource);
+    }
+
+    @Override
+    void itemCaptionChanged(Object itemId) {
+        filterResults.clear();
+        super.itemCaptionChanged(itemId);
+    }
+
     @Override
     public void containerItemSetChange(Container.ItemSetChangeEvent event) {
         if (!isPainting) {
+            filterResults.clear();
             super.containerItemSetChange(event);
         }
     }
@@ -645,6 +893,8 @@ public class ComboBox extends AbstractSelect implements
 
         // Selection change
         if (variables.containsKey("selected")) {
+            // The popup is closed, captions may change before it is reopened
+            filterResults.clear();
             final String[] ka = (String[]) variables.get("selected");
 
             // Single select mode
@@ -670,10 +920,19 @@ public class ComboBox extends AbstractSelect implements
         if ((newFilter = (String) variables.get("filter")) != null) {
             // this is a filter request
             currentPage = ((Integer) variables.get("page")).intValue();
+            String oldFilter = filterstring;
             filterstring = newFilter;
             if (filterstring != null) {
                 filterstring = filterstring.toLowerCase();
             }
+            if (oldFilter == null || filterstring == null
+                    || !filterstring.startsWith(oldFilter)) {
+                /*
+                 * Not typing further or paging, the cached results may be
+                 * outdated
+                 */
+                filterResults.clear();
+            }
             requestRepaint();
         } else if (isNewItemsAllowed()) {
             // New option entered (and it is allowed)
@@ -698,6 +957,7 @@ public class ComboBox extends AbstractSelect implements
     @Override
     public void setFilteringMode(FilteringMode filteringMode) {
         this.filteringMode = filteringMode;
+        filterResults.clear();
     }
 
     @Override
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A list of unique item ids supporting positional access, lookup of the index
+ * of an id and insertion and removal of ranges of ids in logarithmic time. Used
+ * by {@link TreeTable} to keep track of the visible items in preorder when
+ * nodes are expanded and collapsed.
+ * <p>
+ * The ids are stored in a treap ordered by position, where each node knows the
+ * size of its subtree. A map from id to node allows finding the index of an id
+ * by walking up to the root.
+ * <p>
+ * The list can be modified only using {@link #addAll(int, Collection)},
+ * {@link #removeRange(int, int)} and {@link #clear()}.
+ * 
+ * @since 7.2
+ */
+class IndexedItemIdList extends AbstractList<Object> implements Serializable {
+
+    private static class Node implements Serializable {
+        private final Object itemId;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private Node parent;
+        private int size = 1;
+
+        private Node(Object itemId, int priority) {
+            this.itemId = itemId;
+            this.priority = priority;
+        }
+    }
+
+    private final HashMap<Object, Node> nodes = new HashMap<Object, Node>();
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Creates an empty list.
+     */
+    IndexedItemIdList() {
+    }
+
+    /**
+     * Creates a list containing the given item ids.
+     * 
+     * @param itemIds
+     *            the unique item ids in list order
+     */
+    IndexedItemIdList(Collection<?> itemIds) {
+        addAll(0, itemIds);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.itemId;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int indexOf(Object itemId) {
+        Node node = nodes.get(itemId);
+        if (node == null) {
+            return -1;
+        }
+        int index = size(node.left);
+        while (node.parent != null) {
+            if (node == node.parent.right) {
+                index += size(node.parent.left) + 1;
+            }
+            node = node.parent;
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object itemId) {
+        return indexOf(itemId);
+    }
+
+    @Override
+    public boolean contains(Object itemId) {
+        return nodes.containsKey(itemId);
+    }
+
+    /**
+     * Returns the item id following the given id.
+     * 
+     * @param itemId
+     *            the item id
+     * @return the next item id, or null if the given id is the last one or not
+     *         in the list
+     */
+    public Object next(Object itemId) {
+        Node node = nodes.get(itemId);
+        if (node == null) {
+            return null;
+        }
+        Node next = successor(node);
+        return next == null ? null : next.itemId;
+    }
+
+    /**
+     * Returns the item id preceding the given id.
+     * 
+     * @param itemId
+     *            the item id
+     * @return the previous item id, or null if the given id is the first one
+     *         or not in the list
+     */
+    public Object previous(Object itemId) {
+        Node node = nodes.get(itemId);
+        if (node == null) {
+            return null;
+        }
+        if (node.left != null) {
+            node = node.left;
+            while (node.right != null) {
+                node = node.right;
+            }
+            return node.itemId;
+        }
+        while (node.parent != null && node == node.parent.left) {
+            node = node.parent;
+        }
+        return node.parent == null ? null : node.parent.itemId;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<?> itemIds) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size());
+        }
+        if (itemIds.isEmpty()) {
+            return false;
+        }
+        Node added = build(itemIds);
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], added), parts[1]);
+        root.parent = null;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<?> itemIds) {
+        return addAll(size(), itemIds);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex
+                    + ", To: " + toIndex + ", Size: " + size());
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        Node[] head = split(root, fromIndex);
+        Node[] tail = split(head[1], toIndex - fromIndex);
+        unregister(tail[0]);
+        root = merge(head[0], tail[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodes.clear();
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new ItemIdIterator();
+    }
+
+    private class ItemIdIterator implements Iterator<Object>, Serializable {
+        private Node next = first();
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Object next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Object itemId = next.itemId;
+            next = successor(next);
+            return itemId;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private Node first() {
+        Node node = root;
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node successor(Node node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+        while (node.parent != null && node == node.parent.right) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    /**
+     * Splits the given subtree into the first count nodes and the rest. The
+     * parent references of the returned roots are not updated.
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (size(node.left) >= count) {
+            parts = split(node.left, count);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+        } else {
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+        }
+        return parts;
+    }
+
+    /**
+     * Concatenates the given subtrees. The parent reference of the returned
+     * root is not updated.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    /**
+     * Builds a subtree of the given ids in linear time.
+     */
+    private Node build(Collection<?> itemIds) {
+        for (Object itemId : itemIds) {
+            if (nodes.containsKey(itemId)) {
+                throw new IllegalArgumentException("Item id " + itemId
+                        + " is already in the list");
+            }
+        }
+        List<Node> rightSpine = new ArrayList<Node>();
+        int added = 0;
+        for (Object itemId : itemIds) {
+            Node node = new Node(itemId, random.nextInt());
+            if (nodes.put(itemId, node) != null) {
+                Iterator<?> addedIds = itemIds.iterator();
+                for (int i = 0; i < added; i++) {
+                    nodes.remove(addedIds.next());
+                }
+                throw new IllegalArgumentException("Item id " + itemId
+                        + " is listed twice");
+            }
+            added++;
+            Node lastPopped = null;
+            while (!rightSpine.isEmpty()
+                    && rightSpine.get(rightSpine.size() - 1).priority < node.priority) {
+                lastPopped = rightSpine.remove(rightSpine.size() - 1);
+            }
+            node.left = lastPopped;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.get(rightSpine.size() - 1).right = node;
+            }
+            rightSpine.add(node);
+        }
+        Node subtreeRoot = rightSpine.get(0);
+        updateSizes(subtreeRoot);
+        subtreeRoot.parent = null;
+        return subtreeRoot;
+    }
+
+    private static void updateSizes(Node node) {
+        if (node.left != null) {
+            updateSizes(node.left);
+        }
+        if (node.right != null) {
+            updateSizes(node.right);
+        }
+        update(node);
+    }
+
+    private void unregister(Node node) {
+        if (node != null) {
+            nodes.remove(node.itemId);
+            unregister(node.left);
+            unregister(node.right);
+        }
+    }
+}
@@ -110,6 +110,16 @@ public class ListSelect extends AbstractSelect {
         }
     }
 
+    @Override
+    public void setOptionPageLength(int optionPageLength) {
+        super.setOptionPageLength(optionPageLength);
+    }
+
+    @Override
+    public int getOptionPageLength() {
+        return super.getOptionPageLength();
+    }
+
     @Override
     public void paintContent(PaintTarget target) throws PaintException {
         target.addAttribute("type", "list");
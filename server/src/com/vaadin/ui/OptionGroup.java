@@ -76,6 +76,16 @@ public class OptionGroup extends AbstractSelect implements
         }
     }
 
+    @Override
+    public void setOptionPageLength(int optionPageLength) {
+        super.setOptionPageLength(optionPageLength);
+    }
+
+    @Override
+    public int getOptionPageLength() {
+        return super.getOptionPageLength();
+    }
+
     @Override
     public void changeVariables(Object source, Map<String, Object> variables) {
         super.changeVariables(source, variables);
@@ -19,6 +19,7 @@ package com.vaadin.ui;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,6 +32,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,15 +62,18 @@ import com.vaadin.event.dd.DragSource;
 import com.vaadin.event.dd.DropHandler;
 import com.vaadin.event.dd.DropTarget;
 import com.vaadin.event.dd.acceptcriteria.ServerSideCriterion;
+import com.vaadin.server.CacheEvictable;
 import com.vaadin.server.KeyMapper;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyPaint;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
 import com.vaadin.server.Resource;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.MouseEventDetails;
 import com.vaadin.shared.ui.MultiSelectMode;
 import com.vaadin.shared.ui.table.TableConstants;
+import com.vaadin.util.CurrentInstance;
 
 /**
  * <p>
@@ -87,7 +99,7 @@ import com.vaadin.shared.ui.table.TableConstants;
 @SuppressWarnings({ "deprecation" })
 public class Table extends AbstractSelect implements Action.Container,
         Container.Ordered, Container.Sortable, ItemClickNotifier, DragSource,
-        DropTarget, HasComponents {
+        DropTarget, HasComponents, CacheEvictable {
 
     private transient Logger logger = null;
 
@@ -340,10 +352,25 @@ public class Table extends AbstractSelect implements Action.Container,
      */
     private static final double CACHE_RATE_DEFAULT = 2;
 
+    /**
+     * The default time in milliseconds to wait for cells generated on the
+     * column generator executor.
+     * 
+     * @since 7.2
+     */
+    public static final long DEFAULT_COLUMN_GENERATOR_TIMEOUT = 1000;
+
     private static final String ROW_HEADER_COLUMN_KEY = "0";
     private static final Object ROW_HEADER_FAKE_PROPERTY_ID = new UniqueSerializable() {
     };
 
+    /**
+     * Item id stored for a listened property shown in more than one row. A
+     * change of such a property refreshes the whole row cache.
+     */
+    private static final Object SHARED_PROPERTY_ITEM_ID = new UniqueSerializable() {
+    };
+
     /* Private table extensions to Select */
 
     /**
@@ -463,11 +490,84 @@ public class Table extends AbstractSelect implements Action.Container,
      */
     private HashSet<Property<?>> listenedProperties = null;
 
+    /**
+     * Item ids of the listened properties, used to find the row to update
+     * when the value of a property changes. Properties shown in several rows
+     * are mapped to {@link #SHARED_PROPERTY_ITEM_ID}.
+     */
+    private HashMap<Property<?>, Object> listenedPropertyItemIds = null;
+
+    /**
+     * True if the table does not listen to the properties of the rendered
+     * cells.
+     */
+    private boolean lightweightRendering = false;
+
+    /**
+     * Ids of the items whose rows need to be refreshed because of property
+     * value changes, or null if there are none.
+     */
+    private HashSet<Object> changedRowItemIds = null;
+
+    /**
+     * The first index and the number of rows refreshed because of property
+     * value changes and to be sent to the client in the next response.
+     */
+    private int firstChangedRowIndex = -1;
+    private int changedRowCount = 0;
+
     /**
      * Set of visible components - the is used for needsRepaint calculation.
      */
     private HashSet<Component> visibleComponents = null;
 
+    /**
+     * Cleared listener collections of the previous cache refresh, reused in
+     * the next refresh instead of allocating new ones.
+     */
+    private transient HashSet<Property<?>> spareListenedProperties = null;
+    private transient HashMap<Property<?>, Object> spareListenedPropertyItemIds = null;
+    private transient HashSet<Component> spareVisibleComponents = null;
+
+    /**
+     * The page buffer array replaced in the previous cache update, cleared
+     * and reused for the next page buffer of the same size.
+     */
+    private transient Object[][] sparePageBuffer = null;
+
+    private final RowCacheStatistics rowCacheStatistics = new RowCacheStatistics();
+
+    private transient Executor sortExecutor = null;
+
+    /**
+     * The sort running on the sort executor, or null if none.
+     */
+    private transient Container.SortTask pendingSort = null;
+
+    private transient Executor columnGeneratorExecutor = null;
+    private long columnGeneratorTimeout = DEFAULT_COLUMN_GENERATOR_TIMEOUT;
+    private String columnGeneratorPlaceholder = "";
+
+    /**
+     * Cells of concurrent column generators to be generated on the executor
+     * after the rows being rendered have been parsed, or null if the cells
+     * are generated one at a time.
+     */
+    private transient List<GeneratedCell> pendingGeneratedCells = null;
+
+    /**
+     * Ids of the items whose rows show a placeholder because a generated cell
+     * was not ready in time. These rows are not recycled from the cache.
+     */
+    private HashSet<Object> placeholderItemIds = null;
+
+    /**
+     * Values of generated cells that were completed after the timeout, by
+     * item id and column id, to be used when their rows are refreshed instead
+     * of generating the cells again.
+     */
+    private transient Map<Object, Map<Object, Object>> lateGeneratedCells = null;
+
     /**
      * List of action handlers.
      */
@@ -545,6 +645,12 @@ public class Table extends AbstractSelect implements Action.Container,
 
     private double cacheRate = CACHE_RATE_DEFAULT;
 
+    /*
+     * True if the rows outside the current page have been evicted from the
+     * cache and are not cached until the client sends a variable change
+     */
+    private boolean rowCacheEvicted = false;
+
     private TableDragMode dragMode = TableDragMode.NONE;
 
     private DropHandler dropHandler;
@@ -1051,6 +1157,10 @@ public class Table extends AbstractSelect implements Action.Container,
      * The amount of cached rows will be cacheRate multiplied with pageLength (
      * {@link #setPageLength(int)} both below and above visible area..
      * 
+     * <p>
+     * If a {@link TableRowCacheBudget} is set for the session, a smaller cache
+     * rate is used when caching the rows would exceed the budget.
+     * 
      * @param cacheRate
      *            a value over 0 (fastest rendering time). Higher value will
      *            cache more rows on server (smoother scrolling). Default value
@@ -1076,6 +1186,335 @@ public class Table extends AbstractSelect implements Action.Container,
         return cacheRate;
     }
 
+    /**
+     * Enables or disables lightweight rendering of the table cells. In
+     * lightweight mode the table only keeps the formatted cell values of the
+     * cached rows and does not register a value change listener on the
+     * property of each rendered cell. This reduces the memory used by large
+     * read-only tables considerably.
+     * <p>
+     * As the table does not listen to the cell properties, changes to
+     * property values are not shown automatically. The table is still
+     * refreshed when the container fires an item set change or a property set
+     * change event. Call {@link #refreshRowCache()} to show other changes.
+     * Cells containing components, such as those of generated columns, columns
+     * of component type and fields of an editable table, are rendered as
+     * usual.
+     * <p>
+     * Use a small cache rate to further limit the number of rows kept on the
+     * server.
+     * 
+     * @see #setCacheRate(double)
+     * @param lightweightRendering
+     *            true to render the cells without listening to their
+     *            properties, false to listen to the properties and refresh
+     *            the cells when their values change
+     * @since 7.2
+     */
+    public void setLightweightRendering(boolean lightweightRendering) {
+        if (this.lightweightRendering != lightweightRendering) {
+            this.lightweightRendering = lightweightRendering;
+            refreshRowCache();
+        }
+    }
+
+    /**
+     * Checks whether the table cells are rendered in lightweight mode.
+     * 
+     * @see #setLightweightRendering(boolean)
+     * @return true if the table does not listen to the properties of the
+     *         rendered cells, false otherwise
+     * @since 7.2
+     */
+    public boolean isLightweightRendering() {
+        return lightweightRendering;
+    }
+
+    /**
+     * Returns the cache rate actually used, limited by the row cache budget
+     * of the session if there is one.
+     * 
+     * @return the cache rate in use
+     */
+    private double getEffectiveCacheRate() {
+        if (rowCacheEvicted) {
+            return 0;
+        }
+        TableRowCacheBudget budget = getRowCacheBudget();
+        if (budget == null) {
+            return cacheRate;
+        }
+        return budget.getCacheRate(this, getPageLength(),
+                visibleColumns.size(), cacheRate);
+    }
+
+    /**
+     * Evicts the cached rows outside the current page. The rows are removed
+     * from the cache without reading the container or repainting the table,
+     * and the listeners and components of the removed rows are unregistered.
+     * The table caches only the rows currently shown until the client sends
+     * the next variable change, after which rows are cached according to the
+     * cache rate again.
+     * 
+     * @see #setCacheRate(double)
+     * @since 7.2
+     */
+    @Override
+    public void evictCaches() {
+        if (rowCacheEvicted || getPageLength() == 0) {
+            return;
+        }
+        rowCacheEvicted = true;
+        trimPageBuffer();
+        // The spare collections are as large as the evicted cache
+        sparePageBuffer = null;
+        spareListenedProperties = null;
+        spareListenedPropertyItemIds = null;
+        spareVisibleComponents = null;
+    }
+
+    /**
+     * Removes the rows outside the current page and the row before it from the
+     * page buffer.
+     */
+    private void trimPageBuffer() {
+        if (pageBuffer == null) {
+            return;
+        }
+        int bufferRows = pageBuffer[CELL_ITEMID].length;
+        // The row before the page is kept as when first rendered, see #8805
+        int first = Math.max(getCurrentPageFirstItemIndex() - 1,
+                pageBufferFirstIndex);
+        int end = Math.min(getCurrentPageFirstItemIndex() + getPageLength(),
+                pageBufferFirstIndex + bufferRows);
+        if (first >= end || end - first == bufferRows) {
+            // The current page is not cached or nothing to evict
+            return;
+        }
+
+        Object[] colids = getVisibleColumns();
+        HashSet<Object> evictedItemIds = new HashSet<Object>();
+        for (int i = 0; i < bufferRows; i++) {
+            int index = pageBufferFirstIndex + i;
+            if (index >= first && index < end) {
+                continue;
+            }
+            evictedItemIds.add(pageBuffer[CELL_ITEMID][i]);
+            for (int c = 0; c < colids.length; c++) {
+                Object cellVal = pageBuffer[CELL_FIRSTCOL + c][i];
+                if (cellVal instanceof Component
+                        && visibleComponents.remove(cellVal)) {
+                    unregisterComponent((Component) cellVal);
+                }
+            }
+        }
+        if (listenedPropertyItemIds != null) {
+            for (Iterator<Map.Entry<Property<?>, Object>> i = listenedPropertyItemIds
+                    .entrySet().iterator(); i.hasNext();) {
+                Map.Entry<Property<?>, Object> entry = i.next();
+                if (evictedItemIds.contains(entry.getValue())) {
+                    listenedProperties.remove(entry.getKey());
+                    ((ValueChangeNotifier) entry.getKey()).removeListener(this);
+                    i.remove();
+                }
+            }
+        }
+
+        Object[][] trimmed = new Object[pageBuffer.length][end - first];
+        for (int c = 0; c < pageBuffer.length; c++) {
+            System.arraycopy(pageBuffer[c], first - pageBufferFirstIndex,
+                    trimmed[c], 0, end - first);
+        }
+        pageBuffer = trimmed;
+        pageBufferFirstIndex = first;
+
+        TableRowCacheBudget budget = getRowCacheBudget();
+        if (budget != null) {
+            budget.setCachedCells(this, pageBuffer[CELL_ITEMID].length
+                    * visibleColumns.size());
+        }
+    }
+
+    private TableRowCacheBudget getRowCacheBudget() {
+        VaadinSession session = getSession();
+        return session == null ? null : TableRowCacheBudget.get(session);
+    }
+
+    /**
+     * Sets the executor used to generate the cells of
+     * {@link ConcurrentColumnGenerator}s in parallel. When an executor is set,
+     * the concurrent generated cells of all the rows being rendered are
+     * submitted to the executor together and the request thread waits at
+     * most {@link #getColumnGeneratorTimeout()} milliseconds for them. Cells
+     * not generated in time show the
+     * {@link #setColumnGeneratorPlaceholder(String) placeholder} and their
+     * generators are interrupted. If such a generator still returns a value,
+     * the row is refreshed with it in {@link VaadinSession#access(Runnable)}.
+     * <p>
+     * The executor should use a bounded number of threads shared by the
+     * tables of the application. If the executor rejects a cell, the cell is
+     * generated in the request thread. The executor is not serialized with
+     * the table.
+     * 
+     * @param executor
+     *            the executor to use, or null to generate all cells in the
+     *            request thread (the default)
+     * @since 7.2
+     */
+    public void setColumnGeneratorExecutor(Executor executor) {
+        columnGeneratorExecutor = executor;
+    }
+
+    /**
+     * Returns the executor used to generate the cells of
+     * {@link ConcurrentColumnGenerator}s in parallel.
+     * 
+     * @see #setColumnGeneratorExecutor(Executor)
+     * @return the executor, or null if all cells are generated in the request
+     *         thread
+     * @since 7.2
+     */
+    public Executor getColumnGeneratorExecutor() {
+        return columnGeneratorExecutor;
+    }
+
+    /**
+     * Sets the executor used to sort {@link Container.CancellableSortable}
+     * containers in the background. When an executor is set and the table is
+     * attached, sorting the table computes the new order of the items on the
+     * executor without holding the session lock, and the table keeps showing
+     * the items in the old order until the new order is applied using
+     * {@link VaadinSession#access(Runnable)}. Sorting again before the
+     * previous sort has been applied cancels the previous sort.
+     * <p>
+     * Use {@link #isSortPending()} and {@link #getSortProgress()} e.g. to show
+     * the progress of the sort to the user. To see the sorted items without
+     * waiting for another request, enable server push or polling.
+     * <p>
+     * If the executor rejects the sort, the container is sorted in the
+     * request thread. The executor is not serialized with the table.
+     * 
+     * @param executor
+     *            the executor to use, or null to sort in the request thread
+     *            (the default)
+     * @since 7.2
+     */
+    public void setSortExecutor(Executor executor) {
+        sortExecutor = executor;
+    }
+
+    /**
+     * Returns the executor used to sort the container in the background.
+     * 
+     * @see #setSortExecutor(Executor)
+     * @return the executor, or null if sorting in the request thread
+     * @since 7.2
+     */
+    public Executor getSortExecutor() {
+        return sortExecutor;
+    }
+
+    /**
+     * Checks whether a sort is running on the sort executor and has not been
+     * applied yet.
+     * 
+     * @see #setSortExecutor(Executor)
+     * @return true if the items are being sorted in the background
+     * @since 7.2
+     */
+    public boolean isSortPending() {
+        return pendingSort != null;
+    }
+
+    /**
+     * Returns an estimate of how much of the pending background sort has been
+     * completed.
+     * 
+     * @see #setSortExecutor(Executor)
+     * @return a number between 0 and 1, or 1 if no sort is pending
+     * @since 7.2
+     */
+    public float getSortProgress() {
+        return pendingSort == null ? 1 : pendingSort.getProgress();
+    }
+
+    /**
+     * Cancels the pending background sort, if any. The items stay in the
+     * order they were in before the cancelled sort.
+     * 
+     * @see #setSortExecutor(Executor)
+     * @since 7.2
+     */
+    public void cancelSort() {
+        if (pendingSort != null) {
+            pendingSort.cancel();
+            pendingSort = null;
+        }
+    }
+
+    /**
+     * Sets how long the request thread waits for the cells generated on the
+     * {@link #setColumnGeneratorExecutor(Executor) column generator executor}
+     * when rendering rows. The default is
+     * {@value #DEFAULT_COLUMN_GENERATOR_TIMEOUT} milliseconds.
+     * 
+     * @param timeout
+     *            the time to wait in milliseconds, not negative
+     * @since 7.2
+     */
+    public void setColumnGeneratorTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException(
+                    "timeout cannot be less than zero");
+        }
+        columnGeneratorTimeout = timeout;
+    }
+
+    /**
+     * @see #setColumnGeneratorTimeout(long)
+     * 
+     * @return the time to wait for generated cells in milliseconds
+     * @since 7.2
+     */
+    public long getColumnGeneratorTimeout() {
+        return columnGeneratorTimeout;
+    }
+
+    /**
+     * Sets the text shown in cells of {@link ConcurrentColumnGenerator}s that
+     * were not generated within the
+     * {@link #setColumnGeneratorTimeout(long) timeout}. The default is an
+     * empty string.
+     * 
+     * @param placeholder
+     *            the text to show instead of the generated cell
+     * @since 7.2
+     */
+    public void setColumnGeneratorPlaceholder(String placeholder) {
+        columnGeneratorPlaceholder = placeholder;
+    }
+
+    /**
+     * @see #setColumnGeneratorPlaceholder(String)
+     * 
+     * @return the text shown instead of cells not generated in time
+     * @since 7.2
+     */
+    public String getColumnGeneratorPlaceholder() {
+        return columnGeneratorPlaceholder;
+    }
+
+    /**
+     * Returns statistics about the rows cached by this table. The returned
+     * object is updated as the table refreshes its cache.
+     * 
+     * @return the row cache statistics of this table
+     * @since 7.2
+     */
+    public RowCacheStatistics getRowCacheStatistics() {
+        return rowCacheStatistics;
+    }
+
     /**
      * Getter for property currentPageFirstItem.
      * 
@@ -1691,7 +2130,9 @@ public class Table extends AbstractSelect implements Action.Container,
         }
 
         // Saves the results to internal buffer
+        Object[][] oldPageBuffer = pageBuffer;
         pageBuffer = getVisibleCellsNoCache(firstIndex, rows, true);
+        recyclePageBuffer(oldPageBuffer);
 
         if (rows > 0) {
             pageBufferFirstIndex = firstIndex;
@@ -1700,6 +2141,12 @@ public class Table extends AbstractSelect implements Action.Container,
             removeUnnecessaryRows();
         }
 
+        TableRowCacheBudget budget = getRowCacheBudget();
+        if (budget != null) {
+            budget.setCachedCells(this, pageBuffer[CELL_ITEMID].length
+                    * visibleColumns.size());
+        }
+
         setRowCacheInvalidated(true);
         markAsDirty();
         maybeThrowCacheUpdateExceptions();
@@ -1764,6 +2211,58 @@ public class Table extends AbstractSelect implements Action.Container,
 
     }
 
+    /**
+     * Statistics about the rows cached by a table, for monitoring the cost of
+     * refreshing the row cache.
+     * 
+     * @see Table#getRowCacheStatistics()
+     * @since 7.2
+     */
+    public static class RowCacheStatistics implements Serializable {
+        private long renderedRows;
+        private long cacheHits;
+        private long generatedCells;
+
+        /**
+         * Returns the number of rows read from the container into the row
+         * cache.
+         * 
+         * @return the number of rendered rows
+         */
+        public long getRenderedRowCount() {
+            return renderedRows;
+        }
+
+        /**
+         * Returns the number of rows reused from the row cache instead of
+         * being read again from the container when refreshing the cache.
+         * 
+         * @return the number of cache hits
+         */
+        public long getCacheHitCount() {
+            return cacheHits;
+        }
+
+        /**
+         * Returns the number of cells generated using a
+         * {@link ColumnGenerator}.
+         * 
+         * @return the number of generated cells
+         */
+        public long getGeneratedCellCount() {
+            return generatedCells;
+        }
+
+        /**
+         * Resets all the counters to zero.
+         */
+        public void reset() {
+            renderedRows = 0;
+            cacheHits = 0;
+            generatedCells = 0;
+        }
+    }
+
     /**
      * Removes rows that fall outside the required cache.
      */
@@ -1901,7 +2400,8 @@ public class Table extends AbstractSelect implements Action.Container,
          * buffer, moving the following rows upwards and appending more rows if
          * applicable.
          */
-        Object[][] newPageBuffer = new Object[pageBuffer.length][newCachedRowCount];
+        Object[][] newPageBuffer = allocatePageBuffer(pageBuffer.length,
+                newCachedRowCount);
 
         for (int i = 0; i < pageBuffer.length; i++) {
             for (int row = 0; row < firstIndexInPageBuffer; row++) {
@@ -1919,6 +2419,7 @@ public class Table extends AbstractSelect implements Action.Container,
                         - firstAppendedRowInPageBuffer];
             }
         }
+        recyclePageBuffer(pageBuffer);
         pageBuffer = newPageBuffer;
     }
 
@@ -2038,7 +2539,8 @@ public class Table extends AbstractSelect implements Action.Container,
          * Create the new cache buffer and fill it with the data from the old
          * buffer as well as the inserted rows.
          */
-        Object[][] newPageBuffer = new Object[pageBuffer.length][newCachedRowCount];
+        Object[][] newPageBuffer = allocatePageBuffer(pageBuffer.length,
+                newCachedRowCount);
 
         for (int i = 0; i < pageBuffer.length; i++) {
             for (int row = 0; row < firstIndexInNewPageBuffer; row++) {
@@ -2057,6 +2559,7 @@ public class Table extends AbstractSelect implements Action.Container,
                         - rows];
             }
         }
+        recyclePageBuffer(pageBuffer);
         pageBuffer = newPageBuffer;
         pageBufferFirstIndex = Math.max(pageBufferFirstIndex
                 + rowsFromBeginning, minPageBufferIndex);
@@ -2082,7 +2585,7 @@ public class Table extends AbstractSelect implements Action.Container,
         // Page buffer must not become larger than pageLength*cacheRate after
         // the current page
         int maxPageBufferIndex = getCurrentPageFirstItemIndex()
-                + (int) (getPageLength() * (1 + getCacheRate()));
+                + (int) (getPageLength() * (1 + getEffectiveCacheRate()));
         if (shouldHideNullSelectionItem()) {
             --total;
         }
@@ -2100,7 +2603,7 @@ public class Table extends AbstractSelect implements Action.Container,
         // Page buffer must not become larger than pageLength*cacheRate before
         // the current page
         int minPageBufferIndex = getCurrentPageFirstItemIndex()
-                - (int) (getPageLength() * getCacheRate());
+                - (int) (getPageLength() * getEffectiveCacheRate());
         if (minPageBufferIndex < 0) {
             minPageBufferIndex = 0;
         }
@@ -2129,19 +2632,24 @@ public class Table extends AbstractSelect implements Action.Container,
         final int cols = colids.length;
 
         HashSet<Property<?>> oldListenedProperties = listenedProperties;
+        HashMap<Property<?>, Object> oldListenedPropertyItemIds = listenedPropertyItemIds;
         HashSet<Component> oldVisibleComponents = visibleComponents;
 
         if (replaceListeners) {
             // initialize the listener collections, this should only be done if
             // the entire cache is refreshed (through refreshRenderedCells)
-            listenedProperties = new HashSet<Property<?>>();
-            visibleComponents = new HashSet<Component>();
+            initListenerCollections();
         }
 
-        Object[][] cells = new Object[cols + CELL_FIRSTCOL][rows];
+        Object[][] cells = replaceListeners ? allocatePageBuffer(cols
+                + CELL_FIRSTCOL, rows) : new Object[cols + CELL_FIRSTCOL][rows];
         if (rows == 0) {
             unregisterPropertiesAndComponents(oldListenedProperties,
                     oldVisibleComponents);
+            if (replaceListeners) {
+                recycleListenerCollections(oldListenedProperties,
+                        oldListenedPropertyItemIds, oldVisibleComponents);
+            }
             return cells;
         }
 
@@ -2159,6 +2667,10 @@ public class Table extends AbstractSelect implements Action.Container,
             firstIndexNotInCache = -1;
         }
 
+        if (columnGeneratorExecutor != null) {
+            pendingGeneratedCells = new ArrayList<GeneratedCell>();
+        }
+
         // Creates the page contents
         int filledRows = 0;
         if (items instanceof Container.Indexed) {
@@ -2198,6 +2710,12 @@ public class Table extends AbstractSelect implements Action.Container,
             }
         }
 
+        if (pendingGeneratedCells != null) {
+            List<GeneratedCell> generatedCells = pendingGeneratedCells;
+            pendingGeneratedCells = null;
+            generateCellsConcurrently(cells, generatedCells);
+        }
+
         // Assures that all the rows of the cell-buffer are valid
         if (filledRows != cells[0].length) {
             final Object[][] temp = new Object[cells.length][filledRows];
@@ -2211,10 +2729,80 @@ public class Table extends AbstractSelect implements Action.Container,
 
         unregisterPropertiesAndComponents(oldListenedProperties,
                 oldVisibleComponents);
+        if (replaceListeners) {
+            recycleListenerCollections(oldListenedProperties,
+                    oldListenedPropertyItemIds, oldVisibleComponents);
+        }
 
         return cells;
     }
 
+    /**
+     * Returns an empty page buffer array of the given size, reusing the array
+     * replaced in the previous cache update if it has the same size.
+     */
+    private Object[][] allocatePageBuffer(int columns, int rows) {
+        Object[][] buffer = sparePageBuffer;
+        sparePageBuffer = null;
+        if (buffer != null && buffer.length == columns
+                && buffer[CELL_ITEMID].length == rows) {
+            return buffer;
+        }
+        return new Object[columns][rows];
+    }
+
+    /**
+     * Clears a page buffer array that is no longer used and keeps it for
+     * reuse in the next cache update.
+     */
+    private void recyclePageBuffer(Object[][] buffer) {
+        if (buffer == null || buffer == pageBuffer) {
+            return;
+        }
+        for (Object[] column : buffer) {
+            Arrays.fill(column, null);
+        }
+        sparePageBuffer = buffer;
+    }
+
+    /**
+     * Initializes empty listener collections, reusing the ones cleared after
+     * the previous refresh if available.
+     */
+    private void initListenerCollections() {
+        listenedProperties = spareListenedProperties != null ? spareListenedProperties
+                : new HashSet<Property<?>>();
+        listenedPropertyItemIds = spareListenedPropertyItemIds != null ? spareListenedPropertyItemIds
+                : new HashMap<Property<?>, Object>();
+        visibleComponents = spareVisibleComponents != null ? spareVisibleComponents
+                : new HashSet<Component>();
+        spareListenedProperties = null;
+        spareListenedPropertyItemIds = null;
+        spareVisibleComponents = null;
+    }
+
+    /**
+     * Clears the listener collections replaced in a refresh and keeps them
+     * for reuse in the next refresh.
+     */
+    private void recycleListenerCollections(
+            HashSet<Property<?>> oldListenedProperties,
+            HashMap<Property<?>, Object> oldListenedPropertyItemIds,
+            HashSet<Component> oldVisibleComponents) {
+        if (oldListenedProperties != null) {
+            oldListenedProperties.clear();
+            spareListenedProperties = oldListenedProperties;
+        }
+        if (oldListenedPropertyItemIds != null) {
+            oldListenedPropertyItemIds.clear();
+            spareListenedPropertyItemIds = oldListenedPropertyItemIds;
+        }
+        if (oldVisibleComponents != null) {
+            oldVisibleComponents.clear();
+            spareVisibleComponents = oldVisibleComponents;
+        }
+    }
+
     protected List<Object> getItemIds(int firstIndex, int rows) {
         return (List<Object>) ((Container.Indexed) items).getItemIds(
                 firstIndex, rows);
@@ -2259,6 +2847,25 @@ public class Table extends AbstractSelect implements Action.Container,
                 .generateRow(this, id) : null;
         cells[CELL_GENERATED_ROW][i] = generatedRow;
 
+        // check if current pageBuffer already has row
+        int index = firstIndex + i;
+        int indexInOldBuffer = index - pageBufferFirstIndex;
+        boolean rowInOldBuffer = generatedRow == null
+                && index < firstIndexNotInCache
+                && index >= pageBufferFirstIndex
+                && pageBuffer[CELL_GENERATED_ROW][indexInOldBuffer] == null
+                && id.equals(pageBuffer[CELL_ITEMID][indexInOldBuffer])
+                && (placeholderItemIds == null || !placeholderItemIds
+                        .contains(id));
+        if (!rowInOldBuffer && placeholderItemIds != null) {
+            placeholderItemIds.remove(id);
+        }
+        if (rowInOldBuffer) {
+            rowCacheStatistics.cacheHits++;
+        } else {
+            rowCacheStatistics.renderedRows++;
+        }
+
         for (int j = 0; j < cols; j++) {
             if (isColumnCollapsed(colids[j])) {
                 continue;
@@ -2288,31 +2895,41 @@ public class Table extends AbstractSelect implements Action.Container,
                     value = generatedRow.getText()[j];
                 }
             } else {
-                // check if current pageBuffer already has row
-                int index = firstIndex + i;
                 if (p != null || isGenerated) {
-                    int indexInOldBuffer = index - pageBufferFirstIndex;
-                    if (index < firstIndexNotInCache
-                            && index >= pageBufferFirstIndex
-                            && pageBuffer[CELL_GENERATED_ROW][indexInOldBuffer] == null
-                            && id.equals(pageBuffer[CELL_ITEMID][indexInOldBuffer])) {
+                    if (rowInOldBuffer) {
                         // we already have data in our cache,
                         // recycle it instead of fetching it via
                         // getValue/getPropertyValue
                         value = pageBuffer[CELL_FIRSTCOL + j][indexInOldBuffer];
                         if (!isGeneratedColumn && iscomponent[j]
-                                || !(value instanceof Component)) {
-                            listenProperty(p, oldListenedProperties);
+                                || !lightweightRendering
+                                && !(value instanceof Component)) {
+                            listenProperty(p, id, oldListenedProperties);
                         }
                     } else {
                         if (isGeneratedColumn) {
                             ColumnGenerator cg = columnGenerators
                                     .get(colids[j]);
-                            try {
-                                value = cg.generateCell(this, id, colids[j]);
-                            } catch (Exception e) {
-                                exceptionsDuringCachePopulation.add(e);
+                            rowCacheStatistics.generatedCells++;
+                            if (hasLateGeneratedCell(id, colids[j])) {
+                                value = lateGeneratedCells.get(id).remove(
+                                        colids[j]);
+                            } else if (pendingGeneratedCells != null
+                                    && cg instanceof ConcurrentColumnGenerator) {
+                                // Generated in parallel once all rows are
+                                // parsed
+                                pendingGeneratedCells.add(new GeneratedCell(
+                                        this, cg, id, colids[j], CELL_FIRSTCOL
+                                                + j, i));
                                 value = null;
+                            } else {
+                                try {
+                                    value = cg
+                                            .generateCell(this, id, colids[j]);
+                                } catch (Exception e) {
+                                    exceptionsDuringCachePopulation.add(e);
+                                    value = null;
+                                }
                             }
                             if (value != null && !(value instanceof Component)
                                     && !(value instanceof String)) {
@@ -2328,7 +2945,7 @@ public class Table extends AbstractSelect implements Action.Container,
                                 exceptionsDuringCachePopulation.add(e);
                                 value = null;
                             }
-                            listenProperty(p, oldListenedProperties);
+                            listenProperty(p, id, oldListenedProperties);
                         } else if (p != null) {
                             try {
                                 value = getPropertyValue(id, colids[j], p);
@@ -2342,10 +2959,11 @@ public class Table extends AbstractSelect implements Action.Container,
                              * listen property value changes. Otherwise if
                              * property emits value change events, table will
                              * start to listen them and refresh content when
-                             * needed.
+                             * needed, unless rendering in lightweight mode.
                              */
-                            if (!(value instanceof Component)) {
-                                listenProperty(p, oldListenedProperties);
+                            if (!lightweightRendering
+                                    && !(value instanceof Component)) {
+                                listenProperty(p, id, oldListenedProperties);
                             }
                         } else {
                             try {
@@ -2366,6 +2984,182 @@ public class Table extends AbstractSelect implements Action.Container,
         }
     }
 
+    /**
+     * Generates the given cells on the column generator executor and stores
+     * the results in the cell buffer. Cells not generated before the timeout
+     * get the placeholder text.
+     * 
+     * @param cells
+     *            the cell buffer being filled
+     * @param generatedCells
+     *            the cells to generate
+     */
+    private void generateCellsConcurrently(Object[][] cells,
+            List<GeneratedCell> generatedCells) {
+        if (generatedCells.isEmpty()) {
+            return;
+        }
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances(false);
+        VaadinSession session = getSession();
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(
+                generatedCells.size());
+        for (GeneratedCell cell : generatedCells) {
+            cell.instances = instances;
+            cell.session = session;
+            FutureTask<Object> task = new FutureTask<Object>(cell);
+            try {
+                columnGeneratorExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Generate in this thread if the executor is saturated
+                task.run();
+            }
+            tasks.add(task);
+        }
+
+        long deadline = System.currentTimeMillis() + columnGeneratorTimeout;
+        boolean interrupted = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            FutureTask<Object> task = tasks.get(i);
+            GeneratedCell cell = generatedCells.get(i);
+            Object value;
+            try {
+                if (interrupted) {
+                    throw new TimeoutException();
+                }
+                value = task.get(
+                        Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                value = timeOut(cell, task);
+            } catch (TimeoutException e) {
+                value = timeOut(cell, task);
+            } catch (CancellationException e) {
+                value = usePlaceholder(cell);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                exceptionsDuringCachePopulation
+                        .add(cause instanceof Exception ? (Exception) cause
+                                : e);
+                value = null;
+            }
+            if (value instanceof Component) {
+                registerComponent((Component) value);
+            } else if (value != null && !(value instanceof String)) {
+                value = value.toString();
+            }
+            cells[cell.column][cell.row] = value;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops waiting for a generated cell and interrupts its generator. If the
+     * generator still completes, its row is refreshed with the late value.
+     */
+    private String timeOut(GeneratedCell cell, FutureTask<Object> task) {
+        cell.timedOut = true;
+        task.cancel(true);
+        return usePlaceholder(cell);
+    }
+
+    private boolean hasLateGeneratedCell(Object itemId, Object columnId) {
+        if (lateGeneratedCells == null) {
+            return false;
+        }
+        Map<Object, Object> values = lateGeneratedCells.get(itemId);
+        return values != null && values.containsKey(columnId);
+    }
+
+    /**
+     * Refreshes the row of a generated cell completed after the timeout if
+     * the row still shows the placeholder. The late value is dropped if the
+     * row has been rendered again or is no longer cached.
+     */
+    private void applyLateGeneratedCell(GeneratedCell cell, Object value) {
+        if (placeholderItemIds == null
+                || !placeholderItemIds.contains(cell.itemId)
+                || !markItemRowChanged(cell.itemId)) {
+            return;
+        }
+        if (lateGeneratedCells == null) {
+            lateGeneratedCells = new HashMap<Object, Map<Object, Object>>();
+        }
+        Map<Object, Object> values = lateGeneratedCells.get(cell.itemId);
+        if (values == null) {
+            values = new HashMap<Object, Object>();
+            lateGeneratedCells.put(cell.itemId, values);
+        }
+        values.put(cell.columnId, value);
+        markAsDirty();
+    }
+
+    private String usePlaceholder(GeneratedCell cell) {
+        if (placeholderItemIds == null) {
+            placeholderItemIds = new HashSet<Object>();
+        }
+        placeholderItemIds.add(cell.itemId);
+        return columnGeneratorPlaceholder;
+    }
+
+    /**
+     * A cell of a {@link ConcurrentColumnGenerator} generated on the column
+     * generator executor using the {@link CurrentInstance} values of the
+     * request thread.
+     */
+    private static class GeneratedCell implements Callable<Object>,
+            Serializable {
+        private final Table table;
+        private final ColumnGenerator generator;
+        private final Object itemId;
+        private final Object columnId;
+        private final int column;
+        private final int row;
+        private Map<Class<?>, CurrentInstance> instances;
+        private VaadinSession session;
+        private volatile boolean timedOut = false;
+
+        private GeneratedCell(Table table, ColumnGenerator generator,
+                Object itemId, Object columnId, int column, int row) {
+            this.table = table;
+            this.generator = generator;
+            this.itemId = itemId;
+            this.columnId = columnId;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public Object call() {
+            Map<Class<?>, CurrentInstance> old = CurrentInstance
+                    .getInstances(false);
+            CurrentInstance.clearAll();
+            CurrentInstance.restoreInstances(instances);
+            Object value;
+            try {
+                value = generator.generateCell(table, itemId, columnId);
+            } finally {
+                CurrentInstance.clearAll();
+                CurrentInstance.restoreInstances(old);
+            }
+            if (timedOut && session != null) {
+                // The request thread no longer waits for the value
+                final Object lateValue = value;
+                session.access(new Runnable() {
+                    @Override
+                    public void run() {
+                        table.applyLateGeneratedCell(GeneratedCell.this,
+                                lateValue);
+                    }
+                });
+            }
+            return value;
+        }
+    }
+
     protected void registerComponent(Component component) {
         getLogger().log(
                 Level.FINEST,
@@ -2378,7 +3172,7 @@ public class Table extends AbstractSelect implements Action.Container,
         visibleComponents.add(component);
     }
 
-    private void listenProperty(Property<?> p,
+    private void listenProperty(Property<?> p, Object itemId,
             HashSet<Property<?>> oldListenedProperties) {
         if (p instanceof Property.ValueChangeNotifier) {
             if (oldListenedProperties == null
@@ -2391,7 +3185,10 @@ public class Table extends AbstractSelect implements Action.Container,
              * long time.
              */
             listenedProperties.add(p);
-
+            Object oldItemId = listenedPropertyItemIds.put(p, itemId);
+            if (oldItemId != null && !oldItemId.equals(itemId)) {
+                listenedPropertyItemIds.put(p, SHARED_PROPERTY_ITEM_ID);
+            }
         }
     }
 
@@ -2425,8 +3222,18 @@ public class Table extends AbstractSelect implements Action.Container,
                             Property<?> p = getContainerProperty(
                                     pageBuffer[CELL_ITEMID][i + ix], colids[c]);
                             if (p instanceof ValueChangeNotifier
-                                    && listenedProperties.contains(p)) {
+                                    && listenedProperties.contains(p)
+                                    && !SHARED_PROPERTY_ITEM_ID
+                                            .equals(listenedPropertyItemIds
+                                                    .get(p))) {
+                                /*
+                                 * Properties shown in several rows are
+                                 * listened until the whole row cache is
+                                 * refreshed, as the other rows may still be
+                                 * rendered.
+                                 */
                                 listenedProperties.remove(p);
+                                listenedPropertyItemIds.remove(p);
                                 ((ValueChangeNotifier) p).removeListener(this);
                             }
                         }
@@ -2695,6 +3502,7 @@ public class Table extends AbstractSelect implements Action.Container,
             Collection<?> visibleIds) {
 
         disableContentRefreshing();
+        cancelSort();
 
         if (newDataSource == null) {
             newDataSource = new IndexedContainer();
@@ -2850,6 +3658,12 @@ public class Table extends AbstractSelect implements Action.Container,
 
         boolean clientNeedsContentRefresh = false;
 
+        if (rowCacheEvicted) {
+            // The user is back, cache rows according to the cache rate again
+            rowCacheEvicted = false;
+            markAsDirty();
+        }
+
         handleClickEvent(variables);
 
         handleColumnResizeEvent(variables);
@@ -3179,6 +3993,7 @@ public class Table extends AbstractSelect implements Action.Container,
         // Ensure pageBuffer is filled before sending the response to avoid
         // calls to markAsDirty during paint
         getVisibleCells();
+        refreshChangedRows();
     }
 
     /*
@@ -3225,7 +4040,11 @@ public class Table extends AbstractSelect implements Action.Container,
         } else if (target.isFullRepaint() || isRowCacheInvalidated()) {
             paintRows(target, cells, actionSet);
             setRowCacheInvalidated(false);
+        } else if (painted && changedRowCount > 0) {
+            paintChangedRows(target, actionSet);
         }
+        firstChangedRowIndex = -1;
+        changedRowCount = 0;
 
         /*
          * Send the page buffer indexes to ensure that the client side stays in
@@ -3281,17 +4100,45 @@ public class Table extends AbstractSelect implements Action.Container,
 
     private void paintPartialRowUpdates(PaintTarget target,
             Set<Action> actionSet) throws PaintException {
-        final boolean[] iscomponent = findCellsWithComponents();
-
         int firstIx = getFirstUpdatedItemIndex();
         int count = getUpdatedRowCount();
 
+        // Partial row updates bypass the normal caching mechanism.
+        Object[][] cells = getVisibleCellsUpdateCacheRows(firstIx, count);
+        paintUpdatedRows(target, actionSet, cells, firstIx, count);
+    }
+
+    /**
+     * Paints the rows refreshed by {@link #refreshChangedRows()} as a partial
+     * row update. The cells are taken from the page buffer as they were
+     * refreshed before the response, nothing is read from the container
+     * during paint.
+     */
+    private void paintChangedRows(PaintTarget target, Set<Action> actionSet)
+            throws PaintException {
+        int cacheIx = Math.max(firstChangedRowIndex - pageBufferFirstIndex, 0);
+        int end = Math.min(firstChangedRowIndex - pageBufferFirstIndex
+                + changedRowCount, pageBuffer[CELL_ITEMID].length);
+        if (cacheIx >= end) {
+            return;
+        }
+        int count = end - cacheIx;
+        Object[][] cells = new Object[pageBuffer.length][count];
+        for (int i = 0; i < pageBuffer.length; i++) {
+            System.arraycopy(pageBuffer[i], cacheIx, cells[i], 0, count);
+        }
+        paintUpdatedRows(target, actionSet, cells, pageBufferFirstIndex
+                + cacheIx, count);
+    }
+
+    private void paintUpdatedRows(PaintTarget target, Set<Action> actionSet,
+            Object[][] cells, int firstIx, int count) throws PaintException {
+        final boolean[] iscomponent = findCellsWithComponents();
+
         target.startTag("urows");
         target.addAttribute("firsturowix", firstIx);
         target.addAttribute("numurows", count);
 
-        // Partial row updates bypass the normal caching mechanism.
-        Object[][] cells = getVisibleCellsUpdateCacheRows(firstIx, count);
         for (int indexInRowbuffer = 0; indexInRowbuffer < count; indexInRowbuffer++) {
             final Object itemId = cells[CELL_ITEMID][indexInRowbuffer];
 
@@ -3442,8 +4289,9 @@ public class Table extends AbstractSelect implements Action.Container,
         paintDragMode(target);
         paintSelectMode(target);
 
-        if (cacheRate != CACHE_RATE_DEFAULT) {
-            target.addAttribute("cr", cacheRate);
+        double effectiveCacheRate = getEffectiveCacheRate();
+        if (effectiveCacheRate != CACHE_RATE_DEFAULT) {
+            target.addAttribute("cr", effectiveCacheRate);
         }
 
         target.addAttribute("cols", getVisibleColumns().length);
@@ -4138,13 +4986,104 @@ public class Table extends AbstractSelect implements Action.Container,
         if (event.getProperty() == this
                 || event.getProperty() == getPropertyDataSource()) {
             super.valueChange(event);
-        } else {
+        } else if (!markRowChanged(event.getProperty())) {
             refreshRowCache();
             containerChangeToBeRendered = true;
         }
         markAsDirty();
     }
 
+    /**
+     * Marks the row of the given listened property to be refreshed and sent
+     * to the client in the next response, instead of refreshing all the
+     * rendered rows.
+     * 
+     * @param property
+     *            the property whose value has changed
+     * @return true if the row was marked, false if the whole row cache needs
+     *         to be refreshed
+     */
+    private boolean markRowChanged(Property<?> property) {
+        if (listenedPropertyItemIds == null) {
+            return false;
+        }
+        Object itemId = listenedPropertyItemIds.get(property);
+        if (itemId == null || SHARED_PROPERTY_ITEM_ID.equals(itemId)) {
+            return false;
+        }
+        return markItemRowChanged(itemId);
+    }
+
+    /**
+     * Marks the row of the given item to be refreshed and sent to the client
+     * in the next response.
+     * 
+     * @param itemId
+     *            the id of the item whose row has changed
+     * @return true if the row was marked, false if the row cannot be
+     *         refreshed alone
+     */
+    private boolean markItemRowChanged(Object itemId) {
+        if (pageBuffer == null || isPartialRowUpdate()
+                || !isContentRefreshesEnabled) {
+            return false;
+        }
+        if (changedRowItemIds == null) {
+            changedRowItemIds = new HashSet<Object>();
+        }
+        changedRowItemIds.add(itemId);
+        return true;
+    }
+
+    /**
+     * Refreshes the rows marked by {@link #markRowChanged(Property)} in the
+     * page buffer and stores the range of rows to send to the client. The
+     * client can only update one continuous range of rows, so the unchanged
+     * rows between the changed ones are sent as well, but they are not read
+     * again from the container.
+     */
+    private void refreshChangedRows() {
+        if (changedRowItemIds == null) {
+            return;
+        }
+        HashSet<Object> itemIds = changedRowItemIds;
+        changedRowItemIds = null;
+        if (pageBuffer == null) {
+            lateGeneratedCells = null;
+            return;
+        }
+        int first = -1;
+        int last = -1;
+        for (int ix = 0; ix < pageBuffer[CELL_ITEMID].length; ix++) {
+            if (itemIds.contains(pageBuffer[CELL_ITEMID][ix])) {
+                int index = pageBufferFirstIndex + ix;
+                unregisterComponentsAndPropertiesInRows(index, 1);
+                // Prevent the old cell values from being reused
+                pageBuffer[CELL_ITEMID][ix] = null;
+                getVisibleCellsUpdateCacheRows(index, 1);
+                if (first == -1) {
+                    first = ix;
+                }
+                last = ix;
+            }
+        }
+        // Late values of rows that are no longer in the page buffer
+        lateGeneratedCells = null;
+        if (first != -1 && !isRowCacheInvalidated()) {
+            // If the row cache is invalidated, all rows are sent anyway
+            if (firstChangedRowIndex != -1) {
+                // Rows changed earlier but not yet sent to the client
+                first = Math.min(first, firstChangedRowIndex
+                        - pageBufferFirstIndex);
+                last = Math.max(last, firstChangedRowIndex
+                        - pageBufferFirstIndex + changedRowCount - 1);
+            }
+            firstChangedRowIndex = pageBufferFirstIndex + first;
+            changedRowCount = last - first + 1;
+        }
+        maybeThrowCacheUpdateExceptions();
+    }
+
     /**
      * Clears the current page buffer. Call this before
      * {@link #refreshRenderedCells()} to ensure that all content is updated
@@ -4155,7 +5094,12 @@ public class Table extends AbstractSelect implements Action.Container,
         lastToBeRenderedInClient = -1;
         reqFirstRowToPaint = -1;
         reqRowsToPaint = -1;
+        Object[][] oldPageBuffer = pageBuffer;
         pageBuffer = null;
+        recyclePageBuffer(oldPageBuffer);
+        changedRowItemIds = null;
+        placeholderItemIds = null;
+        lateGeneratedCells = null;
     }
 
     /**
@@ -4179,6 +5123,14 @@ public class Table extends AbstractSelect implements Action.Container,
 
     @Override
     public void detach() {
+        TableRowCacheBudget budget = getRowCacheBudget();
+        if (budget != null) {
+            budget.remove(this);
+        }
+        spareListenedProperties = null;
+        spareListenedPropertyItemIds = null;
+        spareVisibleComponents = null;
+        sparePageBuffer = null;
         super.detach();
     }
 
@@ -4700,6 +5652,14 @@ public class Table extends AbstractSelect implements Action.Container,
             throws UnsupportedOperationException {
         final Container c = getContainerDataSource();
         if (c instanceof Container.Sortable) {
+            cancelSort();
+            if (sortExecutor != null
+                    && c instanceof Container.CancellableSortable
+                    && getSession() != null) {
+                sortInBackground((Container.CancellableSortable) c,
+                        propertyId, ascending);
+                return;
+            }
             final int pageIndex = getCurrentPageFirstItemIndex();
             boolean refreshingPreviouslyEnabled = disableContentRefreshing();
             ((Container.Sortable) c).sort(propertyId, ascending);
@@ -4714,6 +5674,78 @@ public class Table extends AbstractSelect implements Action.Container,
         }
     }
 
+    /**
+     * Starts sorting the container on the sort executor.
+     */
+    private void sortInBackground(Container.CancellableSortable container,
+            Object[] propertyId, boolean[] ascending) {
+        Container.SortTask task = container.createSortTask(propertyId,
+                ascending);
+        pendingSort = task;
+        try {
+            sortExecutor.execute(new BackgroundSort(task, getSession()));
+        } catch (RejectedExecutionException e) {
+            task.run();
+            applySort(task);
+        }
+    }
+
+    /**
+     * Applies the order computed by a background sort if it is still the
+     * latest sort of the table.
+     */
+    private void applySort(Container.SortTask task) {
+        if (task != pendingSort) {
+            return;
+        }
+        pendingSort = null;
+        final int pageIndex = getCurrentPageFirstItemIndex();
+        boolean refreshingPreviouslyEnabled = disableContentRefreshing();
+        task.apply();
+        setCurrentPageFirstItemIndex(pageIndex);
+        if (refreshingPreviouslyEnabled) {
+            enableContentRefreshing(true);
+        }
+    }
+
+    /**
+     * Runs a sort task on the sort executor and applies it while holding the
+     * session lock.
+     */
+    private class BackgroundSort implements Runnable, Serializable {
+        private final Container.SortTask task;
+        private final VaadinSession session;
+
+        private BackgroundSort(Container.SortTask task, VaadinSession session) {
+            this.task = task;
+            this.session = session;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+            if (!task.isCancelled()) {
+                session.access(new SortApplier(task));
+            }
+        }
+    }
+
+    /**
+     * Applies a completed background sort.
+     */
+    private class SortApplier implements Runnable, Serializable {
+        private final Container.SortTask task;
+
+        private SortApplier(Container.SortTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            applySort(task);
+        }
+    }
+
     /**
      * Sorts the table by currently selected sorting column.
      * 
@@ -4909,6 +5941,24 @@ public class Table extends AbstractSelect implements Action.Container,
                 Object columnId);
     }
 
+    /**
+     * A column generator that can be called concurrently from other threads
+     * than the one serving the request. When the table has an executor set
+     * using {@link Table#setColumnGeneratorExecutor(Executor)}, the cells of
+     * the concurrent generators of all rows being rendered are generated in
+     * parallel on that executor.
+     * <p>
+     * Implementations must be thread safe and must return a {@link String},
+     * never a {@link Component}. They must not modify the table or any other
+     * component. The {@link CurrentInstance} values of the request thread,
+     * e.g. {@link UI#getCurrent()}, are available to the generator, but the
+     * session is not locked while generating the cell.
+     * 
+     * @since 7.2
+     */
+    public interface ConcurrentColumnGenerator extends ColumnGenerator {
+    }
+
     /**
      * Set cell style generator for Table.
      * 
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vaadin.server.VaadinSession;
+
+/**
+ * Limits the number of cells cached by all the {@link Table}s of a session.
+ * The limit applies to the rows a table caches in addition to the rows
+ * currently shown, as determined by the cache rate of the table. When the
+ * tables of the session together would cache more cells than allowed, the
+ * tables use a smaller cache rate than configured. The rows currently shown
+ * are always cached.
+ * <p>
+ * By default a table can use an equal share of the budget or, if more, the
+ * part of the budget not used by the other tables. Override
+ * {@link #getAllowedCells(Table)} to use a different policy.
+ * <p>
+ * The budget is stored as a session attribute using
+ * {@link #set(VaadinSession, TableRowCacheBudget)}. Sessions without a budget
+ * do not limit the table caches.
+ * 
+ * @see Table#setCacheRate(double)
+ * @since 7.2
+ */
+public class TableRowCacheBudget implements Serializable {
+
+    private final int maxCachedCells;
+
+    private final Map<Table, Integer> cachedCells = new HashMap<Table, Integer>();
+    private int totalCachedCells;
+
+    /**
+     * Creates a budget allowing the given number of cached cells.
+     * 
+     * @param maxCachedCells
+     *            the maximum number of cells cached by all the tables of the
+     *            session, must be positive
+     */
+    public TableRowCacheBudget(int maxCachedCells) {
+        if (maxCachedCells <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of cached cells must be positive");
+        }
+        this.maxCachedCells = maxCachedCells;
+    }
+
+    /**
+     * Returns the budget used by the tables of the given session.
+     * 
+     * @param session
+     *            the session
+     * @return the row cache budget of the session, or null if the table
+     *         caches are not limited
+     */
+    public static TableRowCacheBudget get(VaadinSession session) {
+        return session.getAttribute(TableRowCacheBudget.class);
+    }
+
+    /**
+     * Sets the budget used by the tables of the given session. The new budget
+     * takes effect when the tables refresh their caches.
+     * 
+     * @param session
+     *            the session
+     * @param budget
+     *            the row cache budget, or null to not limit the table caches
+     */
+    public static void set(VaadinSession session, TableRowCacheBudget budget) {
+        session.setAttribute(TableRowCacheBudget.class, budget);
+    }
+
+    /**
+     * Returns the maximum number of cells cached by all the tables using this
+     * budget.
+     * 
+     * @return the maximum number of cached cells
+     */
+    public int getMaxCachedCells() {
+        return maxCachedCells;
+    }
+
+    /**
+     * Returns the number of cells currently cached by the tables using this
+     * budget.
+     * 
+     * @return the number of cached cells
+     */
+    public int getCachedCells() {
+        return totalCachedCells;
+    }
+
+    /**
+     * Returns the number of cells currently cached by the given table.
+     * 
+     * @param table
+     *            the table
+     * @return the number of cells cached by the table
+     */
+    public int getCachedCells(Table table) {
+        Integer cells = cachedCells.get(table);
+        return cells == null ? 0 : cells;
+    }
+
+    /**
+     * Returns the number of tables currently caching rows using this budget.
+     * 
+     * @return the number of tables
+     */
+    public int getTableCount() {
+        return cachedCells.size();
+    }
+
+    /**
+     * Returns the number of cells the given table may cache, including the
+     * rows currently shown.
+     * 
+     * @param table
+     *            the table refreshing its cache
+     * @return the number of cells the table may cache
+     */
+    protected int getAllowedCells(Table table) {
+        int tables = cachedCells.size();
+        if (!cachedCells.containsKey(table)) {
+            tables++;
+        }
+        int usedByOthers = totalCachedCells - getCachedCells(table);
+        return Math.max(maxCachedCells / tables, maxCachedCells
+                - usedByOthers);
+    }
+
+    /**
+     * Returns the cache rate the given table may use.
+     * 
+     * @param table
+     *            the table
+     * @param pageLength
+     *            the number of rows shown by the table
+     * @param columns
+     *            the number of columns of the table
+     * @param cacheRate
+     *            the cache rate configured for the table
+     * @return the configured cache rate or, if caching that many rows would
+     *         exceed the budget, a smaller cache rate
+     */
+    double getCacheRate(Table table, int pageLength, int columns,
+            double cacheRate) {
+        if (pageLength <= 0 || columns <= 0) {
+            return cacheRate;
+        }
+        int allowedRows = getAllowedCells(table) / columns;
+        // Rows are cached both before and after the rows shown
+        double allowedRate = (allowedRows - pageLength) / (2.0 * pageLength);
+        return Math.max(0, Math.min(cacheRate, allowedRate));
+    }
+
+    /**
+     * Updates the number of cells cached by the given table.
+     * 
+     * @param table
+     *            the table
+     * @param cells
+     *            the number of cells now cached by the table
+     */
+    void setCachedCells(Table table, int cells) {
+        Integer previous = cachedCells.put(table, cells);
+        totalCachedCells += cells - (previous == null ? 0 : previous);
+    }
+
+    /**
+     * Removes a table no longer caching any rows.
+     * 
+     * @param table
+     *            the table
+     */
+    void remove(Table table) {
+        Integer previous = cachedCells.remove(table);
+        if (previous != null) {
+            totalCachedCells -= previous;
+        }
+    }
+}
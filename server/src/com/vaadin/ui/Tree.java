@@ -115,6 +115,17 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
      */
     private boolean initialPaint = true;
 
+    /**
+     * Is the whole tree to be repainted in the next paint.
+     */
+    private boolean fullRepaintRequested = true;
+
+    /**
+     * Are changes sent to the client as partial updates of the affected
+     * subtrees.
+     */
+    private boolean incrementalUpdatesEnabled = false;
+
     /**
      * Item tooltip generator
      */
@@ -256,7 +267,11 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
      */
     public boolean expandItem(Object itemId) {
         boolean success = expandItem(itemId, true);
-        markAsDirty();
+        if (incrementalUpdatesEnabled) {
+            requestSubtreeRepaint(getRepaintRoot(itemId));
+        } else {
+            markAsDirty();
+        }
         return success;
     }
 
@@ -285,11 +300,18 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
         // Expands
         expanded.add(itemId);
 
-        expandedItemId = itemId;
         if (initialPaint) {
+            expandedItemId = itemId;
             markAsDirty();
         } else if (sendChildTree) {
-            requestPartialRepaint();
+            if (incrementalUpdatesEnabled) {
+                requestSubtreeRepaint(itemId);
+            } else {
+                expandedItemId = itemId;
+                requestPartialRepaint();
+            }
+        } else if (!incrementalUpdatesEnabled) {
+            expandedItemId = itemId;
         }
         fireExpandEvent(itemId);
 
@@ -300,6 +322,7 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
     public void markAsDirty() {
         super.markAsDirty();
         partialUpdate = false;
+        fullRepaintRequested = true;
     }
 
     private void requestPartialRepaint() {
@@ -307,11 +330,137 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
         partialUpdate = true;
     }
 
+    /**
+     * Requests repainting the children of the given item, combining the
+     * request with any pending partial update. The whole tree is repainted if
+     * the item is null or the subtrees to repaint are only joined at the root
+     * level.
+     * 
+     * @param itemId
+     *            the item whose children to repaint, or null for the root
+     *            level
+     */
+    private void requestSubtreeRepaint(Object itemId) {
+        if (initialPaint || fullRepaintRequested) {
+            markAsDirty();
+            return;
+        }
+        if (partialUpdate && itemId != null) {
+            itemId = getCommonAncestor(expandedItemId, itemId);
+        }
+        if (itemId == null) {
+            markAsDirty();
+        } else {
+            expandedItemId = itemId;
+            requestPartialRepaint();
+        }
+    }
+
+    /**
+     * Returns the item whose children must be repainted for the client to
+     * show the current children of the given item. If the item or one of its
+     * ancestors is collapsed, the client may have cached children that are no
+     * longer valid, so the children of the parent of the topmost collapsed
+     * node are repainted.
+     * 
+     * @param itemId
+     *            the item whose children have changed, or null for the root
+     *            level
+     * @return the item whose children to repaint, or null for the root level
+     */
+    private Object getRepaintRoot(Object itemId) {
+        Object root = itemId;
+        for (Object id = itemId; id != null; id = getParent(id)) {
+            if (!isExpanded(id)) {
+                root = getParent(id);
+            }
+        }
+        return root;
+    }
+
+    private Object getCommonAncestor(Object itemId1, Object itemId2) {
+        Set<Object> ancestors = new HashSet<Object>();
+        for (Object id = itemId1; id != null; id = getParent(id)) {
+            ancestors.add(id);
+        }
+        for (Object id = itemId2; id != null; id = getParent(id)) {
+            if (ancestors.contains(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends the children of the given item to the client again, e.g. after
+     * adding or removing children in a container that does not send item set
+     * change events. When incremental updates are enabled only the affected
+     * subtree is repainted, otherwise the whole tree.
+     * 
+     * @param itemId
+     *            the item whose children have changed, or null if root items
+     *            have been added or removed
+     * @since 7.2
+     */
+    public void markChildrenAsDirty(Object itemId) {
+        if (incrementalUpdatesEnabled) {
+            requestSubtreeRepaint(getRepaintRoot(itemId));
+        } else {
+            markAsDirty();
+        }
+    }
+
+    /**
+     * Enables or disables incremental updates. When enabled, expanding or
+     * collapsing items from the server, changing item captions or icons and
+     * calling {@link #markChildrenAsDirty(Object)} send only the children of
+     * the affected item to the client instead of repainting the whole tree.
+     * Changes in several subtrees during the same request are sent as one
+     * update of their closest common ancestor. Item set changes of the
+     * container still repaint the whole tree.
+     * <p>
+     * Incremental updates are disabled by default.
+     * 
+     * @param incrementalUpdatesEnabled
+     *            true to send changes as subtree updates, false to repaint the
+     *            whole tree
+     * @since 7.2
+     */
+    public void setIncrementalUpdatesEnabled(boolean incrementalUpdatesEnabled) {
+        this.incrementalUpdatesEnabled = incrementalUpdatesEnabled;
+    }
+
+    /**
+     * Checks whether incremental updates are enabled.
+     * 
+     * @see #setIncrementalUpdatesEnabled(boolean)
+     * @return true if changes are sent as subtree updates, false if the whole
+     *         tree is repainted
+     * @since 7.2
+     */
+    public boolean isIncrementalUpdatesEnabled() {
+        return incrementalUpdatesEnabled;
+    }
+
+    @Override
+    void itemCaptionChanged(Object itemId) {
+        if (incrementalUpdatesEnabled && itemId != null) {
+            requestSubtreeRepaint(getRepaintRoot(getParent(itemId)));
+        } else {
+            super.itemCaptionChanged(itemId);
+        }
+    }
+
     /**
      * Expands the items recursively
      * 
      * Expands all the children recursively starting from an item. Operation
      * succeeds only if all expandable items are expanded.
+     * <p>
+     * All the expanded descendants are sent to the client in the next
+     * response, also when incremental updates are enabled. The client only
+     * requests the children of a node when the user expands it, so it cannot
+     * load the children of nodes that are already shown as expanded.
      * 
      * @param startItemId
      * @return True iff the expand operation succeeded
@@ -334,7 +483,11 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
                 todo.addAll(getChildren(id));
             }
         }
-        markAsDirty();
+        if (incrementalUpdatesEnabled) {
+            requestSubtreeRepaint(getRepaintRoot(startItemId));
+        } else {
+            markAsDirty();
+        }
         return result;
     }
 
@@ -354,7 +507,11 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
 
         // Collapse
         expanded.remove(itemId);
-        markAsDirty();
+        if (incrementalUpdatesEnabled) {
+            requestSubtreeRepaint(getRepaintRoot(getParent(itemId)));
+        } else {
+            markAsDirty();
+        }
         fireCollapseEvent(itemId);
 
         return true;
@@ -581,7 +738,8 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
             target.addAttribute("partialUpdate", true);
             target.addAttribute("rootKey", itemIdMapper.key(expandedItemId));
         } else {
-            getCaptionChangeListener().clear();
+            fullRepaintRequested = false;
+            getCaptionChangeListener().paintStarted();
 
             // The tab ordering number
             if (getTabIndex() > 0) {
@@ -798,6 +956,8 @@ public class Tree extends AbstractSelect implements Container.Hierarchical,
                 dropHandler.getAcceptCriterion().paint(target);
             }
 
+            // Stop listening to the items no longer shown
+            getCaptionChangeListener().paintFinished();
         }
     }
 
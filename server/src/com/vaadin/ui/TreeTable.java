@@ -185,6 +185,11 @@ public class TreeTable extends Table implements Hierarchical {
      * 
      * Store collapsed/open states internally, fool Table to use preorder when
      * accessing items from container via Ordered/Indexed methods.
+     * 
+     * The preorder of visible items is kept in an {@link IndexedItemIdList},
+     * so that mapping between indexes and ids takes logarithmic time.
+     * Expanding or collapsing a node only inserts or removes the rows of its
+     * visible descendants.
      */
     private class HierarchicalStrategy extends AbstractStrategy {
 
@@ -225,27 +230,12 @@ public class TreeTable extends Table implements Hierarchical {
 
         @Override
         public Object nextItemId(Object itemId) {
-            int indexOf = getPreOrder().indexOf(itemId);
-            if (indexOf == -1) {
-                return null;
-            }
-            indexOf++;
-            if (indexOf == getPreOrder().size()) {
-                return null;
-            } else {
-                return getPreOrder().get(indexOf);
-            }
+            return getPreOrder().next(itemId);
         }
 
         @Override
         public Object prevItemId(Object itemId) {
-            int indexOf = getPreOrder().indexOf(itemId);
-            indexOf--;
-            if (indexOf < 0) {
-                return null;
-            } else {
-                return getPreOrder().get(indexOf);
-            }
+            return getPreOrder().previous(itemId);
         }
 
         @Override
@@ -259,45 +249,70 @@ public class TreeTable extends Table implements Hierarchical {
                 getLogger().log(Level.FINEST, "Item {0} is now collapsed",
                         itemId);
             }
-            clearPreorderCache();
+            updatePreorder(itemId, !removed);
+        }
+
+        /**
+         * Inserts or removes the visible descendants of a toggled node in the
+         * cached preorder. Nothing changes if the node itself is not visible.
+         */
+        private void updatePreorder(Object itemId, boolean expanded) {
+            if (preOrder == null) {
+                return;
+            }
+            int index = preOrder.indexOf(itemId);
+            if (index == -1) {
+                return;
+            }
+            // The descendants that are or were visible when the node is open
+            List<Object> descendants = new ArrayList<Object>();
+            addChildTree(itemId, descendants);
+            if (expanded) {
+                preOrder.addAll(index + 1, descendants);
+            } else {
+                preOrder.removeRange(index + 1, index + 1 + descendants.size());
+            }
         }
 
         private void clearPreorderCache() {
             preOrder = null; // clear preorder cache
         }
 
-        List<Object> preOrder;
+        IndexedItemIdList preOrder;
 
         /**
          * Preorder of ids currently visible
          * 
          * @return
          */
-        private List<Object> getPreOrder() {
+        private IndexedItemIdList getPreOrder() {
             if (preOrder == null) {
-                preOrder = new ArrayList<Object>();
+                List<Object> ids = new ArrayList<Object>();
                 Collection<?> rootItemIds = getContainerDataSource()
                         .rootItemIds();
                 for (Object id : rootItemIds) {
-                    preOrder.add(id);
-                    addVisibleChildTree(id);
+                    ids.add(id);
+                    addVisibleChildTree(id, ids);
                 }
+                preOrder = new IndexedItemIdList(ids);
             }
             return preOrder;
         }
 
-        private void addVisibleChildTree(Object id) {
+        private void addVisibleChildTree(Object id, List<Object> ids) {
             if (isNodeOpen(id)) {
-                Collection<?> children = getContainerDataSource().getChildren(
-                        id);
-                if (children != null) {
-                    for (Object childId : children) {
-                        preOrder.add(childId);
-                        addVisibleChildTree(childId);
-                    }
-                }
+                addChildTree(id, ids);
             }
+        }
 
+        private void addChildTree(Object id, List<Object> ids) {
+            Collection<?> children = getContainerDataSource().getChildren(id);
+            if (children != null) {
+                for (Object childId : children) {
+                    ids.add(childId);
+                    addVisibleChildTree(childId, ids);
+                }
+            }
         }
 
         @Override
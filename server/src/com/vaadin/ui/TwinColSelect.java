@@ -129,6 +129,16 @@ public class TwinColSelect extends AbstractSelect {
         }
     }
 
+    @Override
+    public void setOptionPageLength(int optionPageLength) {
+        super.setOptionPageLength(optionPageLength);
+    }
+
+    @Override
+    public int getOptionPageLength() {
+        return super.getOptionPageLength();
+    }
+
     /**
      * @param caption
      * @param options
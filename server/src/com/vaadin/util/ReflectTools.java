@@ -54,6 +54,55 @@ public class ReflectTools implements Serializable {
         }
     }
 
+    /**
+     * Suppresses the Java language access checks of a method that is invoked
+     * repeatedly, so they are not repeated on every invocation. The checks are
+     * kept if they cannot be suppressed, e.g. because of a security manager.
+     * 
+     * @since 7.2
+     * @param method
+     *            the method, or null
+     * @return the given method
+     */
+    public static Method setAccessible(Method method) {
+        if (method != null && !method.isAccessible()) {
+            try {
+                method.setAccessible(true);
+            } catch (RuntimeException e) {
+                // Denied by a security manager, keep the access checks
+            }
+        }
+        return method;
+    }
+
+    /**
+     * Checks whether a class is loaded by the class loader of Vaadin or by one
+     * of its parents, so that the class is not unloaded before Vaadin. Caches
+     * shared by all applications should not strongly reference other classes,
+     * as they would prevent unloading the class loader of an undeployed
+     * application when Vaadin is loaded by a shared class loader.
+     * 
+     * @since 7.2
+     * @param type
+     *            the class to check
+     * @return true if the class cannot be unloaded before Vaadin
+     */
+    public static boolean isLoadedByVaadinClassLoader(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            // The bootstrap class loader
+            return true;
+        }
+        ClassLoader cl = ReflectTools.class.getClassLoader();
+        while (cl != null) {
+            if (cl == classLoader) {
+                return true;
+            }
+            cl = cl.getParent();
+        }
+        return false;
+    }
+
     /**
      * Returns the value of the java field.
      * <p>
@@ -0,0 +1,164 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.Item;
+import com.vaadin.data.util.BeanItemContainer;
+
+/*
+ * Measures the bean property accessors used when rendering, sorting and
+ * filtering a BeanItemContainer: reading simple and nested property values of
+ * existing items, creating items with nested properties and sorting the
+ * container.
+ * 
+ * JMH is not available in this build, so like the other benchmarks this one
+ * is a plain main method that repeats the measurement five times. Please run
+ * with -server -Xms2g -Xmx2g. Your results will vary.
+ * 
+ * Best of five runs, nested accessors resolved for every property instance
+ * and access checks on every call:
+ * creating 102 ms, simple reads 193 ms, nested reads 643 ms, sorting 387 ms
+ * 
+ * Accessors resolved once per bean class and property:
+ * creating 35 ms, simple reads 97 ms, nested reads 214 ms, sorting 296 ms
+ */
+public class PerformanceTestBeanPropertyAccess {
+
+    private static final int BEANS = 100000;
+    private static final int ROUNDS = 10;
+
+    public static class Address {
+        private String street;
+        private int postalCode;
+
+        public Address(String street, int postalCode) {
+            this.street = street;
+            this.postalCode = postalCode;
+        }
+
+        public String getStreet() {
+            return street;
+        }
+
+        public void setStreet(String street) {
+            this.street = street;
+        }
+
+        public int getPostalCode() {
+            return postalCode;
+        }
+
+        public void setPostalCode(int postalCode) {
+            this.postalCode = postalCode;
+        }
+    }
+
+    public static class Person {
+        private String name;
+        private int age;
+        private Address address;
+
+        public Person(String name, int age, Address address) {
+            this.name = name;
+            this.age = age;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Person> beans = new ArrayList<Person>();
+        for (int i = 0; i < BEANS; i++) {
+            beans.add(new Person("Person " + (i * 7919 % BEANS), i % 100,
+                    new Address("Street " + i, i % 99999)));
+        }
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            runBenchmark(beans, false);
+        }
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+
+        for (int i = 0; i < 5; i++) {
+            runBenchmark(beans, true);
+        }
+    }
+
+    private static void runBenchmark(List<Person> beans, boolean print) {
+        long start = System.currentTimeMillis();
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        container.addNestedContainerProperty("address.street");
+        container.addNestedContainerProperty("address.postalCode");
+        container.addAll(beans);
+        long created = System.currentTimeMillis();
+
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Person person : beans) {
+                Item item = container.getItem(person);
+                checksum += ((Integer) item.getItemProperty("age").getValue())
+                        .intValue();
+                checksum += ((String) item.getItemProperty("name").getValue())
+                        .length();
+            }
+        }
+        long simpleRead = System.currentTimeMillis();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Person person : beans) {
+                Item item = container.getItem(person);
+                checksum += ((Integer) item.getItemProperty(
+                        "address.postalCode").getValue()).intValue();
+                checksum += ((String) item.getItemProperty("address.street")
+                        .getValue()).length();
+            }
+        }
+        long nestedRead = System.currentTimeMillis();
+
+        container.sort(new Object[] { "name", "address.postalCode" },
+                new boolean[] { true, false });
+        long sorted = System.currentTimeMillis();
+
+        if (print) {
+            System.out.println("creating " + BEANS
+                    + " items with nested properties took "
+                    + (created - start) + " ms");
+            System.out.println("reading " + 2 * ROUNDS * BEANS
+                    + " simple values took " + (simpleRead - created) + " ms");
+            System.out.println("reading " + 2 * ROUNDS * BEANS
+                    + " nested values took " + (nestedRead - simpleRead)
+                    + " ms");
+            System.out.println("sorting took " + (sorted - nestedRead)
+                    + " ms");
+            System.out.println("checksum " + checksum);
+        }
+    }
+}
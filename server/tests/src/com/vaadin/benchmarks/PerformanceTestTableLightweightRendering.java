@@ -0,0 +1,133 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.Item;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+
+/*
+ * Compares the default rendering of Table with the lightweight rendering mode
+ * on a read-only 100k row container, the same size as in the HugeRowCount
+ * test UI.
+ * 
+ * The first part scrolls a single table through the whole container page by
+ * page and measures the time spent rendering. The second part keeps a number
+ * of tables open on the same container and measures the heap retained by
+ * them, which in the default mode includes a value change listener
+ * registration for each cached cell.
+ * 
+ * Please run with -server -Xmx1g. Your results will vary.
+ * 
+ * Example results, 10 columns, page length 50:
+ * 
+ * Default rendering:
+ * scrolling 100000 rows took 980 ms, 50 tables retain 7519 kB
+ * 
+ * Lightweight rendering:
+ * scrolling 100000 rows took 296 ms, 50 tables retain 969 kB
+ */
+public class PerformanceTestTableLightweightRendering {
+
+    private static final int ROWS = 100000;
+    private static final int COLUMNS = 10;
+    private static final int PAGE_LENGTH = 50;
+    private static final int TABLES = 50;
+
+    private static class AttachedTable extends Table {
+        private final VaadinSession session = new AlwaysLockedVaadinSession(
+                null);
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        IndexedContainer container = createContainer();
+
+        // warmup
+        scroll(container, false, 200);
+        scroll(container, true, 200);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+
+        for (boolean lightweight : new boolean[] { false, true }) {
+            long start = System.currentTimeMillis();
+            scroll(container, lightweight, ROWS / PAGE_LENGTH);
+            long end = System.currentTimeMillis();
+            System.out.println(getModeName(lightweight) + ": scrolling "
+                    + ROWS + " rows took " + (end - start) + " ms");
+        }
+
+        for (boolean lightweight : new boolean[] { false, true }) {
+            long before = usedMemory();
+            List<Table> tables = new ArrayList<Table>();
+            for (int i = 0; i < TABLES; i++) {
+                Table table = createTable(container, lightweight);
+                table.setCurrentPageFirstItemIndex(i * ROWS / TABLES);
+                tables.add(table);
+            }
+            long after = usedMemory();
+            System.out.println(getModeName(lightweight) + ": " + TABLES
+                    + " tables retain " + (after - before) / 1024 + " kB");
+            for (Table table : tables) {
+                table.setContainerDataSource(new IndexedContainer());
+            }
+            tables.clear();
+        }
+    }
+
+    private static String getModeName(boolean lightweight) {
+        return lightweight ? "lightweight rendering" : "default rendering";
+    }
+
+    private static IndexedContainer createContainer() {
+        IndexedContainer container = new IndexedContainer();
+        for (int j = 0; j < COLUMNS; j++) {
+            container.addContainerProperty("col" + j, String.class, null);
+        }
+        for (int i = 0; i < ROWS; i++) {
+            Item item = container.addItem(i);
+            for (int j = 0; j < COLUMNS; j++) {
+                item.getItemProperty("col" + j).setValue(
+                        "row " + i + " col " + j);
+            }
+        }
+        return container;
+    }
+
+    private static Table createTable(IndexedContainer container,
+            boolean lightweight) {
+        Table table = new AttachedTable();
+        table.setPageLength(PAGE_LENGTH);
+        table.setLightweightRendering(lightweight);
+        table.setContainerDataSource(container);
+        return table;
+    }
+
+    private static void scroll(IndexedContainer container,
+            boolean lightweight, int pages) {
+        Table table = createTable(container, lightweight);
+        for (int i = 0; i < pages; i++) {
+            table.setCurrentPageFirstItemIndex(i * PAGE_LENGTH);
+        }
+        // Releases the property listeners of the default mode
+        table.setContainerDataSource(new IndexedContainer());
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
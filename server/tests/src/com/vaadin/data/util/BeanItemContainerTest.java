@@ -24,7 +24,7 @@ public class BeanItemContainerTest extends AbstractBeanContainerTest {
 
     private Map<String, ClassName> nameToBean = new LinkedHashMap<String, ClassName>();
 
-    private BeanItemContainer<ClassName> getContainer() {
+    protected BeanItemContainer<ClassName> getContainer() {
         return new BeanItemContainer<ClassName>(ClassName.class);
     }
 
@@ -0,0 +1,150 @@
+package com.vaadin.data.util;
+
+import java.beans.Introspector;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class BeanPropertyCacheTest extends TestCase {
+
+    public static class Base {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Bean extends Base {
+        private boolean active;
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public int getCount() {
+            return 0;
+        }
+    }
+
+    /**
+     * Loads its own copy of {@link Bean}, like the class loader of a web
+     * application when Vaadin is loaded by a shared class loader.
+     */
+    private static class BeanClassLoader extends ClassLoader {
+        public BeanClassLoader() {
+            super(BeanPropertyCacheTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.equals(Bean.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            InputStream in = getParent().getResourceAsStream(
+                    name.replace('.', '/') + ".class");
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                byte[] bytes = out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public void testVaadinPropertyDescriptorsCached() {
+        Map<String, VaadinPropertyDescriptor<Bean>> descriptors = BeanPropertyCache
+                .getVaadinPropertyDescriptors(Bean.class);
+
+        Assert.assertSame(descriptors,
+                BeanPropertyCache.getVaadinPropertyDescriptors(Bean.class));
+        Assert.assertEquals(3, descriptors.size());
+        try {
+            descriptors.remove("name");
+            fail("Cached descriptors should not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testBeanItemDescriptorsCopied() {
+        BeanItem.getPropertyDescriptors(Bean.class).remove("name");
+
+        Assert.assertTrue(BeanPropertyCache.getVaadinPropertyDescriptors(
+                Bean.class).containsKey("name"));
+        Assert.assertNotNull(new BeanItem<Bean>(new Bean())
+                .getItemProperty("name"));
+    }
+
+    public void testAccessors() throws Exception {
+        Assert.assertEquals("isActive",
+                BeanPropertyCache.getGetter(Bean.class, "active").getName());
+        Assert.assertSame(BeanPropertyCache.getGetter(Bean.class, "name"),
+                BeanPropertyCache.getGetter(Bean.class, "Name"));
+        Assert.assertEquals("setName",
+                BeanPropertyCache.getSetter(Bean.class, "name", String.class)
+                        .getName());
+        Assert.assertNull(BeanPropertyCache.getSetter(Bean.class, "count",
+                int.class));
+        try {
+            BeanPropertyCache.getGetter(Bean.class, "missing");
+            fail("Getter of a missing property should not be found");
+        } catch (NoSuchMethodException expected) {
+        }
+    }
+
+    public void testInheritedField() throws Exception {
+        Assert.assertEquals(Base.class,
+                BeanPropertyCache.getField(Bean.class, "name")
+                        .getDeclaringClass());
+        try {
+            BeanPropertyCache.getField(Bean.class, "missing");
+            fail("Missing field should not be found");
+        } catch (NoSuchFieldException expected) {
+        }
+    }
+
+    public void testClassOfOtherClassLoaderNotRetained() throws Exception {
+        ClassLoader classLoader = new BeanClassLoader();
+        Class<?> beanClass = classLoader.loadClass(Bean.class.getName());
+        Assert.assertNotSame(Bean.class, beanClass);
+        Assert.assertEquals(3, BeanPropertyCache.getVaadinPropertyDescriptors(
+                beanClass).size());
+        Assert.assertEquals("isActive",
+                BeanPropertyCache.getGetter(beanClass, "active").getName());
+
+        // Done by servlet containers when undeploying an application
+        Introspector.flushFromCaches(beanClass);
+
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(
+                classLoader);
+        classLoader = null;
+        beanClass = null;
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull("The class loader should be collectable",
+                reference.get());
+    }
+}
@@ -0,0 +1,182 @@
+package com.vaadin.data.util;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import junit.framework.Assert;
+
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+
+/**
+ * Runs the {@link BeanItemContainerTest} tests with flyweight items and tests
+ * the features specific to flyweight items.
+ */
+public class FlyweightBeanItemContainerTest extends BeanItemContainerTest {
+
+    private static class CountingListener implements
+            Property.ValueChangeListener {
+        private int events;
+
+        @Override
+        public void valueChange(Property.ValueChangeEvent event) {
+            events++;
+        }
+    }
+
+    @Override
+    protected BeanItemContainer<ClassName> getContainer() {
+        BeanItemContainer<ClassName> container = super.getContainer();
+        container.setFlyweightItems(true);
+        return container;
+    }
+
+    private BeanItemContainer<Person> getPersonContainer() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        container.setFlyweightItems(true);
+        container.addBean(new Person("John"));
+        return container;
+    }
+
+    public void testFlyweightItemProperties() {
+        BeanItemContainer<Person> container = getPersonContainer();
+        Person bean = container.firstItemId();
+        Item item = container.getItem(bean);
+
+        Assert.assertTrue(item instanceof FlyweightBeanItem);
+        Assert.assertEquals(
+                new ArrayList<Object>(container.getContainerPropertyIds()),
+                new ArrayList<Object>(item.getItemPropertyIds()));
+        Assert.assertEquals("John", item.getItemProperty("name").getValue());
+        Assert.assertEquals(String.class, item.getItemProperty("name")
+                .getType());
+
+        item.getItemProperty("name").setValue("Jane");
+        Assert.assertEquals("Jane", bean.getName());
+    }
+
+    public void testPropertyViewsShareListeners() {
+        BeanItemContainer<Person> container = getPersonContainer();
+        Item item = container.getItem(container.firstItemId());
+        CountingListener listener = new CountingListener();
+
+        Property.ValueChangeNotifier notifier = (Property.ValueChangeNotifier) item
+                .getItemProperty("name");
+        notifier.addValueChangeListener(listener);
+        item.getItemProperty("name").setValue("Jane");
+        Assert.assertEquals(1, listener.events);
+        Assert.assertEquals(notifier, item.getItemProperty("name"));
+
+        ((Property.ValueChangeNotifier) item.getItemProperty("name"))
+                .removeValueChangeListener(listener);
+        item.getItemProperty("name").setValue("John");
+        Assert.assertEquals(1, listener.events);
+    }
+
+    public void testReadOnlyStateShared() {
+        BeanItemContainer<Person> container = getPersonContainer();
+        Item item = container.getItem(container.firstItemId());
+
+        item.getItemProperty("name").setReadOnly(true);
+        Assert.assertTrue(item.getItemProperty("name").isReadOnly());
+        try {
+            item.getItemProperty("name").setValue("Jane");
+            fail("Read-only property should not be modifiable");
+        } catch (Property.ReadOnlyException expected) {
+        }
+    }
+
+    private static Object getStates(Item item) throws Exception {
+        Field states = FlyweightBeanItem.class.getDeclaredField("states");
+        states.setAccessible(true);
+        return states.get(item);
+    }
+
+    public void testUnusedStateReleased() throws Exception {
+        BeanItemContainer<Person> container = getPersonContainer();
+        Item item = container.getItem(container.firstItemId());
+        CountingListener listener = new CountingListener();
+        Property.ReadOnlyStatusChangeListener readOnlyListener = new Property.ReadOnlyStatusChangeListener() {
+            @Override
+            public void readOnlyStatusChange(
+                    Property.ReadOnlyStatusChangeEvent event) {
+            }
+        };
+
+        ((Property.ValueChangeNotifier) item.getItemProperty("name"))
+                .addValueChangeListener(listener);
+        ((Property.ReadOnlyStatusChangeNotifier) item.getItemProperty("name"))
+                .addReadOnlyStatusChangeListener(readOnlyListener);
+        item.getItemProperty("name").setReadOnly(true);
+
+        ((Property.ValueChangeNotifier) item.getItemProperty("name"))
+                .removeValueChangeListener(listener);
+        ((Property.ReadOnlyStatusChangeNotifier) item.getItemProperty("name"))
+                .removeReadOnlyStatusChangeListener(readOnlyListener);
+        // Still read-only
+        Assert.assertNotNull(getStates(item));
+        Assert.assertTrue(item.getItemProperty("name").isReadOnly());
+
+        item.getItemProperty("name").setReadOnly(false);
+        Assert.assertNull(getStates(item));
+        Assert.assertFalse(item.getItemProperty("name").isReadOnly());
+    }
+
+    public void testItemsFollowContainerProperties() {
+        BeanItemContainer<NestedMethodPropertyTest.Person> container = new BeanItemContainer<NestedMethodPropertyTest.Person>(
+                NestedMethodPropertyTest.Person.class);
+        container.setFlyweightItems(true);
+        NestedMethodPropertyTest.Person john = new NestedMethodPropertyTest.Person(
+                "John", new NestedMethodPropertyTest.Address("Ruukinkatu 2-4",
+                        20540));
+        container.addBean(john);
+        Item item = container.getItem(john);
+
+        container.addNestedContainerProperty("address.street");
+        Assert.assertEquals("Ruukinkatu 2-4",
+                item.getItemProperty("address.street").getValue());
+
+        container.removeContainerProperty("address.street");
+        Assert.assertNull(item.getItemProperty("address.street"));
+        Assert.assertFalse(item.getItemPropertyIds().contains(
+                "address.street"));
+    }
+
+    public void testModifyItemProperties() {
+        BeanItemContainer<Person> container = getPersonContainer();
+        Item item = container.getItem(container.firstItemId());
+        try {
+            item.addItemProperty("other", new ObjectProperty<String>(""));
+            fail("Properties should not be added to flyweight items");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            item.removeItemProperty("name");
+            fail("Properties should not be removed from flyweight items");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    public void testValueChangeRefilters() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        container.setFlyweightItems(true);
+        container.addContainerFilter("name", "J", false, true);
+        container.addBean(new Person("John"));
+        container.addBean(new Person("Jane"));
+        Assert.assertEquals(2, container.size());
+
+        container.getItem(container.firstItemId()).getItemProperty("name")
+                .setValue("Mike");
+        Assert.assertEquals(1, container.size());
+    }
+
+    public void testChangeModeOfNonEmptyContainer() {
+        try {
+            getPersonContainer().setFlyweightItems(false);
+            fail("Item mode of a non-empty container should not change");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -68,4 +68,44 @@ public class PropertyDescriptorTest extends TestCase {
         Assert.assertNull(property.getValue());
     }
 
+    public void testNestedPropertyDescriptorCreatesProperties() {
+        NestedPropertyDescriptor<Person> pd = new NestedPropertyDescriptor<Person>(
+                "address.street", Person.class);
+        Person john = new Person("John", new NestedMethodPropertyTest.Address(
+                "Ruukinkatu 2-4", 20540));
+        Person jane = new Person("Jane", new NestedMethodPropertyTest.Address(
+                "Ruukinkatu 2-4", 20540));
+
+        @SuppressWarnings("unchecked")
+        Property<String> johnsStreet = (Property<String>) pd
+                .createProperty(john);
+        @SuppressWarnings("unchecked")
+        Property<String> janesStreet = (Property<String>) pd
+                .createProperty(jane);
+        janesStreet.setValue("Other street");
+
+        Assert.assertEquals("Ruukinkatu 2-4", johnsStreet.getValue());
+        Assert.assertEquals("Other street", janesStreet.getValue());
+        Assert.assertEquals(String.class, janesStreet.getType());
+        Assert.assertFalse(janesStreet.isReadOnly());
+    }
+
+    public void testMethodPropertiesFromDescriptor() {
+        VaadinPropertyDescriptor<Person> pd = BeanPropertyCache
+                .getVaadinPropertyDescriptors(Person.class).get("name");
+        Person john = new Person("John", null);
+        Person jane = new Person("Jane", null);
+
+        @SuppressWarnings("unchecked")
+        Property<String> johnsName = (Property<String>) pd
+                .createProperty(john);
+        @SuppressWarnings("unchecked")
+        Property<String> janesName = (Property<String>) pd
+                .createProperty(jane);
+        janesName.setValue("Mary");
+
+        Assert.assertEquals("John", johnsName.getValue());
+        Assert.assertEquals("Mary", janesName.getValue());
+        Assert.assertEquals("Mary", jane.getName());
+    }
 }
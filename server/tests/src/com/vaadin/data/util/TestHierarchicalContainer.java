@@ -1,5 +1,9 @@
 package com.vaadin.data.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.vaadin.data.Container;
 import com.vaadin.data.Container.Filter;
 import com.vaadin.data.Item;
 
@@ -267,4 +271,26 @@ public class TestHierarchicalContainer extends
                 true, expectedSize, expectedRoots, false);
 
     }
+
+    public void testHierarchicalSortTask() {
+        HierarchicalContainer hc = new HierarchicalContainer();
+        hc.addContainerProperty("name", String.class, null);
+        String[] names = { "b", "a", "b2", "b1" };
+        for (String name : names) {
+            hc.addItem(name).getItemProperty("name").setValue(name);
+        }
+        hc.setParent("b2", "b");
+        hc.setParent("b1", "b");
+
+        Container.SortTask task = hc.createSortTask(new Object[] { "name" },
+                new boolean[] { true });
+        task.run();
+        assertTrue(task.apply());
+
+        assertEquals(Arrays.asList("a", "b"),
+                new ArrayList<Object>(hc.rootItemIds()));
+        assertEquals(Arrays.asList("b1", "b2"),
+                new ArrayList<Object>(hc.getChildren("b")));
+    }
+
 }
@@ -1,10 +1,14 @@
 package com.vaadin.data.util;
 
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Assert;
 
+import com.vaadin.data.Container;
+import com.vaadin.data.Container.Filter;
 import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.SimpleStringFilter;
 
 public class TestIndexedContainer extends AbstractInMemoryContainerTest {
 
@@ -392,4 +396,92 @@ public class TestIndexedContainer extends AbstractInMemoryContainerTest {
         assertNull(ic.getContainerProperty(object1, null));
     }
 
+    public void testFilteredViewDoesNotChangeContainer() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("name", String.class, null);
+        String[] names = { "abc", "bcd", "abd", "cde", "abe" };
+        for (int i = 0; i < names.length; i++) {
+            ic.addItem(i).getItemProperty("name").setValue(names[i]);
+        }
+        Filter filter = new SimpleStringFilter("name", "ab", false, true);
+
+        assertEquals(3, ic.size(filter));
+        assertEquals(Arrays.asList(2, 4), ic.getItemIds(filter, 1, 5));
+        assertEquals(1, ic.indexOfId(filter, 2));
+        assertEquals(-1, ic.indexOfId(filter, 1));
+        assertEquals(5, ic.getItemIds(null, 0, 10).size());
+
+        assertEquals(5, ic.size());
+        assertFalse(ic.hasContainerFilters());
+    }
+
+    public void testSortTask() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("value", Integer.class, null);
+        int[] values = { 3, 1, 4, 1, 5 };
+        for (int i = 0; i < values.length; i++) {
+            ic.addItem(i).getItemProperty("value").setValue(values[i]);
+        }
+        Container.SortTask task = ic.createSortTask(new Object[] { "value" },
+                new boolean[] { true });
+        task.run();
+        assertTrue(task.isDone());
+        assertEquals(1f, task.getProgress());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), ic.getItemIds());
+
+        assertTrue(task.apply());
+        assertEquals(Arrays.asList(1, 3, 0, 2, 4), ic.getItemIds());
+    }
+
+    public void testCancelledSortTaskNotApplied() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("value", Integer.class, null);
+        ic.addItem(0).getItemProperty("value").setValue(2);
+        ic.addItem(1).getItemProperty("value").setValue(1);
+        Container.SortTask task = ic.createSortTask(new Object[] { "value" },
+                new boolean[] { true });
+        task.cancel();
+        task.run();
+        assertFalse(task.isDone());
+        assertFalse(task.apply());
+        assertEquals(Arrays.asList(0, 1), ic.getItemIds());
+    }
+
+    public void testSortTaskAppliedAfterContainerChanged() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("value", Integer.class, null);
+        ic.addItem(0).getItemProperty("value").setValue(2);
+        ic.addItem(1).getItemProperty("value").setValue(1);
+        Container.SortTask task = ic.createSortTask(new Object[] { "value" },
+                new boolean[] { true });
+        task.run();
+        ic.addItem(2).getItemProperty("value").setValue(0);
+        assertTrue(task.apply());
+        assertEquals(Arrays.asList(2, 1, 0), ic.getItemIds());
+    }
+
+    public void testSortTaskUsesValuesAtCreation() {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("value", Integer.class, null);
+        ic.addContainerProperty("other", Integer.class, null);
+        ic.addItem(0).getItemProperty("value").setValue(2);
+        ic.addItem(1).getItemProperty("value").setValue(1);
+        ic.getContainerProperty(0, "other").setValue(1);
+        ic.getContainerProperty(1, "other").setValue(2);
+        ic.sort(new Object[] { "other" }, new boolean[] { true });
+        Container.SortTask task = ic.createSortTask(new Object[] { "value" },
+                new boolean[] { true });
+
+        // The container keeps using the current sort until applied
+        assertTrue(ic.getItemSorter().compare(0, 1) < 0);
+
+        // Changes after creating the task do not affect the running sort
+        ic.getContainerProperty(1, "value").setValue(5);
+        task.run();
+        assertEquals(Arrays.asList(0, 1), ic.getItemIds());
+
+        assertTrue(task.apply());
+        assertEquals(Arrays.asList(1, 0), ic.getItemIds());
+    }
+
 }
@@ -5,6 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.vaadin.data.util.sqlcontainer.connection.J2EEConnectionPoolTest;
+import com.vaadin.data.util.sqlcontainer.connection.PreparedStatementCacheTest;
 import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPoolTest;
 import com.vaadin.data.util.sqlcontainer.filters.BetweenTest;
 import com.vaadin.data.util.sqlcontainer.filters.LikeTest;
@@ -15,10 +16,13 @@ import com.vaadin.data.util.sqlcontainer.query.TableQueryTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ SimpleJDBCConnectionPoolTest.class,
-        J2EEConnectionPoolTest.class, LikeTest.class, QueryBuilderTest.class,
+        J2EEConnectionPoolTest.class, PreparedStatementCacheTest.class,
+        LikeTest.class, QueryBuilderTest.class,
         FreeformQueryTest.class, RowIdTest.class, SQLContainerTest.class,
         SQLContainerTableQueryTest.class, ColumnPropertyTest.class,
         TableQueryTest.class, SQLGeneratorsTest.class, UtilTest.class,
-        TicketTests.class, BetweenTest.class, ReadOnlyRowIdTest.class })
+        TicketTests.class, BetweenTest.class, ReadOnlyRowIdTest.class,
+        SharedQueryCacheTest.class, SQLContainerPrefetchTest.class,
+        CacheFlushNotifierTest.class, SQLContainerFilteredIndexedTest.class })
 public class AllTests {
 }
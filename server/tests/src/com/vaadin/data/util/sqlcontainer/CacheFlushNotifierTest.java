@@ -0,0 +1,126 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.ItemSetChangeEvent;
+import com.vaadin.data.Container.ItemSetChangeListener;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.util.CurrentInstance;
+
+public class CacheFlushNotifierTest {
+    private JDBCConnectionPool connectionPool;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        DataGenerator.createGarbage(connectionPool);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    private SQLContainer createContainer(String table) throws SQLException {
+        SQLContainer container = new SQLContainer(new TableQuery(table,
+                connectionPool, SQLTestsConstants.sqlGen));
+        container.enableCacheFlushNotifications();
+        return container;
+    }
+
+    private void addPerson(SQLContainer container) throws SQLException {
+        Object id = container.addItem();
+        container.getContainerProperty(id, "NAME").setValue("Notified");
+        container.getContainerProperty(id, "AGE").setValue(1);
+        container.commit();
+    }
+
+    private int[] countItemSetChanges(SQLContainer container) {
+        final int[] itemSetChanges = new int[1];
+        container.addItemSetChangeListener(new ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(ItemSetChangeEvent event) {
+                itemSetChanges[0]++;
+            }
+        });
+        return itemSetChanges;
+    }
+
+    @Test
+    public void commit_otherContainerRefreshedOnNextAccess()
+            throws SQLException {
+        SQLContainer notified = createContainer("people");
+        Assert.assertEquals(4, notified.size());
+        int[] itemSetChanges = countItemSetChanges(notified);
+
+        addPerson(createContainer("people"));
+        Assert.assertEquals(0, itemSetChanges[0]);
+
+        Assert.assertEquals(5, notified.size());
+        Assert.assertEquals(0, itemSetChanges[0]);
+
+        notified.refresh();
+        Assert.assertEquals(1, itemSetChanges[0]);
+    }
+
+    @Test
+    public void commit_listenersNotifiedWhenSessionIsNextAccessed()
+            throws Exception {
+        VaadinService service = new VaadinServletService(new VaadinServlet(),
+                new MockDeploymentConfiguration());
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+        SQLContainer notified = createContainer("people");
+        Assert.assertEquals(4, notified.size());
+        int[] itemSetChanges = countItemSetChanges(notified);
+
+        addPerson(createContainer("people"));
+        VaadinSession.setCurrent(session);
+        try {
+            Assert.assertEquals(5, notified.size());
+            Assert.assertEquals(5, notified.getItemIds().size());
+            Assert.assertEquals(0, itemSetChanges[0]);
+
+            session.unlock();
+            Assert.assertEquals(1, itemSetChanges[0]);
+        } finally {
+            CurrentInstance.clearAll();
+        }
+    }
+
+    @Test
+    public void commit_containerOfOtherTableNotRefreshed() throws SQLException {
+        SQLContainer other = createContainer("garbage");
+        other.size();
+        int[] itemSetChanges = countItemSetChanges(other);
+
+        addPerson(createContainer("people"));
+        other.size();
+        Assert.assertEquals(0, itemSetChanges[0]);
+    }
+
+    @Test
+    public void commit_notificationsDisabled_notRefreshed() throws SQLException {
+        SQLContainer notNotified = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        Assert.assertEquals(4, notNotified.size());
+
+        addPerson(createContainer("people"));
+        Assert.assertEquals(4, notNotified.size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class SQLContainerFilteredIndexedTest {
+    private JDBCConnectionPool connectionPool;
+    private SQLContainer container;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        container = new SQLContainer(new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen));
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    @Test
+    public void filteredQueries_containerNotFiltered() {
+        Filter filter = new Like("NAME", "%lle");
+        Assert.assertEquals(3, container.size(filter));
+
+        List<?> itemIds = container.getItemIds(filter, 1, 5);
+        Assert.assertEquals(2, itemIds.size());
+        Assert.assertEquals("Kalle",
+                container.getContainerProperty(itemIds.get(0), "NAME")
+                        .getValue());
+        Assert.assertEquals(1, container.indexOfId(filter, itemIds.get(0)));
+        Assert.assertEquals(-1,
+                container.indexOfId(filter, container.getIdByIndex(3)));
+
+        Assert.assertEquals(4, container.size());
+        Assert.assertFalse(container.hasContainerFilters());
+    }
+
+    @Test
+    public void addedItems_includedAfterDatabaseRows() {
+        Object id = container.addItem();
+        container.getContainerProperty(id, "NAME").setValue("Olle");
+        Filter filter = new Like("NAME", "%lle");
+
+        Assert.assertEquals(4, container.size(filter));
+        Assert.assertEquals(id, container.getItemIds(filter, 3, 1).get(0));
+        Assert.assertEquals(3, container.indexOfId(filter, id));
+    }
+
+    @Test
+    public void removedItems_skippedInAllIndexes() {
+        Filter filter = new Like("NAME", "%lle");
+        List<?> itemIds = container.getItemIds(filter, 0, 3);
+        container.removeItem(itemIds.get(0));
+        Object id = container.addItem();
+        container.getContainerProperty(id, "NAME").setValue("Olle");
+
+        Assert.assertEquals(3, container.size(filter));
+        List<?> remaining = container.getItemIds(filter, 0, 3);
+        Assert.assertEquals(3, remaining.size());
+        Assert.assertEquals(itemIds.get(1), remaining.get(0));
+        Assert.assertEquals(itemIds.get(2), remaining.get(1));
+        Assert.assertEquals(id, remaining.get(2));
+        Assert.assertEquals(remaining.subList(1, 3),
+                container.getItemIds(filter, 1, 5));
+        for (int ix = 0; ix < remaining.size(); ix++) {
+            Assert.assertEquals(ix,
+                    container.indexOfId(filter, remaining.get(ix)));
+        }
+        Assert.assertEquals(-1, container.indexOfId(filter, itemIds.get(0)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class SQLContainerPrefetchTest {
+    private JDBCConnectionPool connectionPool;
+    private CountingTableQuery query;
+    private QueuingExecutor executor;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        query = new CountingTableQuery();
+        executor = new QueuingExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    @SuppressWarnings("serial")
+    private class CountingTableQuery extends TableQuery {
+        private int results;
+
+        private CountingTableQuery() {
+            super("people", connectionPool, SQLTestsConstants.sqlGen);
+        }
+
+        @Override
+        public ResultSet getResults(int offset, int pagelength)
+                throws SQLException {
+            results++;
+            return super.getResults(offset, pagelength);
+        }
+    }
+
+    private static class QueuingExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            List<Runnable> queued = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : queued) {
+                task.run();
+            }
+        }
+    }
+
+    private SQLContainer createContainer() throws SQLException {
+        SQLContainer container = new SQLContainer(query);
+        container.setPageLength(1);
+        container.setPrefetchExecutor(executor);
+        return container;
+    }
+
+    private Object getName(SQLContainer container, int index) {
+        return container.getContainerProperty(container.getIdByIndex(index),
+                "NAME").getValue();
+    }
+
+    @Test
+    public void accessNearEndOfCachedRows_nextRowsPrefetched()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        getName(container, 1);
+        Assert.assertEquals(1, executor.tasks.size());
+        executor.runAll();
+
+        int fetches = query.results;
+        Assert.assertEquals(getName(new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen)), 2), getName(
+                container, 2));
+        Assert.assertEquals(fetches, query.results);
+    }
+
+    @Test
+    public void accessNearBeginningOfCachedRows_previousRowsPrefetched()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        getName(container, 2);
+        executor.runAll();
+
+        int fetches = query.results;
+        getName(container, 1);
+        Assert.assertEquals(fetches, query.results);
+    }
+
+    @Test
+    public void refresh_prefetchedRowsDiscarded() throws SQLException {
+        SQLContainer container = createContainer();
+        getName(container, 1);
+        executor.runAll();
+        container.refresh();
+
+        int fetches = query.results;
+        getName(container, 2);
+        Assert.assertEquals(fetches + 1, query.results);
+    }
+
+    @Test
+    public void delegateUsedBeforePrefetchStarts_prefetchCancelled()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        getName(container, 1);
+        container.refresh();
+        getName(container, 0);
+
+        int fetches = query.results;
+        executor.runAll();
+        Assert.assertEquals(fetches, query.results);
+    }
+
+    @Test
+    public void prefetchingDisabled_noPrefetchScheduled() throws SQLException {
+        SQLContainer container = createContainer();
+        container.setPrefetchExecutor(null);
+        getName(container, 1);
+        Assert.assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void backgroundExecutor_sequentialAccess_sameRowsAsWithout()
+            throws SQLException {
+        SQLContainer reference = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        SQLContainer container = new SQLContainer(query);
+        container.setPageLength(1);
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            container.setPrefetchExecutor(service);
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < reference.size(); i++) {
+                    Assert.assertEquals(getName(reference, i),
+                            getName(container, i));
+                }
+            }
+        } finally {
+            container.setPrefetchExecutor(null);
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
+import com.vaadin.data.util.sqlcontainer.query.FreeformQueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.OrderBy;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class SharedQueryCacheTest {
+    private JDBCConnectionPool connectionPool;
+    private SharedQueryCache cache;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        cache = new SharedQueryCache();
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    private SQLContainer createContainer() throws SQLException {
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        container.setSharedQueryCache(cache);
+        return container;
+    }
+
+    @Test
+    public void sameQueryInTwoContainers_secondServedFromCache()
+            throws SQLException {
+        SQLContainer first = createContainer();
+        Assert.assertEquals(4, first.size());
+        Assert.assertEquals("Ville",
+                first.getContainerProperty(first.getIdByIndex(0), "NAME")
+                        .getValue());
+        Assert.assertEquals(0, cache.getHitCount());
+
+        SQLContainer second = createContainer();
+        Assert.assertEquals(4, second.size());
+        Assert.assertEquals("Ville",
+                second.getContainerProperty(second.getIdByIndex(0), "NAME")
+                        .getValue());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void differentFilters_notServedFromCache() throws SQLException {
+        SQLContainer first = createContainer();
+        Assert.assertEquals(4, first.size());
+
+        SQLContainer second = createContainer();
+        second.addContainerFilter(new Like("NAME", "V%"));
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void sameTableOnDifferentPools_notServedFromCache()
+            throws SQLException {
+        SQLContainer first = createContainer();
+        Assert.assertEquals(4, first.size());
+
+        JDBCConnectionPool otherPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        try {
+            SQLContainer second = new SQLContainer(new TableQuery("people",
+                    otherPool, SQLTestsConstants.sqlGen));
+            second.setSharedQueryCache(cache);
+            Assert.assertEquals(4, second.size());
+            Assert.assertEquals(0, cache.getHitCount());
+        } finally {
+            otherPool.destroy();
+        }
+    }
+
+    @Test
+    public void commit_invalidatesCachedEntriesOfTable() throws SQLException {
+        SQLContainer first = createContainer();
+        Assert.assertEquals(4, first.size());
+        first.getIdByIndex(0);
+
+        SQLContainer second = createContainer();
+        Object id = second.addItem();
+        second.getContainerProperty(id, "NAME").setValue("Cached");
+        second.getContainerProperty(id, "AGE").setValue(1);
+        second.commit();
+        Assert.assertEquals(0, cache.size());
+
+        SQLContainer third = createContainer();
+        Assert.assertEquals(5, third.size());
+    }
+
+    @Test
+    public void expiredEntries_notServedFromCache() throws SQLException,
+            InterruptedException {
+        cache = new SharedQueryCache(10, 1);
+        createContainer().size();
+        Thread.sleep(5);
+        createContainer().size();
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void maxEntriesReached_oldestEntriesEvicted() throws SQLException {
+        cache = new SharedQueryCache(1, 10000);
+        SQLContainer container = createContainer();
+        container.size();
+        container.getIdByIndex(0);
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * Restricts a free form query to the rows of one person, like a delegate
+     * adding a tenant or user predicate would.
+     */
+    private static class NameDelegate implements FreeformQueryDelegate {
+        private final String name;
+
+        public NameDelegate(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getQueryString(int offset, int limit) {
+            return "SELECT * FROM PEOPLE WHERE \"NAME\" = '" + name
+                    + "' LIMIT " + limit + " OFFSET " + offset;
+        }
+
+        @Override
+        public String getCountQuery() {
+            return "SELECT COUNT(*) FROM PEOPLE WHERE \"NAME\" = '" + name
+                    + "'";
+        }
+
+        @Override
+        public void setFilters(List<Filter> filters) {
+        }
+
+        @Override
+        public void setOrderBy(List<OrderBy> orderBys) {
+        }
+
+        @Override
+        public int storeRow(Connection conn, RowItem row) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeRow(Connection conn, RowItem row) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getContainsRowQueryString(Object... keys) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private SQLContainer createFreeformContainer(String name)
+            throws SQLException {
+        FreeformQuery query = new FreeformQuery("SELECT * FROM PEOPLE",
+                connectionPool, "ID");
+        query.setDelegate(new NameDelegate(name));
+        SQLContainer container = new SQLContainer(query);
+        container.setSharedQueryCache(cache);
+        return container;
+    }
+
+    @Test
+    public void freeformQueriesWithDelegates_notServedFromCache()
+            throws SQLException {
+        SQLContainer first = createFreeformContainer("Ville");
+        Assert.assertEquals(1, first.size());
+        Assert.assertEquals("Ville",
+                first.getContainerProperty(first.getIdByIndex(0), "NAME")
+                        .getValue());
+
+        SQLContainer second = createFreeformContainer("Kalle");
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals("Kalle",
+                second.getContainerProperty(second.getIdByIndex(0), "NAME")
+                        .getValue());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,175 @@
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.sqlcontainer.DataGenerator;
+import com.vaadin.data.util.sqlcontainer.SQLContainer;
+import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class PreparedStatementCacheTest {
+    private SimpleJDBCConnectionPool connectionPool;
+    private Connection conn;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        conn = connectionPool.reserveConnection();
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.releaseConnection(conn);
+        connectionPool.destroy();
+    }
+
+    @Test
+    public void prepareStatement_sameSqlAfterRelease_returnsCachedStatement()
+            throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(conn, 5);
+        PreparedStatement first = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        cache.releaseStatement(first);
+        PreparedStatement second = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+
+        Assert.assertSame(first, second);
+        Assert.assertFalse(second.isClosed());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void prepareStatement_sameSqlInUse_returnsNewStatement()
+            throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(conn, 5);
+        PreparedStatement first = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        PreparedStatement second = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        Assert.assertNotSame(first, second);
+
+        cache.releaseStatement(second);
+        Assert.assertTrue(second.isClosed());
+        cache.releaseStatement(first);
+        Assert.assertFalse(first.isClosed());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void prepareStatement_cacheFull_closesLeastRecentlyUsed()
+            throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(conn, 2);
+        PreparedStatement first = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        cache.releaseStatement(first);
+        PreparedStatement second = cache
+                .prepareStatement("SELECT ID FROM PEOPLE");
+        cache.releaseStatement(second);
+        cache.releaseStatement(cache.prepareStatement("SELECT * FROM PEOPLE"));
+
+        PreparedStatement third = cache
+                .prepareStatement("SELECT NAME FROM PEOPLE");
+        cache.releaseStatement(third);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(second.isClosed());
+        Assert.assertFalse(first.isClosed());
+        Assert.assertFalse(third.isClosed());
+    }
+
+    @Test
+    public void prepareStatement_differentGeneratedKeys_returnsNewStatement()
+            throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(conn, 5);
+        PreparedStatement plain = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        cache.releaseStatement(plain);
+        PreparedStatement withKeys = cache.prepareStatement(
+                "SELECT * FROM PEOPLE", new String[] { "ID" });
+
+        Assert.assertNotSame(plain, withKeys);
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void clear_statementInUse_closedOnRelease() throws SQLException {
+        PreparedStatementCache cache = new PreparedStatementCache(conn, 5);
+        PreparedStatement statement = cache
+                .prepareStatement("SELECT * FROM PEOPLE");
+        cache.clear();
+        Assert.assertFalse(statement.isClosed());
+
+        cache.releaseStatement(statement);
+        Assert.assertTrue(statement.isClosed());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void getStatementCache_cachingDisabled_returnsNull() {
+        Assert.assertNull(connectionPool.getStatementCache(conn));
+    }
+
+    @Test
+    public void getStatementCache_cachingEnabled_returnsSameCache() {
+        connectionPool.setStatementCacheSize(10);
+        PreparedStatementCache cache = connectionPool.getStatementCache(conn);
+        Assert.assertNotNull(cache);
+        Assert.assertSame(cache, connectionPool.getStatementCache(conn));
+        Assert.assertEquals(10, cache.getMaxSize());
+    }
+
+    @Test
+    public void sqlContainer_statementCachingEnabled_reusesStatements()
+            throws SQLException {
+        connectionPool.releaseConnection(conn);
+        conn = null;
+        connectionPool.setStatementCacheSize(10);
+
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        for (int i = 0; i < 5; i++) {
+            container.refresh();
+            Assert.assertEquals(4, container.size());
+            Assert.assertNotNull(container.getIdByIndex(0));
+        }
+
+        Assert.assertTrue(connectionPool.getStatementCacheHitCount() > 0);
+        Assert.assertTrue(connectionPool.getStatementCacheHitCount() > connectionPool
+                .getStatementCacheMissCount());
+    }
+
+    @Test
+    public void tableQuery_cachedStatement_resultSetReleased()
+            throws SQLException {
+        SimpleJDBCConnectionPool singleConnectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1, 1);
+        singleConnectionPool.setStatementCacheSize(10);
+
+        TableQuery query = new TableQuery("people", singleConnectionPool,
+                SQLTestsConstants.sqlGen);
+        for (int i = 0; i < 3; i++) {
+            query.beginTransaction();
+            ResultSet rs = query.getResults(0, 0);
+            Assert.assertTrue(rs.next());
+            query.releaseResultSet(rs);
+            Assert.assertTrue(rs.isClosed());
+            query.commit();
+        }
+        Assert.assertEquals(2, singleConnectionPool.getStatementCacheHitCount());
+        singleConnectionPool.destroy();
+    }
+}
@@ -1,5 +1,10 @@
 package com.vaadin.data.util.sqlcontainer.query;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -25,6 +30,8 @@ import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
 import com.vaadin.data.util.sqlcontainer.SQLTestsConstants.DB;
 import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
 import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeEvent;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeListener;
 import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
 
 public class TableQueryTest {
@@ -473,6 +480,345 @@ public class TableQueryTest {
         Assert.assertEquals(1, tQuery.getCount());
     }
 
+    @Test
+    public void commitThroughContainer_manyChanges_shouldStoreAllInBatches()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        final List<RowIdChangeEvent> events = new ArrayList<RowIdChangeEvent>();
+        tQuery.addRowIdChangeListener(new RowIdChangeListener() {
+            @Override
+            public void rowIdChange(RowIdChangeEvent event) {
+                events.add(event);
+            }
+        });
+        SQLContainer container = new SQLContainer(tQuery);
+        container.setAutoCommit(false);
+
+        Object removedId = container.getIdByIndex(0);
+        container.removeItem(removedId);
+        for (Object id : container.getItemIds()) {
+            container.getContainerProperty(id, "NAME").setValue("Batched");
+        }
+        for (int i = 0; i < 3; i++) {
+            Object id = container.addItem();
+            container.getContainerProperty(id, "NAME").setValue("New" + i);
+            container.getContainerProperty(id, "AGE").setValue(i);
+        }
+        container.commit();
+
+        Assert.assertEquals(6, tQuery.getCount());
+        Assert.assertFalse(container.containsId(removedId));
+        Assert.assertEquals(3, events.size());
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new Equal("NAME", "Batched"));
+        tQuery.setFilters(filters);
+        Assert.assertEquals(3, tQuery.getCount());
+    }
+
+    @Test
+    public void storeRows_existingRows_returnsAffectedRowCounts()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        for (Object id : container.getItemIds()) {
+            RowItem row = (RowItem) container.getItem(id);
+            row.getItemProperty("AGE").setValue(99);
+            rows.add(row);
+        }
+
+        tQuery.beginTransaction();
+        int[] results = tQuery.storeRows(rows);
+        tQuery.commit();
+
+        Assert.assertArrayEquals(new int[] { 1, 1, 1, 1 }, results);
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new Equal("AGE", 99));
+        tQuery.setFilters(filters);
+        Assert.assertEquals(4, tQuery.getCount());
+    }
+
+    @Test
+    public void removeRows_existingAndRemovedRows_returnsRemovedState()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        SQLContainer container = new SQLContainer(tQuery);
+        RowItem first = (RowItem) container.getItem(container.getIdByIndex(0));
+        RowItem second = (RowItem) container.getItem(container
+                .getIdByIndex(1));
+
+        tQuery.beginTransaction();
+        Assert.assertTrue(tQuery.removeRow(first));
+        boolean[] results = tQuery.removeRows(Arrays.asList(first, second));
+        tQuery.commit();
+
+        Assert.assertFalse(results[0]);
+        Assert.assertTrue(results[1]);
+        Assert.assertEquals(2, tQuery.getCount());
+    }
+
+    /**
+     * Passes the connections of another pool through, recording the executed
+     * statements and optionally hiding the update counts of batches like some
+     * drivers do.
+     */
+    private static class RecordingConnectionPool implements JDBCConnectionPool {
+        private final JDBCConnectionPool pool;
+        private final boolean reportBatchCounts;
+        private final List<String> executed = new ArrayList<String>();
+        private int openSavepoints = 0;
+        private boolean failBatches = false;
+
+        public RecordingConnectionPool(JDBCConnectionPool pool,
+                boolean reportBatchCounts) {
+            this.pool = pool;
+            this.reportBatchCounts = reportBatchCounts;
+        }
+
+        @Override
+        public Connection reserveConnection() throws SQLException {
+            final Connection connection = pool.reserveConnection();
+            return (Connection) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] { Connection.class },
+                    new ConnectionHandler(connection));
+        }
+
+        @Override
+        public void releaseConnection(Connection conn) {
+            if (Proxy.isProxyClass(conn.getClass())) {
+                conn = ((ConnectionHandler) Proxy.getInvocationHandler(conn)).connection;
+            }
+            pool.releaseConnection(conn);
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        private class ConnectionHandler implements InvocationHandler {
+            private final Connection connection;
+
+            public ConnectionHandler(Connection connection) {
+                this.connection = connection;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                Object result = invokeTarget(connection, method, args);
+                if (method.getName().equals("setSavepoint")) {
+                    openSavepoints++;
+                } else if (method.getName().equals("releaseSavepoint")) {
+                    openSavepoints--;
+                }
+                if (result instanceof PreparedStatement) {
+                    return Proxy.newProxyInstance(getClass()
+                            .getClassLoader(),
+                            new Class<?>[] { PreparedStatement.class },
+                            new StatementHandler((PreparedStatement) result,
+                                    (String) args[0]));
+                }
+                return result;
+            }
+        }
+
+        private class StatementHandler implements InvocationHandler {
+            private final PreparedStatement statement;
+            private final String sql;
+            private int batchSize = 0;
+
+            public StatementHandler(PreparedStatement statement, String sql) {
+                this.statement = statement;
+                this.sql = sql;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                String name = method.getName();
+                if (name.equals("addBatch")) {
+                    batchSize++;
+                } else if (name.equals("executeUpdate")) {
+                    executed.add(sql);
+                } else if (name.equals("executeBatch")) {
+                    executed.add(sql + " x " + batchSize);
+                    batchSize = 0;
+                    if (failBatches) {
+                        throw new BatchUpdateException(new int[0]);
+                    }
+                    int[] counts = (int[]) invokeTarget(statement, method,
+                            args);
+                    if (!reportBatchCounts) {
+                        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                    }
+                    return counts;
+                }
+                return invokeTarget(statement, method, args);
+            }
+        }
+
+        private static Object invokeTarget(Object target, Method method,
+                Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private void updateNames(SQLContainer container, List<RowItem> rows) {
+        for (Object id : container.getItemIds()) {
+            RowItem row = (RowItem) container.getItem(id);
+            row.getItemProperty("NAME").setValue("Changed");
+            rows.add(row);
+        }
+    }
+
+    private int countChangedNames(TableQuery tQuery) throws SQLException {
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new Equal("NAME", "Changed"));
+        tQuery.setFilters(filters);
+        int count = tQuery.getCount();
+        tQuery.setFilters(null);
+        return count;
+    }
+
+    @Test
+    public void storeRows_versionColumnAndNoBatchCounts_rowsStored()
+            throws SQLException {
+        RecordingConnectionPool pool = new RecordingConnectionPool(
+                connectionPool, false);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        // In this test the primary key is used as a version column
+        tQuery.setVersionColumn("ID");
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        updateNames(container, rows);
+
+        tQuery.beginTransaction();
+        int[] results = tQuery.storeRows(rows);
+        tQuery.commit();
+
+        Assert.assertArrayEquals(new int[] { 1, 1, 1, 1 }, results);
+        Assert.assertEquals(4, countChangedNames(tQuery));
+    }
+
+    @Test
+    public void storeRows_versionColumnAndBatchCounts_savepointsReleased()
+            throws SQLException {
+        RecordingConnectionPool pool = new RecordingConnectionPool(
+                connectionPool, true);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setVersionColumn("ID");
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        updateNames(container, rows);
+
+        tQuery.beginTransaction();
+        tQuery.storeRows(rows);
+        tQuery.storeRows(rows);
+        Assert.assertEquals(0, pool.openSavepoints);
+        tQuery.commit();
+
+        Assert.assertEquals(4, countChangedNames(tQuery));
+    }
+
+    @Test
+    public void storeRows_versionColumnAndBatchFails_savepointReleased()
+            throws SQLException {
+        RecordingConnectionPool pool = new RecordingConnectionPool(
+                connectionPool, true);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setVersionColumn("ID");
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        updateNames(container, rows);
+
+        tQuery.beginTransaction();
+        pool.failBatches = true;
+        try {
+            tQuery.storeRows(rows);
+            Assert.fail("The failed batch should be reported");
+        } catch (BatchUpdateException expected) {
+        }
+        Assert.assertEquals(0, pool.openSavepoints);
+        tQuery.rollback();
+    }
+
+    @Test
+    public void storeRows_versionColumnAndNoBatchCounts_conflictDetected()
+            throws SQLException {
+        RecordingConnectionPool pool = new RecordingConnectionPool(
+                connectionPool, false);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setVersionColumn("ID");
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        updateNames(container, rows);
+
+        // Remove the second row using another connection
+        Connection conn = connectionPool.reserveConnection();
+        PreparedStatement stmt = conn
+                .prepareStatement("DELETE FROM PEOPLE WHERE \"ID\" = ?");
+        stmt.setObject(1, rows.get(1).getItemProperty("ID").getValue());
+        stmt.executeUpdate();
+        stmt.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        tQuery.beginTransaction();
+        try {
+            tQuery.storeRows(rows);
+            Assert.fail("The removed row should cause a conflict");
+        } catch (OptimisticLockException e) {
+            Assert.assertEquals(rows.get(1).getId(), e.getRowId());
+        } finally {
+            tQuery.rollback();
+        }
+
+        Assert.assertEquals(0, countChangedNames(tQuery));
+    }
+
+    @Test
+    public void storeRows_insertBetweenUpdates_executedInOrder()
+            throws SQLException {
+        RecordingConnectionPool pool = new RecordingConnectionPool(
+                connectionPool, true);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        SQLContainer container = new SQLContainer(tQuery);
+        container.setAutoCommit(false);
+        RowItem first = (RowItem) container.getItem(container.getIdByIndex(0));
+        first.getItemProperty("NAME").setValue("Changed");
+        RowItem second = (RowItem) container.getItem(container
+                .getIdByIndex(1));
+        second.getItemProperty("NAME").setValue("Changed");
+        Object newId = container.addItem();
+        RowItem added = (RowItem) container.getItem(newId);
+        added.getItemProperty("NAME").setValue("Changed");
+        added.getItemProperty("AGE").setValue(1);
+
+        pool.executed.clear();
+        tQuery.beginTransaction();
+        tQuery.storeRows(Arrays.asList(first, added, second));
+        tQuery.commit();
+
+        Assert.assertEquals(3, pool.executed.size());
+        Assert.assertTrue(pool.executed.get(0).startsWith("UPDATE"));
+        Assert.assertTrue(pool.executed.get(0).endsWith(" x 1"));
+        Assert.assertTrue(pool.executed.get(1).startsWith("INSERT"));
+        Assert.assertTrue(pool.executed.get(2).startsWith("UPDATE"));
+        Assert.assertEquals(3, countChangedNames(tQuery));
+    }
+
     @Test
     public void storeRow_noVersionColumn_shouldSucceed()
             throws UnsupportedOperationException, SQLException {
@@ -0,0 +1,168 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.shared.extension.javascriptmanager.ExecuteJavaScriptRpc;
+import com.vaadin.shared.ui.ui.ScrollClientRpc;
+import com.vaadin.ui.Label;
+
+/**
+ * Tests for queuing {@link ClientMethodInvocation}s in
+ * {@link AbstractClientConnector}.
+ */
+public class ClientMethodInvocationTest extends TestCase {
+
+    private static class RpcLabel extends Label {
+        private <T extends ClientRpc> T getRpc(Class<T> rpcInterface) {
+            return getRpcProxy(rpcInterface);
+        }
+    }
+
+    public interface TestRpc extends ClientRpc {
+        public void update(int value);
+    }
+
+    /**
+     * Loads its own copy of {@link TestRpc}, like the class loader of a web
+     * application when Vaadin is loaded by a shared class loader.
+     */
+    private static class RpcClassLoader extends ClassLoader {
+        public RpcClassLoader() {
+            super(ClientMethodInvocationTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.equals(TestRpc.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            InputStream in = getParent().getResourceAsStream(
+                    name.replace('.', '/') + ".class");
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                byte[] bytes = out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private RpcLabel connector = new RpcLabel();
+
+    private String describe(List<ClientMethodInvocation> invocations) {
+        StringBuilder sb = new StringBuilder();
+        for (ClientMethodInvocation invocation : invocations) {
+            sb.append(invocation.getMethodName())
+                    .append(Arrays.toString(invocation.getParameters()))
+                    .append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    public void testLastOnlyInvocationReplacesPending() {
+        ScrollClientRpc rpc = connector.getRpc(ScrollClientRpc.class);
+        rpc.setScrollTop(1);
+        rpc.setScrollLeft(2);
+        rpc.setScrollTop(3);
+        rpc.setScrollTop(4);
+
+        List<ClientMethodInvocation> pending = connector
+                .retrievePendingRpcCalls();
+        assertEquals("setScrollLeft[2] setScrollTop[4]", describe(pending));
+        assertTrue(pending.get(0).isLastOnly());
+    }
+
+    public void testLastOnlyInvocationsOfSeveralMethodsReplaced() {
+        ScrollClientRpc rpc = connector.getRpc(ScrollClientRpc.class);
+        for (int i = 0; i < 1000; i++) {
+            rpc.setScrollTop(i);
+            rpc.setScrollLeft(-i);
+        }
+        rpc.setScrollTop(1000);
+
+        assertEquals("setScrollLeft[-999] setScrollTop[1000]",
+                describe(connector.retrievePendingRpcCalls()));
+    }
+
+    public void testInvocationsNotCoalescedByDefault() {
+        ExecuteJavaScriptRpc rpc = connector
+                .getRpc(ExecuteJavaScriptRpc.class);
+        rpc.executeJavaScript("a");
+        rpc.executeJavaScript("a");
+
+        List<ClientMethodInvocation> pending = connector
+                .retrievePendingRpcCalls();
+        assertEquals("executeJavaScript[a] executeJavaScript[a]",
+                describe(pending));
+        assertFalse(pending.get(0).isLastOnly());
+    }
+
+    public void testLastOnlyAfterRetrieval() {
+        ScrollClientRpc rpc = connector.getRpc(ScrollClientRpc.class);
+        rpc.setScrollTop(1);
+        assertEquals("setScrollTop[1]",
+                describe(connector.retrievePendingRpcCalls()));
+
+        rpc.setScrollTop(2);
+        assertEquals("setScrollTop[2]",
+                describe(connector.retrievePendingRpcCalls()));
+        assertTrue(connector.retrievePendingRpcCalls().isEmpty());
+    }
+
+    public void testInvocationMetadata() {
+        connector.getRpc(ScrollClientRpc.class).setScrollTop(1);
+        connector.getRpc(ScrollClientRpc.class).setScrollLeft(1);
+        List<ClientMethodInvocation> pending = connector
+                .retrievePendingRpcCalls();
+        ClientMethodInvocation invocation = pending.get(0);
+        assertEquals("com.vaadin.shared.ui.ui.ScrollClientRpc",
+                invocation.getInterfaceName());
+        assertEquals(Arrays.asList(int.class),
+                Arrays.asList(invocation.getParameterTypes()));
+        assertTrue(invocation.compareTo(pending.get(1)) < 0);
+    }
+
+    public void testMethodOfOtherClassLoaderNotRetained() throws Exception {
+        ClassLoader classLoader = new RpcClassLoader();
+        Class<?> rpcInterface = classLoader.loadClass(TestRpc.class.getName());
+        assertNotSame(TestRpc.class, rpcInterface);
+        Method method = rpcInterface.getMethod("update", int.class);
+        ClientMethodInvocation invocation = new ClientMethodInvocation(
+                connector, rpcInterface.getName(), method, new Object[] { 1 });
+        assertEquals(Arrays.asList(int.class),
+                Arrays.asList(invocation.getParameterTypes()));
+
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(
+                classLoader);
+        classLoader = null;
+        rpcInterface = null;
+        method = null;
+        invocation = null;
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("The class loader should be collectable", reference.get());
+    }
+}
@@ -0,0 +1,396 @@
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionContext;
+
+import org.easymock.EasyMock;
+import org.json.JSONException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+public class MemoryDiagnosticsTest {
+
+    public static class Person implements Serializable {
+        private String name;
+
+        public Person(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class TestUI extends UI {
+        private BeanItemContainer<Person> persons = new BeanItemContainer<Person>(
+                Person.class);
+
+        @Override
+        protected void init(VaadinRequest request) {
+            VerticalLayout layout = new VerticalLayout();
+            layout.addComponent(new Table("Persons", persons));
+            setContent(layout);
+        }
+
+        private void addPersons(int count) {
+            for (int i = 0; i < count; i++) {
+                persons.addBean(new Person("Person " + i));
+            }
+        }
+    }
+
+    /**
+     * An HTTP session that reaches all the other sessions of the servlet
+     * container, like through the session manager of a real container.
+     */
+    @SuppressWarnings("deprecation")
+    private static class TestHttpSession implements HttpSession {
+        private final List<TestHttpSession> sessions;
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        private TestHttpSession(List<TestHttpSession> sessions) {
+            this.sessions = sessions;
+            sessions.add(this);
+        }
+
+        @Override
+        public long getCreationTime() {
+            return 0;
+        }
+
+        @Override
+        public String getId() {
+            return String.valueOf(sessions.indexOf(this));
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return 0;
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return null;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return 0;
+        }
+
+        @Override
+        public HttpSessionContext getSessionContext() {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public Object getValue(String name) {
+            return getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(attributes.keySet());
+        }
+
+        @Override
+        public String[] getValueNames() {
+            return attributes.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void putValue(String name, Object value) {
+            setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public void removeValue(String name) {
+            removeAttribute(name);
+        }
+
+        @Override
+        public void invalidate() {
+            sessions.remove(this);
+        }
+
+        @Override
+        public boolean isNew() {
+            return false;
+        }
+    }
+
+    private VaadinSession session;
+    private VaadinRequest request;
+
+    @Before
+    public void setup() {
+        session = new AlwaysLockedVaadinSession(null);
+        request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.replay(request);
+    }
+
+    private TestUI addUI() {
+        TestUI ui = new TestUI();
+        ui.setSession(session);
+        ui.doInit(request, session.getNextUIid(), null);
+        session.addUI(ui);
+        return ui;
+    }
+
+    private static long getCategorySize(MemoryEstimate estimate,
+            String category) {
+        Long size = estimate.getCategorySizes().get(category);
+        return size == null ? 0 : size.longValue();
+    }
+
+    @Test
+    public void estimate_containerGrows_containerCategoryGrows() {
+        TestUI ui = addUI();
+        ui.addPersons(10);
+        MemoryEstimate small = MemoryDiagnostics.estimate(ui);
+        ui.addPersons(1000);
+        MemoryEstimate large = MemoryDiagnostics.estimate(ui);
+
+        String container = BeanItemContainer.class.getName();
+        Assert.assertTrue(getCategorySize(large, container) > 50 * getCategorySize(
+                small, container));
+        Assert.assertTrue(getCategorySize(large, Table.class.getName()) > 0);
+        Assert.assertTrue(getCategorySize(large, TestUI.class.getName()) > 0);
+    }
+
+    @Test
+    public void estimate_encodedStates_diffStatesIncluded()
+            throws JSONException {
+        TestUI ui = addUI();
+        Assert.assertEquals(0, getCategorySize(MemoryDiagnostics.estimate(ui),
+                MemoryEstimate.DIFF_STATES));
+
+        for (ClientConnector connector : ui.getConnectorTracker()
+                .getDirtyVisibleConnectors()) {
+            connector.encodeState();
+        }
+        Assert.assertTrue(getCategorySize(MemoryDiagnostics.estimate(ui),
+                MemoryEstimate.DIFF_STATES) > 0);
+    }
+
+    @Test
+    public void estimate_otherUIChanges_estimateUnchanged() {
+        TestUI ui = addUI();
+        TestUI otherUI = addUI();
+        long size = MemoryDiagnostics.estimate(ui).getSize();
+        otherUI.addPersons(100);
+        Assert.assertEquals(size, MemoryDiagnostics.estimate(ui).getSize());
+    }
+
+    @Test
+    public void estimate_session_includesUIsAndSessionData() {
+        TestUI ui = addUI();
+        TestUI otherUI = addUI();
+        session.setAttribute("data", new byte[10000]);
+
+        MemoryEstimate estimate = MemoryDiagnostics.estimate(session);
+        Assert.assertTrue(getCategorySize(estimate, MemoryEstimate.SESSION) > 10000);
+        Assert.assertEquals(
+                MemoryDiagnostics.estimate(ui).getSize()
+                        + MemoryDiagnostics.estimate(otherUI).getSize()
+                        + getCategorySize(estimate, MemoryEstimate.SESSION),
+                estimate.getSize());
+    }
+
+    @Test
+    public void estimate_sessionStoredInHttpSession_otherSessionsExcluded()
+            throws ServiceException {
+        VaadinService service = new VaadinServletService(new VaadinServlet(),
+                new MockDeploymentConfiguration()) {
+            @Override
+            public String getServiceName() {
+                return "test";
+            }
+        };
+        List<TestHttpSession> httpSessions = new ArrayList<TestHttpSession>();
+        WrappedSession wrappedSession = new WrappedHttpSession(
+                new TestHttpSession(httpSessions));
+        WrappedSession otherWrappedSession = new WrappedHttpSession(
+                new TestHttpSession(httpSessions));
+        service.lockSession(wrappedSession);
+        service.lockSession(otherWrappedSession);
+        session.storeInSession(service, wrappedSession);
+        addUI();
+
+        VaadinSession otherSession = new AlwaysLockedVaadinSession(service);
+        otherSession.storeInSession(service, otherWrappedSession);
+        otherSession.setAttribute("data", new byte[10000]);
+        Assert.assertTrue(getCategorySize(MemoryDiagnostics.estimate(session),
+                MemoryEstimate.SESSION) < 10000);
+    }
+
+    @Test
+    public void sample_uisPerSampleLimited_estimatedIncrementally() {
+        addUI();
+        addUI();
+        TestUI lastUI = addUI();
+        MemoryDiagnostics diagnostics = new MemoryDiagnostics();
+        diagnostics.setUIsPerSample(2);
+        diagnostics.addSession(session);
+        Assert.assertNull(diagnostics.getEstimate(session));
+
+        diagnostics.sample();
+        Assert.assertEquals(1, diagnostics.getSessionCount());
+        Assert.assertEquals(2, diagnostics.getUICount());
+        Assert.assertNull(diagnostics.getEstimate(lastUI));
+
+        diagnostics.sample();
+        Assert.assertEquals(3, diagnostics.getUICount());
+        Assert.assertNotNull(diagnostics.getEstimate(lastUI));
+        Assert.assertEquals(MemoryDiagnostics.estimate(session).getSize(),
+                diagnostics.getEstimate(session).getSize());
+        Assert.assertEquals(diagnostics.getEstimate(session).getSize(),
+                diagnostics.getEstimatedSize());
+        Assert.assertEquals(1, diagnostics.getLargestSessions().length);
+        Assert.assertTrue(diagnostics.getLargestCategories().length > 0);
+
+        session.removeUI(lastUI);
+        diagnostics.sample();
+        Assert.assertEquals(2, diagnostics.getUICount());
+
+        diagnostics.removeSession(session);
+        Assert.assertEquals(0, diagnostics.getSessionCount());
+        Assert.assertEquals(0, diagnostics.getEstimatedSize());
+    }
+
+    @Test
+    public void sample_sessionLockedByOtherThread_sessionSkipped()
+            throws InterruptedException {
+        addUI();
+        MemoryDiagnostics diagnostics = new MemoryDiagnostics();
+        diagnostics.addSession(session);
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch sampled = new CountDownLatch(1);
+        final VaadinSession otherSession = new AlwaysLockedVaadinSession(null);
+        otherSession.getLockInstance().unlock();
+        diagnostics.addSession(otherSession);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                otherSession.getLockInstance().lock();
+                locked.countDown();
+                try {
+                    sampled.await();
+                } catch (InterruptedException e) {
+                }
+                otherSession.getLockInstance().unlock();
+            }
+        };
+        thread.start();
+        locked.await();
+        diagnostics.sample();
+        Assert.assertNotNull(diagnostics.getEstimate(session));
+        Assert.assertNull(diagnostics.getEstimate(otherSession));
+        sampled.countDown();
+        thread.join();
+
+        diagnostics.sample();
+        Assert.assertNotNull(diagnostics.getEstimate(otherSession));
+    }
+
+    @Test
+    public void sample_sessionAddedWhileSampling_notBlocked()
+            throws InterruptedException {
+        final MemoryDiagnostics diagnostics = new MemoryDiagnostics();
+        final VaadinSession addedSession = new AlwaysLockedVaadinSession(null);
+        final Thread adder = new Thread() {
+            @Override
+            public void run() {
+                diagnostics.addSession(addedSession);
+            }
+        };
+        final boolean[] added = new boolean[1];
+        VaadinSession sampledSession = new AlwaysLockedVaadinSession(null) {
+            @Override
+            public Collection<UI> getUIs() {
+                // Called while walking the UIs of the session
+                adder.start();
+                try {
+                    adder.join(5000);
+                } catch (InterruptedException e) {
+                }
+                added[0] = !adder.isAlive();
+                return super.getUIs();
+            }
+        };
+        diagnostics.addSession(sampledSession);
+
+        diagnostics.sample();
+        adder.join();
+
+        Assert.assertTrue(added[0]);
+        Assert.assertEquals(2, diagnostics.getSessionCount());
+        Assert.assertNotNull(diagnostics.getEstimate(sampledSession));
+    }
+
+    @Test
+    public void install_serviceDestroyed_mBeanUnregistered() throws Exception {
+        VaadinService service = EasyMock.createNiceMock(VaadinService.class);
+        EasyMock.expect(service.getServiceName()).andReturn("test")
+                .anyTimes();
+        EasyMock.replay(service);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+                "com.vaadin:type=MemoryDiagnostics,service="
+                        + ObjectName.quote("test"));
+
+        MemoryDiagnostics diagnostics = MemoryDiagnostics.install(service);
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertEquals(0, server.getAttribute(name, "SessionCount"));
+
+        diagnostics.serviceDestroy(new ServiceDestroyEvent(service));
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
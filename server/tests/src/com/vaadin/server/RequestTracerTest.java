@@ -0,0 +1,215 @@
+package com.vaadin.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.RequestTrace.Phase;
+import com.vaadin.util.CurrentInstance;
+
+public class RequestTracerTest {
+
+    private RequestTracer tracer = new RequestTracer();
+
+    private RequestTraceBuffer buffer = new RequestTraceBuffer(10);
+
+    @After
+    public void tearDown() {
+        CurrentInstance.clearAll();
+    }
+
+    /**
+     * Creates a request with the given path info that keeps its attributes.
+     */
+    private static VaadinRequest createRequest(final String pathInfo) {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        return (VaadinRequest) Proxy.newProxyInstance(
+                VaadinRequest.class.getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getPathInfo")) {
+                            return pathInfo;
+                        } else if (name.equals("getAttribute")) {
+                            return attributes.get(args[0]);
+                        } else if (name.equals("setAttribute")) {
+                            attributes.put((String) args[0], args[1]);
+                        } else if (name.equals("removeAttribute")) {
+                            attributes.remove(args[0]);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Test
+    public void uidlRequest_traceExported() {
+        tracer.addExporter(buffer);
+        VaadinRequest request = createRequest("/UIDL/");
+
+        tracer.requestStart(request);
+        RequestTrace trace = RequestTrace.getCurrent();
+        Assert.assertNotNull(trace);
+        Assert.assertEquals("UIDL", trace.getRequestType());
+        trace.addTime(Phase.RPC_DECODING, System.nanoTime() - 2000000);
+        trace.addTime(Phase.RPC_DECODING, System.nanoTime() - 3000000);
+        Assert.assertTrue(buffer.getTraces().isEmpty());
+
+        tracer.requestEnd(request);
+        Assert.assertNull(RequestTrace.getCurrent());
+        Assert.assertEquals(1, buffer.getTraces().size());
+        Assert.assertSame(trace, buffer.getTraces().get(0));
+        Assert.assertTrue(trace.getNanos(Phase.RPC_DECODING) >= 5000000);
+        Assert.assertEquals(0, trace.getNanos(Phase.LEGACY_PAINT));
+        Assert.assertTrue(trace.getTotalNanos() >= 0);
+        Assert.assertEquals(-1, trace.getUIId());
+    }
+
+    @Test
+    public void otherRequest_notTraced() {
+        tracer.addExporter(buffer);
+        VaadinRequest request = createRequest("/VAADIN/themes/foo.css");
+
+        tracer.requestStart(request);
+        Assert.assertNull(RequestTrace.getCurrent());
+        tracer.requestEnd(request);
+
+        Assert.assertTrue(buffer.getTraces().isEmpty());
+    }
+
+    @Test
+    public void sampleInterval_everyNthRequestTraced() {
+        tracer.addExporter(buffer);
+        tracer.setSampleInterval(3);
+
+        for (int i = 0; i < 7; i++) {
+            VaadinRequest request = createRequest("/PUSH/");
+            tracer.requestStart(request);
+            tracer.requestEnd(request);
+        }
+
+        List<RequestTrace> traces = buffer.getTraces();
+        Assert.assertEquals(3, traces.size());
+        Assert.assertEquals("push", traces.get(0).getRequestType());
+    }
+
+    @Test
+    public void failingExporter_otherExportersCalled() {
+        tracer.addExporter(new RequestTraceExporter() {
+            @Override
+            public void export(RequestTrace trace) {
+                throw new IllegalStateException("Expected");
+            }
+        });
+        tracer.addExporter(buffer);
+
+        VaadinRequest request = createRequest("/UIDL/");
+        tracer.requestStart(request);
+        tracer.requestEnd(request);
+
+        Assert.assertEquals(1, buffer.getTraces().size());
+    }
+
+    @Test
+    public void buffer_overflow_oldestDiscarded() {
+        RequestTraceBuffer small = new RequestTraceBuffer(3);
+        RequestTrace[] traces = new RequestTrace[5];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = new RequestTrace("UIDL");
+            small.export(traces[i]);
+        }
+
+        List<RequestTrace> kept = small.getTraces();
+        Assert.assertEquals(3, kept.size());
+        Assert.assertSame(traces[2], kept.get(0));
+        Assert.assertSame(traces[3], kept.get(1));
+        Assert.assertSame(traces[4], kept.get(2));
+
+        small.clear();
+        Assert.assertTrue(small.getTraces().isEmpty());
+    }
+
+    @Test
+    public void jmxExporter_averagesAndReset() {
+        JmxRequestTraceExporter exporter = new JmxRequestTraceExporter();
+        RequestTrace fast = new RequestTrace("UIDL");
+        fast.addTime(Phase.STATE_ENCODING, System.nanoTime() - 2000000);
+        fast.end(1);
+        RequestTrace slow = new RequestTrace("UIDL");
+        slow.addTime(Phase.STATE_ENCODING, System.nanoTime() - 4000000);
+        slow.end(1);
+
+        exporter.export(fast);
+        exporter.export(slow);
+
+        Assert.assertEquals(2, exporter.getRequestCount());
+        Assert.assertTrue(exporter.getAverageMillis("STATE_ENCODING") >= 3);
+        Assert.assertEquals(0, exporter.getAverageMillis("LOCK_WAIT"), 0);
+        Assert.assertEquals(Phase.values().length,
+                exporter.getPhaseAverages().length);
+        Assert.assertEquals(Math.max(fast.getTotalNanos(),
+                slow.getTotalNanos()) / 1000000.0, exporter.getMaxMillis(), 0);
+
+        exporter.reset();
+        Assert.assertEquals(0, exporter.getRequestCount());
+        Assert.assertEquals(0, exporter.getAverageMillis(), 0);
+    }
+
+    @Test
+    public void jmxExporter_serviceDestroyed_mBeanUnregistered()
+            throws Exception {
+        VaadinService service = EasyMock.createNiceMock(VaadinService.class);
+        EasyMock.expect(service.getServiceName()).andReturn("tracetest")
+                .anyTimes();
+        EasyMock.replay(service);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.vaadin:type=RequestTraces,"
+                + "service=" + ObjectName.quote("tracetest"));
+
+        JmxRequestTraceExporter exporter = new JmxRequestTraceExporter();
+        exporter.register(service);
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertEquals(Long.valueOf(0),
+                server.getAttribute(name, "RequestCount"));
+
+        exporter.serviceDestroy(new ServiceDestroyEvent(service));
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void jmxExporter_earlierExporterNotUnregistered_replaced()
+            throws Exception {
+        VaadinService service = EasyMock.createNiceMock(VaadinService.class);
+        EasyMock.expect(service.getServiceName()).andReturn("replacetest")
+                .anyTimes();
+        EasyMock.replay(service);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.vaadin:type=RequestTraces,"
+                + "service=" + ObjectName.quote("replacetest"));
+
+        new JmxRequestTraceExporter().register(service);
+        JmxRequestTraceExporter exporter = new JmxRequestTraceExporter();
+        exporter.register(service);
+        exporter.export(new RequestTrace("UIDL"));
+        Assert.assertEquals(Long.valueOf(1),
+                server.getAttribute(name, "RequestCount"));
+
+        exporter.serviceDestroy(new ServiceDestroyEvent(service));
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
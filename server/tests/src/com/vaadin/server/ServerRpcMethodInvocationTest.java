@@ -0,0 +1,126 @@
+package com.vaadin.server;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.shared.ui.label.ContentMode;
+
+/**
+ * Tests for decoding and dispatching RPC invocations using
+ * {@link ServerRpcMethodInvocation} and {@link ServerRpcManager}.
+ */
+public class ServerRpcMethodInvocationTest extends TestCase {
+
+    public interface TestRpc extends ServerRpc {
+        public void call(String string, int number, boolean flag);
+
+        public void call(ContentMode mode);
+
+        public void values(List<Integer> list, Double decimal, long big,
+                float small);
+    }
+
+    private static class RecordingRpc implements TestRpc {
+        private List<Object> arguments;
+
+        @Override
+        public void call(String string, int number, boolean flag) {
+            arguments = Arrays.<Object> asList(string, number, flag);
+        }
+
+        @Override
+        public void call(ContentMode mode) {
+            arguments = Arrays.<Object> asList(mode);
+        }
+
+        @Override
+        public void values(List<Integer> list, Double decimal, long big,
+                float small) {
+            arguments = Arrays.<Object> asList(list, decimal, big, small);
+        }
+    }
+
+    private RecordingRpc implementation = new RecordingRpc();
+    private ServerRpcManager<TestRpc> manager = new ServerRpcManager<TestRpc>(
+            implementation, TestRpc.class);
+
+    private void invoke(String methodName, JSONArray parameters)
+            throws Exception {
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", TestRpc.class, methodName, parameters.length());
+        invocation.decodeParameters(parameters, null);
+        manager.applyInvocation(invocation);
+    }
+
+    public void testPrimitiveParameters() throws Exception {
+        invoke("call", new JSONArray("['foo', 42, true]"));
+        assertEquals(Arrays.<Object> asList("foo", 42, true),
+                implementation.arguments);
+    }
+
+    public void testOverloadSelectedByParameterCount() throws Exception {
+        invoke("call", new JSONArray("['PREFORMATTED']"));
+        assertEquals(Arrays.<Object> asList(ContentMode.PREFORMATTED),
+                implementation.arguments);
+    }
+
+    public void testParameterizedAndBoxedParameters() throws Exception {
+        invoke("values", new JSONArray("[[1, 2], 1.5, 12345678901, 0.25]"));
+        assertEquals(
+                Arrays.<Object> asList(Arrays.asList(1, 2), 1.5, 12345678901L,
+                        0.25f), implementation.arguments);
+    }
+
+    public void testNullParameter() throws Exception {
+        JSONArray parameters = new JSONArray();
+        parameters.put(JSONObject.NULL);
+        parameters.put(JSONObject.NULL);
+        parameters.put(0);
+        parameters.put(0);
+        invoke("values", parameters);
+        assertEquals(Arrays.<Object> asList(null, null, 0L, 0f),
+                implementation.arguments);
+    }
+
+    public void testUnknownMethod() {
+        try {
+            new ServerRpcMethodInvocation("1", TestRpc.class, "call", 2);
+            fail("Method with wrong number of parameters should not be found");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testValueDecodersMatchGenericDecoding() throws Exception {
+        Type[] types = { String.class, int.class, Integer.class,
+                boolean.class, long.class, Long.class, double.class,
+                float.class };
+        Object[] values = { "text", 1, 1.0, "2", true, "false", 3L,
+                12345678901L, JSONObject.NULL };
+        for (Type type : types) {
+            JsonCodec.ValueDecoder decoder = JsonCodec.getValueDecoder(type);
+            for (Object value : values) {
+                Object expected;
+                try {
+                    expected = JsonCodec.decodeInternalOrCustomType(type,
+                            value, null);
+                } catch (NumberFormatException e) {
+                    expected = e.getClass();
+                }
+                Object decoded;
+                try {
+                    decoded = decoder.decode(value, null);
+                } catch (NumberFormatException e) {
+                    decoded = e.getClass();
+                }
+                assertEquals(type + " from " + value, expected, decoded);
+            }
+        }
+    }
+}
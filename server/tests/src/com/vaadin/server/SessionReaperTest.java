@@ -0,0 +1,324 @@
+package com.vaadin.server;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Property;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.TableRowCacheBudget;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.util.CurrentInstance;
+
+public class SessionReaperTest {
+
+    public static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    public static class CountingContainer extends IndexedContainer implements
+            CacheEvictable {
+        private int evictions = 0;
+
+        @Override
+        public void evictCaches() {
+            evictions++;
+        }
+    }
+
+    public static class ReadCountingContainer extends IndexedContainer {
+        private int reads = 0;
+
+        @Override
+        public Property getContainerProperty(Object itemId, Object propertyId) {
+            reads++;
+            return super.getContainerProperty(itemId, propertyId);
+        }
+
+        @Override
+        public Object getIdByIndex(int index) {
+            reads++;
+            return super.getIdByIndex(index);
+        }
+    }
+
+    private static class TestSession extends AlwaysLockedVaadinSession {
+        private final WrappedSession wrappedSession;
+
+        public TestSession(VaadinService service, int maxInactiveInterval) {
+            super(service);
+            wrappedSession = EasyMock.createNiceMock(WrappedSession.class);
+            EasyMock.expect(wrappedSession.getId()).andReturn("session")
+                    .anyTimes();
+            EasyMock.expect(wrappedSession.getMaxInactiveInterval())
+                    .andReturn(maxInactiveInterval).anyTimes();
+            EasyMock.replay(wrappedSession);
+        }
+
+        @Override
+        public WrappedSession getSession() {
+            return wrappedSession;
+        }
+
+        @Override
+        public void removeFromSession(VaadinService service) {
+            // Not stored in the wrapped session
+        }
+    }
+
+    private MockDeploymentConfiguration configuration;
+    private VaadinService service;
+    private VaadinRequest request;
+    private VaadinSession session;
+    private SessionReaper reaper;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new MockDeploymentConfiguration();
+        configuration.setHeartbeatInterval(1);
+        service = new VaadinServletService(new VaadinServlet(), configuration) {
+            @Override
+            public String getServiceName() {
+                return "test";
+            }
+        };
+        request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.replay(request);
+
+        session = new TestSession(service, 1);
+        reaper = new SessionReaper(service);
+        reaper.setEvictionIdleTime(-1);
+        reaper.setPressureEvictionIdleTime(-1);
+        service.addSessionDestroyListener(reaper);
+        reaper.addSession(session);
+    }
+
+    @After
+    public void tearDown() {
+        reaper.stop();
+        CurrentInstance.clearAll();
+    }
+
+    private UI addUI(VaadinSession session) {
+        UI ui = new TestUI();
+        ui.setSession(session);
+        ui.doInit(request, session.getNextUIid(), null);
+        session.addUI(ui);
+        return ui;
+    }
+
+    @Test
+    public void scan_heartbeatExpired_uiClosedAndRemoved() {
+        UI active = addUI(session);
+        UI expired = addUI(session);
+        expired.setLastHeartbeatTimestamp(System.currentTimeMillis() - 10000);
+
+        reaper.scan();
+
+        Assert.assertTrue(expired.isClosing());
+        Assert.assertNull(session.getUIById(expired.getUIId()));
+        Assert.assertSame(active, session.getUIById(active.getUIId()));
+        Assert.assertFalse(active.isClosing());
+        Assert.assertEquals(1, reaper.getClosedUICount());
+        Assert.assertEquals(1, reaper.getScanCount());
+    }
+
+    @Test
+    public void scan_sessionFails_otherSessionsScanned() {
+        for (int i = 0; i < 5; i++) {
+            reaper.addSession(new TestSession(service, 1) {
+                @Override
+                public Collection<UI> getUIs() {
+                    throw new IllegalStateException("Expected");
+                }
+            });
+        }
+        UI expired = addUI(session);
+        expired.setLastHeartbeatTimestamp(System.currentTimeMillis() - 10000);
+
+        reaper.scan();
+
+        Assert.assertTrue(expired.isClosing());
+        Assert.assertEquals(1, reaper.getClosedUICount());
+    }
+
+    @Test
+    public void scan_idleSessionWithCloseIdleSessions_sessionClosed() {
+        configuration.setCloseIdleSessions(true);
+        UI ui = addUI(session);
+        session.setLastRequestTimestamp(System.currentTimeMillis() - 10000);
+
+        reaper.scan();
+
+        Assert.assertTrue(session.isClosing());
+        Assert.assertTrue(ui.isClosing());
+        Assert.assertTrue(session.getUIs().isEmpty());
+        Assert.assertEquals(1, reaper.getClosedSessionCount());
+        // Removed when the session destroy event was fired
+        Assert.assertEquals(0, reaper.getSessionCount());
+    }
+
+    @Test
+    public void scan_activeSession_nothingClosed() {
+        configuration.setCloseIdleSessions(true);
+        UI ui = addUI(session);
+
+        reaper.scan();
+
+        Assert.assertFalse(session.isClosing());
+        Assert.assertFalse(ui.isClosing());
+        Assert.assertEquals(0, reaper.getClosedUICount());
+        Assert.assertEquals(0, reaper.getClosedSessionCount());
+    }
+
+    @Test
+    public void scan_sessionLockedByOtherThread_sessionSkipped()
+            throws InterruptedException {
+        final UI expired = addUI(session);
+        expired.setLastHeartbeatTimestamp(System.currentTimeMillis() - 10000);
+
+        // The test thread holds the lock of the session
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                reaper.scan();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        Assert.assertFalse(expired.isClosing());
+        Assert.assertEquals(0, reaper.getClosedUICount());
+    }
+
+    @Test
+    public void scan_idleSession_cachesEvictedOnce() {
+        CountingContainer container = new CountingContainer();
+        UI ui = addUI(session);
+        VerticalLayout layout = new VerticalLayout();
+        // The container of both components is evicted only once
+        layout.addComponent(new ComboBox(null, container));
+        layout.addComponent(new Table(null, container));
+        ui.setContent(layout);
+        reaper.setEvictionIdleTime(0);
+
+        reaper.scan();
+        Assert.assertEquals(1, container.evictions);
+        Assert.assertEquals(1, reaper.getEvictedUICount());
+
+        // Not evicted again without requests in between
+        reaper.scan();
+        Assert.assertEquals(1, container.evictions);
+
+        session.setLastRequestTimestamp(System.currentTimeMillis() - 1);
+        reaper.scan();
+        Assert.assertEquals(2, container.evictions);
+    }
+
+    @Test
+    public void scan_recentlyActiveSession_cachesNotEvicted() {
+        CountingContainer container = new CountingContainer();
+        UI ui = addUI(session);
+        ui.setContent(new Table(null, container));
+        reaper.setEvictionIdleTime(600);
+
+        reaper.scan();
+
+        Assert.assertEquals(0, container.evictions);
+        Assert.assertEquals(0, reaper.getEvictedUICount());
+    }
+
+    @Test
+    public void scan_heapPressure_pressureIdleTimeUsed() {
+        CountingContainer container = new CountingContainer();
+        UI ui = addUI(session);
+        ui.setContent(new Table(null, container));
+        SessionReaper pressured = new SessionReaper(service) {
+            @Override
+            protected boolean isUnderHeapPressure() {
+                return true;
+            }
+        };
+        pressured.setEvictionIdleTime(600);
+        pressured.setPressureEvictionIdleTime(0);
+        pressured.addSession(session);
+
+        pressured.scan();
+
+        Assert.assertEquals(1, container.evictions);
+    }
+
+    /**
+     * Simulates the client scrolling to the top and requesting the rows after
+     * the first page to its cache.
+     */
+    private static void requestRows(Table table) {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("firstvisible", 0);
+        variables.put("reqfirstrow", 10);
+        variables.put("reqrows", 20);
+        variables.put("firstToBeRendered", 0);
+        variables.put("lastToBeRendered", 29);
+        table.changeVariables(table, variables);
+    }
+
+    @Test
+    public void evictCaches_table_rowsOutsidePageEvictedUntilClientReturns() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(100000);
+        TableRowCacheBudget.set(session, budget);
+        ReadCountingContainer container = new ReadCountingContainer();
+        container.addContainerProperty("value", String.class, "");
+        for (int i = 0; i < 200; i++) {
+            container.addItem(Integer.valueOf(i));
+        }
+        Table table = new Table(null, container);
+        table.setPageLength(10);
+        UI ui = addUI(session);
+        ui.setContent(table);
+        requestRows(table);
+        Assert.assertEquals(30, budget.getCachedCells(table));
+        ui.getConnectorTracker().markAllConnectorsClean();
+        container.reads = 0;
+
+        SessionReaper.evictCaches(ui);
+        // Only the first page is cached
+        Assert.assertEquals(10, budget.getCachedCells(table));
+        Assert.assertEquals(0, container.reads);
+        Assert.assertFalse(ui.getConnectorTracker().isDirty(table));
+
+        // Evicted rows are no longer listened to
+        container.getContainerProperty(Integer.valueOf(20), "value")
+                .setValue("changed");
+        Assert.assertFalse(ui.getConnectorTracker().isDirty(table));
+        container.getContainerProperty(Integer.valueOf(5), "value")
+                .setValue("changed");
+        Assert.assertTrue(ui.getConnectorTracker().isDirty(table));
+
+        requestRows(table);
+        Assert.assertEquals(30, budget.getCachedCells(table));
+    }
+
+    @Test
+    public void serviceDestroy_scansStopped() {
+        reaper.start();
+        Assert.assertTrue(reaper.isStarted());
+
+        reaper.serviceDestroy(new ServiceDestroyEvent(service));
+
+        Assert.assertFalse(reaper.isStarted());
+        Assert.assertEquals(0, reaper.getSessionCount());
+    }
+}
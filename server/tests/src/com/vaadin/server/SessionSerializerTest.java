@@ -0,0 +1,196 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+public class SessionSerializerTest {
+
+    public static class Person implements Serializable {
+        private String name;
+        private int age;
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    public static class TestUI extends UI {
+        private ComboBox comboBox;
+
+        @Override
+        protected void init(VaadinRequest request) {
+            BeanItemContainer<Person> persons = new BeanItemContainer<Person>(
+                    Person.class);
+            for (int i = 0; i < 50; i++) {
+                persons.addBean(new Person("Person " + i, i));
+            }
+            comboBox = new ComboBox("Person", persons);
+            comboBox.setItemCaptionPropertyId("name");
+
+            VerticalLayout layout = new VerticalLayout();
+            layout.addComponent(new TextField("Name", "value"));
+            layout.addComponent(new Table("Persons", persons));
+            layout.addComponent(comboBox);
+            setContent(layout);
+        }
+    }
+
+    private VaadinSession session;
+
+    @Before
+    public void setup() {
+        session = new AlwaysLockedVaadinSession(null);
+        VaadinRequest request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.replay(request);
+        for (int i = 0; i < 2; i++) {
+            TestUI ui = new TestUI();
+            ui.setSession(session);
+            ui.doInit(request, session.getNextUIid(), null);
+            session.addUI(ui);
+        }
+    }
+
+    private VaadinSession roundTrip(SessionSerializer serializer)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeSession(session, out);
+        return new SessionSerializer().readSession(new ByteArrayInputStream(
+                out.toByteArray()), getClass().getClassLoader());
+    }
+
+    private void assertRestored(VaadinSession restored) {
+        // The deserialized lock is not held
+        restored.getLockInstance().lock();
+        Assert.assertEquals(2, restored.getUIs().size());
+        for (UI ui : restored.getUIs()) {
+            Assert.assertSame(restored, ui.getSession());
+            ComboBox comboBox = ((TestUI) ui).comboBox;
+            Assert.assertEquals(50, comboBox.size());
+            Assert.assertEquals("Person 3",
+                    comboBox.getItemCaption(comboBox.getItemIds().toArray()[3]));
+        }
+    }
+
+    @Test
+    public void roundTrip_defaultSettings_sessionRestored() throws Exception {
+        assertRestored(roundTrip(new SessionSerializer()));
+    }
+
+    @Test
+    public void roundTrip_uncompressed_sessionRestored() throws Exception {
+        SessionSerializer serializer = new SessionSerializer();
+        serializer.setCompressed(false);
+        assertRestored(roundTrip(serializer));
+    }
+
+    @Test
+    public void roundTrip_compactClassDescriptors_sessionRestored()
+            throws Exception {
+        SessionSerializer serializer = new SessionSerializer();
+        serializer.setCompactClassDescriptors(true);
+        assertRestored(roundTrip(serializer));
+    }
+
+    @Test
+    public void defaultSettings_standardClassDescriptors() {
+        Assert.assertFalse(new SessionSerializer().isCompactClassDescriptors());
+    }
+
+    @Test
+    public void writeSession_compactAndCompressed_smallerThanDefault()
+            throws Exception {
+        ByteArrayOutputStream standard = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(standard);
+        objectOut.writeObject(session);
+        objectOut.close();
+
+        SessionSerializer serializer = new SessionSerializer();
+        serializer.setCompactClassDescriptors(true);
+        serializer.setCompressed(false);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        serializer.writeSession(session, compact);
+        Assert.assertTrue(compact.size() < standard.size());
+
+        serializer.setCompressed(true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        serializer.writeSession(session, compressed);
+        Assert.assertTrue(compressed.size() < compact.size());
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void readSession_notASession_exception() throws Exception {
+        new SessionSerializer().readSession(new ByteArrayInputStream(
+                new byte[] { 1, 2, 3, 4, 5 }), getClass().getClassLoader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCompressionLevel_outOfRange_exception() {
+        new SessionSerializer().setCompressionLevel(10);
+    }
+
+    @Test
+    public void measure_sessionWithUIs_sizesReported() throws IOException {
+        SessionSerializationStatistics statistics = new SessionSerializer()
+                .measure(session);
+
+        Map<Integer, Long> uiSizes = statistics.getUISizes();
+        Assert.assertEquals(2, uiSizes.size());
+        long uiTotal = 0;
+        for (UI ui : session.getUIs()) {
+            long uiSize = uiSizes.get(Integer.valueOf(ui.getUIId()))
+                    .longValue();
+            Assert.assertTrue(uiSize > 0);
+            uiTotal += uiSize;
+        }
+        Assert.assertTrue(uiTotal <= statistics.getSessionSize() * 2);
+
+        Map<Class<?>, Long> classSizes = statistics.getClassSizes();
+        Assert.assertEquals(100,
+                statistics.getInstanceCounts().get(Person.class).longValue());
+        Assert.assertEquals(2, statistics.getInstanceCounts()
+                .get(TestUI.class).longValue());
+        long previous = Long.MAX_VALUE;
+        long classTotal = 0;
+        for (Long size : classSizes.values()) {
+            Assert.assertTrue(size.longValue() <= previous);
+            previous = size.longValue();
+            classTotal += previous;
+        }
+        Assert.assertTrue(classTotal <= statistics.getSessionSize());
+    }
+}
@@ -47,6 +47,8 @@ public class TestClassesSerializable extends TestCase {
             "com\\.vaadin\\.server\\.MockServletContext", //
             "com\\.vaadin\\.server\\.Constants", //
             "com\\.vaadin\\.server\\.communication\\.FileUploadHandler\\$SimpleMultiPartInputStream", //
+            "com\\.vaadin\\.server\\.SessionSerializer\\$.*Stream", //
+            "com\\.vaadin\\.server\\.MemoryDiagnostics\\$ObjectGraphWalker", //
             "com\\.vaadin\\.server\\.communication\\.PushRequestHandler.*",
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             // and its inner classes do not need to be serializable
@@ -1,9 +1,21 @@
 package com.vaadin.tests.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EventObject;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import com.vaadin.data.Property.ValueChangeEvent;
 import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.event.EventRouter;
 import com.vaadin.ui.TextField;
 
 public class TestEventRouter extends TestCase {
@@ -36,4 +48,110 @@ public class TestEventRouter extends TestCase {
         tf.setValue("ghi"); // Two inner listener calls, adds one inner
         assert (innerListenerCalls == 3);
     }
+
+    public static class SubEvent extends EventObject {
+        public SubEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class RecordingListener implements Serializable {
+        private final String name;
+        private final List<String> calls;
+
+        public RecordingListener(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        public void receive(EventObject event) {
+            calls.add(name + ":" + event.getClass().getSimpleName());
+        }
+    }
+
+    private static final Method RECEIVE_METHOD;
+    static {
+        try {
+            RECEIVE_METHOD = RecordingListener.class.getMethod("receive",
+                    EventObject.class);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void testListenersByEventType() {
+        List<String> calls = new ArrayList<String>();
+        EventRouter router = new EventRouter();
+        router.addListener(EventObject.class, new RecordingListener("a",
+                calls), RECEIVE_METHOD);
+        router.addListener(SubEvent.class, new RecordingListener("b", calls),
+                RECEIVE_METHOD);
+        router.addListener(EventObject.class, new RecordingListener("c",
+                calls), RECEIVE_METHOD);
+
+        router.fireEvent(new EventObject(this));
+        router.fireEvent(new SubEvent(this));
+
+        assertEquals(Arrays.asList("a:EventObject", "c:EventObject",
+                "a:SubEvent", "b:SubEvent", "c:SubEvent"), calls);
+    }
+
+    public void testRemoveInEventListener() {
+        final List<String> calls = new ArrayList<String>();
+        final EventRouter router = new EventRouter();
+        final RecordingListener second = new RecordingListener("second",
+                calls);
+        router.addListener(EventObject.class, new RecordingListener("first",
+                calls) {
+            @Override
+            public void receive(EventObject event) {
+                super.receive(event);
+                router.removeListener(EventObject.class, second,
+                        RECEIVE_METHOD);
+            }
+        }, RECEIVE_METHOD);
+        router.addListener(EventObject.class, second, RECEIVE_METHOD);
+
+        router.fireEvent(new EventObject(this));
+        // The removed listener still receives the event being fired
+        assertEquals(2, calls.size());
+
+        router.fireEvent(new EventObject(this));
+        assertEquals(Arrays.asList("first:EventObject", "second:EventObject",
+                "first:EventObject"), calls);
+        assertFalse(router.hasListeners(SubEvent.class));
+        assertTrue(router.hasListeners(EventObject.class));
+    }
+
+    public void testFireAfterDeserialization() throws Exception {
+        EventRouter router = new EventRouter();
+        router.addListener(EventObject.class, new RecordingListener("a",
+                new ArrayList<String>()), RECEIVE_METHOD);
+        router.fireEvent(new EventObject(this));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ObjectOutputStream(bytes).writeObject(router);
+        EventRouter deserialized = (EventRouter) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        deserialized.fireEvent(new EventObject(""));
+
+        RecordingListener listener = (RecordingListener) deserialized
+                .getListeners(EventObject.class).iterator().next();
+        assertEquals(Arrays.asList("a:EventObject", "a:EventObject"),
+                listener.calls);
+    }
+
+    public void testRemoveAllListeners() {
+        List<String> calls = new ArrayList<String>();
+        EventRouter router = new EventRouter();
+        router.addListener(EventObject.class, new RecordingListener("a",
+                calls), RECEIVE_METHOD);
+        router.fireEvent(new EventObject(this));
+        router.removeAllListeners();
+        router.fireEvent(new EventObject(this));
+        router.addListener(EventObject.class, new RecordingListener("b",
+                calls), RECEIVE_METHOD);
+        router.fireEvent(new EventObject(this));
+        assertEquals(Arrays.asList("a:EventObject", "b:EventObject"), calls);
+    }
 }
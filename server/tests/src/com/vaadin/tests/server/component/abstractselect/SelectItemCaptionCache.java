@@ -0,0 +1,237 @@
+package com.vaadin.tests.server.component.abstractselect;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.data.util.ObjectProperty;
+import com.vaadin.server.JsonPaintTarget;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.PaintException;
+import com.vaadin.shared.ui.select.AbstractSelectConstants;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.AbstractSelect.ItemCaptionMode;
+import com.vaadin.ui.ListSelect;
+
+public class SelectItemCaptionCache {
+
+    private static class Caption {
+        private String text;
+        private int computed;
+
+        private Caption(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            computed++;
+            return text;
+        }
+    }
+
+    public static class Bean {
+        private String name;
+
+        public Bean(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    private IndexedContainer container;
+    private ListSelect select;
+    private Caption[] captions = new Caption[5];
+
+    @Before
+    public void setUp() {
+        container = new IndexedContainer();
+        container.addContainerProperty("caption", Caption.class, null);
+        for (int i = 0; i < captions.length; i++) {
+            captions[i] = new Caption("Item " + i);
+            container.addItem(i).getItemProperty("caption")
+                    .setValue(captions[i]);
+        }
+        select = new ListSelect(null, container);
+        select.setItemCaptionPropertyId("caption");
+    }
+
+    private void paint() throws PaintException {
+        LegacyCommunicationManager manager = new LegacyCommunicationManager(
+                new AlwaysLockedVaadinSession(null));
+        JsonPaintTarget target = new JsonPaintTarget(manager,
+                new StringWriter(), false);
+        target.startTag("select");
+        select.paintContent(target);
+        target.endTag("select");
+        target.close();
+    }
+
+    private int computedCaptions() {
+        int computed = 0;
+        for (Caption caption : captions) {
+            computed += caption.computed;
+        }
+        return computed;
+    }
+
+    @Test
+    public void repaint_captionsNotRecomputed() throws PaintException {
+        paint();
+        paint();
+        Assert.assertEquals(captions.length, computedCaptions());
+        Assert.assertEquals("Item 2", select.getItemCaption(2));
+        Assert.assertEquals(captions.length, computedCaptions());
+    }
+
+    @Test
+    public void captionPropertyChanged_captionRecomputed()
+            throws PaintException {
+        paint();
+        container.getContainerProperty(2, "caption").setValue(
+                new Caption("Changed"));
+        Assert.assertEquals("Changed", select.getItemCaption(2));
+        Assert.assertEquals("Item 3", select.getItemCaption(3));
+    }
+
+    @Test
+    public void itemNotPainted_captionNotCached() throws PaintException {
+        select.setOptionPageLength(2);
+        paint();
+        select.getItemCaption(4);
+        select.getItemCaption(4);
+        Assert.assertEquals(2, captions[4].computed);
+    }
+
+    @Test
+    public void itemNoLongerPainted_captionNotCached() throws PaintException {
+        select.setOptionPageLength(2);
+        paint();
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put(AbstractSelectConstants.VARIABLE_OPTION_PAGE, 1);
+        select.changeVariables(select, variables);
+        paint();
+
+        int computed = captions[0].computed;
+        select.getItemCaption(0);
+        Assert.assertEquals(computed + 1, captions[0].computed);
+    }
+
+    @Test
+    public void refreshItemCaptions_captionRecomputed() throws PaintException {
+        paint();
+        captions[1].text = "Modified directly";
+        Assert.assertEquals("Item 1", select.getItemCaption(1));
+        select.refreshItemCaptions();
+        Assert.assertEquals("Modified directly", select.getItemCaption(1));
+    }
+
+    private ListSelect createBeanSelect(BeanItemContainer<Bean> beans) {
+        ListSelect beanSelect = new ListSelect(null, beans);
+        beanSelect.setItemCaptionMode(ItemCaptionMode.PROPERTY);
+        beanSelect.setItemCaptionPropertyId("name");
+        return beanSelect;
+    }
+
+    @Test
+    public void itemReplacedWithSameId_newItemListened() throws PaintException {
+        Bean bean = new Bean("one");
+        BeanItemContainer<Bean> beans = new BeanItemContainer<Bean>(Bean.class);
+        beans.addBean(bean);
+        select = createBeanSelect(beans);
+        paint();
+        Assert.assertEquals("one", select.getItemCaption(bean));
+
+        // A new item with a new property is created for the same bean
+        beans.removeAllItems();
+        beans.addBean(bean);
+        paint();
+        Assert.assertEquals("one", select.getItemCaption(bean));
+
+        beans.getContainerProperty(bean, "name").setValue("two");
+        Assert.assertEquals("two", select.getItemCaption(bean));
+    }
+
+    @Test
+    public void beanModifiedDirectly_captionRecomputedAfterRefresh()
+            throws PaintException {
+        Bean bean = new Bean("one");
+        BeanItemContainer<Bean> beans = new BeanItemContainer<Bean>(Bean.class);
+        beans.addBean(bean);
+        select = createBeanSelect(beans);
+        paint();
+        Assert.assertEquals("one", select.getItemCaption(bean));
+
+        // No notification about changes made directly to the bean
+        bean.setName("two");
+        Assert.assertEquals("one", select.getItemCaption(bean));
+        select.refreshItemCaptions();
+        Assert.assertEquals("two", select.getItemCaption(bean));
+    }
+
+    private ObjectProperty<Caption> useSharedCaption() {
+        final ObjectProperty<Caption> shared = new ObjectProperty<Caption>(
+                new Caption("Shared"));
+        container = new IndexedContainer() {
+            @Override
+            public Property getContainerProperty(Object itemId,
+                    Object propertyId) {
+                if ("caption".equals(propertyId)
+                        && (itemId.equals(1) || itemId.equals(2))) {
+                    return shared;
+                }
+                return super.getContainerProperty(itemId, propertyId);
+            }
+        };
+        container.addContainerProperty("caption", Caption.class, null);
+        for (int i = 0; i < captions.length; i++) {
+            container.addItem(i).getItemProperty("caption")
+                    .setValue(captions[i]);
+        }
+        select.setContainerDataSource(container);
+        return shared;
+    }
+
+    @Test
+    public void sharedCaptionPropertyChanged_allCaptionsRecomputed()
+            throws PaintException {
+        ObjectProperty<Caption> shared = useSharedCaption();
+        paint();
+        Assert.assertEquals("Shared", select.getItemCaption(1));
+        Assert.assertEquals("Shared", select.getItemCaption(2));
+
+        shared.setValue(new Caption("Changed"));
+        Assert.assertEquals("Changed", select.getItemCaption(1));
+        Assert.assertEquals("Changed", select.getItemCaption(2));
+    }
+
+    @Test
+    public void sharedCaptionPropertyOfOtherItemNoLongerPainted_stillListened()
+            throws PaintException {
+        ObjectProperty<Caption> shared = useSharedCaption();
+        select.setOptionPageLength(2);
+        paint();
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put(AbstractSelectConstants.VARIABLE_OPTION_PAGE, 1);
+        select.changeVariables(select, variables);
+        paint();
+        Assert.assertEquals("Shared", select.getItemCaption(2));
+
+        shared.setValue(new Caption("Changed"));
+        Assert.assertEquals("Changed", select.getItemCaption(2));
+    }
+}
@@ -0,0 +1,149 @@
+package com.vaadin.tests.server.component.abstractselect;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.ContainerHierarchicalWrapper;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.shared.ui.select.AbstractSelectConstants;
+import com.vaadin.ui.ListSelect;
+import com.vaadin.ui.TwinColSelect;
+
+public class SelectOptionPaging {
+
+    public static class KeyListSelect extends ListSelect {
+        public KeyListSelect(IndexedContainer container) {
+            super(null, container);
+        }
+
+        private int getCurrentOptionPage() {
+            return getOptionPage();
+        }
+
+        private String[] keys(Object... itemIds) {
+            String[] keys = new String[itemIds.length];
+            for (int i = 0; i < itemIds.length; i++) {
+                keys[i] = itemIdMapper.key(itemIds[i]);
+            }
+            return keys;
+        }
+    }
+
+    private KeyListSelect select;
+
+    @Before
+    public void setUp() {
+        IndexedContainer container = new IndexedContainer();
+        for (int i = 0; i < 25; i++) {
+            container.addItem(i);
+        }
+        select = new KeyListSelect(container);
+        select.setOptionPageLength(10);
+    }
+
+    private void requestPage(int page) {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put(AbstractSelectConstants.VARIABLE_OPTION_PAGE, page);
+        select.changeVariables(select, variables);
+    }
+
+    private void selectOnClient(Object... itemIds) {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("selected", select.keys(itemIds));
+        select.changeVariables(select, variables);
+    }
+
+    @Test
+    public void noPageLength_allOptionsVisible() {
+        select.setOptionPageLength(0);
+        Assert.assertEquals(25, select.getVisibleItemIds().size());
+    }
+
+    @Test
+    public void pageLength_onlyPageVisible() {
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                select.getVisibleItemIds());
+    }
+
+    @Test
+    public void pageRequested_pageVisible() {
+        requestPage(2);
+        Assert.assertEquals(Arrays.asList(20, 21, 22, 23, 24),
+                select.getVisibleItemIds());
+    }
+
+    @Test
+    public void pageAfterLastRequested_lastPageVisible() {
+        requestPage(5);
+        Assert.assertEquals(Arrays.asList(20, 21, 22, 23, 24),
+                select.getVisibleItemIds());
+    }
+
+    @Test
+    public void selectionOutsidePage_visibleInContainerOrder() {
+        select.setMultiSelect(true);
+        select.setValue(Arrays.asList(24, 3, 15));
+        requestPage(1);
+        Assert.assertEquals(
+                Arrays.asList(3, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 24),
+                select.getVisibleItemIds());
+    }
+
+    @Test
+    public void notIndexedContainer_pageAndSelectionVisible() {
+        ContainerHierarchicalWrapper container = new ContainerHierarchicalWrapper(
+                new IndexedContainer());
+        for (int i = 0; i < 25; i++) {
+            container.addItem(i);
+        }
+        TwinColSelect twinColSelect = new TwinColSelect(null, container);
+        twinColSelect.setOptionPageLength(10);
+        twinColSelect.setValue(Arrays.asList(22));
+        Assert.assertEquals(
+                Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 22),
+                twinColSelect.getVisibleItemIds());
+    }
+
+    @Test
+    public void multiSelectDeselection_itemOnPageDeselected() {
+        select.setMultiSelect(true);
+        select.setValue(Arrays.asList(3, 5, 15));
+
+        selectOnClient(5, 15);
+        Assert.assertEquals(new HashSet<Object>(Arrays.asList(5, 15)),
+                select.getValue());
+    }
+
+    @Test
+    public void multiSelectDeselection_selectedItemOutsidePageDeselected() {
+        select.setMultiSelect(true);
+        select.setValue(Arrays.asList(5, 24));
+        requestPage(1);
+
+        selectOnClient(24);
+        Assert.assertEquals(new HashSet<Object>(Arrays.asList(24)),
+                select.getValue());
+    }
+
+    @Test
+    public void itemsRemoved_lastPageSentToClient() {
+        requestPage(2);
+        for (int i = 10; i < 25; i++) {
+            select.removeItem(i);
+        }
+        Assert.assertEquals(2, select.getCurrentOptionPage());
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                select.getVisibleItemIds());
+        // Reading the options does not change the page
+        Assert.assertEquals(2, select.getCurrentOptionPage());
+
+        select.beforeClientResponse(false);
+        Assert.assertEquals(0, select.getCurrentOptionPage());
+    }
+}
@@ -0,0 +1,124 @@
+package com.vaadin.tests.server.component.combobox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.ui.AbstractSelect;
+import com.vaadin.ui.ComboBox;
+
+public class ComboBoxFilteredIndexed {
+
+    private static class CountingContainer extends IndexedContainer {
+        private int evaluatedFilters;
+
+        @Override
+        public int size(Filter filter) {
+            evaluatedFilters++;
+            return super.size(filter);
+        }
+    }
+
+    private static class FilteringComboBox extends ComboBox {
+        private List<?> filter(String filterString) {
+            Map<String, Object> variables = new HashMap<String, Object>();
+            variables.put("filter", filterString);
+            variables.put("page", 0);
+            changeVariables(this, variables);
+            return getOptionsWithFilter(false);
+        }
+    }
+
+    private CountingContainer container;
+    private FilteringComboBox comboBox;
+    private int itemSetChanges;
+
+    @Before
+    public void setUp() {
+        container = new CountingContainer();
+        container.addContainerProperty("name", String.class, null);
+        String[] names = { "abc", "bcd", "abd", "cde", "abe", "acd" };
+        for (int i = 0; i < names.length; i++) {
+            container.addItem(i).getItemProperty("name").setValue(names[i]);
+        }
+        container
+                .addItemSetChangeListener(new Container.ItemSetChangeListener() {
+                    @Override
+                    public void containerItemSetChange(
+                            Container.ItemSetChangeEvent event) {
+                        itemSetChanges++;
+                    }
+                });
+        comboBox = new FilteringComboBox();
+        comboBox.setContainerDataSource(container);
+        comboBox.setItemCaptionMode(AbstractSelect.ITEM_CAPTION_MODE_PROPERTY);
+        comboBox.setItemCaptionPropertyId("name");
+    }
+
+    @Test
+    public void filter_containerNotModified() {
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 5), comboBox.filter("a"));
+        Assert.assertEquals(0, itemSetChanges);
+        Assert.assertFalse(container.hasContainerFilters());
+        Assert.assertEquals(6, container.size());
+    }
+
+    @Test
+    public void longerFilterString_narrowedFromCachedResult() {
+        comboBox.filter("a");
+        Assert.assertEquals(Arrays.asList(0, 2, 4), comboBox.filter("ab"));
+        Assert.assertEquals(Arrays.asList(2), comboBox.filter("abd"));
+        Assert.assertEquals(1, container.evaluatedFilters);
+    }
+
+    @Test
+    public void repeatedFilterString_servedFromCache() {
+        comboBox.filter("a");
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 5), comboBox.filter("a"));
+        Assert.assertEquals(1, container.evaluatedFilters);
+    }
+
+    @Test
+    public void otherFilterString_cacheCleared() {
+        comboBox.filter("a");
+        comboBox.filter("b");
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 5), comboBox.filter("a"));
+        Assert.assertEquals(3, container.evaluatedFilters);
+    }
+
+    @Test
+    public void captionOfUnpaintedItemChanged_newMatchFoundLater() {
+        comboBox.filter("a");
+        container.getContainerProperty(1, "name").setValue("aaa");
+        comboBox.filter("b");
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 4, 5),
+                comboBox.filter("a"));
+    }
+
+    @Test
+    public void itemSelected_cacheCleared() {
+        comboBox.filter("a");
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("selected", new String[0]);
+        comboBox.changeVariables(comboBox, variables);
+        comboBox.filter("a");
+        Assert.assertEquals(2, container.evaluatedFilters);
+    }
+
+    @Test
+    public void itemAdded_cacheCleared() {
+        comboBox.filter("a");
+        container.addItem(6).getItemProperty("name").setValue("aaa");
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 5, 6),
+                comboBox.filter("a"));
+        Assert.assertEquals(2, container.evaluatedFilters);
+    }
+}
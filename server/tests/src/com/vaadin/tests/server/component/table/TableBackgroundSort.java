@@ -0,0 +1,137 @@
+package com.vaadin.tests.server.component.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+
+public class TableBackgroundSort {
+
+    private static class QueueingSession extends AlwaysLockedVaadinSession {
+        private final List<Runnable> accessTasks = new ArrayList<Runnable>();
+
+        private QueueingSession() {
+            super(null);
+        }
+
+        @Override
+        public Future<Void> access(Runnable runnable) {
+            accessTasks.add(runnable);
+            return null;
+        }
+    }
+
+    private static class QueueingExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+
+    private static class AttachedTable extends Table {
+        private final QueueingSession session = new QueueingSession();
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+    }
+
+    private AttachedTable table;
+    private QueueingExecutor executor;
+
+    @Before
+    public void setUp() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", Integer.class, null);
+        int[] values = { 3, 1, 2 };
+        for (int i = 0; i < values.length; i++) {
+            container.addItem(i).getItemProperty("value").setValue(values[i]);
+        }
+        table = new AttachedTable();
+        table.setContainerDataSource(container);
+        executor = new QueueingExecutor();
+        table.setSortExecutor(executor);
+    }
+
+    private void runTasks(List<Runnable> tasks) {
+        List<Runnable> copy = new ArrayList<Runnable>(tasks);
+        tasks.clear();
+        for (Runnable task : copy) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void sort_appliedWhenSessionAccessed() {
+        table.sort(new Object[] { "value" }, new boolean[] { true });
+        Assert.assertTrue(table.isSortPending());
+        Assert.assertEquals(Arrays.asList(0, 1, 2), table.getItemIds());
+
+        runTasks(executor.tasks);
+        Assert.assertEquals(Arrays.asList(0, 1, 2), table.getItemIds());
+        Assert.assertEquals(1f, table.getSortProgress(), 0);
+
+        runTasks(table.session.accessTasks);
+        Assert.assertFalse(table.isSortPending());
+        Assert.assertEquals(Arrays.asList(1, 2, 0), table.getItemIds());
+    }
+
+    @Test
+    public void sortAgain_previousSortCancelled() {
+        table.sort(new Object[] { "value" }, new boolean[] { true });
+        table.sort(new Object[] { "value" }, new boolean[] { false });
+
+        runTasks(executor.tasks);
+        Assert.assertEquals(1, table.session.accessTasks.size());
+        runTasks(table.session.accessTasks);
+        Assert.assertEquals(Arrays.asList(0, 2, 1), table.getItemIds());
+    }
+
+    @Test
+    public void cancelSort_orderNotChanged() {
+        table.sort(new Object[] { "value" }, new boolean[] { true });
+        table.cancelSort();
+        Assert.assertFalse(table.isSortPending());
+
+        runTasks(executor.tasks);
+        runTasks(table.session.accessTasks);
+        Assert.assertEquals(Arrays.asList(0, 1, 2), table.getItemIds());
+    }
+
+    @Test
+    public void executorRejects_sortedInRequestThread() {
+        table.setSortExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        table.sort(new Object[] { "value" }, new boolean[] { true });
+        Assert.assertFalse(table.isSortPending());
+        Assert.assertEquals(Arrays.asList(1, 2, 0), table.getItemIds());
+    }
+
+    @Test
+    public void notAttached_sortedInRequestThread() {
+        Table detached = new Table();
+        detached.setContainerDataSource(table.getContainerDataSource());
+        detached.setSortExecutor(executor);
+        detached.sort(new Object[] { "value" }, new boolean[] { true });
+        Assert.assertTrue(executor.tasks.isEmpty());
+        Assert.assertEquals(Arrays.asList(1, 2, 0), detached.getItemIds());
+    }
+}
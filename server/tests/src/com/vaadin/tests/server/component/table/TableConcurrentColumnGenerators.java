@@ -0,0 +1,218 @@
+package com.vaadin.tests.server.component.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+import com.vaadin.util.CurrentInstance;
+
+public class TableConcurrentColumnGenerators {
+
+    private static class AttachedTable extends Table {
+        private final List<Runnable> accessTasks = Collections
+                .synchronizedList(new ArrayList<Runnable>());
+        private final VaadinSession session = new AlwaysLockedVaadinSession(
+                null) {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                accessTasks.add(runnable);
+                return null;
+            }
+        };
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+
+        @Override
+        public void refreshRenderedCells() {
+            super.refreshRenderedCells();
+        }
+
+        private int runAccessTasks() {
+            List<Runnable> tasks = new ArrayList<Runnable>(accessTasks);
+            accessTasks.clear();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return tasks.size();
+        }
+    }
+
+    private static class RecordingGenerator implements
+            Table.ConcurrentColumnGenerator {
+        private final Set<Thread> threads = Collections
+                .synchronizedSet(new HashSet<Thread>());
+        private final Set<VaadinSession> sessions = Collections
+                .synchronizedSet(new HashSet<VaadinSession>());
+
+        @Override
+        public Object generateCell(Table source, Object itemId,
+                Object columnId) {
+            threads.add(Thread.currentThread());
+            VaadinSession session = VaadinSession.getCurrent();
+            if (session != null) {
+                sessions.add(session);
+            }
+            return "generated " + itemId;
+        }
+    }
+
+    private AttachedTable table;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", Integer.class, 0);
+        for (int i = 0; i < 50; i++) {
+            container.addItem(i).getItemProperty("value").setValue(i);
+        }
+        table = new AttachedTable();
+        table.setContainerDataSource(container);
+        table.setPageLength(10);
+        executor = Executors.newFixedThreadPool(2);
+        table.setColumnGeneratorExecutor(executor);
+        CurrentInstance.setCurrent(table.getSession());
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        CurrentInstance.clearAll();
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void concurrentGenerator_generatedOnExecutorWithCurrentSession() {
+        RecordingGenerator generator = new RecordingGenerator();
+        table.addGeneratedColumn("generated", generator);
+        table.refreshRowCache();
+
+        Assert.assertFalse(generator.threads.isEmpty());
+        Assert.assertFalse(generator.threads.contains(Thread.currentThread()));
+        Assert.assertEquals(Collections.singleton(table.getSession()),
+                generator.sessions);
+        Assert.assertSame(table.getSession(), VaadinSession.getCurrent());
+    }
+
+    @Test
+    public void plainGenerator_generatedInRequestThread() {
+        final Set<Thread> threads = new HashSet<Thread>();
+        table.addGeneratedColumn("generated", new Table.ColumnGenerator() {
+            @Override
+            public Object generateCell(Table source, Object itemId,
+                    Object columnId) {
+                threads.add(Thread.currentThread());
+                return "generated " + itemId;
+            }
+        });
+        table.refreshRowCache();
+
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()),
+                threads);
+    }
+
+    @Test
+    public void timeoutExceeded_rowsRenderedAgainOnNextRefresh() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        table.addGeneratedColumn("generated",
+                new Table.ConcurrentColumnGenerator() {
+                    @Override
+                    public Object generateCell(Table source, Object itemId,
+                            Object columnId) {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "generated " + itemId;
+                    }
+                });
+        table.setColumnGeneratorTimeout(10);
+        table.refreshRowCache();
+
+        latch.countDown();
+        table.getRowCacheStatistics().reset();
+        table.refreshRenderedCells();
+        Assert.assertEquals(10, table.getRowCacheStatistics()
+                .getRenderedRowCount());
+
+        table.getRowCacheStatistics().reset();
+        table.refreshRenderedCells();
+        Assert.assertEquals(0, table.getRowCacheStatistics()
+                .getRenderedRowCount());
+    }
+
+    @Test
+    public void lateCell_rowRefreshedWithLateValue()
+            throws InterruptedException {
+        final AtomicInteger generated = new AtomicInteger();
+        table.addGeneratedColumn("generated",
+                new Table.ConcurrentColumnGenerator() {
+                    @Override
+                    public Object generateCell(Table source, Object itemId,
+                            Object columnId) {
+                        generated.incrementAndGet();
+                        try {
+                            new CountDownLatch(1).await();
+                        } catch (InterruptedException e) {
+                            // Completes anyway when cancelled
+                        }
+                        return "late " + itemId;
+                    }
+                });
+        table.setColumnGeneratorTimeout(10);
+        table.beforeClientResponse(true);
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        int generatedBeforeRefresh = generated.get();
+
+        table.getRowCacheStatistics().reset();
+        int lateCells = table.runAccessTasks();
+        Assert.assertTrue(lateCells > 0);
+        table.beforeClientResponse(false);
+        Assert.assertEquals(lateCells, table.getRowCacheStatistics()
+                .getRenderedRowCount());
+        Assert.assertEquals(generatedBeforeRefresh, generated.get());
+    }
+
+    @Test
+    public void executorRejects_generatedInRequestThread() {
+        table.setColumnGeneratorExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        RecordingGenerator generator = new RecordingGenerator();
+        table.addGeneratedColumn("generated", generator);
+        table.getRowCacheStatistics().reset();
+        table.refreshRowCache();
+
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()),
+                generator.threads);
+        Assert.assertEquals(10, table.getRowCacheStatistics()
+                .getGeneratedCellCount());
+    }
+}
@@ -0,0 +1,87 @@
+package com.vaadin.tests.server.component.table;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Property;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+
+public class TableLightweightRendering {
+
+    private static class CountingTable extends Table {
+        private final VaadinSession session = new AlwaysLockedVaadinSession(
+                null);
+        private int reads;
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+
+        @Override
+        protected Object getPropertyValue(Object rowId, Object colId,
+                Property property) {
+            reads++;
+            return super.getPropertyValue(rowId, colId, property);
+        }
+    }
+
+    private IndexedContainer container;
+    private CountingTable table;
+
+    @Before
+    public void setUp() {
+        container = new IndexedContainer();
+        container.addContainerProperty("price", Integer.class, 0);
+        for (int i = 0; i < 50; i++) {
+            container.addItem(i).getItemProperty("price").setValue(i);
+        }
+        table = new CountingTable();
+        table.setContainerDataSource(container);
+        table.setPageLength(10);
+        table.setLightweightRendering(true);
+        table.beforeClientResponse(true);
+        table.reads = 0;
+    }
+
+    @Test
+    public void valueChange_notRendered() {
+        container.getContainerProperty(5, "price").setValue(500);
+        table.beforeClientResponse(false);
+
+        Assert.assertEquals(0, table.reads);
+    }
+
+    @Test
+    public void refreshRowCache_newValueRendered() {
+        container.getContainerProperty(5, "price").setValue(500);
+        table.refreshRowCache();
+
+        Assert.assertTrue(table.reads > 0);
+    }
+
+    @Test
+    public void itemAdded_rowsRendered() {
+        container.addItemAt(0, "new");
+        table.beforeClientResponse(false);
+
+        Assert.assertTrue(table.reads > 0);
+    }
+
+    @Test
+    public void lightweightRenderingDisabled_valueChangesRendered() {
+        table.setLightweightRendering(false);
+        table.beforeClientResponse(false);
+        table.reads = 0;
+
+        container.getContainerProperty(5, "price").setValue(500);
+        table.beforeClientResponse(false);
+
+        Assert.assertFalse(table.isLightweightRendering());
+        Assert.assertEquals(1, table.reads);
+    }
+}
@@ -0,0 +1,99 @@
+package com.vaadin.tests.server.component.table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.Table.RowCacheStatistics;
+
+public class TableRowCacheStatistics {
+
+    private static class AttachedTable extends Table {
+        private final VaadinSession session = new AlwaysLockedVaadinSession(
+                null);
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+
+        @Override
+        public void refreshRenderedCells() {
+            super.refreshRenderedCells();
+        }
+    }
+
+    private AttachedTable table;
+
+    @Before
+    public void setUp() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", Integer.class, 0);
+        for (int i = 0; i < 50; i++) {
+            container.addItem(i).getItemProperty("value").setValue(i);
+        }
+        table = new AttachedTable();
+        table.setContainerDataSource(container);
+        table.setPageLength(10);
+    }
+
+    @Test
+    public void refreshRowCache_allRowsRendered() {
+        table.getRowCacheStatistics().reset();
+        table.refreshRowCache();
+
+        RowCacheStatistics statistics = table.getRowCacheStatistics();
+        Assert.assertEquals(10, statistics.getRenderedRowCount());
+        Assert.assertEquals(0, statistics.getCacheHitCount());
+    }
+
+    @Test
+    public void refreshRenderedCells_rowsReusedFromCache() {
+        table.refreshRowCache();
+        table.getRowCacheStatistics().reset();
+        table.refreshRenderedCells();
+
+        RowCacheStatistics statistics = table.getRowCacheStatistics();
+        Assert.assertEquals(0, statistics.getRenderedRowCount());
+        Assert.assertEquals(10, statistics.getCacheHitCount());
+    }
+
+    @Test
+    public void generatedColumn_generatedCellsCounted() {
+        table.addGeneratedColumn("generated", new Table.ColumnGenerator() {
+            @Override
+            public Object generateCell(Table source, Object itemId,
+                    Object columnId) {
+                return "generated " + itemId;
+            }
+        });
+        table.getRowCacheStatistics().reset();
+        table.refreshRowCache();
+
+        Assert.assertEquals(10, table.getRowCacheStatistics()
+                .getGeneratedCellCount());
+    }
+
+    @Test
+    public void repeatedRefreshes_rowsKeptInOrder() {
+        for (int first = 0; first < 40; first += 5) {
+            table.setCurrentPageFirstItemIndex(first);
+            table.refreshRowCache();
+            table.refreshRenderedCells();
+
+            List<?> visible = new ArrayList<Object>(table.getVisibleItemIds());
+            Assert.assertTrue(visible.contains(first));
+            for (int i = 1; i < visible.size(); i++) {
+                Assert.assertEquals((Integer) visible.get(i - 1) + 1,
+                        visible.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.vaadin.tests.server.component.table;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Property;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.data.util.ObjectProperty;
+import com.vaadin.server.JsonPaintTarget;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.PaintException;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+
+public class TableRowValueChanges {
+
+    private static class CountingTable extends Table {
+        private final VaadinSession session = new AlwaysLockedVaadinSession(
+                null);
+        private final Map<Object, Integer> reads = new HashMap<Object, Integer>();
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+
+        @Override
+        protected Object getPropertyValue(Object rowId, Object colId,
+                Property property) {
+            Integer count = reads.get(rowId);
+            reads.put(rowId, count == null ? 1 : count + 1);
+            return super.getPropertyValue(rowId, colId, property);
+        }
+
+        private String paint(boolean fullRepaint) throws PaintException {
+            StringWriter writer = new StringWriter();
+            JsonPaintTarget target = new JsonPaintTarget(
+                    new LegacyCommunicationManager(session), writer,
+                    !fullRepaint);
+            target.startTag("table");
+            paintContent(target);
+            target.endTag("table");
+            target.close();
+            return writer.toString();
+        }
+
+        private int getTotalReads() {
+            int total = 0;
+            for (Integer count : reads.values()) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    private IndexedContainer container;
+    private CountingTable table;
+
+    @Before
+    public void setUp() {
+        container = new IndexedContainer();
+        container.addContainerProperty("price", Integer.class, 0);
+        for (int i = 0; i < 50; i++) {
+            container.addItem(i).getItemProperty("price").setValue(i);
+        }
+        table = new CountingTable();
+        table.setContainerDataSource(container);
+        table.setPageLength(10);
+        table.beforeClientResponse(true);
+        table.reads.clear();
+    }
+
+    @Test
+    public void valueChangeOfRenderedProperty_onlyChangedRowRead() {
+        container.getContainerProperty(5, "price").setValue(500);
+        container.getContainerProperty(7, "price").setValue(700);
+        table.beforeClientResponse(false);
+
+        Assert.assertEquals(2, table.getTotalReads());
+        Assert.assertEquals(Integer.valueOf(1), table.reads.get(5));
+        Assert.assertEquals(Integer.valueOf(1), table.reads.get(7));
+    }
+
+    @Test
+    public void valueChangeOfRenderedProperty_propertyStillListened() {
+        container.getContainerProperty(5, "price").setValue(500);
+        table.beforeClientResponse(false);
+        table.reads.clear();
+
+        container.getContainerProperty(5, "price").setValue(501);
+        table.beforeClientResponse(false);
+        Assert.assertEquals(1, table.getTotalReads());
+    }
+
+    @Test
+    public void valueChangeAfterRowCacheRefresh_allRowsRead() {
+        container.getContainerProperty(5, "price").setValue(500);
+        table.refreshRowCache();
+        table.beforeClientResponse(false);
+
+        Assert.assertTrue(table.getTotalReads() > 2);
+        Assert.assertEquals(Integer.valueOf(1), table.reads.get(5));
+    }
+
+    @Test
+    public void paintChangedRow_cellsNotRegenerated() throws PaintException {
+        final int[] generated = new int[2];
+        table.addGeneratedColumn("generated", new Table.ColumnGenerator() {
+            @Override
+            public Object generateCell(Table source, Object itemId,
+                    Object columnId) {
+                generated[0]++;
+                return "Generated " + itemId;
+            }
+        });
+        table.setRowGenerator(new Table.RowGenerator() {
+            @Override
+            public Table.GeneratedRow generateRow(Table table, Object itemId) {
+                generated[1]++;
+                return null;
+            }
+        });
+        table.beforeClientResponse(false);
+        table.paint(true);
+        table.reads.clear();
+        generated[0] = 0;
+        generated[1] = 0;
+
+        container.getContainerProperty(5, "price").setValue(500);
+        table.beforeClientResponse(false);
+        Assert.assertEquals(1, table.getTotalReads());
+        Assert.assertEquals(1, generated[0]);
+        Assert.assertEquals(1, generated[1]);
+
+        String uidl = table.paint(false);
+        Assert.assertTrue(uidl.contains("\"firsturowix\":5"));
+        Assert.assertTrue(uidl.contains("500"));
+        // The row refreshed before the response is painted as such
+        Assert.assertEquals(1, table.getTotalReads());
+        Assert.assertEquals(1, generated[0]);
+        Assert.assertEquals(1, generated[1]);
+    }
+
+    private ObjectProperty<String> useSharedProperty() {
+        final ObjectProperty<String> shared = new ObjectProperty<String>(
+                "shared");
+        container = new IndexedContainer() {
+            @Override
+            public Property getContainerProperty(Object itemId,
+                    Object propertyId) {
+                if ("shared".equals(propertyId)
+                        && (itemId.equals(2) || itemId.equals(3))) {
+                    return shared;
+                }
+                return super.getContainerProperty(itemId, propertyId);
+            }
+        };
+        container.addContainerProperty("price", Integer.class, 0);
+        container.addContainerProperty("shared", String.class, "");
+        for (int i = 0; i < 50; i++) {
+            container.addItem(i).getItemProperty("price").setValue(i);
+        }
+        table.setContainerDataSource(container);
+        table.beforeClientResponse(true);
+        table.reads.clear();
+        return shared;
+    }
+
+    @Test
+    public void valueChangeOfSharedProperty_allRowsRead() {
+        ObjectProperty<String> shared = useSharedProperty();
+
+        shared.setValue("changed");
+        table.beforeClientResponse(false);
+        Assert.assertNotNull(table.reads.get(2));
+        Assert.assertNotNull(table.reads.get(3));
+    }
+
+    @Test
+    public void valueChangeOfSharedPropertyAfterRowUpdate_allRowsRead() {
+        ObjectProperty<String> shared = useSharedProperty();
+        container.getContainerProperty(3, "price").setValue(300);
+        table.beforeClientResponse(false);
+        table.reads.clear();
+
+        shared.setValue("changed");
+        table.beforeClientResponse(false);
+        Assert.assertNotNull(table.reads.get(2));
+        Assert.assertNotNull(table.reads.get(3));
+    }
+}
@@ -0,0 +1,158 @@
+package com.vaadin.tests.server.component.tree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.HierarchicalContainer;
+import com.vaadin.ui.AbstractSelect;
+import com.vaadin.ui.AbstractSelect.ItemCaptionMode;
+import com.vaadin.ui.Tree;
+
+public class TreeIncrementalUpdates {
+
+    private Tree tree;
+    private HierarchicalContainer container;
+
+    @Before
+    public void setUp() throws Exception {
+        // a -> a1 -> a1x, a1y; a -> a2 -> a2x; b -> b1
+        container = new HierarchicalContainer();
+        container.addContainerProperty("caption", String.class, "");
+        addItem("a", null);
+        addItem("a1", "a");
+        addItem("a1x", "a1");
+        addItem("a1y", "a1");
+        addItem("a2", "a");
+        addItem("a2x", "a2");
+        addItem("b", null);
+        addItem("b1", "b");
+
+        tree = new Tree(null, container);
+        tree.setItemCaptionMode(ItemCaptionMode.PROPERTY);
+        tree.setItemCaptionPropertyId("caption");
+        tree.setIncrementalUpdatesEnabled(true);
+        tree.expandItem("a");
+        tree.expandItem("a1");
+        tree.expandItem("a2");
+        simulatePaint();
+    }
+
+    private void addItem(String itemId, String parent) {
+        container.addItem(itemId).getItemProperty("caption")
+                .setValue(itemId);
+        container.setParent(itemId, parent);
+    }
+
+    private void setCaption(String itemId, String caption) {
+        container.getContainerProperty(itemId, "caption").setValue(caption);
+    }
+
+    private void simulatePaint() throws Exception {
+        setField("initialPaint", false);
+        setField("fullRepaintRequested", false);
+        setField("partialUpdate", false);
+        // Caption listeners are added when painting
+        Method getListener = AbstractSelect.class
+                .getDeclaredMethod("getCaptionChangeListener");
+        getListener.setAccessible(true);
+        Object listener = getListener.invoke(tree);
+        Method addNotifier = listener.getClass().getMethod(
+                "addNotifierForItem", Object.class);
+        addNotifier.setAccessible(true);
+        for (Object itemId : tree.getItemIds()) {
+            addNotifier.invoke(listener, itemId);
+        }
+    }
+
+    private Object getField(String name) throws Exception {
+        Field field = Tree.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(tree);
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = Tree.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(tree, value);
+    }
+
+    private void assertPartialUpdate(Object rootId) throws Exception {
+        Assert.assertEquals(Boolean.TRUE, getField("partialUpdate"));
+        Assert.assertEquals(Boolean.FALSE, getField("fullRepaintRequested"));
+        Assert.assertEquals(rootId, getField("expandedItemId"));
+    }
+
+    private void assertFullRepaint() throws Exception {
+        Assert.assertEquals(Boolean.FALSE, getField("partialUpdate"));
+        Assert.assertEquals(Boolean.TRUE, getField("fullRepaintRequested"));
+    }
+
+    @Test
+    public void captionChanged_parentSubtreeUpdated() throws Exception {
+        setCaption("a1x", "changed");
+        assertPartialUpdate("a1");
+    }
+
+    @Test
+    public void captionsChangedInSiblingSubtrees_commonAncestorUpdated()
+            throws Exception {
+        setCaption("a1x", "changed");
+        setCaption("a2x", "changed");
+        assertPartialUpdate("a");
+    }
+
+    @Test
+    public void rootCaptionChanged_wholeTreeRepainted() throws Exception {
+        setCaption("b", "changed");
+        assertFullRepaint();
+    }
+
+    @Test
+    public void captionChangedUnderCollapsedItem_collapsedItemRepainted()
+            throws Exception {
+        tree.collapseItem("a1");
+        simulatePaint();
+        setCaption("a1x", "changed");
+        assertPartialUpdate("a");
+    }
+
+    @Test
+    public void itemCollapsed_parentSubtreeUpdated() throws Exception {
+        tree.collapseItem("a2");
+        assertPartialUpdate("a");
+    }
+
+    @Test
+    public void childrenMarkedAsDirty_subtreeUpdated() throws Exception {
+        tree.markChildrenAsDirty("a2");
+        assertPartialUpdate("a2");
+    }
+
+    @Test
+    public void itemsExpandedRecursively_allExpandedInSubtreeUpdate()
+            throws Exception {
+        tree.collapseItem("a1");
+        tree.collapseItem("a2");
+        tree.collapseItem("a");
+        simulatePaint();
+        tree.expandItem("a");
+        simulatePaint();
+
+        tree.expandItemsRecursively("a");
+        Assert.assertTrue(tree.isExpanded("a1"));
+        Assert.assertTrue(tree.isExpanded("a2"));
+        assertPartialUpdate("a");
+    }
+
+    @Test
+    public void incrementalUpdatesDisabled_wholeTreeRepainted()
+            throws Exception {
+        tree.setIncrementalUpdatesEnabled(false);
+        setCaption("a1x", "changed");
+        assertFullRepaint();
+    }
+}
@@ -0,0 +1,97 @@
+package com.vaadin.tests.server.component.treetable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.vaadin.data.util.HierarchicalContainer;
+import com.vaadin.ui.TreeTable;
+
+public class TreeTableExpandCollapse extends TestCase {
+
+    private static class IndexedTreeTable extends TreeTable {
+        @Override
+        public int indexOfId(Object itemId) {
+            return super.indexOfId(itemId);
+        }
+    }
+
+    private IndexedTreeTable treeTable;
+
+    @Override
+    protected void setUp() {
+        // root0..root2, each with children rootN-0..rootN-2, each with
+        // grandchildren rootN-M-0..rootN-M-1
+        HierarchicalContainer container = new HierarchicalContainer();
+        for (int i = 0; i < 3; i++) {
+            String root = "root" + i;
+            container.addItem(root);
+            for (int j = 0; j < 3; j++) {
+                String child = root + "-" + j;
+                container.addItem(child);
+                container.setParent(child, root);
+                for (int k = 0; k < 2; k++) {
+                    String grandChild = child + "-" + k;
+                    container.addItem(grandChild);
+                    container.setParent(grandChild, child);
+                    container.setChildrenAllowed(grandChild, false);
+                }
+            }
+        }
+        treeTable = new IndexedTreeTable();
+        treeTable.setContainerDataSource(container);
+    }
+
+    public void testExpandAndCollapse() {
+        assertVisible("root0", "root1", "root2");
+
+        treeTable.setCollapsed("root1", false);
+        assertVisible("root0", "root1", "root1-0", "root1-1", "root1-2",
+                "root2");
+
+        treeTable.setCollapsed("root1-1", false);
+        assertVisible("root0", "root1", "root1-0", "root1-1", "root1-1-0",
+                "root1-1-1", "root1-2", "root2");
+
+        // Collapsing hides the open grandchildren too
+        treeTable.setCollapsed("root1", true);
+        assertVisible("root0", "root1", "root2");
+
+        // and expanding shows them again
+        treeTable.setCollapsed("root1", false);
+        assertVisible("root0", "root1", "root1-0", "root1-1", "root1-1-0",
+                "root1-1-1", "root1-2", "root2");
+    }
+
+    public void testExpandHiddenNode() {
+        treeTable.setCollapsed("root0-0", false);
+        assertVisible("root0", "root1", "root2");
+
+        treeTable.setCollapsed("root0", false);
+        assertVisible("root0", "root0-0", "root0-0-0", "root0-0-1",
+                "root0-1", "root0-2", "root1", "root2");
+    }
+
+    private void assertVisible(Object... expected) {
+        assertEquals(expected.length, treeTable.size());
+        List<Object> visible = new ArrayList<Object>();
+        Object id = treeTable.firstItemId();
+        while (id != null) {
+            visible.add(id);
+            assertEquals(visible.size() - 1, treeTable.indexOfId(id));
+            id = treeTable.nextItemId(id);
+        }
+        List<Object> reversed = new ArrayList<Object>();
+        id = treeTable.lastItemId();
+        while (id != null) {
+            reversed.add(0, id);
+            id = treeTable.prevItemId(id);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], visible.get(i));
+            assertEquals(expected[i], reversed.get(i));
+        }
+        assertEquals(expected.length, visible.size());
+    }
+}
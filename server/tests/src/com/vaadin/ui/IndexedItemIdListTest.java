@@ -0,0 +1,79 @@
+package com.vaadin.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexedItemIdListTest {
+
+    @Test
+    public void createdFromIds_sameOrderAndIndexes() {
+        List<Object> ids = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(i);
+        }
+        IndexedItemIdList list = new IndexedItemIdList(ids);
+
+        Assert.assertEquals(ids, list);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, list.get(i));
+            Assert.assertEquals(i, list.indexOf(i));
+        }
+        Assert.assertEquals(-1, list.indexOf(1000));
+    }
+
+    @Test
+    public void nextAndPrevious_neighbouringIds() {
+        IndexedItemIdList list = new IndexedItemIdList(Arrays.asList("a", "b",
+                "c"));
+
+        Assert.assertEquals("b", list.next("a"));
+        Assert.assertNull(list.next("c"));
+        Assert.assertEquals("b", list.previous("c"));
+        Assert.assertNull(list.previous("a"));
+        Assert.assertNull(list.next("x"));
+    }
+
+    @Test
+    public void randomInsertsAndRemovals_matchArrayList() {
+        Random random = new Random(1);
+        List<Object> expected = new ArrayList<Object>();
+        IndexedItemIdList list = new IndexedItemIdList();
+        int nextId = 0;
+        for (int round = 0; round < 500; round++) {
+            if (expected.isEmpty() || random.nextBoolean()) {
+                List<Object> added = new ArrayList<Object>();
+                int count = random.nextInt(20) + 1;
+                for (int i = 0; i < count; i++) {
+                    added.add(nextId++);
+                }
+                int index = random.nextInt(expected.size() + 1);
+                expected.addAll(index, added);
+                list.addAll(index, added);
+            } else {
+                int from = random.nextInt(expected.size());
+                int to = from + random.nextInt(expected.size() - from + 1);
+                expected.subList(from, to).clear();
+                list.removeRange(from, to);
+            }
+            Assert.assertEquals(expected.size(), list.size());
+        }
+        Assert.assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i++) {
+            Object id = expected.get(i);
+            Assert.assertEquals(i, list.indexOf(id));
+            Assert.assertEquals(i + 1 < expected.size() ? expected.get(i + 1)
+                    : null, list.next(id));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addExistingId_throws() {
+        IndexedItemIdList list = new IndexedItemIdList(Arrays.asList("a", "b"));
+        list.addAll(0, Arrays.asList("b"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.vaadin.ui;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+
+public class TableRowCacheBudgetTest {
+
+    private VaadinSession session;
+
+    private static class SessionTable extends Table {
+        private VaadinSession session;
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        session = new AlwaysLockedVaadinSession(null);
+    }
+
+    @Test
+    public void getCacheRate_withinBudget_configuredRate() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(1000);
+        Assert.assertEquals(2.0,
+                budget.getCacheRate(new Table(), 10, 5, 2.0), 0.0001);
+    }
+
+    @Test
+    public void getCacheRate_overBudget_reducedRate() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(150);
+        Assert.assertEquals(1.0,
+                budget.getCacheRate(new Table(), 10, 5, 2.0), 0.0001);
+    }
+
+    @Test
+    public void getCacheRate_visibleRowsOverBudget_noExtraRows() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(10);
+        Assert.assertEquals(0.0,
+                budget.getCacheRate(new Table(), 10, 5, 2.0), 0.0001);
+    }
+
+    @Test
+    public void getCacheRate_otherTablesUseBudget_equalShareAllowed() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(100);
+        budget.setCachedCells(new Table(), 90);
+        Assert.assertEquals(90, budget.getCachedCells());
+        Assert.assertEquals(2.0,
+                budget.getCacheRate(new Table(), 10, 1, 3.0), 0.0001);
+    }
+
+    @Test
+    public void refreshRowCache_cachedCellsTracked() {
+        TableRowCacheBudget budget = new TableRowCacheBudget(1000);
+        TableRowCacheBudget.set(session, budget);
+        Assert.assertSame(budget, TableRowCacheBudget.get(session));
+
+        SessionTable table = new SessionTable();
+        table.session = session;
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("a", String.class, "");
+        container.addContainerProperty("b", String.class, "");
+        for (int i = 0; i < 100; i++) {
+            container.addItem(i);
+        }
+        table.setContainerDataSource(container);
+        table.setPageLength(10);
+        table.refreshRowCache();
+
+        Assert.assertEquals(1, budget.getTableCount());
+        Assert.assertEquals(20, budget.getCachedCells(table));
+
+        budget.remove(table);
+        Assert.assertEquals(0, budget.getTableCount());
+        Assert.assertEquals(0, budget.getCachedCells());
+    }
+}
@@ -0,0 +1,29 @@
+package com.vaadin.util;
+
+import java.lang.reflect.Method;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReflectToolsSetAccessible {
+    private static class PrivateClass {
+        public String getValue() {
+            return "value";
+        }
+    }
+
+    @Test
+    public void methodOfPrivateClass_invokedWithoutAccessChecks()
+            throws Exception {
+        Method method = PrivateClass.class.getMethod("getValue");
+
+        Assert.assertSame(method, ReflectTools.setAccessible(method));
+        Assert.assertTrue(method.isAccessible());
+        Assert.assertEquals("value", method.invoke(new PrivateClass()));
+    }
+
+    @Test
+    public void nullMethod_nullReturned() {
+        Assert.assertNull(ReflectTools.setAccessible(null));
+    }
+}
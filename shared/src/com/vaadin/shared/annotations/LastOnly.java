@@ -0,0 +1,42 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.shared.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.vaadin.shared.communication.ClientRpc;
+
+/**
+ * Invoking a method in a {@link ClientRpc} interface marked with this
+ * annotation will remove any previous invocations of the same method for the
+ * same connector from the queue of invocations waiting to be sent to the
+ * client. This can be used for idempotent methods where only the last value is
+ * of interest, such as setting a scroll position.
+ * <p>
+ * This is the server to client counterpart of {@link Delayed#lastOnly()}.
+ * 
+ * @author Vaadin Ltd
+ * @since 7.2
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LastOnly {
+}
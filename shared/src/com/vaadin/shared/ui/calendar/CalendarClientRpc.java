@@ -15,6 +15,7 @@
  */
 package com.vaadin.shared.ui.calendar;
 
+import com.vaadin.shared.annotations.LastOnly;
 import com.vaadin.shared.communication.ClientRpc;
 
 /**
@@ -24,5 +25,6 @@ import com.vaadin.shared.communication.ClientRpc;
  * 
  */
 public interface CalendarClientRpc extends ClientRpc {
+    @LastOnly
     void scroll(int scrollPosition);
 }
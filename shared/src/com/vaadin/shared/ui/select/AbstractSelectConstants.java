@@ -0,0 +1,31 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.shared.ui.select;
+
+import java.io.Serializable;
+
+/**
+ * Attribute and variable names used when painting the options of selects.
+ * 
+ * @since 7.2
+ */
+public class AbstractSelectConstants implements Serializable {
+    public static final String ATTRIBUTE_OPTION_PAGE_LENGTH = "optionpagelength";
+    public static final String ATTRIBUTE_OPTION_PAGE = "optionpage";
+    public static final String ATTRIBUTE_TOTAL_OPTIONS = "totaloptions";
+    public static final String VARIABLE_OPTION_PAGE = "optionpage";
+
+}
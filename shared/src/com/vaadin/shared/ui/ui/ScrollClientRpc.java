@@ -16,11 +16,14 @@
 
 package com.vaadin.shared.ui.ui;
 
+import com.vaadin.shared.annotations.LastOnly;
 import com.vaadin.shared.communication.ClientRpc;
 
 public interface ScrollClientRpc extends ClientRpc {
 
+    @LastOnly
     public void setScrollTop(int scrollTop);
 
+    @LastOnly
     public void setScrollLeft(int scrollLeft);
 }
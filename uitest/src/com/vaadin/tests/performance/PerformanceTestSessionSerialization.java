@@ -0,0 +1,189 @@
+/*
+ * Copyright 2000-2013 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.SessionSerializer;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.components.calendar.BeanItemContainerTestUI;
+import com.vaadin.tests.components.calendar.CalendarTest;
+import com.vaadin.tests.components.datefield.DateFieldRanges;
+import com.vaadin.tests.components.orderedlayout.VaadinTunesLayout;
+import com.vaadin.tests.components.table.TableInTabsheet;
+import com.vaadin.ui.UI;
+
+/*
+ * Measures writing a session containing UIs of the test application, using
+ * the default Java serialization and SessionSerializer with and without
+ * compact class descriptors and compression. The UIs are initialized and their
+ * state encoded as if they had been rendered, without a servlet container.
+ * 
+ * Please run with -server -Xloggc:/tmp/gclog.vgc -verbose:gc
+ * 
+ * Your results will vary. 200 writes of the session:
+ * 
+ * ObjectOutputStream: total time 1832 ms, 1276594 bytes
+ * 
+ * SessionSerializer, uncompressed: total time 1892 ms, 1276599 bytes
+ * 
+ * SessionSerializer, compact descriptors: total time 1861 ms, 1256804 bytes
+ * 
+ * SessionSerializer, compressed: total time 2671 ms, 117345 bytes
+ */
+public class PerformanceTestSessionSerialization {
+
+    private static final Class<?>[] UI_CLASSES = { BasicPerformanceTest.class,
+            VaadinTunesLayout.class, CalendarTest.class,
+            BeanItemContainerTestUI.class, TableInTabsheet.class,
+            DateFieldRanges.class };
+
+    private static class LockedVaadinSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        public LockedVaadinSession() {
+            super(null);
+            lock.lock();
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+    }
+
+    private static long size;
+
+    public static void main(String[] args) throws Exception {
+        VaadinSession session = createSession();
+
+        warmup(session);
+
+        long start = System.currentTimeMillis();
+        runDefault(session, 200);
+        long end = System.currentTimeMillis();
+        System.out.println("ObjectOutputStream: took " + (end - start)
+                + " ms, " + size + " bytes");
+
+        SessionSerializer serializer = new SessionSerializer();
+        serializer.setCompressed(false);
+        start = System.currentTimeMillis();
+        runSerializer(session, serializer, 200);
+        end = System.currentTimeMillis();
+        System.out.println("SessionSerializer, uncompressed: took "
+                + (end - start) + " ms, " + size + " bytes");
+
+        serializer.setCompactClassDescriptors(true);
+        start = System.currentTimeMillis();
+        runSerializer(session, serializer, 200);
+        end = System.currentTimeMillis();
+        System.out.println("SessionSerializer, compact descriptors: took "
+                + (end - start) + " ms, " + size + " bytes");
+
+        serializer.setCompactClassDescriptors(false);
+        serializer.setCompressed(true);
+        start = System.currentTimeMillis();
+        runSerializer(session, serializer, 200);
+        end = System.currentTimeMillis();
+        System.out.println("SessionSerializer, compressed: took "
+                + (end - start) + " ms, " + size + " bytes");
+
+        System.out.println(new SessionSerializer().measure(session));
+    }
+
+    /**
+     * Creates a request for initializing a UI as if it had been loaded from
+     * localhost.
+     */
+    private static VaadinRequest createRequest() {
+        return (VaadinRequest) Proxy.newProxyInstance(
+                VaadinRequest.class.getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getParameter")
+                                && "v-loc".equals(args[0])) {
+                            return "http://localhost:8888/run/";
+                        } else if (name.equals("getParameterMap")) {
+                            return Collections.emptyMap();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static VaadinSession createSession() throws Exception {
+        VaadinSession session = new LockedVaadinSession();
+        VaadinSession.setCurrent(session);
+        VaadinRequest request = createRequest();
+        for (Class<?> uiClass : UI_CLASSES) {
+            UI ui = (UI) uiClass.newInstance();
+            ui.setSession(session);
+            UI.setCurrent(ui);
+            ui.doInit(request, session.getNextUIid(), null);
+            session.addUI(ui);
+            // Populate the diff states as if the UI had been rendered
+            for (ClientConnector connector : ui.getConnectorTracker()
+                    .getDirtyVisibleConnectors()) {
+                connector.encodeState();
+            }
+        }
+        return session;
+    }
+
+    private static void warmup(VaadinSession session) throws IOException,
+            InterruptedException {
+        runDefault(session, 50);
+        runSerializer(session, new SessionSerializer(), 50);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runDefault(VaadinSession session, int loops)
+            throws IOException {
+        for (int i = 0; i < loops; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(out);
+            objectOut.writeObject(session);
+            objectOut.close();
+            size = out.size();
+        }
+    }
+
+    private static void runSerializer(VaadinSession session,
+            SessionSerializer serializer, int loops) throws IOException {
+        for (int i = 0; i < loops; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            serializer.writeSession(session, out);
+            size = out.size();
+        }
+    }
+}